@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,23 +10,33 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core.manipulation;
 
+import java.util.Hashtable;
+
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.Plugin;
 import org.eclipse.core.runtime.Status;
 
+import org.eclipse.osgi.service.debug.DebugOptions;
+import org.eclipse.osgi.service.debug.DebugOptionsListener;
+
 import org.eclipse.jdt.core.manipulation.JavaManipulation;
 
 /**
  * The main plug-in class to be used in the workbench.
  */
-public class JavaManipulationPlugin extends Plugin {
+public class JavaManipulationPlugin extends Plugin implements DebugOptionsListener {
+
+	public static boolean DEBUG_SUPER_TYPE_HIERARCHY_CACHE;
 
 	//The shared instance.
 	private static JavaManipulationPlugin fgDefault;
 
+	private ServiceRegistration<DebugOptionsListener> fDebugRegistration;
+
 	/**
 	 * The constructor.
 	 */
@@ -37,10 +47,19 @@ public class JavaManipulationPlugin extends Plugin {
 	@Override
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
+
+		// register debug options listener
+		Hashtable<String, String> properties= new Hashtable<>(2);
+		properties.put(DebugOptions.LISTENER_SYMBOLICNAME, getPluginId());
+		fDebugRegistration= context.registerService(DebugOptionsListener.class, this, properties);
 	}
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		if (fDebugRegistration != null) {
+			fDebugRegistration.unregister();
+			fDebugRegistration= null;
+		}
 		super.stop(context);
 		fgDefault = null;
 	}
@@ -79,4 +98,9 @@ public class JavaManipulationPlugin extends Plugin {
 	public static void log(Throwable e) {
 		log(new Status(IStatus.ERROR, getPluginId(), IStatusConstants.INTERNAL_ERROR, JavaManipulationMessages.JavaManipulationMessages_internalError, e));
 	}
+
+	@Override
+	public void optionsChanged(DebugOptions options) {
+		DEBUG_SUPER_TYPE_HIERARCHY_CACHE= options.getBooleanOption("org.eclipse.jdt.core.manipulation/debug/SuperTypeHierarchyCache", false); //$NON-NLS-1$
+	}
 }
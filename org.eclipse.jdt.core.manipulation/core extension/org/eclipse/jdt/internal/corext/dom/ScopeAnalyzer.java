@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,11 +11,17 @@
 package org.eclipse.jdt.internal.corext.dom;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
 import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
 import org.eclipse.jdt.core.dom.Block;
@@ -55,11 +61,25 @@ import org.eclipse.jdt.internal.core.manipulation.dom.ASTResolving;
 /**
  * Evaluates all fields, methods and types available (declared) at a given offset
  * in a compilation unit (Code assist that returns IBindings)
+ * <p>
+ * The members inherited by a type and the local declarations in scope in a body declaration are
+ * computed once per AST and shared by all scope analyzers on the same AST, see {@link ScopeIndex}.
+ * Replaying the shared tables reports the same declarations in the same order as computing them
+ * again, see {@link #ScopeAnalyzer(CompilationUnit, boolean)}.
+ * </p>
  */
 public class ScopeAnalyzer {
 
 	private static final IBinding[] NO_BINDING= new IBinding[0];
 
+	private static final String SCOPE_INDEX_PROPERTY= ScopeAnalyzer.class.getName() + ".index"; //$NON-NLS-1$
+
+	/**
+	 * Guards the scope index property of the compilation unit nodes. The node itself is not used
+	 * as lock, since clients may synchronize on it.
+	 */
+	private static final Object fgScopeIndexLock= new Object();
+
 	/**
 	 * Flag to specify that method should be reported.
 	 */
@@ -128,19 +148,257 @@ public class ScopeAnalyzer {
 
 	}
 
+	private static class CollectingRequestor implements IBindingRequestor {
+
+		private final List<IBinding> fResult= new ArrayList<>();
+
+		@Override
+		public boolean acceptBinding(IBinding binding) {
+			if (binding != null) {
+				fResult.add(binding);
+			}
+			return false;
+		}
+
+		public IBinding[] getResult() {
+			return fResult.toArray(new IBinding[fResult.size()]);
+		}
+	}
+
+	/**
+	 * The members of a type and its super types, in the order in which they are reported. The
+	 * members are recorded per type, so that types which have already been visited by a query can
+	 * be skipped when the members are replayed.
+	 */
+	private static final class InheritedMembers {
+
+		/** The type and its super types, in the order in which they are visited. */
+		private final ITypeBinding[] fTypes;
+		/** The members declared by each type in {@link #fTypes}. */
+		private final IBinding[][] fMembers;
+
+		public InheritedMembers(ITypeBinding[] types, IBinding[][] members) {
+			fTypes= types;
+			fMembers= members;
+		}
+	}
+
+	/**
+	 * The local declarations in scope in a body declaration. The local declarations in scope only
+	 * change at the start and end positions of the nodes in the body declaration, so the
+	 * declarations are recorded per interval between these positions.
+	 */
+	private static final class LocalScopes {
+
+		/** The sorted positions at which the declarations in scope can change. */
+		private final int[] fBoundaries;
+		/** The declarations in scope by interval and flags. */
+		private final Map<Integer, IBinding[]> fDeclarations= new HashMap<>();
+
+		public LocalScopes(int[] boundaries) {
+			fBoundaries= boundaries;
+		}
+
+		public Integer getKey(int offset, int flags) {
+			int index= Arrays.binarySearch(fBoundaries, offset);
+			int interval= index >= 0 ? index + 1 : -(index + 1);
+			return Integer.valueOf(interval << 3 | (flags & (VARIABLES | TYPES)));
+		}
+	}
+
+	private static class BoundaryCollector extends ASTVisitor {
+
+		private int[] fPositions= new int[64];
+		private int fCount= 0;
+
+		@Override
+		public boolean preVisit2(ASTNode node) {
+			int start= node.getStartPosition();
+			int end= start + node.getLength();
+			add(start);
+			add(start + 1);
+			add(end);
+			add(end + 1);
+			return true;
+		}
+
+		private void add(int position) {
+			if (fCount == fPositions.length) {
+				fPositions= Arrays.copyOf(fPositions, fCount * 2);
+			}
+			fPositions[fCount++]= position;
+		}
+
+		public int[] getBoundaries() {
+			int[] positions= Arrays.copyOf(fPositions, fCount);
+			Arrays.sort(positions);
+			int count= 0;
+			for (int i= 0; i < positions.length; i++) {
+				if (count == 0 || positions[count - 1] != positions[i]) {
+					positions[count++]= positions[i];
+				}
+			}
+			return Arrays.copyOf(positions, count);
+		}
+	}
+
+	/**
+	 * Scope tables of an AST: the members inherited by each type binding and the local
+	 * declarations in scope in each body declaration. The tables are filled on demand and shared
+	 * by all scope analyzers on the AST, so that repeated queries on the same AST are lookups. The
+	 * index is stored as a property of the compilation unit node and is discarded when the AST is
+	 * modified.
+	 */
+	private static final class ScopeIndex {
+
+		private final AST fAST;
+		private final long fModificationCount;
+		private final Map<ITypeBinding, InheritedMembers[]> fInheritedMembers= new HashMap<>();
+		private final Map<BodyDeclaration, LocalScopes> fLocalScopes= new HashMap<>();
+
+		private ScopeIndex(AST ast) {
+			fAST= ast;
+			fModificationCount= ast.modificationCount();
+		}
+
+		public static ScopeIndex get(CompilationUnit root) {
+			synchronized (fgScopeIndexLock) {
+				ScopeIndex index= (ScopeIndex) root.getProperty(SCOPE_INDEX_PROPERTY);
+				if (index == null || index.fModificationCount != root.getAST().modificationCount()) {
+					index= new ScopeIndex(root.getAST());
+					root.setProperty(SCOPE_INDEX_PROPERTY, index);
+				}
+				return index;
+			}
+		}
+
+		public synchronized InheritedMembers getInheritedMembers(ITypeBinding binding, boolean isSuperInterfaceBinding, int flags) {
+			int slot= (flags & (METHODS | VARIABLES | TYPES)) << 1 | (isSuperInterfaceBinding ? 1 : 0);
+			InheritedMembers[] members= fInheritedMembers.get(binding);
+			if (members == null) {
+				members= new InheritedMembers[16];
+				fInheritedMembers.put(binding, members);
+			}
+			if (members[slot] == null) {
+				List<ITypeBinding> types= new ArrayList<>();
+				List<IBinding[]> declared= new ArrayList<>();
+				collectInherited(binding, isSuperInterfaceBinding, flags, new HashSet<ITypeBinding>(), types, declared);
+				members[slot]= new InheritedMembers(types.toArray(new ITypeBinding[types.size()]), declared.toArray(new IBinding[declared.size()][]));
+			}
+			return members[slot];
+		}
+
+		private void collectInherited(ITypeBinding binding, boolean isSuperInterfaceBinding, int flags, Set<ITypeBinding> typesVisited, List<ITypeBinding> types, List<IBinding[]> declared) {
+			if (!typesVisited.add(binding)) {
+				return;
+			}
+			CollectingRequestor requestor= new CollectingRequestor();
+			addDeclaredMembers(binding, isSuperInterfaceBinding, flags, requestor);
+			types.add(binding);
+			declared.add(requestor.getResult());
+
+			ITypeBinding superClass= binding.getSuperclass();
+			if (superClass != null) {
+				collectInherited(superClass, false, flags, typesVisited, types, declared); // recursive
+			} else if (binding.isArray()) {
+				collectInherited(fAST.resolveWellKnownType("java.lang.Object"), false, flags, typesVisited, types, declared); //$NON-NLS-1$
+			}
+
+			ITypeBinding[] interfaces= binding.getInterfaces(); // includes looking for methods: abstract, unimplemented methods
+			for (int i= 0; i < interfaces.length; i++) {
+				collectInherited(interfaces[i], true, flags, typesVisited, types, declared); // recursive
+			}
+		}
+
+		public synchronized IBinding[] getLocalDeclarations(BodyDeclaration declaration, int offset, int flags) {
+			LocalScopes scopes= fLocalScopes.get(declaration);
+			if (scopes == null) {
+				BoundaryCollector collector= new BoundaryCollector();
+				declaration.accept(collector);
+				scopes= new LocalScopes(collector.getBoundaries());
+				fLocalScopes.put(declaration, scopes);
+			}
+			Integer key= scopes.getKey(offset, flags);
+			IBinding[] declarations= scopes.fDeclarations.get(key);
+			if (declarations == null) {
+				CollectingRequestor requestor= new CollectingRequestor();
+				declaration.accept(new ScopeAnalyzerVisitor(offset, flags, requestor));
+				declarations= requestor.getResult();
+				scopes.fDeclarations.put(key, declarations);
+			}
+			return declarations;
+		}
+	}
+
 	private final HashSet<ITypeBinding> fTypesVisited;
 
 	private final CompilationUnit fRoot;
 
+	private final boolean fUseScopeIndex;
+
 	public ScopeAnalyzer(CompilationUnit root) {
+		this(root, true);
+	}
+
+	/**
+	 * Creates a scope analyzer.
+	 *
+	 * @param root the AST
+	 * @param useScopeIndex if <code>false</code>, the analyzer does not use the scope index shared
+	 *            by the analyzers on the AST, but computes all declarations again on each query
+	 */
+	public ScopeAnalyzer(CompilationUnit root, boolean useScopeIndex) {
 		fTypesVisited= new HashSet<>();
 		fRoot= root;
+		fUseScopeIndex= useScopeIndex;
 	}
 
 	private void clearLists() {
 		fTypesVisited.clear();
 	}
 
+	private static boolean addDeclaredMembers(ITypeBinding binding, boolean isSuperInterfaceBinding, int flags, IBindingRequestor requestor) {
+		if (hasFlag(VARIABLES, flags)) {
+			IVariableBinding[] variableBindings= binding.getDeclaredFields();
+			for (int i= 0; i < variableBindings.length; i++) {
+				if (requestor.acceptBinding(variableBindings[i]))
+					return true;
+			}
+		}
+
+		if (hasFlag(METHODS, flags)) {
+			IMethodBinding[] methodBindings= binding.getDeclaredMethods();
+			for (int i= 0; i < methodBindings.length; i++) {
+				IMethodBinding curr= methodBindings[i];
+				if (isSuperInterfaceBinding && Modifier.isStatic(curr.getModifiers())) {
+					continue;
+				}
+				if (!curr.isSynthetic() && !curr.isConstructor()) {
+					if (requestor.acceptBinding(curr))
+						return true;
+				}
+			}
+		}
+
+		if (hasFlag(TYPES, flags)) {
+			ITypeBinding[] typeBindings= binding.getDeclaredTypes();
+			for (int i= 0; i < typeBindings.length; i++) {
+				ITypeBinding curr= typeBindings[i];
+				if (requestor.acceptBinding(curr))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean acceptBindings(IBinding[] bindings, IBindingRequestor requestor) {
+		for (int i= 0; i < bindings.length; i++) {
+			if (requestor.acceptBinding(bindings[i]))
+				return true;
+		}
+		return false;
+	}
+
 	private static String getSignature(IBinding binding) {
 		if (binding != null) {
 			switch (binding.getKind()) {
@@ -183,53 +441,36 @@ public class ScopeAnalyzer {
 	}
 
 	private boolean addInherited(ITypeBinding binding, boolean isSuperInterfaceBinding, int flags, IBindingRequestor requestor) {
-		if (!fTypesVisited.add(binding)) {
-			return false;
-		}
-		if (hasFlag(VARIABLES, flags)) {
-			IVariableBinding[] variableBindings= binding.getDeclaredFields();
-			for (int i= 0; i < variableBindings.length; i++) {
-				if (requestor.acceptBinding(variableBindings[i]))
-					return true;
+		if (!fUseScopeIndex) {
+			if (!fTypesVisited.add(binding)) {
+				return false;
 			}
-		}
+			if (addDeclaredMembers(binding, isSuperInterfaceBinding, flags, requestor))
+				return true;
 
-		if (hasFlag(METHODS, flags)) {
-			IMethodBinding[] methodBindings= binding.getDeclaredMethods();
-			for (int i= 0; i < methodBindings.length; i++) {
-				IMethodBinding curr= methodBindings[i];
-				if (isSuperInterfaceBinding && Modifier.isStatic(curr.getModifiers())) {
-					continue;
-				}
-				if (!curr.isSynthetic() && !curr.isConstructor()) {
-					if (requestor.acceptBinding(curr))
-						return true;
-				}
+			ITypeBinding superClass= binding.getSuperclass();
+			if (superClass != null) {
+				if (addInherited(superClass, flags, requestor)) // recursive
+					return true;
+			} else if (binding.isArray()) {
+				if (addInherited(fRoot.getAST().resolveWellKnownType("java.lang.Object"), flags, requestor)) //$NON-NLS-1$
+					return true;
 			}
-		}
 
-		if (hasFlag(TYPES, flags)) {
-			ITypeBinding[] typeBindings= binding.getDeclaredTypes();
-			for (int i= 0; i < typeBindings.length; i++) {
-				ITypeBinding curr= typeBindings[i];
-				if (requestor.acceptBinding(curr))
+			ITypeBinding[] interfaces= binding.getInterfaces(); // includes looking for methods: abstract, unimplemented methods
+			for (int i= 0; i < interfaces.length; i++) {
+				if (addInherited(interfaces[i], true, flags, requestor)) // recursive
 					return true;
 			}
+			return false;
 		}
-
-
-		ITypeBinding superClass= binding.getSuperclass();
-		if (superClass != null) {
-			if (addInherited(superClass, flags, requestor)) // recursive
-				return true;
-		} else if (binding.isArray()) {
-			if (addInherited(fRoot.getAST().resolveWellKnownType("java.lang.Object"), flags, requestor)) //$NON-NLS-1$
-				return true;
+		if (fTypesVisited.contains(binding)) {
+			return false;
 		}
-
-		ITypeBinding[] interfaces= binding.getInterfaces(); // includes looking for methods: abstract, unimplemented methods
-		for (int i= 0; i < interfaces.length; i++) {
-			if (addInherited(interfaces[i], true, flags, requestor)) // recursive
+		InheritedMembers inherited= ScopeIndex.get(fRoot).getInheritedMembers(binding, isSuperInterfaceBinding, flags);
+		for (int i= 0; i < inherited.fTypes.length; i++) {
+			// super types that have already been visited by this query are not reported again
+			if (fTypesVisited.add(inherited.fTypes[i]) && acceptBindings(inherited.fMembers[i], requestor))
 				return true;
 		}
 		return false;
@@ -633,7 +874,7 @@ public class ScopeAnalyzer {
 	}
 
 
-	private class ScopeAnalyzerVisitor extends HierarchicalASTVisitor {
+	private static class ScopeAnalyzerVisitor extends HierarchicalASTVisitor {
 
 		private final int fPosition;
 		private final int fFlags;
@@ -839,9 +1080,13 @@ public class ScopeAnalyzer {
 		if (hasFlag(VARIABLES, flags) || hasFlag(TYPES, flags)) {
 			BodyDeclaration declaration= ASTResolving.findParentBodyDeclaration(node);
 			if (declaration instanceof MethodDeclaration || declaration instanceof Initializer || declaration instanceof FieldDeclaration) {
-				ScopeAnalyzerVisitor visitor= new ScopeAnalyzerVisitor(offset, flags, requestor);
-				declaration.accept(visitor);
-				return visitor.fBreak;
+				if (!fUseScopeIndex) {
+					ScopeAnalyzerVisitor visitor= new ScopeAnalyzerVisitor(offset, flags, requestor);
+					declaration.accept(visitor);
+					return visitor.fBreak;
+				}
+				IBinding[] declarations= ScopeIndex.get(fRoot).getLocalDeclarations(declaration, offset, flags);
+				return acceptBindings(declarations, requestor);
 			}
 		}
 		return false;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,8 +11,17 @@
 package org.eclipse.jdt.internal.corext.util;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -21,19 +30,33 @@ import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
 import org.eclipse.jdt.core.JavaModelException;
 
+import org.eclipse.jdt.internal.core.manipulation.JavaManipulationPlugin;
+
 /**
  * A thread-safe cache for super type hierarchies.
+ * <p>
+ * Every type of a cached hierarchy is indexed, so that looking up the hierarchy of a type does not
+ * lock and does not scan the cached hierarchies. A type that is contained in several hierarchies,
+ * like <code>java.lang.Object</code>, stays indexed until the last of them is removed. The size of
+ * the cache is bounded by the total number of types in the cached hierarchies, see
+ * {@link #getMaxWeight()}; when it is exceeded, the least recently used hierarchies are evicted.
+ * Hierarchies are evicted as soon as they change.
+ * </p>
  */
 // @see JDTUIHelperClasses
 public class SuperTypeHierarchyCache {
 
 	private static class HierarchyCacheEntry implements ITypeHierarchyChangedListener {
 
-		private ITypeHierarchy fTypeHierarchy;
-		private long fLastAccess;
+		private final ITypeHierarchy fTypeHierarchy;
+		private final IType[] fTypes;
+		private final ConcurrentMap<IType, MethodOverrideTester> fMethodOverrideTesters= new ConcurrentHashMap<>(4);
+		private volatile long fLastAccess;
+		private volatile boolean fDisposed;
 
 		public HierarchyCacheEntry(ITypeHierarchy hierarchy) {
 			fTypeHierarchy= hierarchy;
+			fTypes= hierarchy.getAllTypes();
 			fTypeHierarchy.addTypeHierarchyChangedListener(this);
 			markAsAccessed();
 		}
@@ -47,19 +70,30 @@ public class SuperTypeHierarchyCache {
 			return fTypeHierarchy;
 		}
 
+		public IType[] getTypes() {
+			return fTypes;
+		}
+
+		public int getWeight() {
+			return Math.max(1, fTypes.length);
+		}
+
 		public void markAsAccessed() {
-			fLastAccess= System.currentTimeMillis();
+			fLastAccess= fgAccessClock.incrementAndGet();
 		}
 
 		public long getLastAccess() {
 			return fLastAccess;
 		}
 
+		public boolean isDisposed() {
+			return fDisposed;
+		}
+
 		public void dispose() {
-			if (fTypeHierarchy != null) {
-				fTypeHierarchy.removeTypeHierarchyChangedListener(this);
-				fTypeHierarchy= null;
-			}
+			fDisposed= true;
+			fTypeHierarchy.removeTypeHierarchyChangedListener(this);
+			fMethodOverrideTesters.clear();
 		}
 
 		@Override
@@ -69,14 +103,47 @@ public class SuperTypeHierarchyCache {
 
 	}
 
+	/**
+	 * System property to set the maximum total number of types in the cached hierarchies.
+	 */
+	private static final String MAX_WEIGHT_PROPERTY= "org.eclipse.jdt.core.manipulation.superTypeHierarchyCacheSize"; //$NON-NLS-1$
 
-	private static final int CACHE_SIZE= 8;
+	/**
+	 * The number of types cached per megabyte of maximum heap, if the size is not configured.
+	 */
+	private static final long TYPES_PER_MEGABYTE= 16;
+	private static final int MIN_WEIGHT= 1000;
+	private static final int MAX_WEIGHT= 50000;
 
-	private static ArrayList<HierarchyCacheEntry> fgHierarchyCache= new ArrayList<>(CACHE_SIZE);
-	private static Map<IType, MethodOverrideTester> fgMethodOverrideTesterCache= new LRUMap<>(CACHE_SIZE);
+	/**
+	 * The fraction of the maximum weight to evict down to when the cache is full, so that not every
+	 * addition to a full cache has to look for the least recently used hierarchy.
+	 */
+	private static final double EVICTION_FACTOR= 0.9;
 
-	private static int fgCacheHits= 0;
-	private static int fgCacheMisses= 0;
+	private static final Comparator<HierarchyCacheEntry> LAST_ACCESS_COMPARATOR= new Comparator<HierarchyCacheEntry>() {
+		@Override
+		public int compare(HierarchyCacheEntry e1, HierarchyCacheEntry e2) {
+			return Long.compare(e1.getLastAccess(), e2.getLastAccess());
+		}
+	};
+
+	private static final AtomicLong fgAccessClock= new AtomicLong();
+
+	private static final int fgMaxWeight= computeMaxWeight();
+
+	/** The cached hierarchies, guarded by itself. */
+	private static final List<HierarchyCacheEntry> fgHierarchyCache= new ArrayList<>();
+	/** The total number of types in the cached hierarchies, guarded by {@link #fgHierarchyCache}. */
+	private static int fgWeight= 0;
+	/** A cached hierarchy for each type contained in a cached hierarchy. */
+	private static final ConcurrentMap<IType, HierarchyCacheEntry> fgTypeIndex= new ConcurrentHashMap<>();
+	/** All cached hierarchies by the types they contain, guarded by {@link #fgHierarchyCache}. */
+	private static final Map<IType, Set<HierarchyCacheEntry>> fgTypeEntries= new HashMap<>();
+
+	private static final AtomicInteger fgCacheHits= new AtomicInteger();
+	private static final AtomicInteger fgCacheMisses= new AtomicInteger();
+	private static final AtomicInteger fgEvictions= new AtomicInteger();
 
 	/**
 	 * Returns a super type hierarchy that contains the given type.
@@ -94,34 +161,21 @@ public class SuperTypeHierarchyCache {
 	}
 
 	public static MethodOverrideTester getMethodOverrideTester(IType type) throws JavaModelException {
-		MethodOverrideTester test= null;
-		synchronized (fgMethodOverrideTesterCache) {
-			test= fgMethodOverrideTesterCache.get(type);
-		}
+		ITypeHierarchy hierarchy= getTypeHierarchy(type);
+		HierarchyCacheEntry entry= fgTypeIndex.get(type);
+		if (entry == null || entry.getTypeHierarchy() != hierarchy) // evicted in the meantime
+			return new MethodOverrideTester(type, hierarchy);
+
+		MethodOverrideTester test= entry.fMethodOverrideTesters.get(type);
 		if (test == null) {
-			ITypeHierarchy hierarchy= getTypeHierarchy(type); // don't nest the locks
-			synchronized (fgMethodOverrideTesterCache) {
-				test= fgMethodOverrideTesterCache.get(type); // test again after waiting a long time for 'getTypeHierarchy'
-				if (test == null) {
-					test= new MethodOverrideTester(type, hierarchy);
-					fgMethodOverrideTesterCache.put(type, test);
-				}
-			}
+			test= new MethodOverrideTester(type, hierarchy);
+			MethodOverrideTester existing= entry.fMethodOverrideTesters.putIfAbsent(type, test);
+			if (existing != null)
+				test= existing;
 		}
 		return test;
 	}
 
-	private static void removeMethodOverrideTester(ITypeHierarchy hierarchy) {
-		synchronized (fgMethodOverrideTesterCache) {
-			for (Iterator<MethodOverrideTester> iter= fgMethodOverrideTesterCache.values().iterator(); iter.hasNext();) {
-				MethodOverrideTester curr= iter.next();
-				if (curr.getTypeHierarchy().equals(hierarchy)) {
-					iter.remove();
-				}
-			}
-		}
-	}
-
 	/**
 	 * Returns a super type hierarchy that contains the given type.
 	 * The returned hierarchy may actually be based on a subtype of the
@@ -137,43 +191,62 @@ public class SuperTypeHierarchyCache {
 	public static ITypeHierarchy getTypeHierarchy(IType type, IProgressMonitor progressMonitor) throws JavaModelException {
 		ITypeHierarchy hierarchy= findTypeHierarchyInCache(type);
 		if (hierarchy == null) {
-			fgCacheMisses++;
+			fgCacheMisses.incrementAndGet();
 			hierarchy= type.newSupertypeHierarchy(progressMonitor);
 			addTypeHierarchyToCache(hierarchy);
+			trace(type);
 		} else {
-			fgCacheHits++;
+			fgCacheHits.incrementAndGet();
 		}
 		return hierarchy;
 	}
 
 	private static void addTypeHierarchyToCache(ITypeHierarchy hierarchy) {
+		HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
+		if (newEntry.getWeight() > fgMaxWeight) {
+			newEntry.dispose();
+			return;
+		}
 		synchronized (fgHierarchyCache) {
-			int nEntries= fgHierarchyCache.size();
-			if (nEntries >= CACHE_SIZE) {
-				// find obsolete entries or remove entry that was least recently accessed
-				HierarchyCacheEntry oldest= null;
-				ArrayList<HierarchyCacheEntry> obsoleteHierarchies= new ArrayList<>(CACHE_SIZE);
-				for (int i= 0; i < nEntries; i++) {
-					HierarchyCacheEntry entry= fgHierarchyCache.get(i);
-					ITypeHierarchy curr= entry.getTypeHierarchy();
-					if (!curr.exists() || hierarchy.contains(curr.getType())) {
-						obsoleteHierarchies.add(entry);
-					} else {
-						if (oldest == null || entry.getLastAccess() < oldest.getLastAccess()) {
-							oldest= entry;
-						}
-					}
-				}
-				if (!obsoleteHierarchies.isEmpty()) {
-					for (int i= 0; i < obsoleteHierarchies.size(); i++) {
-						removeHierarchyEntryFromCache(obsoleteHierarchies.get(i));
-					}
-				} else if (oldest != null) {
-					removeHierarchyEntryFromCache(oldest);
+			// hierarchies of the super types of the new focus type are obsolete
+			for (IType type : newEntry.getTypes()) {
+				Set<HierarchyCacheEntry> entries= fgTypeEntries.get(type);
+				if (entries == null)
+					continue;
+				for (HierarchyCacheEntry entry : new ArrayList<>(entries)) {
+					if (entry.getTypeHierarchy().getType().equals(type))
+						removeHierarchyEntryFromCache(entry);
 				}
 			}
-			HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
+
+			if (fgWeight + newEntry.getWeight() > fgMaxWeight)
+				evict(Math.min((int) (fgMaxWeight * EVICTION_FACTOR), fgMaxWeight - newEntry.getWeight()));
+
 			fgHierarchyCache.add(newEntry);
+			fgWeight+= newEntry.getWeight();
+			for (IType type : newEntry.getTypes()) {
+				Set<HierarchyCacheEntry> entries= fgTypeEntries.get(type);
+				if (entries == null) {
+					entries= new LinkedHashSet<>(2);
+					fgTypeEntries.put(type, entries);
+				}
+				entries.add(newEntry);
+				fgTypeIndex.put(type, newEntry);
+			}
+		}
+	}
+
+	/**
+	 * Evicts the least recently used hierarchies.
+	 *
+	 * @param weight the total number of types to keep at most
+	 */
+	private static void evict(int weight) {
+		List<HierarchyCacheEntry> entries= new ArrayList<>(fgHierarchyCache);
+		Collections.sort(entries, LAST_ACCESS_COMPARATOR);
+		for (int i= 0; i < entries.size() && fgWeight > weight; i++) {
+			removeHierarchyEntryFromCache(entries.get(i));
+			fgEvictions.incrementAndGet();
 		}
 	}
 
@@ -189,29 +262,75 @@ public class SuperTypeHierarchyCache {
 
 
 	private static ITypeHierarchy findTypeHierarchyInCache(IType type) {
-		synchronized (fgHierarchyCache) {
-			for (int i= fgHierarchyCache.size() - 1; i>= 0; i--) {
-				HierarchyCacheEntry curr= fgHierarchyCache.get(i);
-				ITypeHierarchy hierarchy= curr.getTypeHierarchy();
-				if (!hierarchy.exists()) {
-					removeHierarchyEntryFromCache(curr);
-				} else {
-					if (hierarchy.contains(type)) {
-						curr.markAsAccessed();
-						return hierarchy;
-					}
-				}
-			}
+		HierarchyCacheEntry entry= fgTypeIndex.get(type);
+		if (entry == null || entry.isDisposed())
+			return null;
+		ITypeHierarchy hierarchy= entry.getTypeHierarchy();
+		if (!hierarchy.exists()) {
+			removeHierarchyEntryFromCache(entry);
+			return null;
 		}
-		return null;
+		entry.markAsAccessed();
+		return hierarchy;
 	}
 
 	private static void removeHierarchyEntryFromCache(HierarchyCacheEntry entry) {
 		synchronized (fgHierarchyCache) {
-			removeMethodOverrideTester(entry.getTypeHierarchy());
+			if (entry.isDisposed())
+				return;
 			entry.dispose();
 			fgHierarchyCache.remove(entry);
+			fgWeight-= entry.getWeight();
+			for (IType type : entry.getTypes()) {
+				Set<HierarchyCacheEntry> entries= fgTypeEntries.get(type);
+				if (entries == null)
+					continue;
+				entries.remove(entry);
+				if (entries.isEmpty()) {
+					fgTypeEntries.remove(type);
+					fgTypeIndex.remove(type, entry);
+				} else if (fgTypeIndex.get(type) == entry) {
+					// another cached hierarchy still contains the type
+					fgTypeIndex.put(type, entries.iterator().next());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the maximum total number of types in the cached hierarchies. It can be set with the
+	 * system property <code>org.eclipse.jdt.core.manipulation.superTypeHierarchyCacheSize</code>, and by default
+	 * grows with the maximum heap size.
+	 *
+	 * @return the maximum weight of the cache
+	 */
+	public static int getMaxWeight() {
+		return fgMaxWeight;
+	}
+
+	private static int computeMaxWeight() {
+		Integer configured= Integer.getInteger(MAX_WEIGHT_PROPERTY);
+		if (configured != null && configured.intValue() > 0)
+			return configured.intValue();
+		long maxMemory= Runtime.getRuntime().maxMemory();
+		if (maxMemory == Long.MAX_VALUE)
+			return MAX_WEIGHT;
+		long weight= maxMemory / (1024 * 1024) * TYPES_PER_MEGABYTE;
+		return (int) Math.max(MIN_WEIGHT, Math.min(MAX_WEIGHT, weight));
+	}
+
+	private static void trace(IType type) {
+		if (!JavaManipulationPlugin.DEBUG_SUPER_TYPE_HIERARCHY_CACHE)
+			return;
+		int size;
+		int weight;
+		synchronized (fgHierarchyCache) {
+			size= fgHierarchyCache.size();
+			weight= fgWeight;
 		}
+		System.out.println("SuperTypeHierarchyCache miss for " + type.getFullyQualifiedName() //$NON-NLS-1$
+				+ ": hits=" + fgCacheHits.get() + ", misses=" + fgCacheMisses.get() + ", evictions=" + fgEvictions.get() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ ", hierarchies=" + size + ", types=" + weight + "/" + fgMaxWeight); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	}
 
 
@@ -220,7 +339,7 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheHits() {
-		return fgCacheHits;
+		return fgCacheHits.get();
 	}
 
 	/**
@@ -228,6 +347,6 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheMisses() {
-		return fgCacheMisses;
+		return fgCacheMisses.get();
 	}
 }
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+
+/**
+ * Immutable holder for a potentially large string like a failure trace.
+ * Strings longer than {@link #COMPRESSION_THRESHOLD} characters are kept
+ * deflated and are only inflated when {@link #toString()} is called.
+ */
+final class CompactString {
+
+	/**
+	 * Strings of at least this length are compressed
+	 */
+	static final int COMPRESSION_THRESHOLD= 512;
+
+	private final String fString;
+	private final byte[] fCompressed;
+	private final int fLength;
+
+	private CompactString(String string, byte[] compressed, int length) {
+		fString= string;
+		fCompressed= compressed;
+		fLength= length;
+	}
+
+	/**
+	 * Creates a compact string.
+	 *
+	 * @param string the string, or <code>null</code>
+	 * @return the compact string, or <code>null</code> if <code>string</code> is <code>null</code>
+	 */
+	static CompactString valueOf(String string) {
+		if (string == null)
+			return null;
+		if (string.length() < COMPRESSION_THRESHOLD)
+			return new CompactString(string, null, 0);
+
+		byte[] bytes= string.getBytes(StandardCharsets.UTF_8);
+		Deflater deflater= new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(bytes);
+			deflater.finish();
+			ByteArrayOutputStream out= new ByteArrayOutputStream(bytes.length / 4);
+			byte[] buffer= new byte[4096];
+			while (!deflater.finished()) {
+				int count= deflater.deflate(buffer);
+				out.write(buffer, 0, count);
+			}
+			byte[] compressed= out.toByteArray();
+			if (compressed.length >= bytes.length / 2)
+				return new CompactString(string, null, 0); // not worth it
+			return new CompactString(null, compressed, bytes.length);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Returns the string value of the given compact string.
+	 *
+	 * @param string the compact string, or <code>null</code>
+	 * @return the string, or <code>null</code>
+	 */
+	static String toString(CompactString string) {
+		return string == null ? null : string.toString();
+	}
+
+	@Override
+	public String toString() {
+		if (fString != null)
+			return fString;
+
+		Inflater inflater= new Inflater();
+		try {
+			inflater.setInput(fCompressed);
+			byte[] bytes= new byte[fLength];
+			int length= 0;
+			while (length < fLength && !inflater.finished()) {
+				int count= inflater.inflate(bytes, length, fLength - length);
+				if (count == 0 && inflater.needsInput())
+					break;
+				length+= count;
+			}
+			return new String(bytes, 0, length, StandardCharsets.UTF_8);
+		} catch (DataFormatException e) {
+			JUnitCorePlugin.log(e);
+			return ""; //$NON-NLS-1$
+		} finally {
+			inflater.end();
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+/**
+ * An {@link ITestRunListener2} which receives the events of a test run in
+ * batches.
+ * <p>
+ * The {@link RemoteTestRunnerClient} coalesces the events which arrive within
+ * a short time window. Listeners implementing this interface receive each
+ * such run of events in a single call to {@link #testEvents(TestRunEvent[])}
+ * instead of one call per event.
+ * </p>
+ */
+public interface ITestRunBatchListener extends ITestRunListener2 {
+
+	/**
+	 * A batch of consecutive events has been received. The events must be
+	 * processed in the given order, e.g. by calling
+	 * {@link TestRunEvent#dispatch(ITestRunListener2)} for each of them.
+	 * If this method throws an exception, the remaining events of the batch
+	 * are lost for this listener.
+	 *
+	 * @param events the events, never empty
+	 */
+	public void testEvents(TestRunEvent[] events);
+}
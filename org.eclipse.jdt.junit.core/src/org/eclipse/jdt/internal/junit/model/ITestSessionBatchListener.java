@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.internal.junit.model;
+
+/**
+ * An {@link ITestSessionListener} which is told about the batches in which a
+ * test session receives its events. The individual notifications of a batch
+ * are sent between {@link #batchStarted()} and {@link #batchEnded()}, so that
+ * listeners can postpone expensive work, like computing status messages, until
+ * the end of the batch.
+ */
+public interface ITestSessionBatchListener extends ITestSessionListener {
+
+	/**
+	 * A batch of notifications starts.
+	 */
+	public void batchStarted();
+
+	/**
+	 * All notifications of the current batch have been sent. This method is
+	 * also called if the listener has been removed during the batch.
+	 */
+	public void batchEnded();
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.junit.model;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -22,11 +25,13 @@ import java.io.UnsupportedEncodingException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
 
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.SafeRunner;
 
 import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageReader;
 import org.eclipse.jdt.internal.junit.runner.MessageIds;
 import org.eclipse.jdt.internal.junit.runner.RemoteTestRunner;
 
@@ -225,6 +230,17 @@ public class RemoteTestRunnerClient {
 	private int fPort= -1;
 	private PrintWriter fWriter;
 	private PushbackReader fPushbackReader;
+	/**
+	 * Characters read from the text protocol but not yet processed
+	 */
+	private final char[] fReadBuffer= new char[8192];
+	private int fReadPosition;
+	private int fReadLength;
+	/**
+	 * The reader for the binary protocol, or <code>null</code> if the
+	 * RemoteTestRunner uses the text protocol
+	 */
+	private BinaryMessageReader fBinaryReader;
 	private String fLastLineDelimiter;
 	/**
 	 * The protocol version
@@ -245,6 +261,30 @@ public class RemoteTestRunnerClient {
 
 	private boolean fDebug= false;
 
+	/**
+	 * The maximal time in milliseconds events are held back to be delivered
+	 * in one batch
+	 */
+	private static final long BATCH_WINDOW= 50;
+	/**
+	 * The maximal number of events in one batch
+	 */
+	private static final int MAX_BATCH_SIZE= 1000;
+	/**
+	 * Events which have been received but not yet delivered to the listeners
+	 */
+	private final ArrayList<TestRunEvent> fPendingEvents= new ArrayList<>();
+	/**
+	 * Time when the oldest pending event was received
+	 */
+	private long fPendingSince;
+	/**
+	 * Statistics for debugging
+	 */
+	private int fEventCount;
+	private int fBatchCount;
+	private long fFirstEventTime;
+
 	/**
 	 * Reads the message stream from the RemoteTestRunner
 	 */
@@ -263,29 +303,75 @@ public class RemoteTestRunnerClient {
 					System.out.println("Creating server socket "+fServerPort); //$NON-NLS-1$
 				fServerSocket= new ServerSocket(fServerPort);
 				fSocket= fServerSocket.accept();
-				try {
-				    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream(), "UTF-8"))); //$NON-NLS-1$
-				} catch (UnsupportedEncodingException e) {
-				    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream())));
-				}
 				try {
 				    fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream(), "UTF-8"), true); //$NON-NLS-1$
 	            } catch (UnsupportedEncodingException e1) {
 	                fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream()), true);
 	            }
+				// the runner starts with a magic byte if it uses the binary protocol
+				InputStream bufferedInput= new BufferedInputStream(fSocket.getInputStream());
+				bufferedInput.mark(1);
+				boolean binary= bufferedInput.read() == MessageIds.BINARY_PROTOCOL_MAGIC;
+				if (!binary)
+					bufferedInput.reset();
+				InputStream input= new DeliveringInputStream(bufferedInput);
+				if (binary) {
+					fBinaryReader= new BinaryMessageReader(input);
+					fLastLineDelimiter= fBinaryReader.getLineDelimiter();
+				} else {
+					try {
+					    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(input, "UTF-8"))); //$NON-NLS-1$
+					} catch (UnsupportedEncodingException e) {
+					    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(input)));
+					}
+				}
 				String message;
-				while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
-					receiveMessage(message);
+				if (fBinaryReader != null) {
+					while(fBinaryReader != null && (message= fBinaryReader.readMessage()) != null)
+						receiveMessage(message);
+				} else {
+					while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
+						receiveMessage(message);
+				}
 			} catch (SocketException e) {
 				notifyTestRunTerminated();
 			} catch (IOException e) {
 				JUnitCorePlugin.log(e);
 				// fall through
 			}
+			deliverEvents();
 			shutDown();
 		}
 	}
 
+	/**
+	 * Delivers the pending events before a read from the socket would block,
+	 * so that events are never held back while the test runner is busy.
+	 */
+	private class DeliveringInputStream extends FilterInputStream {
+
+		DeliveringInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			deliverEventsBeforeBlocking();
+			return super.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			deliverEventsBeforeBlocking();
+			return super.read(b, off, len);
+		}
+
+		private void deliverEventsBeforeBlocking() throws IOException {
+			if (!fPendingEvents.isEmpty() && in.available() == 0)
+				deliverEvents();
+		}
+	}
+
 	/**
 	 * Start listening to a test run. Start a server connection that
 	 * the RemoteTestRunner can connect to.
@@ -324,6 +410,7 @@ public class RemoteTestRunnerClient {
 			fWriter.close();
 			fWriter= null;
 		}
+		fBinaryReader= null;
 		try {
 			if (fPushbackReader != null) {
 				fPushbackReader.close();
@@ -354,16 +441,17 @@ public class RemoteTestRunnerClient {
 	private String readMessage(PushbackReader in) throws IOException {
 		StringBuffer buf= new StringBuffer(128);
 		int ch;
-		while ((ch= in.read()) != -1) {
+		while ((ch= read(in)) != -1) {
 			if (ch == '\n') {
 				fLastLineDelimiter= "\n"; //$NON-NLS-1$
 				return buf.toString();
 			} else if (ch == '\r') {
-				ch= in.read();
+				ch= read(in);
 				if (ch == '\n') {
 					fLastLineDelimiter= "\r\n"; //$NON-NLS-1$
 				} else {
-					in.unread(ch);
+					if (ch != -1)
+						fReadPosition--;
 					fLastLineDelimiter= "\r"; //$NON-NLS-1$
 				}
 				return buf.toString();
@@ -377,6 +465,27 @@ public class RemoteTestRunnerClient {
 		return buf.toString();
 	}
 
+	/**
+	 * Reads the next character. Characters are read in chunks, since reading
+	 * them one by one from the synchronized reader dominates the processing
+	 * time of large test runs.
+	 *
+	 * @param in the reader
+	 * @return the character, or -1 at the end of the stream
+	 * @throws IOException if the reader fails
+	 */
+	private int read(PushbackReader in) throws IOException {
+		if (fReadPosition == fReadLength) {
+			fReadPosition= 0;
+			fReadLength= in.read(fReadBuffer, 0, fReadBuffer.length);
+			if (fReadLength <= 0) {
+				fReadLength= 0;
+				return -1;
+			}
+		}
+		return fReadBuffer[fReadPosition++];
+	}
+
 	private void receiveMessage(String message) {
 	    fCurrentState= fCurrentState.readMessage(message);
 	}
@@ -460,28 +569,15 @@ public class RemoteTestRunnerClient {
 		return fVersion.equals("v2"); //$NON-NLS-1$
 	}
 
-	private void notifyTestReran(final String testId, final String className, final String testName, final int statusCode, final String trace) {
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					listener.testReran(testId,
-								className, testName, statusCode, trace,
-								nullifyEmpty(fExpectedResult), nullifyEmpty(fActualResult));
-				}
-			});
-		}
+	private void notifyTestReran(String testId, String className, String testName, int statusCode, String trace) {
+		queueEvent(TestRunEvent.testReran(testId, className, testName, statusCode, trace, nullifyEmpty(fExpectedResult), nullifyEmpty(fActualResult)));
 	}
 
-	private void notifyTestTreeEntry(final String treeEntry) {
-		for (int i= 0; i < fListeners.length; i++) {
-			ITestRunListener2 listener= fListeners[i];
-			if (!hasTestId())
-				listener.testTreeEntry(fakeTestId(treeEntry));
-			else
-				listener.testTreeEntry(treeEntry);
-		}
+	private void notifyTestTreeEntry(String treeEntry) {
+		if (!hasTestId())
+			queueEvent(TestRunEvent.treeEntry(fakeTestId(treeEntry)));
+		else
+			queueEvent(TestRunEvent.treeEntry(treeEntry));
 	}
 
 	private String fakeTestId(String treeEntry) {
@@ -491,90 +587,109 @@ public class RemoteTestRunnerClient {
 		return testName+","+treeEntry; //$NON-NLS-1$
 	}
 
-	private void notifyTestRunStopped(final long elapsedTime) {
-		if (JUnitCorePlugin.isStopped())
-			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					listener.testRunStopped(elapsedTime);
-				}
-			});
-		}
+	private void notifyTestRunStopped(long elapsedTime) {
+		queueEvent(TestRunEvent.runStopped(elapsedTime));
 	}
 
-	private void testRunEnded(final long elapsedTime) {
-		if (JUnitCorePlugin.isStopped())
-			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					listener.testRunEnded(elapsedTime);
-				}
-			});
-		}
+	private void testRunEnded(long elapsedTime) {
+		queueEvent(TestRunEvent.runEnded(elapsedTime));
 	}
 
-	private void notifyTestEnded(final String test) {
-		if (JUnitCorePlugin.isStopped())
-			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					String s[]= extractTestId(test);
-					listener.testEnded(s[0], s[1]);
-				}
-			});
-		}
+	private void notifyTestEnded(String test) {
+		String s[]= extractTestId(test);
+		queueEvent(TestRunEvent.testEnded(s[0], s[1]));
+	}
+
+	private void notifyTestStarted(String test) {
+		String s[]= extractTestId(test);
+		queueEvent(TestRunEvent.testStarted(s[0], s[1]));
 	}
 
-	private void notifyTestStarted(final String test) {
+	private void notifyTestRunStarted(int count) {
+		queueEvent(TestRunEvent.runStarted(count));
+	}
+
+	private void notifyTestFailed() {
+		queueEvent(TestRunEvent.testFailed(fFailureKind, fFailedTestId, fFailedTest, fFailedTrace.toString(), nullifyEmpty(fExpectedResult), nullifyEmpty(fActualResult)));
+	}
+
+	/**
+	 * Adds an event to the current batch. The batch is delivered before reading
+	 * more messages would block, when it has been collected for
+	 * {@link #BATCH_WINDOW} milliseconds or has grown to {@link #MAX_BATCH_SIZE}
+	 * events, or when the event starts or ends the test run.
+	 *
+	 * @param event the event
+	 */
+	private void queueEvent(TestRunEvent event) {
+		long now= System.currentTimeMillis();
+		if (fPendingEvents.isEmpty())
+			fPendingSince= now;
+		fPendingEvents.add(event);
+		if (event.isRunEvent() || fPendingEvents.size() >= MAX_BATCH_SIZE || now - fPendingSince >= BATCH_WINDOW)
+			deliverEvents();
+	}
+
+	/**
+	 * Delivers the pending events to the listeners. Listeners implementing
+	 * {@link ITestRunBatchListener} receive all events in a single call,
+	 * other listeners receive them one by one.
+	 */
+	private void deliverEvents() {
+		if (fPendingEvents.isEmpty())
+			return;
+		final TestRunEvent[] events= fPendingEvents.toArray(new TestRunEvent[fPendingEvents.size()]);
+		fPendingEvents.clear();
+		// fix for 77771 RemoteTestRunnerClient doing work after junit shutdown [JUnit]
 		if (JUnitCorePlugin.isStopped())
 			return;
+		if (fDebug)
+			updateStatistics(events);
 		for (int i= 0; i < fListeners.length; i++) {
 			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					String s[]= extractTestId(test);
-					listener.testStarted(s[0], s[1]);
-				}
-			});
+			if (listener instanceof ITestRunBatchListener) {
+				SafeRunner.run(new ListenerSafeRunnable() {
+					@Override
+					public void run() {
+						((ITestRunBatchListener) listener).testEvents(events);
+					}
+				});
+			} else {
+				// an exception only skips the failing event
+				EventDispatcher dispatcher= new EventDispatcher(listener, events);
+				while (dispatcher.fNext < events.length)
+					SafeRunner.run(dispatcher);
+			}
 		}
 	}
 
-	private void notifyTestRunStarted(final int count) {
-		if (JUnitCorePlugin.isStopped())
-			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					listener.testRunStarted(count);
-				}
-			});
+	private class EventDispatcher extends ListenerSafeRunnable {
+		private final ITestRunListener2 fListener;
+		private final TestRunEvent[] fEvents;
+		int fNext;
+
+		EventDispatcher(ITestRunListener2 listener, TestRunEvent[] events) {
+			fListener= listener;
+			fEvents= events;
+		}
+
+		@Override
+		public void run() {
+			while (fNext < fEvents.length)
+				fEvents[fNext++].dispatch(fListener);
 		}
 	}
 
-	private void notifyTestFailed() {
-		if (JUnitCorePlugin.isStopped())
-			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-			        listener.testFailed(fFailureKind, fFailedTestId,
-			        		fFailedTest, fFailedTrace.toString(), nullifyEmpty(fExpectedResult), nullifyEmpty(fActualResult));
-				}
-			});
+	private void updateStatistics(TestRunEvent[] events) {
+		long now= System.currentTimeMillis();
+		if (fEventCount == 0)
+			fFirstEventTime= now;
+		fEventCount+= events.length;
+		fBatchCount++;
+		TestRunEvent last= events[events.length - 1];
+		if (last.isRunEvent() && last.getKind() != TestRunEvent.RUN_STARTED && now > fFirstEventTime) {
+			System.out.println("delivered " + fEventCount + " events in " + fBatchCount + " batches, " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ (fEventCount * 1000L / (now - fFirstEventTime)) + " events/s"); //$NON-NLS-1$
 		}
 	}
 
@@ -604,18 +719,7 @@ public class RemoteTestRunnerClient {
 	}
 	
 	private void notifyTestRunTerminated() {
-		// fix for 77771 RemoteTestRunnerClient doing work after junit shutdown [JUnit]
-		if (JUnitCorePlugin.isStopped())
-			return;
-		for (int i= 0; i < fListeners.length; i++) {
-			final ITestRunListener2 listener= fListeners[i];
-			SafeRunner.run(new ListenerSafeRunnable() {
-				@Override
-				public void run() {
-					listener.testRunTerminated();
-				}
-			});
-		}
+		queueEvent(TestRunEvent.runTerminated());
 	}
 
 	public void rerunTest(String testId, String className, String testName) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,8 @@
 
 package org.eclipse.jdt.internal.junit.model;
 
+import java.util.Arrays;
+
 import org.eclipse.jdt.junit.model.ITestElement;
 import org.eclipse.jdt.junit.model.ITestElementContainer;
 import org.eclipse.jdt.junit.model.ITestRunSession;
@@ -183,17 +185,20 @@ public abstract class TestElement implements ITestElement {
 
 	/**
 	 * The unique ID of the test element which can be <code>null</code> as it is applicable to JUnit 5
-	 * and above.
+	 * and above. If {@link #fRelativeUniqueId} is set, only the part following the unique ID of the
+	 * parent is stored.
 	 */
 	private String fUniqueId;
 
 	private Status fStatus;
-	private String fTrace;
-	private String fExpected;
-	private String fActual;
+	private CompactString fTrace;
+	private CompactString fExpected;
+	private CompactString fActual;
 
 	private boolean fAssumptionFailed;
 
+	private boolean fRelativeUniqueId;
+
 	/**
 	 * Running time in seconds. Contents depend on the current {@link #getProgressState()}:
 	 * <ul>
@@ -221,6 +226,22 @@ public abstract class TestElement implements ITestElement {
 		Assert.isNotNull(testName);
 		fParent= parent;
 		fId= id;
+		if (parent != null) {
+			// share equal names and parameter types with the previous sibling, e.g. for
+			// parameterized tests, so that huge test runs do not keep a copy for each test
+			TestElement previous= parent.getLastChild();
+			if (previous != null) {
+				if (testName.equals(previous.fTestName))
+					testName= previous.fTestName;
+				if (parameterTypes != null && Arrays.equals(parameterTypes, previous.fParameterTypes))
+					parameterTypes= previous.fParameterTypes;
+			}
+			String parentUniqueId= parent.getUniqueId();
+			if (uniqueId != null && parentUniqueId != null && uniqueId.startsWith(parentUniqueId)) {
+				uniqueId= uniqueId.substring(parentUniqueId.length());
+				fRelativeUniqueId= true;
+			}
+		}
 		fTestName= testName;
 		fDisplayName= displayName;
 		fParameterTypes= parameterTypes;
@@ -261,7 +282,7 @@ public abstract class TestElement implements ITestElement {
 		Result testResult= getTestResult(false);
 		if (testResult == Result.ERROR || testResult == Result.FAILURE
 				|| (testResult == Result.IGNORED && fTrace != null)) {
-			return new FailureTrace(fTrace, fExpected, fActual);
+			return new FailureTrace(getTrace(), getExpected(), getActual());
 		}
 		return null;
 	}
@@ -304,11 +325,11 @@ public abstract class TestElement implements ITestElement {
 	public void setStatus(Status status, String trace, String expected, String actual) {
 		if (trace != null && fTrace != null) {
 			//don't overwrite first trace if same test run logs multiple errors
-			fTrace= fTrace + trace;
+			fTrace= CompactString.valueOf(fTrace.toString() + trace);
 		} else {
-			fTrace= trace;
-			fExpected= expected;
-			fActual= actual;
+			fTrace= CompactString.valueOf(trace);
+			fExpected= CompactString.valueOf(expected);
+			fActual= CompactString.valueOf(actual);
 		}
 		setStatus(status);
 	}
@@ -318,15 +339,15 @@ public abstract class TestElement implements ITestElement {
 	}
 
 	public String getTrace() {
-		return fTrace;
+		return CompactString.toString(fTrace);
 	}
 
 	public String getExpected() {
-		return fExpected;
+		return CompactString.toString(fExpected);
 	}
 
 	public String getActual() {
-		return fActual;
+		return CompactString.toString(fActual);
 	}
 
 	public boolean isComparisonFailure() {
@@ -417,6 +438,8 @@ public abstract class TestElement implements ITestElement {
 	 * @return the unique ID of the test, can be <code>null</code>
 	 */
 	public String getUniqueId() {
+		if (fRelativeUniqueId)
+			return fParent.getUniqueId() + fUniqueId;
 		return fUniqueId;
 	}
 
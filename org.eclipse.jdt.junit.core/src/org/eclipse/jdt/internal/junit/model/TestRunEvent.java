@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+/**
+ * An event received by the {@link RemoteTestRunnerClient}. Each kind
+ * corresponds to a method of {@link ITestRunListener2}.
+ *
+ * @see ITestRunBatchListener
+ */
+public final class TestRunEvent {
+
+	public static final int RUN_STARTED= 1;
+	public static final int RUN_ENDED= 2;
+	public static final int RUN_STOPPED= 3;
+	public static final int RUN_TERMINATED= 4;
+	public static final int TREE_ENTRY= 5;
+	public static final int TEST_STARTED= 6;
+	public static final int TEST_ENDED= 7;
+	public static final int TEST_FAILED= 8;
+	public static final int TEST_RERAN= 9;
+
+	private final int fKind;
+	private final String fTestId;
+	private final String fTestName;
+	private final String fTestClass;
+	private final int fStatus;
+	private final String fTrace;
+	private final String fExpected;
+	private final String fActual;
+	private final long fValue;
+
+	private TestRunEvent(int kind, String testId, String testName, String testClass, int status, String trace, String expected, String actual, long value) {
+		fKind= kind;
+		fTestId= testId;
+		fTestName= testName;
+		fTestClass= testClass;
+		fStatus= status;
+		fTrace= trace;
+		fExpected= expected;
+		fActual= actual;
+		fValue= value;
+	}
+
+	static TestRunEvent runStarted(int testCount) {
+		return new TestRunEvent(RUN_STARTED, null, null, null, 0, null, null, null, testCount);
+	}
+
+	static TestRunEvent runEnded(long elapsedTime) {
+		return new TestRunEvent(RUN_ENDED, null, null, null, 0, null, null, null, elapsedTime);
+	}
+
+	static TestRunEvent runStopped(long elapsedTime) {
+		return new TestRunEvent(RUN_STOPPED, null, null, null, 0, null, null, null, elapsedTime);
+	}
+
+	static TestRunEvent runTerminated() {
+		return new TestRunEvent(RUN_TERMINATED, null, null, null, 0, null, null, null, 0);
+	}
+
+	static TestRunEvent treeEntry(String description) {
+		return new TestRunEvent(TREE_ENTRY, null, description, null, 0, null, null, null, 0);
+	}
+
+	static TestRunEvent testStarted(String testId, String testName) {
+		return new TestRunEvent(TEST_STARTED, testId, testName, null, 0, null, null, null, 0);
+	}
+
+	static TestRunEvent testEnded(String testId, String testName) {
+		return new TestRunEvent(TEST_ENDED, testId, testName, null, 0, null, null, null, 0);
+	}
+
+	static TestRunEvent testFailed(int status, String testId, String testName, String trace, String expected, String actual) {
+		return new TestRunEvent(TEST_FAILED, testId, testName, null, status, trace, expected, actual, 0);
+	}
+
+	static TestRunEvent testReran(String testId, String testClass, String testName, int status, String trace, String expected, String actual) {
+		return new TestRunEvent(TEST_RERAN, testId, testName, testClass, status, trace, expected, actual, 0);
+	}
+
+	/**
+	 * @return the kind of this event, one of the constants defined in this class
+	 */
+	public int getKind() {
+		return fKind;
+	}
+
+	/**
+	 * @return <code>true</code> if this event starts, ends or stops the test
+	 *         run, <code>false</code> if it reports on an individual test
+	 */
+	public boolean isRunEvent() {
+		return fKind <= RUN_TERMINATED;
+	}
+
+	/**
+	 * Calls the method of the given listener which corresponds to this event.
+	 *
+	 * @param listener the listener to notify
+	 */
+	public void dispatch(ITestRunListener2 listener) {
+		switch (fKind) {
+			case RUN_STARTED:
+				listener.testRunStarted((int) fValue);
+				break;
+			case RUN_ENDED:
+				listener.testRunEnded(fValue);
+				break;
+			case RUN_STOPPED:
+				listener.testRunStopped(fValue);
+				break;
+			case RUN_TERMINATED:
+				listener.testRunTerminated();
+				break;
+			case TREE_ENTRY:
+				listener.testTreeEntry(fTestName);
+				break;
+			case TEST_STARTED:
+				listener.testStarted(fTestId, fTestName);
+				break;
+			case TEST_ENDED:
+				listener.testEnded(fTestId, fTestName);
+				break;
+			case TEST_FAILED:
+				listener.testFailed(fStatus, fTestId, fTestName, fTrace, fExpected, fActual);
+				break;
+			case TEST_RERAN:
+				listener.testReran(fTestId, fTestClass, fTestName, fStatus, fTrace, fExpected, fActual);
+				break;
+			default:
+				break;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TestRunEvent(" + fKind + ", " + fTestId + ", " + fTestName + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -614,7 +614,34 @@ public class TestRunSession implements ITestRunSession {
 	 * {@link RemoteTestRunnerClient} and translates them into high-level model
 	 * events (broadcasted to {@link ITestSessionListener}s).
 	 */
-	private class TestSessionNotifier implements ITestRunListener2 {
+	private class TestSessionNotifier implements ITestRunBatchListener {
+
+		@Override
+		public void testEvents(TestRunEvent[] events) {
+			ArrayList<ITestSessionBatchListener> batchListeners= new ArrayList<>();
+			for (ITestSessionListener listener : fSessionListeners) {
+				if (listener instanceof ITestSessionBatchListener) {
+					batchListeners.add((ITestSessionBatchListener) listener);
+				}
+			}
+			for (ITestSessionBatchListener listener : batchListeners) {
+				listener.batchStarted();
+			}
+			try {
+				for (int i= 0; i < events.length; i++) {
+					try {
+						events[i].dispatch(this);
+					} catch (RuntimeException e) {
+						// don't lose the remaining events of the batch
+						JUnitCorePlugin.log(e);
+					}
+				}
+			} finally {
+				for (ITestSessionBatchListener listener : batchListeners) {
+					listener.batchEnded();
+				}
+			}
+		}
 
 		@Override
 		public void testRunStarted(int testCount) {
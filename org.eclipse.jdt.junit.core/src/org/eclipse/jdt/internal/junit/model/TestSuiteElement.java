@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,11 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 	private List<TestElement> fChildren;
 	private Status fChildrenStatus;
 
+	/**
+	 * The complete unique ID, which is reconstructed from the ancestors and asked for by each child
+	 */
+	private String fFullUniqueId;
+
 	public TestSuiteElement(TestSuiteElement parent, String id, String testName, int childrenCount, String displayName, String[] parameterTypes, String uniqueId) {
 		super(parent, id, testName, displayName, parameterTypes, uniqueId);
 		fChildren= new ArrayList<>(childrenCount);
@@ -51,6 +56,24 @@ public class TestSuiteElement extends TestElement implements ITestSuiteElement {
 		fChildren.add(child);
 	}
 
+	@Override
+	public String getUniqueId() {
+		String uniqueId= fFullUniqueId;
+		if (uniqueId == null) {
+			uniqueId= super.getUniqueId();
+			fFullUniqueId= uniqueId;
+		}
+		return uniqueId;
+	}
+
+	/**
+	 * @return the last child of this suite, or <code>null</code> if the suite has no children
+	 */
+	TestElement getLastChild() {
+		int size= fChildren.size();
+		return size == 0 ? null : fChildren.get(size - 1);
+	}
+
 	public void removeChild(TestElement child) {
 		fChildren.remove(child);
 	}
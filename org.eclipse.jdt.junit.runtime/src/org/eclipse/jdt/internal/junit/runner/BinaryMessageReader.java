@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Reads messages written by a {@link BinaryMessageWriter} and returns them in
+ * the text format of the RemoteTestRunner, so that clients can process both
+ * protocols alike.
+ *
+ * @see MessageIds#BINARY_PROTOCOL_MAGIC
+ */
+public class BinaryMessageReader {
+
+	private final InputStream fStream;
+
+	private final String fLineDelimiter;
+
+	/**
+	 * The current batch
+	 */
+	private byte[] fBatch= new byte[BinaryMessageWriter.BATCH_SIZE + 1024];
+
+	private int fBatchLength;
+
+	private int fPosition;
+
+	private final StringBuffer fBuffer= new StringBuffer(128);
+
+	/**
+	 * Creates a reader for a stream whose magic byte has already been read,
+	 * and reads the remainder of the protocol handshake.
+	 *
+	 * @param stream the stream to read from
+	 * @throws IOException if the handshake cannot be read or the protocol
+	 *             version is not supported
+	 */
+	public BinaryMessageReader(InputStream stream) throws IOException {
+		fStream= stream;
+		int version= readStreamVarint();
+		if (version != MessageIds.BINARY_PROTOCOL_VERSION)
+			throw new IOException("Unsupported binary protocol version: " + version); //$NON-NLS-1$
+		byte[] delimiter= new byte[readStreamVarint()];
+		readFully(delimiter, delimiter.length);
+		fLineDelimiter= decode(delimiter, 0, delimiter.length);
+	}
+
+	/**
+	 * Returns the line delimiter of the remote test runner. Multi-line
+	 * messages such as stack traces are terminated by this delimiter in the
+	 * text protocol.
+	 *
+	 * @return the line delimiter
+	 */
+	public String getLineDelimiter() {
+		return fLineDelimiter;
+	}
+
+	/**
+	 * Reads the next message.
+	 *
+	 * @return the message in the text format, or <code>null</code> if the
+	 *         end of the stream has been reached
+	 * @throws IOException if the stream cannot be read or is corrupt
+	 */
+	public String readMessage() throws IOException {
+		if (fPosition == fBatchLength && !readBatch())
+			return null;
+		int tag= readVarint();
+		int header= tag >>> 1;
+		if (header >= BinaryMessageWriter.HEADERS.length)
+			throw new IOException("Unknown message header: " + header); //$NON-NLS-1$
+		fBuffer.setLength(0);
+		if (header != 0)
+			fBuffer.append(BinaryMessageWriter.HEADERS[header]);
+		if ((tag & 1) != 0)
+			fBuffer.append(readVarint()).append(',');
+		int length= readVarint();
+		if (length > fBatchLength - fPosition)
+			throw new IOException("Corrupt message"); //$NON-NLS-1$
+		fBuffer.append(decode(fBatch, fPosition, length));
+		fPosition+= length;
+		return fBuffer.toString();
+	}
+
+	private boolean readBatch() throws IOException {
+		int first= fStream.read();
+		if (first == -1)
+			return false;
+		int length= first & 0x7F;
+		if ((first & 0x80) != 0)
+			length|= readStreamVarint() << 7;
+		if (length > fBatch.length)
+			fBatch= new byte[length];
+		readFully(fBatch, length);
+		fBatchLength= length;
+		fPosition= 0;
+		return true;
+	}
+
+	private int readVarint() throws IOException {
+		int value= 0;
+		for (int shift= 0; shift < 32; shift+= 7) {
+			if (fPosition == fBatchLength)
+				throw new IOException("Corrupt message"); //$NON-NLS-1$
+			byte b= fBatch[fPosition++];
+			value|= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Corrupt message"); //$NON-NLS-1$
+	}
+
+	private int readStreamVarint() throws IOException {
+		int value= 0;
+		for (int shift= 0; shift < 32; shift+= 7) {
+			int b= fStream.read();
+			if (b == -1)
+				throw new EOFException();
+			value|= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Corrupt message"); //$NON-NLS-1$
+	}
+
+	private void readFully(byte[] bytes, int length) throws IOException {
+		int read= 0;
+		while (read < length) {
+			int count= fStream.read(bytes, read, length - read);
+			if (count == -1)
+				throw new EOFException();
+			read+= count;
+		}
+	}
+
+	private static String decode(byte[] bytes, int offset, int length) {
+		try {
+			return new String(bytes, offset, length, "UTF-8"); //$NON-NLS-1$
+		} catch (UnsupportedEncodingException e) {
+			return new String(bytes, offset, length);
+		}
+	}
+}
@@ -0,0 +1,301 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+
+/**
+ * Writes the messages of the RemoteTestRunner in the compact binary protocol.
+ * <p>
+ * Every message is encoded as a frame. The message header is replaced by its
+ * index in {@link #HEADERS}, a leading numeric test id is written as a varint,
+ * and the remaining text is written as a length-prefixed UTF-8 string. Frames
+ * are collected into batches which are written to the stream when they grow
+ * large, when {@link #flush()} is called and the last batch is older than
+ * {@link #FLUSH_INTERVAL}, or at the latest by the flusher thread.
+ * </p>
+ *
+ * @see MessageIds#BINARY_PROTOCOL_MAGIC
+ * @see BinaryMessageReader
+ */
+public class BinaryMessageWriter {
+
+	/**
+	 * The message headers which are encoded as an index. Index 0 is reserved
+	 * for messages without a known header, e.g. the lines of a stack trace.
+	 * New headers must only be appended.
+	 */
+	static final String[] HEADERS= new String[] {
+		null,
+		MessageIds.TEST_RUN_START,
+		MessageIds.TEST_START,
+		MessageIds.TEST_END,
+		MessageIds.TEST_ERROR,
+		MessageIds.TEST_FAILED,
+		MessageIds.TEST_RUN_END,
+		MessageIds.TEST_STOPPED,
+		MessageIds.TEST_RERAN,
+		MessageIds.TEST_TREE,
+		MessageIds.TRACE_START,
+		MessageIds.TRACE_END,
+		MessageIds.EXPECTED_START,
+		MessageIds.EXPECTED_END,
+		MessageIds.ACTUAL_START,
+		MessageIds.ACTUAL_END,
+		MessageIds.RTRACE_START,
+		MessageIds.RTRACE_END,
+	};
+
+	/**
+	 * The size in bytes at which a batch is written without waiting for a flush.
+	 */
+	static final int BATCH_SIZE= 16 * 1024;
+
+	/**
+	 * The maximal time in milliseconds a message is kept in the batch.
+	 */
+	static final long FLUSH_INTERVAL= 50;
+
+	private static final HashMap fgHeaderIndices= new HashMap();
+	static {
+		for (int i= 1; i < HEADERS.length; i++)
+			fgHeaderIndices.put(HEADERS[i], new Integer(i));
+	}
+
+	/**
+	 * Daemon thread which writes pending batches, so that a message which is
+	 * not followed by other messages (e.g. the start of a long running test)
+	 * still reaches the client.
+	 */
+	private class FlusherThread extends Thread {
+		public FlusherThread() {
+			super("BinaryMessageFlusher"); //$NON-NLS-1$
+			setDaemon(true);
+		}
+
+		public void run() {
+			try {
+				while (!isClosed()) {
+					Thread.sleep(FLUSH_INTERVAL);
+					synchronized (BinaryMessageWriter.this) {
+						if (!fClosed && fFrames.size() > 0)
+							writeBatch();
+					}
+				}
+			} catch (InterruptedException e) {
+				// closed
+			} catch (IOException e) {
+				// the reader side has gone, the runner will notice on close
+			}
+		}
+	}
+
+	private final OutputStream fStream;
+
+	/**
+	 * The frames of the current batch
+	 */
+	private final ByteBuffer fFrames= new ByteBuffer(BATCH_SIZE + 1024);
+
+	/**
+	 * The length prefix of the current batch
+	 */
+	private final ByteBuffer fPrefix= new ByteBuffer(8);
+
+	private long fLastWrite;
+
+	private boolean fClosed;
+
+	private FlusherThread fFlusher;
+
+	/**
+	 * Creates a writer and writes the protocol handshake.
+	 *
+	 * @param stream the stream to write to
+	 * @param lineDelimiter the line delimiter used in multi-line messages
+	 * @throws IOException if the handshake cannot be written
+	 */
+	public BinaryMessageWriter(OutputStream stream, String lineDelimiter) throws IOException {
+		fStream= stream;
+		ByteBuffer handshake= new ByteBuffer(16);
+		handshake.write(MessageIds.BINARY_PROTOCOL_MAGIC);
+		handshake.writeVarint(MessageIds.BINARY_PROTOCOL_VERSION);
+		handshake.writeString(lineDelimiter);
+		handshake.writeTo(fStream);
+		fStream.flush();
+		fLastWrite= System.currentTimeMillis();
+		fFlusher= new FlusherThread();
+		fFlusher.start();
+	}
+
+	/**
+	 * Adds a message to the current batch.
+	 *
+	 * @param message the message in the text format
+	 * @throws IOException if a full batch cannot be written
+	 */
+	public synchronized void sendMessage(String message) throws IOException {
+		if (fClosed)
+			return;
+		int header= 0;
+		int start= 0;
+		if (message.length() >= MessageIds.MSG_HEADER_LENGTH) {
+			Integer index= (Integer) fgHeaderIndices.get(message.substring(0, MessageIds.MSG_HEADER_LENGTH));
+			if (index != null) {
+				header= index.intValue();
+				start= MessageIds.MSG_HEADER_LENGTH;
+			}
+		}
+		int id= header != 0 ? parseTestId(message, start) : -1;
+		if (id >= 0) {
+			fFrames.writeVarint(header << 1 | 1);
+			fFrames.writeVarint(id);
+			fFrames.writeString(message.substring(message.indexOf(',', start) + 1));
+		} else {
+			fFrames.writeVarint(header << 1);
+			fFrames.writeString(start == 0 ? message : message.substring(start));
+		}
+		if (fFrames.size() >= BATCH_SIZE)
+			writeBatch();
+	}
+
+	/**
+	 * Writes the current batch if the last batch has been written more than
+	 * {@link #FLUSH_INTERVAL} milliseconds ago. Otherwise the batch is written
+	 * by a later message or by the flusher thread.
+	 *
+	 * @throws IOException if the batch cannot be written
+	 */
+	public synchronized void flush() throws IOException {
+		if (!fClosed && fFrames.size() > 0 && System.currentTimeMillis() - fLastWrite >= FLUSH_INTERVAL)
+			writeBatch();
+	}
+
+	/**
+	 * Writes the pending batch and stops the flusher thread. The stream is
+	 * not closed.
+	 *
+	 * @throws IOException if the batch cannot be written
+	 */
+	public synchronized void close() throws IOException {
+		if (fClosed)
+			return;
+		try {
+			if (fFrames.size() > 0)
+				writeBatch();
+		} finally {
+			fClosed= true;
+			fFlusher.interrupt();
+		}
+	}
+
+	synchronized boolean isClosed() {
+		return fClosed;
+	}
+
+	private void writeBatch() throws IOException {
+		fPrefix.reset();
+		fPrefix.writeVarint(fFrames.size());
+		fPrefix.writeTo(fStream);
+		fFrames.writeTo(fStream);
+		fStream.flush();
+		fFrames.reset();
+		fLastWrite= System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns the test id at the given position of a message, if the message
+	 * continues with a decimal number followed by a comma and the number is
+	 * written without leading zeros.
+	 *
+	 * @param message the message
+	 * @param start the start of the message payload
+	 * @return the test id or <code>-1</code>
+	 */
+	private static int parseTestId(String message, int start) {
+		int length= message.length();
+		int id= 0;
+		int i= start;
+		for (; i < length && i - start < 9; i++) {
+			char c= message.charAt(i);
+			if (c == ',')
+				break;
+			if (c < '0' || c > '9' || c == '0' && i == start)
+				return -1;
+			id= id * 10 + (c - '0');
+		}
+		if (i == start || i == length || message.charAt(i) != ',')
+			return -1;
+		return id;
+	}
+
+	/**
+	 * Growable byte array with varint and string encoding.
+	 */
+	static final class ByteBuffer {
+		private byte[] fBytes;
+		private int fSize;
+
+		ByteBuffer(int capacity) {
+			fBytes= new byte[capacity];
+		}
+
+		int size() {
+			return fSize;
+		}
+
+		void reset() {
+			fSize= 0;
+		}
+
+		void write(int b) {
+			ensureCapacity(1);
+			fBytes[fSize++]= (byte) b;
+		}
+
+		void writeVarint(int value) {
+			ensureCapacity(5);
+			while ((value & ~0x7F) != 0) {
+				fBytes[fSize++]= (byte) (value & 0x7F | 0x80);
+				value>>>= 7;
+			}
+			fBytes[fSize++]= (byte) value;
+		}
+
+		void writeString(String value) {
+			byte[] bytes;
+			try {
+				bytes= value.getBytes("UTF-8"); //$NON-NLS-1$
+			} catch (UnsupportedEncodingException e) {
+				bytes= value.getBytes();
+			}
+			writeVarint(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, fBytes, fSize, bytes.length);
+			fSize+= bytes.length;
+		}
+
+		void writeTo(OutputStream stream) throws IOException {
+			stream.write(fBytes, 0, fSize);
+		}
+
+		private void ensureCapacity(int length) {
+			if (fSize + length > fBytes.length) {
+				byte[] bytes= new byte[Math.max(fBytes.length * 2, fSize + length)];
+				System.arraycopy(fBytes, 0, bytes, 0, fSize);
+				fBytes= bytes;
+			}
+		}
+	}
+}
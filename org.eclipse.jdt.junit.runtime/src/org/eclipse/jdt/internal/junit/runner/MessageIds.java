@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -128,6 +128,30 @@ public class MessageIds {
 	 */
 	public static final String TEST_RERUN=	">RERUN  "; //$NON-NLS-1$
 
+	/**
+	 * First byte sent by the RemoteTestRunner if it uses the binary protocol.
+	 * The binary protocol is only used if the runner has been started with
+	 * the <code>-binaryProtocol</code> argument. Messages of the text protocol
+	 * never start with this byte.
+	 * <p>
+	 * The magic byte is followed by the protocol version and the line
+	 * delimiter of the runner. After that, the messages are sent in batches:
+	 * each batch is a varint byte length followed by frames. A frame is a
+	 * varint tag <code>(headerIndex &lt;&lt; 1) | hasTestId</code>, followed
+	 * by the test id as varint if present, and the remaining message text as
+	 * a varint length followed by the UTF-8 bytes.
+	 * </p>
+	 *
+	 * @see BinaryMessageWriter
+	 * @see BinaryMessageReader
+	 */
+	public static final int BINARY_PROTOCOL_MAGIC= 0;
+
+	/**
+	 * Version of the binary protocol.
+	 */
+	public static final int BINARY_PROTOCOL_VERSION= 1;
+
 	/**
 	 * MessageFormat to encode test method identifiers:
 	 * testMethod(testClass)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -143,7 +143,7 @@ import org.eclipse.jdt.internal.junit.launcher.ITestKind;
 import org.eclipse.jdt.internal.junit.launcher.JUnitLaunchConfigurationConstants;
 import org.eclipse.jdt.internal.junit.launcher.TestKindRegistry;
 import org.eclipse.jdt.internal.junit.model.ITestRunSessionListener;
-import org.eclipse.jdt.internal.junit.model.ITestSessionListener;
+import org.eclipse.jdt.internal.junit.model.ITestSessionBatchListener;
 import org.eclipse.jdt.internal.junit.model.JUnitModel;
 import org.eclipse.jdt.internal.junit.model.TestCaseElement;
 import org.eclipse.jdt.internal.junit.model.TestElement;
@@ -718,7 +718,29 @@ public class TestRunnerViewPart extends ViewPart {
 		}
 	}
 
-	private class TestSessionListener implements ITestSessionListener {
+	private class TestSessionListener implements ITestSessionBatchListener {
+		/**
+		 * Number of batches that have been started but not ended
+		 */
+		private int fBatchDepth;
+		/**
+		 * The last test started in the current batch, or <code>null</code>
+		 */
+		private TestCaseElement fLastStarted;
+
+		@Override
+		public void batchStarted() {
+			fBatchDepth++;
+		}
+
+		@Override
+		public void batchEnded() {
+			if (--fBatchDepth == 0 && fLastStarted != null) {
+				registerStartedMessage(fLastStarted);
+				fLastStarted= null;
+			}
+		}
+
 		@Override
 		public void sessionStarted(){
 			fTestViewer.registerViewersRefresh();
@@ -732,6 +754,7 @@ public class TestRunnerViewPart extends ViewPart {
 
 		@Override
 		public void sessionEnded(long elapsedTime){
+			fLastStarted= null;
 			deregisterTestSessionListener(false);
 
 			fTestViewer.registerAutoScrollTarget(null);
@@ -764,6 +787,7 @@ public class TestRunnerViewPart extends ViewPart {
 
 		@Override
 		public void sessionStopped(final long elapsedTime) {
+			fLastStarted= null;
 			deregisterTestSessionListener(false);
 
 			fTestViewer.registerAutoScrollTarget(null);
@@ -774,6 +798,7 @@ public class TestRunnerViewPart extends ViewPart {
 
 		@Override
 		public void sessionTerminated() {
+			fLastStarted= null;
 			deregisterTestSessionListener(true);
 
 			fTestViewer.registerAutoScrollTarget(null);
@@ -793,6 +818,14 @@ public class TestRunnerViewPart extends ViewPart {
 			fTestViewer.registerAutoScrollTarget(testCaseElement);
 			fTestViewer.registerViewerUpdate(testCaseElement);
 
+			// only the last test of a batch is ever visible in the status line
+			if (fBatchDepth > 0)
+				fLastStarted= testCaseElement;
+			else
+				registerStartedMessage(testCaseElement);
+		}
+
+		private void registerStartedMessage(TestCaseElement testCaseElement) {
 			String className= BasicElementLabels.getJavaElementName(testCaseElement.getClassName());
 			String method= BasicElementLabels.getJavaElementName(testCaseElement.getTestMethodName());
 			String status= Messages.format(JUnitMessages.TestRunnerViewPart_message_started, new String[] { className, method });
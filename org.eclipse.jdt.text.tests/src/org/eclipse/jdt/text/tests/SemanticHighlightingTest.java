@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -301,6 +301,22 @@ public class SemanticHighlightingTest extends AbstractSemanticHighlightingTest {
 		assertEqualPositions(expected, actual);
 	}
 
+	public void testIncrementalHighlighting() throws Exception {
+		setUpSemanticHighlighting(SemanticHighlightings.LOCAL_VARIABLE);
+		Position[] original= getSemanticHighlightingPositions();
+		String text= "\t\tint local3= local;\n";
+		replace(10, 0, 0, text);
+		try {
+			Position[] incremental= getSemanticHighlightingPositions();
+			assertEquals(original.length + 2, incremental.length);
+			forceReconcile();
+			assertEqualPositions(getSemanticHighlightingPositions(), incremental);
+		} finally {
+			replace(10, 0, text.length(), "");
+		}
+		assertEqualPositions(original, getSemanticHighlightingPositions());
+	}
+
 	public void testClassHighlighting() throws Exception {
 		setUpSemanticHighlighting(SemanticHighlightings.CLASS);
 		Position[] actual= getSemanticHighlightingPositions();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.jdt.text.tests.contentassist;
 
 import java.util.Hashtable;
+import java.util.List;
 
 import org.eclipse.jdt.testplugin.JavaProjectHelper;
 import org.eclipse.jdt.testplugin.TestOptions;
@@ -19,6 +20,7 @@ import org.eclipse.jdt.text.tests.performance.EditorTestHelper;
 import org.eclipse.swt.graphics.Point;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
 
 import org.eclipse.text.tests.Accessor;
 
@@ -50,6 +52,8 @@ import org.eclipse.jdt.internal.corext.template.java.CodeTemplateContextType;
 
 import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.text.IJavaPartitions;
+import org.eclipse.jdt.ui.text.java.IJavaCompletionProposalComputer;
+import org.eclipse.jdt.ui.text.java.JavaContentAssistInvocationContext;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.JavaUIMessages;
@@ -57,6 +61,7 @@ import org.eclipse.jdt.internal.ui.javaeditor.EditorUtility;
 import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
 import org.eclipse.jdt.internal.ui.text.java.ContentAssistProcessor;
 import org.eclipse.jdt.internal.ui.text.java.JavaCompletionProcessor;
+import org.eclipse.jdt.internal.ui.text.java.JavaTypeCompletionProposalComputer;
 
 import junit.framework.TestCase;
 
@@ -150,6 +155,8 @@ public class AbstractCompletionTest extends TestCase {
 		store.setToDefault(PreferenceConstants.CODEASSIST_INSERT_COMPLETION);
 		store.setToDefault(PreferenceConstants.CODEASSIST_PREFIX_COMPLETION);
 		store.setToDefault(PreferenceConstants.CODEASSIST_AUTOINSERT);
+		store.setToDefault(PreferenceConstants.CODEASSIST_CONCURRENT_COMPUTATION);
+		store.setToDefault(PreferenceConstants.CODEASSIST_COMPUTATION_DEADLINE);
 
 		if (fEditor != null) {
 			EditorTestHelper.closeEditor(fEditor);
@@ -219,6 +226,121 @@ public class AbstractCompletionTest extends TestCase {
 		assertProposal(selector, contents, preSelection, result, expectedSelection);
 	}
 
+	/**
+	 * Creates a CU with a method containing <code>before</code>, then computes the proposals as
+	 * code assist in the editor does.
+	 *
+	 * @param before the contents of the javadoc line before code completion is run
+	 * @return the computed proposals
+	 * @throws CoreException if the proposals could not be computed
+	 */
+	protected ICompletionProposal[] computeMethodBodyProposals(String before) throws CoreException {
+		StringBuffer contents= new StringBuffer();
+		IRegion preSelection= assembleMethodBodyTestCUExtractSelection(contents, before, fBeforeImports);
+		fCU= createCU(getAnonymousTestPackage(), contents.toString());
+		fEditor= (JavaEditor) EditorUtility.openInEditor(fCU);
+		try {
+			return collectProposals(preSelection);
+		} finally {
+			EditorTestHelper.closeEditor(fEditor);
+			fEditor= null;
+		}
+	}
+
+	/**
+	 * Creates a CU with a method containing <code>before</code>, then computes the proposals as
+	 * code assist in the editor does and waits until a proposal starting with
+	 * <code>selector</code> has been computed, possibly after the computation has returned and the
+	 * proposal has been delivered as a late result.
+	 *
+	 * @param before the contents of the javadoc line before code completion is run
+	 * @param selector the prefix to match a proposal with
+	 * @throws CoreException if the proposals could not be computed
+	 */
+	protected void assertMethodBodyLateProposal(String before, String selector) throws CoreException {
+		StringBuffer contents= new StringBuffer();
+		IRegion preSelection= assembleMethodBodyTestCUExtractSelection(contents, before, fBeforeImports);
+		fCU= createCU(getAnonymousTestPackage(), contents.toString());
+		fEditor= (JavaEditor) EditorUtility.openInEditor(fCU);
+		try {
+			JavaCompletionProcessor javaProcessor= createProcessor();
+			ICompletionProposal[] proposals= javaProcessor.computeCompletionProposals(fEditor.getViewer(), preSelection.getOffset());
+
+			// the late results are set in the UI thread
+			Accessor computation= new Accessor(new Accessor(javaProcessor, ContentAssistProcessor.class).get("fConcurrentComputation"), ContentAssistProcessor.class.getName() + "$ConcurrentComputation", ContentAssistProcessor.class.getClassLoader());
+			long end= System.currentTimeMillis() + 10000;
+			while (findProposal(selector, proposals) == null && System.currentTimeMillis() < end) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					// check again
+				}
+				JavaProjectHelper.emptyDisplayLoop();
+				@SuppressWarnings("unchecked")
+				List<ICompletionProposal> late= (List<ICompletionProposal>) computation.invoke("getProposals", new Object[0]);
+				proposals= late.toArray(new ICompletionProposal[late.size()]);
+			}
+			assertNotNull("no proposal starting with \"" + selector + "\"", findProposal(selector, proposals));
+		} finally {
+			EditorTestHelper.closeEditor(fEditor);
+			fEditor= null;
+		}
+	}
+
+	/**
+	 * Creates a CU with a method containing <code>before</code>, then computes the proposals of
+	 * the Java type proposal computer in a thread other than the UI thread, as when the computers
+	 * run concurrently, and asserts that there is a proposal starting with <code>selector</code>.
+	 *
+	 * @param before the contents of the javadoc line before code completion is run
+	 * @param selector the prefix to match a proposal with
+	 * @throws Exception if asserting the proposal failed
+	 */
+	protected void assertMethodBodyProposalInWorker(String before, String selector) throws Exception {
+		StringBuffer contents= new StringBuffer();
+		IRegion preSelection= assembleMethodBodyTestCUExtractSelection(contents, before, fBeforeImports);
+		fCU= createCU(getAnonymousTestPackage(), contents.toString());
+		fEditor= (JavaEditor) EditorUtility.openInEditor(fCU);
+		try {
+			waitBeforeCoreCompletion();
+			// the context is created in the UI thread, the proposals are computed in the worker
+			final JavaContentAssistInvocationContext context= new JavaContentAssistInvocationContext(fEditor.getViewer(), preSelection.getOffset(), fEditor);
+			final IJavaCompletionProposalComputer computer= new JavaTypeCompletionProposalComputer();
+			final Object[] result= new Object[1];
+			Thread worker= new Thread() {
+				@Override
+				public void run() {
+					try {
+						result[0]= computer.computeCompletionProposals(context, new NullProgressMonitor());
+					} catch (RuntimeException e) {
+						result[0]= e;
+					}
+				}
+			};
+			computer.sessionStarted();
+			try {
+				worker.start();
+				worker.join();
+			} finally {
+				computer.sessionEnded();
+			}
+
+			if (result[0] instanceof RuntimeException)
+				throw (RuntimeException) result[0];
+			@SuppressWarnings("unchecked")
+			List<ICompletionProposal> proposals= (List<ICompletionProposal>) result[0];
+			ICompletionProposal found= null;
+			for (ICompletionProposal proposal : proposals) {
+				if (proposal.getDisplayString().startsWith(selector))
+					found= proposal;
+			}
+			assertNotNull("no proposal starting with \"" + selector + "\"", found);
+		} finally {
+			EditorTestHelper.closeEditor(fEditor);
+			fEditor= null;
+		}
+	}
+
 	/**
 	 * Creates a CU with a method containing <code>before</code>, then runs incremental code assist
 	 * and asserts that the method's body now has the content of <code>expected</code>.
@@ -495,8 +617,10 @@ public class AbstractCompletionTest extends TestCase {
 	}
 
 	private ICompletionProposal findNamedProposal(String prefix, IRegion selection) {
-		ICompletionProposal[] proposals= collectProposals(selection);
+		return findProposal(prefix, collectProposals(selection));
+	}
 
+	private ICompletionProposal findProposal(String prefix, ICompletionProposal[] proposals) {
 		ICompletionProposal found= null;
 		for (int i= 0; i < proposals.length; i++) {
 			String displayString= proposals[i].getDisplayString();
@@ -509,6 +633,15 @@ public class AbstractCompletionTest extends TestCase {
 	}
 
 	private ICompletionProposal[] collectProposals(IRegion selection) {
+		JavaCompletionProcessor javaProcessor= createProcessor();
+		ICompletionProposal[] proposals= javaProcessor.computeCompletionProposals(fEditor.getViewer(), selection.getOffset());
+		final String errorMessage= javaProcessor.getErrorMessage();
+		if (errorMessage != null && !JavaUIMessages.JavaEditor_codeassist_noCompletions.equals(errorMessage))
+			fail(errorMessage);
+		return proposals;
+	}
+
+	private JavaCompletionProcessor createProcessor() {
 		waitBeforeCoreCompletion();
 		ContentAssistant assistant= new ContentAssistant();
 		assistant.setDocumentPartitioning(IJavaPartitions.JAVA_PARTITIONING);
@@ -518,12 +651,7 @@ public class AbstractCompletionTest extends TestCase {
 		Accessor accessor= new Accessor(javaProcessor, ContentAssistProcessor.class);
 		accessor.invoke("setCategoryIteration", new Object[0]);
 		accessor.set("fRepetition", 0);
-
-		ICompletionProposal[] proposals= javaProcessor.computeCompletionProposals(fEditor.getViewer(), selection.getOffset());
-		final String errorMessage= javaProcessor.getErrorMessage();
-		if (errorMessage != null && !JavaUIMessages.JavaEditor_codeassist_noCompletions.equals(errorMessage))
-			fail(errorMessage);
-		return proposals;
+		return javaProcessor;
 	}
 
 	private void incrementalAssist(IRegion selection) {
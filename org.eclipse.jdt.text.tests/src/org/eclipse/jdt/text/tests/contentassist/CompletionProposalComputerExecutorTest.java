@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.contentassist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.internal.ui.text.java.CompletionProposalComputerExecutor;
+import org.eclipse.jdt.internal.ui.text.java.CompletionProposalComputerExecutor.ILateResultListener;
+import org.eclipse.jdt.internal.ui.text.java.CompletionProposalComputerExecutor.Invocation;
+import org.eclipse.jdt.internal.ui.text.java.LatencyHistogram;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @since 3.14
+ */
+public class CompletionProposalComputerExecutorTest extends TestCase {
+	private static final Class<CompletionProposalComputerExecutorTest> THIS= CompletionProposalComputerExecutorTest.class;
+
+	private static class Computation implements Callable<List<String>> {
+		private final List<String> fResult;
+		private final CountDownLatch fRelease;
+
+		Computation(List<String> result, CountDownLatch release) {
+			fResult= result;
+			fRelease= release;
+		}
+
+		@Override
+		public List<String> call() throws Exception {
+			if (fRelease != null)
+				fRelease.await();
+			return fResult;
+		}
+	}
+
+	private static class LateResults implements ILateResultListener<String> {
+		final List<Integer> fIndices= Collections.synchronizedList(new ArrayList<Integer>());
+		final CountDownLatch fDelivered;
+
+		LateResults(int count) {
+			fDelivered= new CountDownLatch(count);
+		}
+
+		@Override
+		public void resultAvailable(int index, List<String> result) {
+			fIndices.add(Integer.valueOf(index));
+			fDelivered.countDown();
+		}
+	}
+
+	private CompletionProposalComputerExecutor fExecutor;
+
+	public CompletionProposalComputerExecutorTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(THIS, "CompletionProposalComputerExecutorTest");
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fExecutor= new CompletionProposalComputerExecutor(2);
+	}
+
+	public void testResultOrder() throws Exception {
+		CountDownLatch release= new CountDownLatch(1);
+		List<Computation> computations= Arrays.asList(
+				new Computation(Arrays.asList("a"), release),
+				new Computation(Arrays.asList("b"), null),
+				new Computation(Collections.<String>emptyList(), null));
+		Invocation<String> invocation= fExecutor.start(computations);
+		release.countDown();
+
+		List<List<String>> results= invocation.await(10000, 10000, null);
+		assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("b"), Collections.<String>emptyList()), results);
+	}
+
+	public void testLateResult() throws Exception {
+		CountDownLatch release= new CountDownLatch(1);
+		List<Computation> computations= Arrays.asList(
+				new Computation(Arrays.asList("slow"), release),
+				new Computation(Arrays.asList("fast"), null));
+		Invocation<String> invocation= fExecutor.start(computations);
+		LateResults listener= new LateResults(1);
+
+		List<List<String>> results= invocation.await(50, 50, listener);
+		assertNull(results.get(0));
+		assertEquals(Arrays.asList("fast"), results.get(1));
+		assertFalse(invocation.isDone(0));
+
+		release.countDown();
+		assertTrue(listener.fDelivered.await(10, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(Integer.valueOf(0)), listener.fIndices);
+		assertEquals(Arrays.asList("slow"), invocation.getResult(0));
+	}
+
+	public void testSoftDeadline() throws Exception {
+		final CountDownLatch release= new CountDownLatch(1);
+		List<Computation> computations= Arrays.asList(
+				new Computation(Arrays.asList("late"), release),
+				new Computation(Collections.<String>emptyList(), null));
+		Invocation<String> invocation= fExecutor.start(computations);
+
+		Thread releaser= new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					// release now
+				}
+				release.countDown();
+			}
+		};
+		releaser.start();
+
+		// nothing to show at the deadline, waits for the first result
+		List<List<String>> results= invocation.await(10, 10000, null);
+		assertEquals(Arrays.asList("late"), results.get(0));
+		releaser.join();
+	}
+
+	public void testHardDeadline() throws Exception {
+		CountDownLatch release= new CountDownLatch(1);
+		List<Computation> computations= Arrays.asList(
+				new Computation(Arrays.asList("hanging"), release),
+				new Computation(Collections.<String>emptyList(), null));
+		Invocation<String> invocation= fExecutor.start(computations);
+		LateResults listener= new LateResults(1);
+
+		// nothing to show, but does not wait for the hanging computation past the hard deadline
+		long start= System.currentTimeMillis();
+		List<List<String>> results= invocation.await(10, 100, listener);
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertNull(results.get(0));
+		assertEquals(Collections.<String>emptyList(), results.get(1));
+
+		release.countDown();
+		assertTrue(listener.fDelivered.await(10, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(Integer.valueOf(0)), listener.fIndices);
+	}
+
+	public void testCancel() throws Exception {
+		CountDownLatch release= new CountDownLatch(1);
+		List<Computation> computations= Arrays.asList(
+				new Computation(Arrays.asList("slow"), release),
+				new Computation(Arrays.asList("fast"), null));
+		Invocation<String> invocation= fExecutor.start(computations);
+		LateResults listener= new LateResults(1);
+
+		invocation.await(50, 50, listener);
+		invocation.cancel();
+		release.countDown();
+		assertFalse(listener.fDelivered.await(200, TimeUnit.MILLISECONDS));
+		assertTrue(listener.fIndices.isEmpty());
+	}
+
+	public void testLatencyHistogram() throws Exception {
+		LatencyHistogram histogram= new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(50));
+
+		for (int i= 0; i < 9; i++)
+			histogram.record(3);
+		histogram.record(7000);
+
+		assertEquals(10, histogram.getCount());
+		assertEquals(7000, histogram.getMax());
+		assertEquals(702.7, histogram.getMean(), 0.001);
+		assertEquals(5, histogram.getPercentile(50));
+		assertEquals(5, histogram.getPercentile(90));
+		assertEquals(7000, histogram.getPercentile(99));
+
+		long[] counts= histogram.getCounts();
+		assertEquals(LatencyHistogram.getBucketBounds().length + 1, counts.length);
+		assertEquals(9, counts[2]);
+		assertEquals(1, counts[counts.length - 1]);
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+	}
+}
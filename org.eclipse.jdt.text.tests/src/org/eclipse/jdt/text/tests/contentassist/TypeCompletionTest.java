@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,11 +13,16 @@ package org.eclipse.jdt.text.tests.contentassist;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.JavaCore;
 
 import org.eclipse.jdt.ui.PreferenceConstants;
+import org.eclipse.jdt.ui.text.java.IJavaCompletionProposal;
+
+import org.eclipse.jdt.internal.ui.text.template.contentassist.TemplateProposal;
 
 
 /**
@@ -49,6 +54,44 @@ public class TypeCompletionTest extends AbstractCompletionTest {
 		assertMethodBodyProposal("S|", "String ", "String|");
 	}
 
+	public void testJavaLangConcurrent() throws Exception {
+		getJDTUIPrefs().setValue(PreferenceConstants.CODEASSIST_CONCURRENT_COMPUTATION, true);
+		getJDTUIPrefs().setValue(PreferenceConstants.CODEASSIST_COMPUTATION_DEADLINE, 10000);
+		assertMethodBodyProposal("S|", "String ", "String|");
+	}
+
+	public void testJavaLangConcurrentShortDeadline() throws Exception {
+		getJDTUIPrefs().setValue(PreferenceConstants.CODEASSIST_CONCURRENT_COMPUTATION, true);
+		getJDTUIPrefs().setValue(PreferenceConstants.CODEASSIST_COMPUTATION_DEADLINE, 1);
+		// returns with the first proposals, the others are added as late results
+		assertMethodBodyLateProposal("S|", "String ");
+	}
+
+	public void testKeywordAndTemplateConcurrent() throws Exception {
+		getJDTUIPrefs().setValue(PreferenceConstants.CODEASSIST_CONCURRENT_COMPUTATION, true);
+		getJDTUIPrefs().setValue(PreferenceConstants.CODEASSIST_COMPUTATION_DEADLINE, 10000);
+		ICompletionProposal[] proposals= computeMethodBodyProposals("fo|");
+
+		IJavaCompletionProposal keyword= null;
+		IJavaCompletionProposal template= null;
+		for (ICompletionProposal proposal : proposals) {
+			if (proposal instanceof TemplateProposal) {
+				if ("for".equals(((TemplateProposal) proposal).getTemplate().getName()))
+					template= (IJavaCompletionProposal) proposal;
+			} else if ("for".equals(proposal.getDisplayString())) {
+				keyword= (IJavaCompletionProposal) proposal;
+			}
+		}
+		assertNotNull("no keyword proposal", keyword);
+		assertNotNull("no template proposal", template);
+		// the template computer has seen the keywords while the Java computers were running
+		assertTrue(template.getRelevance() > keyword.getRelevance());
+	}
+
+	public void testJavaLangInWorker() throws Exception {
+		assertMethodBodyProposalInWorker("S|", "String ");
+	}
+
 	public void testImported() throws Exception {
 		addImport("java.util.Random");
 		expectImport("java.util.Random");
@@ -49,6 +49,9 @@ public class PerformanceTestSuite extends TestSuite {
 		addTest(SynchronizedLineDifferInitializationTest.suite());
 		addTest(DocumentLineDifferModificationTest.suite());
 		addTest(SpellCheckingTest.suite());
+		addTest(SpellDictionaryLoadTest.suite());
+		addTest(SharedASTProviderConcurrencyTest.suite());
+		addTest(SemanticHighlightingReconcilerTest.suite());
 
 
 		/* !!! IMPORTANT NOTE: The following test must be the last one !!! */
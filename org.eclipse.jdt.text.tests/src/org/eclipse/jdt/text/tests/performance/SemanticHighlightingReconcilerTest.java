@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.performance;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.source.SourceViewer;
+
+import org.eclipse.ui.texteditor.AbstractTextEditor;
+
+/**
+ * Measures the time of a reconcile with semantic highlighting after a small change in a
+ * large, generated compilation unit with many highlighted tokens.
+ *
+ * @since 3.14
+ */
+public class SemanticHighlightingReconcilerTest extends TextPerformanceTestCase {
+
+	private static final Class<SemanticHighlightingReconcilerTest> THIS= SemanticHighlightingReconcilerTest.class;
+
+	private static final String PACKAGE= "org.eclipse.swt.custom";
+
+	private static final String TYPE= "GeneratedDTO";
+
+	private static final String FILE= "/" + PerformanceTestSetup.PROJECT + "/Eclipse SWT Custom Widgets/common/" + PACKAGE.replace('.', '/') + "/" + TYPE + ".java";
+
+	/** Number of fields, each one with a getter and setter, resulting in about 20'000 lines */
+	private static final int FIELDS= 1500;
+
+	private static final String MARKER= "// edit here";
+
+	private static final int WARM_UP_RUNS= 3;
+
+	private static final int MEASURED_RUNS= 10;
+
+	private AbstractTextEditor fEditor;
+
+	public static Test suite() {
+		return new PerformanceTestSetup(new TestSuite(THIS));
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		ResourceTestHelper.write(FILE, createSource());
+		fEditor= (AbstractTextEditor) EditorTestHelper.openInEditor(ResourceTestHelper.findFile(FILE), true);
+		EditorTestHelper.joinBackgroundActivities(fEditor);
+		setWarmUpRuns(WARM_UP_RUNS);
+		setMeasuredRuns(MEASURED_RUNS);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		EditorTestHelper.closeAllEditors();
+		ResourceTestHelper.delete(FILE);
+	}
+
+	private static String createSource() {
+		StringBuffer buf= new StringBuffer();
+		buf.append("package ").append(PACKAGE).append(";\n\n");
+		buf.append("public class ").append(TYPE).append(" {\n");
+		for (int i= 0; i < FIELDS; i++) {
+			buf.append("\tprivate static final int ID_").append(i).append("= ").append(i).append(";\n");
+			buf.append("\tprivate String field").append(i).append(";\n");
+		}
+		buf.append("\n");
+		for (int i= 0; i < FIELDS; i++) {
+			buf.append("\tpublic String getField").append(i).append("() {\n");
+			if (i == FIELDS / 2)
+				buf.append("\t\t").append(MARKER).append("\n");
+			buf.append("\t\treturn field").append(i).append(" != null ? field").append(i).append(" : String.valueOf(ID_").append(i).append(");\n");
+			buf.append("\t}\n\n");
+			buf.append("\tpublic void setField").append(i).append("(String field").append(i).append(") {\n");
+			buf.append("\t\tthis.field").append(i).append("= field").append(i).append(";\n");
+			buf.append("\t}\n\n");
+		}
+		buf.append("}\n");
+		return buf.toString();
+	}
+
+	/**
+	 * Measures the time of one forced reconcile, including a full semantic highlighting pass,
+	 * after typing a character in a method body in the middle of the file.
+	 *
+	 * @throws Exception if something goes wrong
+	 */
+	public void test() throws Exception {
+		measure(getNullPerformanceMeter(), getWarmUpRuns(), true);
+		measure(createPerformanceMeter(), getMeasuredRuns(), true);
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	/**
+	 * Measures the time from typing a character in a method body in the middle of the file until
+	 * the reconciler is done. Only the body of the edited method gets highlighted again. The
+	 * measured time includes the delay of the reconciler.
+	 *
+	 * @throws Exception if something goes wrong
+	 */
+	public void testTyping() throws Exception {
+		measure(getNullPerformanceMeter(), getWarmUpRuns(), false);
+		measure(createPerformanceMeter(), getMeasuredRuns(), false);
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	private void measure(PerformanceMeter performanceMeter, int runs, boolean force) throws BadLocationException {
+		SourceViewer sourceViewer= EditorTestHelper.getSourceViewer(fEditor);
+		IDocument document= EditorTestHelper.getDocument(fEditor);
+		int offset= document.get().indexOf(MARKER) + MARKER.length();
+		for (int i= 0; i < runs; i++) {
+			if (force) {
+				document.replace(offset, 0, " ");
+				performanceMeter.start();
+				EditorTestHelper.forceReconcile(sourceViewer);
+			} else {
+				performanceMeter.start();
+				document.replace(offset, 0, " ");
+			}
+			assertTrue(EditorTestHelper.joinReconciler(sourceViewer, 0, 60000, 10));
+			performanceMeter.stop();
+			EditorTestHelper.runEventQueue();
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.performance;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.jface.text.source.SourceViewer;
+
+import org.eclipse.ui.texteditor.AbstractTextEditor;
+
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.ui.SharedASTProvider;
+
+import org.eclipse.jdt.internal.ui.javaeditor.EditorUtility;
+
+/**
+ * Measures the latency of {@link SharedASTProvider#getAST} for many concurrent requesters
+ * while the reconciler rebuilds the AST of a large compilation unit.
+ *
+ * @since 3.14
+ */
+public class SharedASTProviderConcurrencyTest extends TextPerformanceTestCase {
+
+	private static final Class<SharedASTProviderConcurrencyTest> THIS= SharedASTProviderConcurrencyTest.class;
+
+	private static final String FILE= PerformanceTestSetup.STYLED_TEXT;
+
+	private static final int WARM_UP_RUNS= 3;
+
+	private static final int MEASURED_RUNS= 10;
+
+	private static final int REQUESTERS= 16;
+
+	private AbstractTextEditor fEditor;
+
+	private ITypeRoot fInput;
+
+	public static Test suite() {
+		return new PerformanceTestSetup(new TestSuite(THIS));
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fEditor= (AbstractTextEditor) EditorTestHelper.openInEditor(ResourceTestHelper.findFile(FILE), true);
+		EditorTestHelper.joinBackgroundActivities(fEditor);
+		fInput= EditorUtility.getEditorInputJavaElement(fEditor, false);
+		assertNotNull(fInput);
+		setWarmUpRuns(WARM_UP_RUNS);
+		setMeasuredRuns(MEASURED_RUNS);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		EditorTestHelper.closeAllEditors();
+	}
+
+	/**
+	 * Measures the time until {@value #REQUESTERS} concurrent clients got the AST of
+	 * a large file while it is being reconciled.
+	 *
+	 * @throws Exception if something goes wrong
+	 */
+	public void test() throws Exception {
+		measure(getNullPerformanceMeter(), getWarmUpRuns(), false);
+		measure(createPerformanceMeter(), getMeasuredRuns(), true);
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	private void measure(PerformanceMeter performanceMeter, int runs, boolean printLatency) throws Exception {
+		SourceViewer sourceViewer= EditorTestHelper.getSourceViewer(fEditor);
+		for (int i= 0; i < runs; i++) {
+			final CountDownLatch start= new CountDownLatch(1);
+			final CountDownLatch done= new CountDownLatch(REQUESTERS);
+			final AtomicLong totalLatency= new AtomicLong();
+			final AtomicLong maxLatency= new AtomicLong();
+			final AtomicInteger failures= new AtomicInteger();
+
+			for (int j= 0; j < REQUESTERS; j++) {
+				Thread requester= new Thread("AST requester " + j) {
+					@Override
+					public void run() {
+						try {
+							start.await();
+							long begin= System.nanoTime();
+							CompilationUnit ast= SharedASTProvider.getAST(fInput, SharedASTProvider.WAIT_YES, null);
+							long latency= System.nanoTime() - begin;
+							if (ast == null)
+								failures.incrementAndGet();
+							totalLatency.addAndGet(latency);
+							long max;
+							do {
+								max= maxLatency.get();
+							} while (latency > max && !maxLatency.compareAndSet(max, latency));
+						} catch (InterruptedException e) {
+							failures.incrementAndGet();
+						} finally {
+							done.countDown();
+						}
+					}
+				};
+				requester.start();
+			}
+
+			EditorTestHelper.forceReconcile(sourceViewer);
+			performanceMeter.start();
+			start.countDown();
+			while (!done.await(10, TimeUnit.MILLISECONDS))
+				EditorTestHelper.runEventQueue();
+			performanceMeter.stop();
+
+			assertEquals(0, failures.get());
+			if (printLatency)
+				System.out.println("getAST latency with " + REQUESTERS + " requesters: avg " + totalLatency.get() / REQUESTERS / 1000 + " us, max " + maxLatency.get() / 1000 + " us");
+
+			EditorTestHelper.joinReconciler(sourceViewer, 0, 0, 10);
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.performance;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Enumeration;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.jdt.internal.ui.text.spelling.SpellCheckEngine;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.AbstractSpellDictionary;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.DefaultWordStore;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.IWordStore;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.PackedWordStore;
+
+
+/**
+ * Measures the time to load the bundled English dictionary and reports its heap
+ * footprint, once with the {@link DefaultWordStore}, once with the {@link PackedWordStore} and
+ * once from a memory-mapped binary image.
+ *
+ * @since 3.14
+ */
+public class SpellDictionaryLoadTest extends TextPerformanceTestCase {
+
+	private static final class Dictionary extends AbstractSpellDictionary {
+
+		private final URL fURL;
+		private final boolean fPacked;
+		private final File fImage;
+
+		public Dictionary(URL url, boolean packed, File image) {
+			fURL= url;
+			fPacked= packed;
+			fImage= image;
+		}
+
+		@Override
+		protected URL getURL() throws MalformedURLException {
+			return fURL;
+		}
+
+		@Override
+		protected int getInitialSize() {
+			return 32 * 1024;
+		}
+
+		@Override
+		protected IWordStore createWordStore() {
+			if (fPacked)
+				return new PackedWordStore(getInitialSize(), LOAD_FACTOR);
+			return new DefaultWordStore(getInitialSize(), LOAD_FACTOR);
+		}
+
+		@Override
+		protected File getImageFile(URL url) {
+			return fImage;
+		}
+	}
+
+	private static final Class<SpellDictionaryLoadTest> THIS= SpellDictionaryLoadTest.class;
+
+	private static final String DICTIONARY= "en_US.dictionary";
+
+	private static final int WARM_UP_RUNS= 3;
+
+	private static final int MEASURED_RUNS= 10;
+
+	private URL fURL;
+
+	private File fImage;
+
+	public static Test suite() {
+		return new PerformanceTestSetup(new TestSuite(THIS));
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		setWarmUpRuns(WARM_UP_RUNS);
+		setMeasuredRuns(MEASURED_RUNS);
+
+		Enumeration<URL> locations= SpellCheckEngine.getDictionaryLocations();
+		assertTrue(locations != null && locations.hasMoreElements());
+		fURL= new URL(locations.nextElement(), DICTIONARY);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		if (fImage != null) {
+			File directory= fImage.getParentFile();
+			File[] files= directory.listFiles();
+			for (int i= 0; i < files.length; i++)
+				files[i].delete();
+			directory.delete();
+		}
+	}
+
+	public void testDefaultWordStore() throws Exception {
+		measure(getNullPerformanceMeter(), getWarmUpRuns(), false, null);
+		measure(createPerformanceMeter(), getMeasuredRuns(), false, null);
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	public void testPackedWordStore() throws Exception {
+		measure(getNullPerformanceMeter(), getWarmUpRuns(), true, null);
+		measure(createPerformanceMeter(), getMeasuredRuns(), true, null);
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	public void testMappedImage() throws Exception {
+		File directory= File.createTempFile("dictionaries", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		directory.delete();
+		assertTrue(directory.mkdir());
+		fImage= new File(directory, "en_US.dictionary.image"); //$NON-NLS-1$
+
+		// the first load writes the image
+		measure(getNullPerformanceMeter(), getWarmUpRuns(), true, fImage);
+		assertEquals(1, directory.list().length);
+		measure(createPerformanceMeter(), getMeasuredRuns(), true, fImage);
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	private void measure(PerformanceMeter performanceMeter, int runs, boolean packed, File image) {
+		long footprint= 0;
+		for (int i= 0; i < runs; i++) {
+			long before= usedMemory();
+			Dictionary dictionary= new Dictionary(fURL, packed, image);
+			performanceMeter.start();
+			assertTrue(dictionary.isCorrect("dictionary")); //$NON-NLS-1$
+			performanceMeter.stop();
+			footprint= usedMemory() - before;
+			assertTrue(dictionary.isLoaded());
+		}
+		System.out.println(getName() + ": heap footprint of " + DICTIONARY + " approx. " + footprint / 1024 + " KB");
+	}
+
+	private static long usedMemory() {
+		Runtime runtime= Runtime.getRuntime();
+		for (int i= 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
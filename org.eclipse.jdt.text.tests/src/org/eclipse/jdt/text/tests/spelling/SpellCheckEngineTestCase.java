@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -262,4 +262,23 @@ public class SpellCheckEngineTestCase extends TestCase {
 		assertTrue(proposals.size() >= 1);
 		assertTrue(proposals.iterator().next().getRank() == - DefaultPhoneticDistanceAlgorithm.COST_CASE);
 	}
+
+	public void testLimitedWordProposals() {
+		fPreferences.setValue(PreferenceConstants.SPELLING_LOCALE, Locale.US.toString());
+		final ISpellChecker checker= fEngine.getSpellChecker();
+		assertNotNull(checker);
+
+		fUSDictionary.addWord("Trek"); //$NON-NLS-1$
+
+		Set<RankedWordProposal> proposals= checker.getProposals("Truk", false); //$NON-NLS-1$
+		assertTrue(contains(proposals, TRUCK));
+		assertTrue(contains(proposals, "Trek")); //$NON-NLS-1$
+
+		proposals= checker.getProposals("Truk", false, 1, null); //$NON-NLS-1$
+		assertEquals(1, proposals.size());
+		assertTrue(contains(proposals, TRUCK));
+
+		proposals= checker.getProposals("Truk", false, 0, null); //$NON-NLS-1$
+		assertTrue(proposals.isEmpty());
+	}
 }
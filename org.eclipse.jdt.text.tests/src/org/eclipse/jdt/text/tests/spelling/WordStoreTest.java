@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.spelling;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.internal.ui.text.spelling.engine.DefaultWordStore;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.IWordStore;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.PackedWordStore;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+
+/**
+ * Tests that the word stores of spell dictionaries behave the same.
+ *
+ * @since 3.14
+ */
+public class WordStoreTest extends TestCase {
+
+	public static Test suite() {
+		return new TestSuite(WordStoreTest.class);
+	}
+
+	public WordStoreTest(String name) {
+		super(name);
+	}
+
+	public void testDefaultWordStore() {
+		checkWordStore(new DefaultWordStore(4, 0.85f));
+	}
+
+	public void testPackedWordStore() {
+		checkWordStore(new PackedWordStore(4, 0.85f));
+	}
+
+	public void testSameWords() {
+		IWordStore expected= new DefaultWordStore(4, 0.85f);
+		IWordStore actual= new PackedWordStore(4, 0.85f);
+		for (int i= 0; i < 5000; i++) {
+			String word= "word" + i; //$NON-NLS-1$
+			String hash= "H" + (i % 97); //$NON-NLS-1$
+			expected.addWord(hash, word);
+			actual.addWord(hash, word);
+		}
+		actual.compact();
+		actual.addWord("H1", "late"); //$NON-NLS-1$ //$NON-NLS-2$
+		expected.addWord("H1", "late"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		for (int i= 0; i < 97; i++) {
+			List<String> expectedWords= new ArrayList<>();
+			List<String> actualWords= new ArrayList<>();
+			expected.getWords("H" + i, 20, expectedWords); //$NON-NLS-1$
+			actual.getWords("H" + i, 20, actualWords); //$NON-NLS-1$
+			assertEquals(expectedWords, actualWords);
+		}
+	}
+
+	public void testMappedImage() throws IOException {
+		PackedWordStore store= new PackedWordStore(4, 0.85f);
+		for (int i= 0; i < 1000; i++)
+			store.addWord("H" + (i % 31), "word" + i); //$NON-NLS-1$ //$NON-NLS-2$
+		store.addWord("\u00DCBR", "\u00FCber"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		File image= File.createTempFile("words", ".image"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			store.save(image, "signature"); //$NON-NLS-1$
+
+			PackedWordStore mapped= new PackedWordStore(4, 0.85f);
+			assertFalse(mapped.map(image, "other signature")); //$NON-NLS-1$
+			assertTrue(mapped.isEmpty());
+
+			assertTrue(mapped.map(image, "signature")); //$NON-NLS-1$
+			assertTrue(mapped.isMapped());
+			assertEquals(0, mapped.getFootprint());
+			assertTrue(mapped.containsWord("\u00DCBR", "\u00FCber")); //$NON-NLS-1$ //$NON-NLS-2$
+			mapped.compact();
+			assertTrue(mapped.isMapped());
+			for (int i= 0; i < 31; i++) {
+				List<String> expectedWords= new ArrayList<>();
+				List<String> actualWords= new ArrayList<>();
+				store.getWords("H" + i, Integer.MAX_VALUE, expectedWords); //$NON-NLS-1$
+				mapped.getWords("H" + i, Integer.MAX_VALUE, actualWords); //$NON-NLS-1$
+				assertEquals(expectedWords, actualWords);
+			}
+
+			mapped.addWord("H1", "late"); //$NON-NLS-1$ //$NON-NLS-2$
+			assertFalse(mapped.isMapped());
+			assertTrue(mapped.containsWord("H1", "late")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue(mapped.containsWord("H1", "word1")); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			image.delete();
+		}
+	}
+
+	private void checkWordStore(IWordStore store) {
+		assertTrue(store.isEmpty());
+
+		store.addWord("TRK", "Truck"); //$NON-NLS-1$ //$NON-NLS-2$
+		store.addWord("TRK", "trek"); //$NON-NLS-1$ //$NON-NLS-2$
+		store.addWord("LR", "Lorry"); //$NON-NLS-1$ //$NON-NLS-2$
+		store.addWord("\u00DCBR", "\u00FCber"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertFalse(store.isEmpty());
+		assertTrue(store.containsWord("TRK", "Truck")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(store.containsWord("TRK", "trek")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(store.containsWord("TRK", "truck")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(store.containsWord("LR", "Truck")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(store.containsWord("\u00DCBR", "\u00FCber")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		List<String> words= new ArrayList<>();
+		store.getWords("TRK", Integer.MAX_VALUE, words); //$NON-NLS-1$
+		assertEquals(2, words.size());
+		assertEquals("Truck", words.get(0)); //$NON-NLS-1$
+		assertEquals("trek", words.get(1)); //$NON-NLS-1$
+
+		words.clear();
+		store.getWords("TRK", 1, words); //$NON-NLS-1$
+		assertEquals(1, words.size());
+
+		words.clear();
+		store.getWords("XYZ", Integer.MAX_VALUE, words); //$NON-NLS-1$
+		assertTrue(words.isEmpty());
+
+		store.compact();
+		assertTrue(store.containsWord("LR", "Lorry")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		store.clear();
+		assertTrue(store.isEmpty());
+		assertFalse(store.containsWord("LR", "Lorry")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.performance;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.test.OrderedTestSuite;
+import org.eclipse.test.performance.Dimension;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.PlatformUI;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.ui.jarpackager.IJarExportRunnable;
+import org.eclipse.jdt.ui.jarpackager.JarPackageData;
+
+/**
+ * Compares exporting a JAR with the sequential writer to exporting it with entries compressed in
+ * parallel, and to exporting it again incrementally after a single class file has been touched.
+ */
+public class JarExportPerfTest extends JdtPerformanceTestCase {
+
+	private static final int PACKAGES= 20;
+	private static final int TYPES_PER_PACKAGE= 100;
+
+	private static class MyTestSetup extends TestSetup {
+		public static IJavaProject fJProject1;
+
+		public MyTestSetup(Test test) {
+			super(test);
+		}
+
+		@Override
+		protected void setUp() throws Exception {
+			fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+			assertTrue("rt not found", JavaProjectHelper.addRTJar(fJProject1) != null);
+			final IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+			ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+				@Override
+				public void run(IProgressMonitor monitor) throws CoreException {
+					for (int i= 0; i < PACKAGES; i++) {
+						IPackageFragment pack= root.createPackageFragment("pack" + i, true, null);
+						for (int j= 0; j < TYPES_PER_PACKAGE; j++)
+							pack.createCompilationUnit("Type" + j + ".java", getSource(pack.getElementName(), "Type" + j), true, null);
+					}
+				}
+			}, null);
+			fJProject1.getProject().build(IncrementalProjectBuilder.FULL_BUILD, null);
+		}
+
+		@Override
+		protected void tearDown() throws Exception {
+			if (fJProject1 != null && fJProject1.exists())
+				JavaProjectHelper.delete(fJProject1);
+		}
+
+		private static String getSource(String packageName, String typeName) {
+			StringBuffer buf= new StringBuffer();
+			buf.append("package ").append(packageName).append(";\n");
+			buf.append("import java.util.ArrayList;\n");
+			buf.append("import java.util.List;\n");
+			buf.append("public class ").append(typeName).append(" {\n");
+			for (int i= 0; i < 20; i++) {
+				buf.append("    private List fList").append(i).append("= new ArrayList();\n");
+				buf.append("    public String method").append(i).append("(int count) {\n");
+				buf.append("        StringBuffer result= new StringBuffer();\n");
+				buf.append("        for (int i= 0; i < count; i++)\n");
+				buf.append("            result.append(fList").append(i).append(".get(i)).append(\"").append(typeName).append(i).append("\");\n");
+				buf.append("        return result.toString();\n");
+				buf.append("    }\n");
+			}
+			buf.append("}\n");
+			return buf.toString();
+		}
+	}
+
+	public static Test suite() {
+		OrderedTestSuite testSuite= new OrderedTestSuite(
+				JarExportPerfTest.class,
+				new String[] {
+					"testExportSequential",
+					"testExportInParallel",
+					"testExportIncremental",
+				});
+		return new MyTestSetup(testSuite);
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new MyTestSetup(someTest);
+	}
+
+	public JarExportPerfTest(String name) {
+		super(name);
+	}
+
+	public void testExportSequential() throws Exception {
+		measureExport(false);
+	}
+
+	public void testExportInParallel() throws Exception {
+		tagAsSummary("Export JAR with entries compressed in parallel", Dimension.ELAPSED_PROCESS);
+		measureExport(true);
+	}
+
+	public void testExportIncremental() throws Exception {
+		tagAsSummary("Export JAR incrementally", Dimension.ELAPSED_PROCESS);
+		measureExport(false, true);
+	}
+
+	private void measureExport(boolean inParallel) throws Exception {
+		measureExport(inParallel, false);
+	}
+
+	private void measureExport(boolean inParallel, boolean incremental) throws Exception {
+		JarPackageData data= new JarPackageData();
+		data.setJarLocation(ResourcesPlugin.getWorkspace().getRoot().getLocation().append(getName() + ".jar"));
+		data.setOverwrite(true);
+		data.setBuildIfNeeded(false);
+		data.setExportClassFiles(true);
+		data.setExportJavaFiles(true);
+		data.setIncludeDirectoryEntries(true);
+		data.setCompressInParallel(inParallel);
+		data.setIncrementalExport(incremental);
+		data.setElements(new Object[] { MyTestSetup.fJProject1.getProject() });
+
+		IWorkbenchWindow window= PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+		if (incremental)
+			window.run(false, false, data.createJarExportRunnable(window.getShell()));
+		for (int i= 0; i < 10; i++) {
+			if (incremental) {
+				// one changed class per export
+				IFile file= MyTestSetup.fJProject1.getProject().getFile("bin/pack0/Type" + i + ".class");
+				file.setLocalTimeStamp(file.getLocalTimeStamp() + 2000);
+			}
+			joinBackgroudActivities();
+			IJarExportRunnable op= data.createJarExportRunnable(window.getShell());
+
+			startMeasuring();
+			window.run(false, false, op);
+			stopMeasuring();
+
+			IStatus status= op.getStatus();
+			if (status.getSeverity() == IStatus.ERROR)
+				throw new CoreException(status);
+		}
+		data.getAbsoluteJarLocation().toFile().delete();
+
+		commitMeasurements();
+		assertPerformance();
+	}
+}
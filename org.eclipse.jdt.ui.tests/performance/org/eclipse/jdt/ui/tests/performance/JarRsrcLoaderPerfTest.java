@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.performance;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.test.OrderedTestSuite;
+import org.eclipse.test.performance.Dimension;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.PlatformUI;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.ui.JavaUI;
+import org.eclipse.jdt.ui.jarpackager.IJarExportRunnable;
+import org.eclipse.jdt.ui.jarpackager.JarPackageData;
+import org.eclipse.jdt.ui.tests.jarexport.FatJarExportTests;
+
+import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage;
+import org.eclipse.jdt.internal.ui.jarpackagerfat.FatJarPackageWizardPage.PackageLibraryHandler;
+import org.eclipse.jdt.internal.ui.util.BusyIndicatorRunnableContext;
+
+/**
+ * Measures the startup time of a runnable JAR that packages many libraries with the jar-in-jar
+ * loader, with and without the index of the nested libraries.
+ */
+public class JarRsrcLoaderPerfTest extends JdtPerformanceTestCase {
+
+	private static final int LIBRARIES= 80;
+	private static final int TYPES_PER_LIBRARY= 50;
+
+	private static class MyTestSetup extends TestSetup {
+		public static IJavaProject fLibraryProject;
+		public static IJavaProject fJProject1;
+		public static IPath fRunnableJar;
+
+		public MyTestSetup(Test test) {
+			super(test);
+		}
+
+		@Override
+		protected void setUp() throws Exception {
+			fLibraryProject= JavaProjectHelper.createJavaProject("LibraryProject", "bin");
+			assertTrue("rt not found", JavaProjectHelper.addRTJar(fLibraryProject) != null);
+			final IPackageFragmentRoot libraryRoot= JavaProjectHelper.addSourceContainer(fLibraryProject, "src");
+			ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+				@Override
+				public void run(IProgressMonitor monitor) throws CoreException {
+					for (int i= 0; i < LIBRARIES; i++) {
+						IPackageFragment pack= libraryRoot.createPackageFragment("lib" + i, true, null);
+						for (int j= 0; j < TYPES_PER_LIBRARY; j++)
+							pack.createCompilationUnit("Type" + j + ".java", getLibrarySource(pack.getElementName(), "Type" + j), true, null);
+					}
+				}
+			}, null);
+			fLibraryProject.getProject().build(IncrementalProjectBuilder.FULL_BUILD, null);
+
+			fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+			assertTrue("rt not found", JavaProjectHelper.addRTJar(fJProject1) != null);
+			IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+			IPackageFragment pack= root.createPackageFragment("org.eclipse.jdt.ui.test", true, null);
+			pack.createCompilationUnit("Main.java", getMainSource(), true, null);
+
+			IWorkbenchWindow window= PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+			for (int i= 0; i < LIBRARIES; i++) {
+				IPath library= ResourcesPlugin.getWorkspace().getRoot().getLocation().append("lib" + i + ".jar");
+				JarPackageData data= new JarPackageData();
+				data.setJarLocation(library);
+				data.setOverwrite(true);
+				data.setBuildIfNeeded(false);
+				data.setExportClassFiles(true);
+				data.setElements(new Object[] { libraryRoot.getPackageFragment("lib" + i) });
+				export(window, data);
+				JavaProjectHelper.addLibrary(fJProject1, library);
+			}
+			fJProject1.getProject().build(IncrementalProjectBuilder.FULL_BUILD, null);
+
+			JarPackageData data= new JarPackageData();
+			fRunnableJar= ResourcesPlugin.getWorkspace().getRoot().getLocation().append("JarRsrcLoaderPerfTest.jar");
+			data.setJarLocation(fRunnableJar);
+			data.setOverwrite(true);
+			MultiStatus status= new MultiStatus(JavaUI.ID_PLUGIN, 0, "", null);
+			data.setElements(FatJarPackageWizardPage.getSelectedElementsWithoutContainedChildren(FatJarExportTests.createTempLaunchConfig(fJProject1), data, new BusyIndicatorRunnableContext(), status));
+			assertTrue(status.getMessage(), status.getSeverity() != IStatus.ERROR);
+			data.setJarBuilder(new PackageLibraryHandler().getBuilder(data));
+			export(window, data);
+		}
+
+		@Override
+		protected void tearDown() throws Exception {
+			if (fJProject1 != null && fJProject1.exists())
+				JavaProjectHelper.delete(fJProject1);
+			if (fLibraryProject != null && fLibraryProject.exists())
+				JavaProjectHelper.delete(fLibraryProject);
+			IPath location= ResourcesPlugin.getWorkspace().getRoot().getLocation();
+			for (int i= 0; i < LIBRARIES; i++)
+				location.append("lib" + i + ".jar").toFile().delete();
+			if (fRunnableJar != null)
+				fRunnableJar.toFile().delete();
+		}
+
+		private static void export(IWorkbenchWindow window, JarPackageData data) throws Exception {
+			IJarExportRunnable op= data.createJarExportRunnable(window.getShell());
+			window.run(false, false, op);
+			IStatus status= op.getStatus();
+			if (status.getSeverity() == IStatus.ERROR)
+				throw new CoreException(status);
+		}
+
+		private static String getLibrarySource(String packageName, String typeName) {
+			StringBuffer buf= new StringBuffer();
+			buf.append("package ").append(packageName).append(";\n");
+			buf.append("public class ").append(typeName).append(" {\n");
+			for (int i= 0; i < 10; i++) {
+				buf.append("    public int method").append(i).append("(int value) {\n");
+				buf.append("        return value * ").append(i).append(" + \"").append(typeName).append("\".length();\n");
+				buf.append("    }\n");
+			}
+			buf.append("}\n");
+			return buf.toString();
+		}
+
+		private static String getMainSource() {
+			StringBuffer buf= new StringBuffer();
+			buf.append("package org.eclipse.jdt.ui.test;\n");
+			buf.append("public class Main {\n");
+			buf.append("    public static void main(String[] args) throws Exception {\n");
+			buf.append("        int count= 0;\n");
+			buf.append("        for (int i= 0; i < ").append(LIBRARIES).append("; i++) {\n");
+			buf.append("            for (int j= 0; j < ").append(TYPES_PER_LIBRARY).append("; j++) {\n");
+			buf.append("                Class.forName(\"lib\" + i + \".Type\" + j);\n");
+			buf.append("                count++;\n");
+			buf.append("            }\n");
+			buf.append("        }\n");
+			buf.append("        System.out.println(\"loaded \" + count);\n");
+			buf.append("    }\n");
+			buf.append("}\n");
+			return buf.toString();
+		}
+	}
+
+	public static Test suite() {
+		OrderedTestSuite testSuite= new OrderedTestSuite(
+				JarRsrcLoaderPerfTest.class,
+				new String[] {
+					"testStartupWithoutIndex",
+					"testStartupWithIndex",
+				});
+		return new MyTestSetup(testSuite);
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new MyTestSetup(someTest);
+	}
+
+	public JarRsrcLoaderPerfTest(String name) {
+		super(name);
+	}
+
+	public void testStartupWithoutIndex() throws Exception {
+		measureStartup(false);
+	}
+
+	public void testStartupWithIndex() throws Exception {
+		tagAsSummary("Start runnable JAR with indexed libraries", Dimension.ELAPSED_PROCESS);
+		measureStartup(true);
+	}
+
+	private void measureStartup(boolean index) throws Exception {
+		String java= System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		String jar= MyTestSetup.fRunnableJar.toOSString();
+		ProcessBuilder builder= new ProcessBuilder(java, "-Djarinjarloader.index=" + index, "-jar", jar);
+		builder.redirectErrorStream(true);
+
+		for (int i= 0; i < 10; i++) {
+			startMeasuring();
+			Process process= builder.start();
+			String output= readOutput(process.getInputStream());
+			int exitCode= process.waitFor();
+			stopMeasuring();
+
+			assertEquals(output, 0, exitCode);
+			assertEquals("loaded " + LIBRARIES * TYPES_PER_LIBRARY, output.trim());
+		}
+
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private static String readOutput(InputStream in) throws Exception {
+		ByteArrayOutputStream out= new ByteArrayOutputStream();
+		byte[] buffer= new byte[4096];
+		int count;
+		while ((count= in.read(buffer)) != -1)
+			out.write(buffer, 0, count);
+		return out.toString();
+	}
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.ui.tests.performance.views;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.test.OrderedTestSuite;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.swt.widgets.Display;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jface.viewers.AbstractTreeViewer;
+import org.eclipse.jface.viewers.TreeViewer;
+
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.PlatformUI;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.internal.core.JavaElementDelta;
+
+import org.eclipse.jdt.ui.JavaUI;
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
+
+import org.eclipse.jdt.internal.ui.packageview.PackageExplorerPart;
+
+/**
+ * Measures how long the Package Explorer takes to apply the updates of large Java element deltas
+ * that are sent from a background thread, and how long an event posted to the display thread
+ * meanwhile waits until it runs.
+ *
+ * @since 3.14
+ */
+public class PackageExplorerDeltaPerfTest extends JdtPerformanceTestCase {
+
+	private static final int PACKAGES= 40;
+	private static final int CUS_PER_PACKAGE= 25;
+
+	private static final long TIMEOUT= 60 * 1000;
+
+	private static class MyTestSetup extends TestSetup {
+		public static final String SRC_CONTAINER= "src";
+
+		public static IJavaProject fJProject1;
+		public static IPackageFragmentRoot fRoot;
+
+		public MyTestSetup(Test test) {
+			super(test);
+		}
+		@Override
+		protected void setUp() throws Exception {
+			fJProject1= JavaProjectHelper.createJavaProject("DeltaTesting", "bin");
+			assertTrue("rt not found", JavaProjectHelper.addRTJar13(fJProject1) != null);
+			fRoot= JavaProjectHelper.addSourceContainer(fJProject1, SRC_CONTAINER);
+			ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+				@Override
+				public void run(IProgressMonitor monitor) throws CoreException {
+					for (int i= 0; i < PACKAGES; i++) {
+						IPackageFragment pack= fRoot.createPackageFragment("pack" + i, true, null);
+						for (int k= 0; k < CUS_PER_PACKAGE; k++) {
+							String name= "C" + k;
+							pack.createCompilationUnit(name + ".java", "package pack" + i + ";\npublic class " + name + " {\n}\n", true, null);
+						}
+					}
+				}
+			}, null);
+		}
+		@Override
+		protected void tearDown() throws Exception {
+			if (fJProject1 != null && fJProject1.exists())
+				JavaProjectHelper.delete(fJProject1);
+		}
+	}
+
+	public static Test suite() {
+		TestSuite suite= new OrderedTestSuite(PackageExplorerDeltaPerfTest.class, new String[] {
+			"testContentChangedDelta", "testPackagesChangedDelta"
+		});
+		return new MyTestSetup(suite);
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new MyTestSetup(someTest);
+	}
+
+	public PackageExplorerDeltaPerfTest(String name) {
+		super(name);
+	}
+
+	public void testContentChangedDelta() throws Exception {
+		JavaElementDelta delta= new JavaElementDelta(MyTestSetup.fJProject1.getJavaModel());
+		for (int i= 0; i < PACKAGES; i++) {
+			IPackageFragment pack= MyTestSetup.fRoot.getPackageFragment("pack" + i);
+			for (int k= 0; k < CUS_PER_PACKAGE; k++)
+				delta.changed(pack.getCompilationUnit("C" + k + ".java"), IJavaElementDelta.F_CONTENT);
+		}
+		measureDelta(delta);
+	}
+
+	public void testPackagesChangedDelta() throws Exception {
+		JavaElementDelta delta= new JavaElementDelta(MyTestSetup.fJProject1.getJavaModel());
+		for (int i= 0; i < PACKAGES; i++) {
+			IPackageFragment pack= MyTestSetup.fRoot.getPackageFragment("pack" + i);
+			delta.changed(pack.getCompilationUnit("C0.java"), IJavaElementDelta.F_CONTENT);
+			delta.added(pack.getCompilationUnit("New.java"));
+		}
+		measureDelta(delta);
+	}
+
+	private void measureDelta(final IJavaElementDelta delta) throws Exception {
+		TreeViewer viewer= getViewer();
+		viewer.expandToLevel(MyTestSetup.fJProject1, AbstractTreeViewer.ALL_LEVELS);
+		final IElementChangedListener listener= (IElementChangedListener) viewer.getContentProvider();
+		Display display= viewer.getControl().getDisplay();
+		joinBackgroudActivities();
+
+		// the time an event waits while the updates are applied, i.e. how long the display thread is blocked
+		Performance performance= Performance.getDefault();
+		PerformanceMeter latencyMeter= performance.createPerformanceMeter(performance.getDefaultScenarioId(this, "latency"));
+		try {
+			for (int i= 0; i < 10; i++) {
+				// deltas are sent from the thread which modified the Java model
+				Thread thread= new Thread() {
+					@Override
+					public void run() {
+						listener.elementChanged(new ElementChangedEvent(delta, ElementChangedEvent.POST_CHANGE));
+					}
+				};
+				startMeasuring();
+				thread.start();
+				thread.join();
+				runEventQueue(display, latencyMeter);
+				stopMeasuring();
+			}
+			commitMeasurements();
+			latencyMeter.commit();
+			assertPerformance();
+			performance.assertPerformance(latencyMeter);
+		} finally {
+			latencyMeter.dispose();
+		}
+	}
+
+	/**
+	 * Runs the event queue until the pending updates have been applied. While updates are
+	 * pending, the latency meter measures how long a posted event waits until it runs.
+	 *
+	 * @param display the display
+	 * @param latencyMeter the meter for the latency of posted events
+	 */
+	private void runEventQueue(Display display, final PerformanceMeter latencyMeter) {
+		final boolean[] probePending= new boolean[1];
+		Runnable probe= new Runnable() {
+			@Override
+			public void run() {
+				latencyMeter.stop();
+				probePending[0]= false;
+			}
+		};
+		long end= System.currentTimeMillis() + TIMEOUT;
+		while (System.currentTimeMillis() < end) {
+			// the update job reschedules itself as long as updates are pending
+			boolean updating= !Job.getJobManager().isIdle();
+			if (updating && !probePending[0]) {
+				probePending[0]= true;
+				latencyMeter.start();
+				display.asyncExec(probe);
+			}
+			if (!display.readAndDispatch() && !updating && !probePending[0])
+				break;
+		}
+	}
+
+	private TreeViewer getViewer() throws Exception {
+		IWorkbenchPage page= PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage();
+		PackageExplorerPart view= (PackageExplorerPart) page.showView(JavaUI.ID_PACKAGES);
+		return view.getTreeViewer();
+	}
+}
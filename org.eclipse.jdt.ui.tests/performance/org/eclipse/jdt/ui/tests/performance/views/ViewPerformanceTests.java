@@ -23,6 +23,7 @@ public class ViewPerformanceTests extends TestCase {
 		suite.addTest(PackageExplorerWarmPerfTest.suite());
 		suite.addTest(PackageExplorerWorkspacePerfTest.suite());
 		suite.addTest(PackageExplorerWorkspaceWarmPerfTest.suite());
+		suite.addTest(PackageExplorerDeltaPerfTest.suite());
 		suite.addTest(TypeHierarchyPerfTest.suite());
 		return suite;
 	}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageReader;
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageWriter;
+import org.eclipse.jdt.internal.junit.runner.MessageIds;
+
+/**
+ * Writes messages with a {@link BinaryMessageWriter} and checks that a {@link BinaryMessageReader}
+ * returns them unchanged.
+ */
+public class BinaryMessageProtocolTest extends TestCase {
+
+	public void testAllMessageKinds() throws Exception {
+		List<String> messages= new ArrayList<>();
+		for (String header : getHeaders()) {
+			messages.add(header);
+			messages.add(header + "1,testMethod(pack.ATestCase)");
+			messages.add(header + "123456789,testMethod(pack.ATestCase)");
+			messages.add(header + "1234567890,too long for an id");
+			messages.add(header + "0,leading zero");
+			messages.add(header + "12");
+			messages.add(header + "12 v2");
+			messages.add(header + ",no id");
+		}
+		assertRoundTrip(messages, "\n");
+	}
+
+	public void testMessagesWithoutHeader() throws Exception {
+		List<String> messages= new ArrayList<>();
+		messages.add("");
+		messages.add("%");
+		messages.add("%UNKNOWN1,text");
+		messages.add("\tat pack.ATestCase.testMethod(ATestCase.java:10)");
+		messages.add("junit.framework.ComparisonFailure: expected:<1> but was:<2>");
+		assertRoundTrip(messages, "\n");
+	}
+
+	public void testNonAsciiText() throws Exception {
+		List<String> messages= new ArrayList<>();
+		messages.add(MessageIds.TEST_START + "1,test\u00e4\u00df\u20ac(pack.\u65e5\u672c)");
+		messages.add(MessageIds.TEST_TREE + "2,\u0416\u0416\u0416(pack.A),false,1,false,-1,\u0416\u0416\u0416,,");
+		messages.add("\u00c4\u00d6\u00dc \ud83d\ude00 \u0000 \uffff");
+		assertRoundTrip(messages, "\n");
+	}
+
+	public void testLongTrace() throws Exception {
+		List<String> messages= new ArrayList<>();
+		messages.add(MessageIds.TEST_FAILED + "1,testMethod(pack.ATestCase)");
+		messages.add(MessageIds.TRACE_START);
+		StringBuffer line= new StringBuffer();
+		for (int i= 0; i < 100000; i++)
+			line.append((char) ('a' + i % 26));
+		messages.add(line.toString());
+		for (int i= 0; i < 5000; i++)
+			messages.add("\tat pack.ATestCase.method" + i + "(ATestCase.java:" + i + ")");
+		messages.add(MessageIds.TRACE_END);
+		assertRoundTrip(messages, "\n");
+	}
+
+	public void testLineDelimiter() throws Exception {
+		List<String> messages= new ArrayList<>();
+		messages.add(MessageIds.TEST_RUN_START + "1 v2");
+		assertRoundTrip(messages, "\r\n");
+		assertRoundTrip(messages, "\r");
+	}
+
+	private static List<String> getHeaders() throws IllegalAccessException {
+		List<String> headers= new ArrayList<>();
+		Field[] fields= MessageIds.class.getFields();
+		for (int i= 0; i < fields.length; i++) {
+			Field field= fields[i];
+			if (!Modifier.isStatic(field.getModifiers()) || field.getType() != String.class)
+				continue;
+			String value= (String) field.get(null);
+			if (value.length() == MessageIds.MSG_HEADER_LENGTH && value.charAt(0) == '%')
+				headers.add(value);
+		}
+		assertTrue(headers.contains(MessageIds.TEST_TREE));
+		return headers;
+	}
+
+	private static void assertRoundTrip(List<String> messages, String lineDelimiter) throws Exception {
+		ByteArrayOutputStream out= new ByteArrayOutputStream();
+		BinaryMessageWriter writer= new BinaryMessageWriter(out, lineDelimiter);
+		for (String message : messages)
+			writer.sendMessage(message);
+		writer.close();
+
+		InputStream in= new ByteArrayInputStream(out.toByteArray());
+		assertEquals(MessageIds.BINARY_PROTOCOL_MAGIC, in.read());
+		BinaryMessageReader reader= new BinaryMessageReader(in);
+		assertEquals(lineDelimiter, reader.getLineDelimiter());
+		for (String message : messages)
+			assertEquals(message, reader.readMessage());
+		assertNull(reader.readMessage());
+	}
+}
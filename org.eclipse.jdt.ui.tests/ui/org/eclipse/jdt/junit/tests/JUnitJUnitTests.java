@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2010 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,7 @@ public class JUnitJUnitTests {
 
 		suite.addTestSuite(TestRunListenerTest3.class);
 		suite.addTestSuite(TestRunListenerTest4.class);
+		suite.addTestSuite(TestRunListenerBinaryProtocolTest3.class);
 		
 		suite.addTestSuite(TestRunFilteredStandardRunnerTest4.class);
 		suite.addTestSuite(TestRunFilteredParameterizedRunnerTest4.class);
@@ -41,6 +42,10 @@ public class JUnitJUnitTests {
 
 		suite.addTestSuite(JUnit3TestFinderTest.class);
 		suite.addTestSuite(JUnit4TestFinderTest.class);
+
+		suite.addTestSuite(BinaryMessageProtocolTest.class);
+		suite.addTestSuite(RemoteTestRunnerClientTest.class);
+		suite.addTestSuite(TestElementTest.class);
 		//$JUnit-END$
 		return suite;
 	}
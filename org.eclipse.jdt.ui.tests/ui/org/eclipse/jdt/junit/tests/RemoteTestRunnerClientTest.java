@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jdt.internal.junit.model.ITestRunListener2;
+import org.eclipse.jdt.internal.junit.model.RemoteTestRunnerClient;
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageWriter;
+import org.eclipse.jdt.internal.junit.runner.MessageIds;
+
+/**
+ * Tests that the events of a test run are delivered as soon as the client waits for more
+ * messages, even if the runner has only sent part of the next message.
+ */
+public class RemoteTestRunnerClientTest extends TestCase {
+
+	private static final long TIMEOUT= 10;
+
+	private static class StartedListener implements ITestRunListener2 {
+		final CountDownLatch fStarted= new CountDownLatch(1);
+		final CountDownLatch fEnded= new CountDownLatch(1);
+
+		@Override
+		public void testRunStarted(int testCount) {
+		}
+		@Override
+		public void testRunEnded(long elapsedTime) {
+		}
+		@Override
+		public void testRunStopped(long elapsedTime) {
+		}
+		@Override
+		public void testStarted(String testId, String testName) {
+			fStarted.countDown();
+		}
+		@Override
+		public void testEnded(String testId, String testName) {
+			fEnded.countDown();
+		}
+		@Override
+		public void testRunTerminated() {
+		}
+		@Override
+		public void testTreeEntry(String description) {
+		}
+		@Override
+		public void testFailed(int status, String testId, String testName, String trace, String expected, String actual) {
+		}
+		@Override
+		public void testReran(String testId, String testClass, String testName, int status, String trace, String expected, String actual) {
+		}
+	}
+
+	private RemoteTestRunnerClient fClient;
+	private Socket fSocket;
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (fSocket != null)
+			fSocket.close();
+		fClient.stopWaiting();
+	}
+
+	public void testTextProtocol() throws Exception {
+		StartedListener listener= new StartedListener();
+		OutputStream out= connect(listener);
+		write(out, MessageIds.TEST_RUN_START + "1 v2\n" + MessageIds.TEST_START + "1,test(Foo)\n" + MessageIds.TEST_END + "1,te");
+		assertTrue("test start not delivered", listener.fStarted.await(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(1, listener.fEnded.getCount());
+
+		write(out, "st(Foo)\n" + MessageIds.TEST_RUN_END + "1\n");
+		assertTrue("test end not delivered", listener.fEnded.await(TIMEOUT, TimeUnit.SECONDS));
+	}
+
+	public void testBinaryProtocol() throws Exception {
+		StartedListener listener= new StartedListener();
+		OutputStream out= connect(listener);
+		BinaryMessageWriter writer= new BinaryMessageWriter(out, "\n");
+		writer.sendMessage(MessageIds.TEST_RUN_START + "1 v2");
+		writer.sendMessage(MessageIds.TEST_START + "1,test(Foo)");
+		writer.close(); // writes the batch
+		// the first byte of the next batch
+		write(out, "\u0010");
+		assertTrue("test start not delivered", listener.fStarted.await(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(1, listener.fEnded.getCount());
+	}
+
+	private OutputStream connect(ITestRunListener2 listener) throws Exception {
+		int port;
+		ServerSocket socket= new ServerSocket(0);
+		try {
+			port= socket.getLocalPort();
+		} finally {
+			socket.close();
+		}
+		fClient= new RemoteTestRunnerClient();
+		fClient.startListening(new ITestRunListener2[] { listener }, port);
+		long end= System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+		while (true) {
+			try {
+				fSocket= new Socket("localhost", port);
+				return fSocket.getOutputStream();
+			} catch (IOException e) {
+				if (System.currentTimeMillis() > end)
+					throw e;
+				Thread.sleep(50);
+			}
+		}
+	}
+
+	private static void write(OutputStream out, String data) throws IOException {
+		out.write(data.getBytes("UTF-8"));
+		out.flush();
+	}
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jdt.junit.model.ITestElement.FailureTrace;
+
+import org.eclipse.jdt.internal.junit.model.TestCaseElement;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+import org.eclipse.jdt.internal.junit.model.TestSuiteElement;
+
+/**
+ * Tests that test elements return the same values after their strings have been compacted.
+ */
+public class TestElementTest extends TestCase {
+
+	private static final String ENGINE_ID= "[engine:junit-jupiter]";
+	private static final String CLASS_ID= ENGINE_ID + "/[class:p.FooTest]";
+
+	private TestSuiteElement fRoot;
+	private TestSuiteElement fSuite;
+
+	@Override
+	protected void setUp() throws Exception {
+		fRoot= new TestSuiteElement(null, "-1", "root", 1, "root", null, ENGINE_ID);
+		fSuite= new TestSuiteElement(fRoot, "1", "p.FooTest", 2, "FooTest", null, CLASS_ID);
+	}
+
+	public void testLongNonLatin1Trace() throws Exception {
+		String trace= repeat("java.lang.AssertionError: \u00e9\u00e8 \u4e2d\u6587 \ud83d\ude00 \u0416\n\tat p.FooTest.test(FooTest.java:10)\n", 100);
+		String expected= repeat("\u00fcber \u65e5\u672c ", 200);
+		String actual= repeat("\u00fcber \u65e5\u672c! ", 200);
+		TestCaseElement test= createTest("2", "test(p.FooTest)");
+		test.setStatus(Status.FAILURE, trace, expected, actual);
+
+		assertEquals(trace, test.getTrace());
+		assertEquals(expected, test.getExpected());
+		assertEquals(actual, test.getActual());
+		assertTrue(test.isComparisonFailure());
+		FailureTrace failureTrace= test.getFailureTrace();
+		assertEquals(trace, failureTrace.getTrace());
+		assertEquals(expected, failureTrace.getExpected());
+		assertEquals(actual, failureTrace.getActual());
+	}
+
+	public void testShortTrace() throws Exception {
+		TestCaseElement test= createTest("2", "test(p.FooTest)");
+		test.setStatus(Status.ERROR, "java.lang.IllegalStateException: \u00e9\u4e2d", null, null);
+		assertEquals("java.lang.IllegalStateException: \u00e9\u4e2d", test.getTrace());
+		assertNull(test.getExpected());
+		assertNull(test.getActual());
+		assertFalse(test.isComparisonFailure());
+	}
+
+	public void testAppendedTrace() throws Exception {
+		String first= repeat("first \u4e2d\n", 100);
+		String second= repeat("second \u00e9\n", 100);
+		TestCaseElement test= createTest("2", "test(p.FooTest)");
+		test.setStatus(Status.FAILURE, first, null, null);
+		test.setStatus(Status.ERROR, second, null, null);
+		assertEquals(first + second, test.getTrace());
+	}
+
+	public void testSharedNames() throws Exception {
+		String[] parameterTypes= { "java.lang.String", "int" };
+		TestCaseElement first= new TestCaseElement(fSuite, "2", new String("test(p.FooTest)"), "[1]", true, parameterTypes, null);
+		TestCaseElement second= new TestCaseElement(fSuite, "3", new String("test(p.FooTest)"), "[2]", true, parameterTypes.clone(), null);
+		assertEquals("test(p.FooTest)", second.getTestName());
+		assertSame(first.getTestName(), second.getTestName());
+		assertSame(first.getParameterTypes(), second.getParameterTypes());
+		assertEquals("[2]", second.getDisplayName());
+		assertEquals("p.FooTest", second.getClassName());
+	}
+
+	public void testUniqueIds() throws Exception {
+		String methodId= CLASS_ID + "/[test-template:test(java.lang.String)]";
+		TestSuiteElement template= new TestSuiteElement(fSuite, "2", "test(p.FooTest)", 1, "test", null, methodId);
+		TestCaseElement invocation= new TestCaseElement(template, "3", "test(p.FooTest)", "[1]", true, null, methodId + "/[test-template-invocation:#1]");
+		TestCaseElement other= new TestCaseElement(fSuite, "4", "other(p.FooTest)", "other", false, null, "[engine:other]/[method:other]");
+		TestCaseElement none= new TestCaseElement(fSuite, "5", "none(p.FooTest)", "none", false, null, null);
+
+		assertEquals(ENGINE_ID, fRoot.getUniqueId());
+		assertEquals(CLASS_ID, fSuite.getUniqueId());
+		assertEquals(methodId, template.getUniqueId());
+		assertEquals(methodId + "/[test-template-invocation:#1]", invocation.getUniqueId());
+		assertEquals("[engine:other]/[method:other]", other.getUniqueId());
+		assertNull(none.getUniqueId());
+		// repeated requests return the same value
+		assertEquals(methodId + "/[test-template-invocation:#1]", invocation.getUniqueId());
+		assertSame(template.getUniqueId(), template.getUniqueId());
+	}
+
+	private TestCaseElement createTest(String id, String testName) {
+		return new TestCaseElement(fSuite, id, testName, testName, false, null, null);
+	}
+
+	private static String repeat(String string, int count) {
+		StringBuffer buf= new StringBuffer();
+		for (int i= 0; i < count; i++)
+			buf.append(string);
+		return buf.toString();
+	}
+}
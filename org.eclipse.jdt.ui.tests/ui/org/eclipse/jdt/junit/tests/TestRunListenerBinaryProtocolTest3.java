@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.junit.tests;
+
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.JUnitPreferencesConstants;
+
+/**
+ * Runs the tests of {@link TestRunListenerTest3} with the binary protocol between the test
+ * runner and the client.
+ */
+public class TestRunListenerBinaryProtocolTest3 extends TestRunListenerTest3 {
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		getPreferences().putBoolean(JUnitPreferencesConstants.BINARY_PROTOCOL, true);
+		assertTrue(JUnitPreferencesConstants.getBinaryProtocol());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		getPreferences().remove(JUnitPreferencesConstants.BINARY_PROTOCOL);
+		super.tearDown();
+	}
+
+	private static IEclipsePreferences getPreferences() {
+		return InstanceScope.INSTANCE.getNode(JUnitCorePlugin.CORE_PLUGIN_ID);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -38,6 +38,9 @@ import org.eclipse.jdt.core.refactoring.CompilationUnitChange;
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.SharedASTProvider;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
+
 
 /**
  * Tests the AST provider.
@@ -144,6 +147,35 @@ public class ASTProviderTest extends CoreTests {
 		cu.getBuffer().save(null, true);
 	}
 
+	public void testCachedASTForInactiveEditor() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E1 {\n");
+		buf.append("}\n");
+		ICompilationUnit cu1= pack1.createCompilationUnit("E1.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E2 {\n");
+		buf.append("}\n");
+		ICompilationUnit cu2= pack1.createCompilationUnit("E2.java", buf.toString(), false, null);
+
+		ASTProvider provider= JavaPlugin.getDefault().getASTProvider();
+
+		JavaUI.openInEditor(cu1);
+		CompilationUnit ast1= SharedASTProvider.getAST(cu1, SharedASTProvider.WAIT_ACTIVE_ONLY, null);
+		assertNotNull(ast1);
+
+		JavaUI.openInEditor(cu2);
+		long hits= provider.getCacheHitCount();
+		CompilationUnit cachedAST= SharedASTProvider.getAST(cu1, SharedASTProvider.WAIT_ACTIVE_ONLY, null);
+		assertNotNull(cachedAST);
+		assertEquals(cu1.getBuffer().getContents(), cachedAST.toString());
+		assertEquals(hits + 1, provider.getCacheHitCount());
+		assertTrue(provider.isCached(cachedAST));
+	}
+
 	private static String getNormalizeNumber(int number) {
 		if (number < 10) {
 			return "000" + number;
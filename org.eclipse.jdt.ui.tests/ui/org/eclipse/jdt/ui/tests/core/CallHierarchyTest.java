@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,9 @@ package org.eclipse.jdt.ui.tests.core;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -20,12 +23,20 @@ import junit.framework.TestSuite;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
 
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IInitializer;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
 
 import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchy;
+import org.eclipse.jdt.internal.corext.callhierarchy.CalleeCache;
+import org.eclipse.jdt.internal.corext.callhierarchy.CallerIndex;
+import org.eclipse.jdt.internal.corext.callhierarchy.CallerSearchEngine;
+import org.eclipse.jdt.internal.corext.callhierarchy.MethodCall;
 import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
 
 import org.eclipse.jdt.ui.tests.callhierarchy.CallHierarchyTestHelper;
@@ -92,6 +103,97 @@ public class CallHierarchyTest extends TestCase {
         helper.assertCalls(expectedSecondLevelMethods, wrapper2.getCalls(new NullProgressMonitor()));
     }
 
+    public void testExpandCallers() throws Exception {
+        helper.createSimpleClasses();
+
+        // method1 and method2 are found by one combined search
+        MethodWrapper[] roots= CallHierarchy.getDefault().getCallerRoots(new IMember[] { helper.getMethod1(), helper.getMethod2() });
+        final Map<MethodWrapper, MethodWrapper[]> found= Collections.synchronizedMap(new HashMap<MethodWrapper, MethodWrapper[]>());
+        new CallerSearchEngine(2).expand(roots, 10, new CallerSearchEngine.IExpansionListener() {
+            @Override
+            public boolean shouldExpand(MethodWrapper wrapper) {
+                return true;
+            }
+            @Override
+            public void callsFound(MethodWrapper wrapper, MethodWrapper[] calls) {
+                assertNull(found.put(wrapper, calls));
+                assertTrue(wrapper.getParent() == null || found.containsKey(wrapper.getParent()));
+            }
+        }, new NullProgressMonitor());
+
+        Collection<IMember> expectedMethods= new ArrayList<>();
+        expectedMethods.add(helper.getMethod2());
+        expectedMethods.add(helper.getMethod3());
+        assertTrue(roots[0].hasCachedCalls());
+        helper.assertCalls(expectedMethods, found.get(roots[0]));
+        helper.assertCalls(expectedMethods, roots[0].getCalls(new NullProgressMonitor()));
+
+        expectedMethods.clear();
+        expectedMethods.add(helper.getMethod3());
+        helper.assertCalls(expectedMethods, found.get(roots[1]));
+
+        MethodWrapper method3Wrapper= helper.findMethodWrapper(helper.getMethod3(), found.get(roots[1]));
+        expectedMethods.clear();
+        expectedMethods.add(helper.getMethod4());
+        helper.assertCalls(expectedMethods, found.get(method3Wrapper));
+
+        MethodWrapper method4Wrapper= helper.findMethodWrapper(helper.getMethod4(), found.get(method3Wrapper));
+        assertEquals(0, found.get(method4Wrapper).length);
+        // method1 <- method2 <- method3 <- method4, method1 <- method3 <- method4, method2 <- method3 <- method4
+        assertEquals(9, found.size());
+    }
+
+    public void testCallerIndex() throws Exception {
+        helper.createSimpleClasses();
+
+        IMethod method= helper.getMethod1();
+        getSingleCallerRoot(method).getCalls(new NullProgressMonitor());
+        Map<String, MethodCall> indexedCallers= CallerIndex.getInstance().getCallers(method, IJavaSearchConstants.REFERENCES);
+        assertNotNull(indexedCallers);
+        assertEquals(2, indexedCallers.size());
+
+        // a new root gets its callers from the index
+        assertEquals(2, getSingleCallerRoot(method).getCalls(new NullProgressMonitor()).length);
+
+        // a new call invalidates the entry
+        IMethod method5= helper.getType2().createMethod("public void method5() { method1(); }\n", null, true, null);
+        assertNull(CallerIndex.getInstance().getCallers(method, IJavaSearchConstants.REFERENCES));
+
+        Collection<IMember> expectedMethods= new ArrayList<>();
+        expectedMethods.add(helper.getMethod2());
+        expectedMethods.add(helper.getMethod3());
+        expectedMethods.add(method5);
+        helper.assertCalls(expectedMethods, getSingleCallerRoot(method).getCalls(new NullProgressMonitor()));
+    }
+
+    public void testCallerIndexHierarchyChange() throws Exception {
+        helper.createSimpleClasses();
+        IPackageFragment pack2= helper.getPackage2();
+        ICompilationUnit cuC= pack2.createCompilationUnit("C.java", "package pack2;\npublic class C {\npublic void method1() { }\n}\n", true, null);
+        ICompilationUnit cuD= pack2.createCompilationUnit("D.java", "package pack2;\npublic class D {\npublic void method5(C c) { c.method1(); }\n}\n", true, null);
+
+        IMethod method= helper.getMethod1();
+        getSingleCallerRoot(method).getCalls(new NullProgressMonitor());
+        assertNotNull(CallerIndex.getInstance().getCallers(method, IJavaSearchConstants.REFERENCES));
+
+        // the unchanged call in D binds to A.method1 once C inherits it
+        cuC.becomeWorkingCopy(null);
+        try {
+            cuC.getBuffer().setContents("package pack2;\npublic class C extends pack1.A {\n}\n");
+            cuC.reconcile(ICompilationUnit.NO_AST, false, null, null);
+            cuC.commitWorkingCopy(true, null);
+        } finally {
+            cuC.discardWorkingCopy();
+        }
+        assertNull(CallerIndex.getInstance().getCallers(method, IJavaSearchConstants.REFERENCES));
+
+        Collection<IMember> expectedMethods= new ArrayList<>();
+        expectedMethods.add(helper.getMethod2());
+        expectedMethods.add(helper.getMethod3());
+        expectedMethods.add(cuD.getType("D").getMethod("method5", new String[] { "QC;" }));
+        helper.assertCalls(expectedMethods, getSingleCallerRoot(method).getCalls(new NullProgressMonitor()));
+    }
+
     public void testCallersNoResults() throws Exception {
         helper.createSimpleClasses();
 
@@ -134,6 +236,31 @@ public class CallHierarchyTest extends TestCase {
         helper.assertCalls(expectedMethodsTo3, wrapper2.getCalls(new NullProgressMonitor()));
     }
 
+    public void testCalleeCache() throws Exception {
+        helper.createSimpleClasses();
+
+        IMethod method= helper.getMethod3();
+        getSingleCalleeRoot(method).getCalls(new NullProgressMonitor());
+        Map<String, MethodCall> cachedCallees= CalleeCache.getInstance().getCallees(method);
+        assertNotNull(cachedCallees);
+        assertEquals(2, cachedCallees.size());
+
+        // a change of the method's unit invalidates the entry
+        ICompilationUnit cu= helper.getType2().getCompilationUnit();
+        IBuffer buffer= cu.getBuffer();
+        String contents= buffer.getContents();
+        int offset= contents.indexOf("method2();") + "method2();".length();
+        buffer.replace(offset, 0, " method4();");
+        cu.save(null, true);
+        assertNull(CalleeCache.getInstance().getCallees(method));
+
+        Collection<IMember> expectedMethods= new ArrayList<>();
+        expectedMethods.add(helper.getMethod1());
+        expectedMethods.add(helper.getMethod2());
+        expectedMethods.add(helper.getMethod4());
+        helper.assertCalls(expectedMethods, getSingleCalleeRoot(method).getCalls(new NullProgressMonitor()));
+    }
+
     public void testCalleesNoResults() throws Exception {
         helper.createSimpleClasses();
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.core;
 
+import java.util.Arrays;
 import java.util.Hashtable;
 
 import junit.framework.Test;
@@ -910,6 +911,69 @@ public class ScopeAnalyzerTest extends CoreTests {
 
 	}
 
+	public void testRepeatedQueries() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("import java.util.ArrayList;\n");
+		buf.append("public class E extends ArrayList<String> {\n");
+		buf.append("    int fField;\n");
+		buf.append("    public void foo(int param) {\n");
+		buf.append("        int a= 0;\n");
+		buf.append("        if (a == param) {\n");
+		buf.append("            int b= a;\n");
+		buf.append("            a= b;\n");
+		buf.append("        }\n");
+		buf.append("        int c= a;\n");
+		buf.append("        a= c;\n");
+		buf.append("        new Runnable() {\n");
+		buf.append("            public void run() {\n");
+		buf.append("                fField= param;\n");
+		buf.append("            }\n");
+		buf.append("        };\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		ICompilationUnit compilationUnit= pack1.createCompilationUnit("E.java", buf.toString(), false, null);
+
+		CompilationUnit astRoot= createAST(compilationUnit);
+		assertNoProblems(astRoot);
+
+		int offsetInIf= buf.toString().indexOf("a= b;");
+		int offsetAfterIf= buf.toString().indexOf("a= c;");
+		int offsetInRun= buf.toString().indexOf("fField= param;");
+		int flags= ScopeAnalyzer.VARIABLES | ScopeAnalyzer.METHODS;
+
+		// reference results computed without the scope index shared by the analyzers on the AST
+		IBinding[] inIf= new ScopeAnalyzer(astRoot, false).getDeclarationsInScope(offsetInIf, flags);
+		IBinding[] afterIf= new ScopeAnalyzer(astRoot, false).getDeclarationsInScope(offsetAfterIf, flags);
+		IBinding[] inRun= new ScopeAnalyzer(astRoot, false).getDeclarationsInScope(offsetInRun, flags);
+
+		ScopeAnalyzer analyzer= new ScopeAnalyzer(astRoot);
+		assertEquals(Arrays.asList(inIf), Arrays.asList(analyzer.getDeclarationsInScope(offsetInIf, flags)));
+		assertEquals(Arrays.asList(afterIf), Arrays.asList(analyzer.getDeclarationsInScope(offsetAfterIf, flags)));
+		assertEquals(Arrays.asList(inIf), Arrays.asList(analyzer.getDeclarationsInScope(offsetInIf + 1, flags)));
+		// the anonymous class and E share java.lang.Object, whose members must be reported only once
+		assertEquals(Arrays.asList(inRun), Arrays.asList(analyzer.getDeclarationsInScope(offsetInRun, flags)));
+		assertEquals(Arrays.asList(inRun), Arrays.asList(new ScopeAnalyzer(astRoot).getDeclarationsInScope(offsetInRun, flags)));
+
+		IBinding[] variables= analyzer.getDeclarationsInScope(offsetInIf, ScopeAnalyzer.VARIABLES);
+		String[] names= new String[variables.length];
+		for (int i= 0; i < variables.length; i++) {
+			names[i]= variables[i].getName();
+		}
+		assertTrue(Arrays.asList(names).contains("b"));
+		assertTrue(Arrays.asList(names).contains("fField"));
+		assertTrue(Arrays.asList(names).contains("modCount"));
+		assertFalse(Arrays.asList(names).contains("c"));
+
+		boolean hasSize= false;
+		for (int i= 0; i < afterIf.length; i++) {
+			hasSize|= "size".equals(afterIf[i].getName());
+			assertFalse("b".equals(afterIf[i].getName()));
+		}
+		assertTrue(hasSize);
+	}
+
 	private void assertVariables(IBinding[] res, String[] expectedNames) {
 		String[] names= new String[res.length];
 		for (int i= 0; i < res.length; i++) {
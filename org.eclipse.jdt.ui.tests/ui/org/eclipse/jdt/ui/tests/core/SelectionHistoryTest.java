@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.core;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.text.Collator;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -18,6 +21,8 @@ import org.w3c.dom.Element;
 
 import org.eclipse.jdt.internal.corext.util.History;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -131,6 +136,24 @@ public class SelectionHistoryTest extends TestCase {
 
 	}
 
+	private static final class PersistentTestHistory extends History<String, String> {
+
+		public PersistentTestHistory() {
+			super("SelectionHistoryTest.xml", "root", "info");
+		}
+		@Override
+		protected void setAttributes(Object object, Element element) {
+			element.setAttribute("name", (String) object);
+		}
+		@Override
+		protected String createFromElement(Element type) {
+			return type.getAttribute("name");
+		}
+		@Override
+		protected String getKey(String object) {return object;}
+
+	}
+
 	public void testOrganizeImportHistory01() throws Exception {
 		History<String, String> history= new TestHistory();
 		Comparator<String> comparator= new TestHistoryComparator(history);
@@ -193,4 +216,49 @@ public class SelectionHistoryTest extends TestCase {
 		assertEquals(strings, expected);
 	}
 
+	public void testSaveAndLoad() throws Exception {
+		History<String, String> history= new PersistentTestHistory();
+		history.accessed("a");
+		history.accessed("b");
+		history.accessed("c");
+		history.accessed("a");
+		history.save();
+
+		History<String, String> loaded= new PersistentTestHistory();
+		try {
+			loaded.load();
+			assertEquals(0, loaded.getPosition("b"));
+			assertEquals(1, loaded.getPosition("c"));
+			assertEquals(2, loaded.getPosition("a"));
+		} finally {
+			JavaPlugin.getDefault().getStateLocation().append("SelectionHistoryTest.dat").toFile().delete();
+		}
+	}
+
+	public void testLoadLegacyXml() throws Exception {
+		File xmlFile= JavaPlugin.getDefault().getStateLocation().append("SelectionHistoryTest.xml").toFile();
+		String xml= "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root><info name=\"b\"/><info name=\"a\"/></root>";
+		OutputStream out= new FileOutputStream(xmlFile);
+		try {
+			out.write(xml.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		try {
+			History<String, String> history= new PersistentTestHistory();
+			history.load();
+			assertEquals(0, history.getPosition("b"));
+			assertEquals(1, history.getPosition("a"));
+
+			// the xml file is kept for earlier versions, but not written anymore
+			history.accessed("c");
+			history.save();
+			assertTrue(xmlFile.exists());
+			assertEquals(xml.length(), xmlFile.length());
+		} finally {
+			xmlFile.delete();
+			JavaPlugin.getDefault().getStateLocation().append("SelectionHistoryTest.dat").toFile().delete();
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -29,6 +29,8 @@ import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
 
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
+import org.eclipse.jdt.internal.corext.util.MethodOverrideTester;
+import org.eclipse.jdt.internal.corext.util.SuperTypeHierarchyCache;
 
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.SharedASTProvider;
@@ -291,7 +293,39 @@ public class TypeHierarchyTest extends TestCase {
 
 	}
 
+	public void testSuperTypeHierarchyCache() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJavaProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("pack1", true, null);
 
-
-
+		ICompilationUnit cu1= pack1.getCompilationUnit("A.java");
+		IType type1= cu1.createType("public class A {\n}\n", null, true, null);
+
+		ICompilationUnit cu2= pack1.getCompilationUnit("B.java");
+		IType type2= cu2.createType("public class B extends A {\n}\n", null, true, null);
+
+		int misses= SuperTypeHierarchyCache.getCacheMisses();
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(type2);
+		assertEquals(misses + 1, SuperTypeHierarchyCache.getCacheMisses());
+
+		// the hierarchy of B contains A
+		int hits= SuperTypeHierarchyCache.getCacheHits();
+		assertTrue(SuperTypeHierarchyCache.hasInCache(type1));
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(type1));
+		assertEquals(hits + 1, SuperTypeHierarchyCache.getCacheHits());
+		assertEquals(misses + 1, SuperTypeHierarchyCache.getCacheMisses());
+
+		MethodOverrideTester tester= SuperTypeHierarchyCache.getMethodOverrideTester(type2);
+		assertSame(tester, SuperTypeHierarchyCache.getMethodOverrideTester(type2));
+
+		// changing the hierarchy evicts it
+		pack1.createCompilationUnit("B.java", "package pack1;\npublic class B {\n}\n", true, null);
+		assertFalse(SuperTypeHierarchyCache.hasInCache(type1));
+		assertFalse(SuperTypeHierarchyCache.hasInCache(type2));
+
+		ITypeHierarchy newHierarchy= SuperTypeHierarchyCache.getTypeHierarchy(type2);
+		assertNotSame(hierarchy, newHierarchy);
+		assertEquals(misses + 2, SuperTypeHierarchyCache.getCacheMisses());
+		assertFalse(newHierarchy.contains(type1));
+		assertNotSame(tester, SuperTypeHierarchyCache.getMethodOverrideTester(type2));
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -37,6 +37,8 @@ import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.search.TypeNameMatch;
 import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
 
+import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 import org.eclipse.jdt.internal.corext.util.TypeNameMatchCollector;
 
 
@@ -156,6 +158,76 @@ public class TypeInfoTest extends TestCase {
 	}
 
 
+	public void testTypeNameIndex() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("com.oti", true, null);
+		ICompilationUnit cu1= pack1.getCompilationUnit("V.java");
+		cu1.createType("public class V {\n static class VInner {\n}\n}\n", null, true, null);
+		cu1.createType("class VSecondary {\n}\n", null, true, null);
+
+		IJavaSearchScope scope= SearchEngine.createJavaSearchScope(new IJavaElement[] { fJProject1 });
+		TypeNameIndex index= TypeNameIndex.getInstance();
+		index.update(null);
+		assertTrue(index.isReady());
+
+		String[] patterns= { "V", "VIn", "VMError", "VME", "java.util.V", "*ector" };
+		for (int i= 0; i < patterns.length; i++) {
+			TypeInfoFilter filter= new TypeInfoFilter(patterns[i], scope, IJavaSearchConstants.TYPE, null);
+			ArrayList<TypeNameMatch> result= new ArrayList<>();
+			assertTrue(index.search(filter, new TypeNameMatchCollector(result), null));
+
+			ArrayList<TypeNameMatch> expected= new ArrayList<>();
+			String packagePattern= filter.getPackagePattern();
+			new SearchEngine().searchAllTypeNames(
+				packagePattern == null ? null : packagePattern.toCharArray(),
+				filter.getPackageFlags(),
+				filter.getNamePattern().toCharArray(),
+				filter.getSearchFlags(),
+				IJavaSearchConstants.TYPE,
+				scope,
+				new TypeNameMatchCollector(expected),
+				IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
+				null);
+
+			for (int j= 0; j < result.size(); j++) {
+				assertResolve(result.get(j));
+				assertTrue(result.get(j).getFullyQualifiedName(), filter.matchesHistoryElement(result.get(j)));
+			}
+			for (int j= 0; j < expected.size(); j++) {
+				if (filter.matchesHistoryElement(expected.get(j)))
+					findTypeRef(result, expected.get(j).getFullyQualifiedName());
+			}
+		}
+		findTypeRef(search(index, "VSec", scope), "com.oti.VSecondary");
+
+		// new types make the index stale until it is updated
+		pack1.getCompilationUnit("W.java").createType("public class W {\n}\n", null, true, null);
+		index.update(null);
+		findTypeRef(search(index, "W", scope), "com.oti.W");
+
+		// only the types of the changed compilation units are replaced
+		cu1.getType("VSecondary").delete(true, null);
+		pack1.getCompilationUnit("W.java").delete(true, null);
+		index.update(null);
+		assertTrue(index.isReady());
+		assertNoTypeRef(search(index, "VSec", scope), "com.oti.VSecondary");
+		assertNoTypeRef(search(index, "W", scope), "com.oti.W");
+		findTypeRef(search(index, "VInner", scope), "com.oti.V.VInner");
+	}
+
+	private void assertNoTypeRef(List<TypeNameMatch> refs, String fullyQualifiedName) {
+		for (int i= 0; i < refs.size(); i++) {
+			assertFalse(fullyQualifiedName, fullyQualifiedName.equals(refs.get(i).getFullyQualifiedName()));
+		}
+	}
+
+	private List<TypeNameMatch> search(TypeNameIndex index, String pattern, IJavaSearchScope scope) throws Exception {
+		ArrayList<TypeNameMatch> result= new ArrayList<>();
+		TypeInfoFilter filter= new TypeInfoFilter(pattern, scope, IJavaSearchConstants.TYPE, null);
+		assertTrue(index.search(filter, new TypeNameMatchCollector(result), null));
+		return result;
+	}
+
 	public void test2() throws Exception {
 		ArrayList<TypeNameMatch> result= new ArrayList<>();
 
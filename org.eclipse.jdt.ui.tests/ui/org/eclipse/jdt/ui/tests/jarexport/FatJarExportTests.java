@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,7 @@ package org.eclipse.jdt.ui.tests.jarexport;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.Enumeration;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -249,6 +250,13 @@ public class FatJarExportTests extends TestCase {
 		in.close();
 		assertEquals("loader is a class file", 0xCAFEBABE, magic); //$NON-NLS-1$
 		assertEquals("loader compiled with JDK 1.3.1", "45.3", majorVersion + "." + minorVersion); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertNotNull(generatedArchive.getEntry("org/eclipse/jdt/internal/jarinjarloader/RsrcIndex.class")); //$NON-NLS-1$
+		// libraries are stored, so that the loader can index them
+		for (Enumeration<? extends ZipEntry> entries= generatedArchive.entries(); entries.hasMoreElements();) {
+			ZipEntry entry= entries.nextElement();
+			if (entry.getName().endsWith(".jar")) //$NON-NLS-1$
+				assertEquals(entry.getName(), ZipEntry.STORED, entry.getMethod());
+		}
 		
 		generatedArchive.close();
 
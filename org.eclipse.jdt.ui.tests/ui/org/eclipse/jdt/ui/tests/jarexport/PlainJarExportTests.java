@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2015 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,12 +11,18 @@
 package org.eclipse.jdt.ui.tests.jarexport;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -157,6 +163,119 @@ public class PlainJarExportTests extends TestCase {
 		assertEquals(expected.toString(), entries.toString());
 	}
 
+	public void testExportCompressedInParallel() throws Exception {
+		assertSameArchive(true);
+	}
+
+	public void testExportStoredInParallel() throws Exception {
+		assertSameArchive(false);
+	}
+
+	public void testIncrementalExport() throws Exception {
+		JarPackageData data= createJarPackageData();
+		data.setElements(new Object[] { fCU.getResource() });
+		data.setExportClassFiles(true);
+		data.setIncrementalExport(true);
+
+		ZipFile jar= createArchive(data);
+		ArrayList<String> initial= getEntries(jar);
+		jar.close();
+
+		jar= createArchive(data);
+		ArrayList<String> unchanged= getEntries(jar);
+		jar.close();
+		assertEquals(initial.toString(), unchanged.toString());
+
+		String source= fCU.getSource();
+		fCU.getBuffer().replace(source.lastIndexOf('}'), 0, "    public void foo() {\n    }\n");
+		fCU.save(null, true);
+
+		jar= createArchive(data);
+		ArrayList<String> changed= getEntries(jar);
+		jar.close();
+		assertFalse(initial.toString().equals(changed.toString()));
+
+		// unchanged files are copied from the previous archive, including their CRC
+		File jarFile= data.getAbsoluteJarLocation().toFile();
+		Map<String, Long> crcs= invertClassFileCrcs(jarFile);
+		assertEquals(3, crcs.size());
+		jar= createArchive(data);
+		try {
+			for (Map.Entry<String, Long> crc : crcs.entrySet())
+				assertEquals(crc.getKey(), ~crc.getValue().longValue() & 0xFFFFFFFFL, jar.getEntry(crc.getKey()).getCrc());
+		} finally {
+			jar.close();
+		}
+		assertFalse("temporary archive not deleted", new File(jarFile.getPath() + ".tmp").exists());
+
+		data.setIncrementalExport(false);
+		jar= createArchive(data);
+		ArrayList<String> full= getEntries(jar);
+		jar.close();
+		assertEquals(full.toString(), changed.toString());
+	}
+
+	/**
+	 * Inverts the CRCs of the class files in the central directory of the archive, without
+	 * changing its length and modification time.
+	 *
+	 * @param file the archive
+	 * @return the original CRCs of the class files
+	 * @throws IOException if the archive cannot be modified
+	 */
+	private static Map<String, Long> invertClassFileCrcs(File file) throws IOException {
+		Map<String, Long> crcs= new HashMap<>();
+		long lastModified= file.lastModified();
+		try (RandomAccessFile archive= new RandomAccessFile(file, "rw")) {
+			byte[] bytes= new byte[(int) archive.length()];
+			archive.readFully(bytes);
+			for (int i= 0; i + 46 <= bytes.length; i++) {
+				if (bytes[i] != 'P' || bytes[i + 1] != 'K' || bytes[i + 2] != 1 || bytes[i + 3] != 2)
+					continue;
+				int nameLength= (bytes[i + 28] & 0xFF) | (bytes[i + 29] & 0xFF) << 8;
+				String name= new String(bytes, i + 46, nameLength, StandardCharsets.UTF_8);
+				if (!name.endsWith(".class"))
+					continue;
+				long crc= 0;
+				for (int k= 3; k >= 0; k--)
+					crc= crc << 8 | (bytes[i + 16 + k] & 0xFF);
+				crcs.put(name, Long.valueOf(crc));
+				for (int k= 0; k < 4; k++)
+					bytes[i + 16 + k]= (byte) ~bytes[i + 16 + k];
+			}
+			archive.seek(0);
+			archive.write(bytes);
+		}
+		file.setLastModified(lastModified);
+		return crcs;
+	}
+
+	private void assertSameArchive(boolean compress) throws Exception {
+		JarPackageData data= createJarPackageData();
+		data.setElements(new Object[] { fCU.getResource() });
+		data.setExportClassFiles(true);
+		data.setIncludeDirectoryEntries(true);
+		data.setCompress(compress);
+		data.setComment("comment");
+
+		ZipFile jar= createArchive(data);
+		ArrayList<String> expected= getEntries(jar);
+		jar.close();
+
+		data.setCompressInParallel(true);
+		jar= createArchive(data);
+		try {
+			assertEquals("comment", jar.getComment());
+			assertEquals(expected.toString(), getEntries(jar).toString());
+			for (Enumeration<? extends ZipEntry> entriesEnum= jar.entries(); entriesEnum.hasMoreElements(); ) {
+				ZipEntry entry= entriesEnum.nextElement();
+				assertEquals(entry.getName(), compress && !entry.isDirectory() ? ZipEntry.DEFLATED : ZipEntry.STORED, entry.getMethod());
+			}
+		} finally {
+			jar.close();
+		}
+	}
+
 	private JarPackageData createJarPackageData() {
 		JarPackageData data= new JarPackageData();
 		data.setJarLocation(ResourcesPlugin.getWorkspace().getRoot().getLocation().append(getName() + ".jar"));
@@ -178,6 +297,22 @@ public class PlainJarExportTests extends TestCase {
 		return JarPackagerUtil.getArchiveFile(data.getJarLocation());
 	}
 
+	private static ArrayList<String> getEntries(ZipFile jar) throws IOException {
+		ArrayList<String> entries= new ArrayList<>();
+		for (Enumeration<? extends ZipEntry> entriesEnum= jar.entries(); entriesEnum.hasMoreElements(); ) {
+			ZipEntry entry= entriesEnum.nextElement();
+			CRC32 crc= new CRC32();
+			try (InputStream stream= jar.getInputStream(entry)) {
+				byte[] buffer= new byte[4096];
+				int count;
+				while ((count= stream.read(buffer)) != -1)
+					crc.update(buffer, 0, count);
+			}
+			entries.add(entry.getName() + " " + crc.getValue() + "\n");
+		}
+		return entries;
+	}
+
 	private static ArrayList<String> getSortedEntries(ZipFile jar) {
 		ArrayList<String> entries= new ArrayList<>();
 		for (Enumeration<? extends ZipEntry> entriesEnum= jar.entries(); entriesEnum.hasMoreElements(); ) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2013, 2014 IBM Corporation and others.
+ * Copyright (c) 2013, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -45,6 +45,7 @@ import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
 
 import org.eclipse.jdt.internal.ui.text.java.hover.JavadocBrowserInformationControlInput;
 import org.eclipse.jdt.internal.ui.text.java.hover.JavadocHover;
+import org.eclipse.jdt.internal.ui.text.java.hover.JavadocHoverCache;
 
 
 /**
@@ -156,6 +157,44 @@ public class PackageJavadocTests extends CoreTests {
 
 	}
 
+	public void testCachedDocOfLibrary() throws Exception {
+		File junitSrcArchive= JavaTestPlugin.getDefault().getFileInPlugin(new Path("testresources/PackageJavadocTests/JavadocHover_src.zip"));
+		assertTrue("junit src not found", junitSrcArchive != null && junitSrcArchive.exists());
+		JavaProjectHelper.addSourceContainerWithImport(fJProject1, "src", junitSrcArchive, JavaProjectHelper.JUNIT_SRC_ENCODING);
+		ICompilationUnit cu= (ICompilationUnit)fJProject1.findElement(new Path("junit/javadochoverhtml/JavaDocHoverTest.java"));
+		assertNotNull("JavaDocHoverTest.java", cu);
+
+		File clsJarPath= JavaTestPlugin.getDefault().getFileInPlugin(new Path("/testresources/PackageJavadocTests/testData.zip"));
+		File srcJarPath= JavaTestPlugin.getDefault().getFileInPlugin(new Path("/testresources/PackageJavadocTests/testData_src.zip"));
+		IPackageFragmentRoot jarRoot= JavaProjectHelper.addLibraryWithImport(fJProject1, new Path(clsJarPath.getAbsolutePath()), new Path(srcJarPath.getAbsolutePath()), null);
+		IPackageFragment packageFragment= jarRoot.getPackageFragment("org.eclipse.jdt.ui.tests");
+		Assert.assertTrue(packageFragment.exists());
+
+		JavadocHoverCache cache= JavadocHoverCache.getInstance();
+		cache.clear();
+		int offset= cu.getSource().indexOf("org.eclipse.jdt.ui.tests");
+		Region region= new Region(offset, "org.eclipse.jdt.ui.tests".length());
+
+		// the header is shown first, the Javadoc follows when the job is done
+		JavadocBrowserInformationControlInput input= JavadocHover.getStreamingHoverInfo(packageFragment, cu, region, 0);
+		Assert.assertTrue(input instanceof JavadocHover.StreamingJavadocInput);
+		Assert.assertFalse(input.getHtml(), input.getHtml().contains("This is the package documentation for org.eclipse.jdt.ui.tests"));
+		JavadocBrowserInformationControlInput completedInput= ((JavadocHover.StreamingJavadocInput) input).waitForCompletedInput(10000);
+		Assert.assertNotNull(completedInput);
+		String html= completedInput.getHtml();
+		Assert.assertTrue(html, html.contains("This is the package documentation for org.eclipse.jdt.ui.tests"));
+		Assert.assertNotNull(cache.get(packageFragment));
+
+		Assert.assertEquals(html, JavadocHover.getHoverInfo(new IJavaElement[] { packageFragment }, cu, region, null).getHtml());
+
+		// source containers are not cached, their Javadoc is not computed in a job
+		Assert.assertTrue(cache.isCacheable(packageFragment));
+		Assert.assertFalse(cache.isCacheable(cu.getParent()));
+		Assert.assertNull(cache.get(cu.getParent()));
+
+		JavaProjectHelper.removeFromClasspath(fJProject1, jarRoot.getPath());
+		Assert.assertEquals(0, cache.size());
+	}
 
 	public void testGetDocFromSourceAttachmentRootPath() throws Exception {
 		File junitSrcArchive= JavaTestPlugin.getDefault().getFileInPlugin(new Path("testresources/PackageJavadocTests/JavadocHover_src.zip"));
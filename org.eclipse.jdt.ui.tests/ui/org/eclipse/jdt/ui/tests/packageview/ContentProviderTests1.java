@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -43,6 +43,9 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 
+import org.eclipse.jdt.internal.core.JavaElementDelta;
+
+import org.eclipse.jdt.internal.ui.packageview.PackageExplorerContentProvider;
 import org.eclipse.jdt.internal.ui.util.CoreUtility;
 import org.eclipse.jdt.internal.ui.wizards.buildpaths.CPListElement;
 
@@ -266,6 +269,53 @@ public class ContentProviderTests1 extends TestCase {
 		assertEquals("No refreshes", 0, fMyPart.getRefreshedObject().size()); //$NON-NLS-1$
 	}
 
+	public void testChangeManyCUs() throws Exception {
+		fMyPart.clear();
+
+		//send a delta with more changes than are worth updating one by one
+		JavaElementDelta delta= new JavaElementDelta(fJProject2.getJavaModel());
+		for (int i= 0; i < 300; i++)
+			delta.changed(fPack2.getCompilationUnit("A" + i + ".java"), IJavaElementDelta.F_CONTENT); //$NON-NLS-1$ //$NON-NLS-2$
+		IElementChangedListener listener= (IElementChangedListener) fProvider;
+		listener.elementChanged(new ElementChangedEvent(delta, ElementChangedEvent.POST_CHANGE));
+
+		//force events from display
+		while(fMyPart.getTreeViewer().getControl().getDisplay().readAndDispatch()) {}
+
+		assertEquals("Updates collapsed into one refresh", 1, fMyPart.getRefreshedObject().size()); //$NON-NLS-1$
+		assertFalse("No add happened", fMyPart.hasAddHappened()); //$NON-NLS-1$
+		assertFalse("No remove happened", fMyPart.hasRemoveHappened()); //$NON-NLS-1$
+	}
+
+	public void testPendingUpdatesMergedIntoParentRefresh() throws Exception {
+		fMyPart.clear();
+
+		final IElementChangedListener listener= (IElementChangedListener) fProvider;
+		final JavaElementDelta cuDelta= new JavaElementDelta(fJProject2.getJavaModel());
+		cuDelta.changed(fCU2, IJavaElementDelta.F_CONTENT);
+		final JavaElementDelta rootDelta= new JavaElementDelta(fJProject2.getJavaModel());
+		rootDelta.changed(fRoot1, IJavaElementDelta.F_CONTENT);
+
+		//send the deltas from a background thread, the updates are queued for the display
+		Thread thread= new Thread() {
+			@Override
+			public void run() {
+				listener.elementChanged(new ElementChangedEvent(cuDelta, ElementChangedEvent.POST_CHANGE));
+				listener.elementChanged(new ElementChangedEvent(rootDelta, ElementChangedEvent.POST_CHANGE));
+			}
+		};
+		thread.start();
+		thread.join();
+		((PackageExplorerContentProvider) fProvider).runPendingUpdates();
+
+		//force events from display
+		while(fMyPart.getTreeViewer().getControl().getDisplay().readAndDispatch()) {}
+
+		if (fMyPart.getRefreshedObject().size() != 1)
+			fail("One refresh expected, was:\n" + fMyPart.getRefreshedObject()); //$NON-NLS-1$
+		assertEquals("Correct refresh", fJProject2, fMyPart.getRefreshedObject().get(0)); //$NON-NLS-1$
+	}
+
 	public void testBug65240() throws Exception {
 		IClasspathEntry[] rawClasspath= fJProject2.getRawClasspath();
 		IClasspathEntry src1= rawClasspath[0];
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -281,12 +281,28 @@ public class CallHierarchy {
     }
 
     static CompilationUnit getCompilationUnitNode(IMember member, boolean resolveBindings) {
+    	return getCompilationUnitNode(member, resolveBindings, -1);
+    }
+
+	/**
+	 * Parses the compilation unit or class file of a member.
+	 *
+	 * @param member the member
+	 * @param resolveBindings <code>true</code> if bindings should be resolved
+	 * @param focalPosition if not <code>-1</code>, the bodies of all methods except the one
+	 *            containing this position are skipped, which also avoids resolving their bindings
+	 * @return the AST, or <code>null</code> if the member has no source
+	 * @since 3.14
+	 */
+    static CompilationUnit getCompilationUnitNode(IMember member, boolean resolveBindings, int focalPosition) {
     	ITypeRoot typeRoot= member.getTypeRoot();
         try {
 	    	if (typeRoot.exists() && typeRoot.getBuffer() != null) {
 				ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
 				parser.setSource(typeRoot);
 				parser.setResolveBindings(resolveBindings);
+				if (focalPosition != -1)
+					parser.setFocalPosition(focalPosition);
 				return (CompilationUnit) parser.createAST(null);
 	    	}
         } catch (JavaModelException e) {
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+
+/**
+ * Cache of the callees of members, shared by all call hierarchies. Deep callee hierarchies
+ * contain the same members many times, and each of them would otherwise need to parse its
+ * compilation unit or class file again.
+ * <p>
+ * An entry is valid as long as the modification stamp of the member's compilation unit or class
+ * file does not change. Since the callees are resolved against other types, structural changes
+ * anywhere, and changes to the call hierarchy settings, clear the cache. Changes inside method
+ * bodies of other units do not.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class CalleeCache {
+
+	/**
+	 * Maximum number of cached members
+	 */
+	private static final int MAX_ENTRIES= 1000;
+
+	private static class Entry {
+		final long fStamp;
+		final Map<String, MethodCall> fCallees;
+
+		Entry(long stamp, Map<String, MethodCall> callees) {
+			fStamp= stamp;
+			fCallees= callees;
+		}
+	}
+
+	private class DeltaListener implements IElementChangedListener {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			if (isStructuralChange(event.getDelta())) {
+				synchronized (CalleeCache.this) {
+					clear();
+				}
+			}
+		}
+	}
+
+	private static CalleeCache fgInstance;
+
+	private final LinkedHashMap<String, Entry> fEntries= new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private long fModificationCount;
+
+	private IJavaSearchScope fSearchScope;
+	private String fFilters;
+	private boolean fUseImplementors;
+
+	private final IElementChangedListener fDeltaListener;
+
+	public static synchronized CalleeCache getInstance() {
+		if (fgInstance == null)
+			fgInstance= new CalleeCache();
+		return fgInstance;
+	}
+
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		JavaCore.removeElementChangedListener(fgInstance.fDeltaListener);
+		fgInstance= null;
+	}
+
+	private CalleeCache() {
+		fDeltaListener= new DeltaListener();
+		JavaCore.addElementChangedListener(fDeltaListener);
+	}
+
+	/**
+	 * Returns the cached callees of a member.
+	 *
+	 * @param member the member
+	 * @return a map from handle identifier to {@link MethodCall}, or <code>null</code> if the
+	 *         callees are not cached
+	 */
+	public synchronized Map<String, MethodCall> getCallees(IMember member) {
+		validateSettings();
+		Entry entry= fEntries.get(member.getHandleIdentifier());
+		if (entry == null)
+			return null;
+		long stamp= getStamp(member);
+		if (stamp == IResource.NULL_STAMP || stamp != entry.fStamp) {
+			fEntries.remove(member.getHandleIdentifier());
+			return null;
+		}
+		return new HashMap<>(entry.fCallees);
+	}
+
+	/**
+	 * Returns the state to pass to {@link #putCallees(IMember, Map, long[])}. The state has to be
+	 * taken before the callees are computed.
+	 *
+	 * @param member the member
+	 * @return the modification stamp of the member's unit and the modification count of the cache
+	 */
+	public synchronized long[] getState(IMember member) {
+		validateSettings();
+		return new long[] { getStamp(member), fModificationCount };
+	}
+
+	/**
+	 * Adds the callees of a member to the cache, unless something has changed since the state
+	 * was taken.
+	 *
+	 * @param member the member
+	 * @param callees a map from handle identifier to {@link MethodCall}
+	 * @param state the state from before the callees were computed
+	 */
+	public synchronized void putCallees(IMember member, Map<String, MethodCall> callees, long[] state) {
+		validateSettings();
+		if (state[0] == IResource.NULL_STAMP || state[1] != fModificationCount || state[0] != getStamp(member))
+			return;
+		fEntries.put(member.getHandleIdentifier(), new Entry(state[0], new HashMap<>(callees)));
+	}
+
+	private void clear() {
+		fEntries.clear();
+		fModificationCount++;
+	}
+
+	private void validateSettings() {
+		CallHierarchy callHierarchy= CallHierarchy.getDefault();
+		IJavaSearchScope searchScope= callHierarchy.getSearchScope();
+		String filters= callHierarchy.isFilterEnabled() ? String.valueOf(callHierarchy.getFilters()) : ""; //$NON-NLS-1$
+		boolean useImplementors= callHierarchy.isSearchUsingImplementorsEnabled();
+		if (searchScope != fSearchScope || !filters.equals(fFilters) || useImplementors != fUseImplementors) {
+			clear();
+			fSearchScope= searchScope;
+			fFilters= filters;
+			fUseImplementors= useImplementors;
+		}
+	}
+
+	/**
+	 * Returns the modification stamp of the compilation unit or class file of the member.
+	 *
+	 * @param member the member
+	 * @return the stamp, or {@link IResource#NULL_STAMP} if the member must not be cached, e.g.
+	 *         because it is in a working copy with unsaved changes
+	 */
+	private static long getStamp(IMember member) {
+		ITypeRoot typeRoot= member.getTypeRoot();
+		if (typeRoot == null)
+			return IResource.NULL_STAMP;
+		try {
+			if (typeRoot.hasUnsavedChanges())
+				return IResource.NULL_STAMP;
+		} catch (JavaModelException e) {
+			return IResource.NULL_STAMP;
+		}
+		IResource resource= typeRoot.getResource();
+		if (resource != null)
+			return resource.getModificationStamp();
+		File file= typeRoot.getPath().toFile(); // external archive
+		return file.exists() ? file.lastModified() : IResource.NULL_STAMP;
+	}
+
+	/**
+	 * Tells whether the delta contains a change which can affect the callees of members in
+	 * other units, i.e. anything but changes inside of method bodies.
+	 *
+	 * @param delta the delta
+	 * @return <code>true</code> if the cache has to be cleared
+	 */
+	private static boolean isStructuralChange(IJavaElementDelta delta) {
+		if (delta.getKind() != IJavaElementDelta.CHANGED)
+			return true;
+		switch (delta.getElement().getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+			case IJavaElement.JAVA_PROJECT:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if ((delta.getFlags() & ~(IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_CONTENT)) != 0)
+					return true;
+				IJavaElementDelta[] children= delta.getAffectedChildren();
+				for (int i= 0; i < children.length; i++) {
+					if (isStructuralChange(children[i]))
+						return true;
+				}
+				return false;
+			case IJavaElement.COMPILATION_UNIT:
+				// a fine-grained delta without children only changes method bodies
+				int flags= delta.getFlags();
+				if ((flags & IJavaElementDelta.F_CONTENT) != 0 && (flags & IJavaElementDelta.F_FINE_GRAINED) == 0)
+					return true;
+				return delta.getAffectedChildren().length > 0;
+			default:
+				return true;
+		}
+	}
+}
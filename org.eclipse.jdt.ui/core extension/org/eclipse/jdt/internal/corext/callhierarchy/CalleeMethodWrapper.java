@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,7 +18,11 @@ import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
+import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.ISourceRange;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.SourceRange;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 
 class CalleeMethodWrapper extends MethodWrapper {
@@ -86,7 +90,14 @@ class CalleeMethodWrapper extends MethodWrapper {
 	protected Map<String, MethodCall> findChildren(IProgressMonitor progressMonitor) {
     	IMember member= getMember();
 		if (member.exists()) {
-			CompilationUnit cu= CallHierarchy.getCompilationUnitNode(member, true);
+			CalleeCache cache= CalleeCache.getInstance();
+			Map<String, MethodCall> callees= cache.getCallees(member);
+			if (callees != null) {
+				return callees;
+			}
+			long[] state= cache.getState(member);
+
+			CompilationUnit cu= CallHierarchy.getCompilationUnitNode(member, true, getFocalPosition(member));
 		    if (progressMonitor != null) {
 		        progressMonitor.worked(5);
 		    }
@@ -95,9 +106,31 @@ class CalleeMethodWrapper extends MethodWrapper {
 				CalleeAnalyzerVisitor visitor = new CalleeAnalyzerVisitor(member, cu, progressMonitor);
 
 				cu.accept(visitor);
-				return visitor.getCallees();
+				callees= visitor.getCallees();
+				cache.putCallees(member, callees, state);
+				return callees;
 			}
 		}
         return new HashMap<>(0);
     }
+
+	/**
+	 * Returns the position inside the member for parsing its unit with a focal position, such that
+	 * only the bindings of the member's own body are resolved.
+	 *
+	 * @param member the member
+	 * @return the position, or <code>-1</code> if the whole unit needs to be parsed
+	 */
+	private static int getFocalPosition(IMember member) {
+		if (member.getElementType() != IJavaElement.METHOD)
+			return -1; // types and fields can contain calls in several places
+		try {
+			ISourceRange range= member.getNameRange();
+			if (!SourceRange.isAvailable(range))
+				range= member.getSourceRange();
+			return SourceRange.isAvailable(range) ? range.getOffset() : -1;
+		} catch (JavaModelException e) {
+			return -1;
+		}
+	}
 }
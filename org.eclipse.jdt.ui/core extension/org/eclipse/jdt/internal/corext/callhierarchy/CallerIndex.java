@@ -0,0 +1,713 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
+import org.eclipse.core.resources.ISavedState;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IField;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+import org.eclipse.jdt.ui.JavaUI;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.wizards.buildpaths.ArchiveFileFilter;
+
+/**
+ * Workspace-wide index of the callers found by the call hierarchy, so that looking at the callers
+ * of the same member again does not need another search.
+ * <p>
+ * The index is kept up to date with Java element deltas. A changed compilation unit invalidates
+ * the entries with callers in that unit, and the entries of all members whose name occurs in the
+ * new contents of the unit, since the unit might contain new callers now. Changes to the
+ * classpath, to archives or to class files clear the index. So do changes to the type hierarchy,
+ * since calls in unchanged units might bind to other members afterwards. The changed units are
+ * only processed on the next access to the index.
+ * </p>
+ * <p>
+ * The index is stored in the plug-in state location when the workspace is saved. The delta
+ * listener is added when the plug-in starts, but the stored index is only loaded on first access.
+ * Changes that arrive before are queued like all others, and are applied to the loaded entries.
+ * Changes that happened while the plug-in was not active, like files changed by an external tool,
+ * are replayed from the saved state of the workspace when the plug-in starts. The stored index
+ * is discarded if any of them might affect the callers, or if there is no saved state to check
+ * it against.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class CallerIndex {
+
+	private static final String FILENAME= "CallerIndex.dat"; //$NON-NLS-1$
+
+	private static final int VERSION= 2;
+
+	/**
+	 * Maximum number of indexed members
+	 */
+	private static final int MAX_ENTRIES= 5000;
+
+	private static class Entry {
+		final String fKey;
+		final String fName;
+		final Map<String, MethodCall> fCallers;
+		final Set<String> fUnits;
+
+		Entry(String key, String name, Map<String, MethodCall> callers, Set<String> units) {
+			fKey= key;
+			fName= name;
+			fCallers= callers;
+			fUnits= units;
+		}
+	}
+
+	private class DeltaListener implements IElementChangedListener {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			synchronized (CallerIndex.this) {
+				processDelta(event.getDelta());
+			}
+		}
+	}
+
+	private class SaveParticipant implements ISaveParticipant {
+		@Override
+		public void prepareToSave(ISaveContext context) throws CoreException {
+		}
+
+		@Override
+		public void saving(ISaveContext context) throws CoreException {
+			if (context.getKind() == ISaveContext.PROJECT_SAVE)
+				return;
+			synchronized (CallerIndex.this) {
+				if (fLoaded || !fChangedUnits.isEmpty()) {
+					validate();
+					if (fDirty)
+						save();
+				} // else the stored index is still valid
+			}
+			// the changes until the next session are checked against the tree saved now
+			context.needSaveNumber();
+			context.needDelta();
+		}
+
+		@Override
+		public void doneSaving(ISaveContext context) {
+		}
+
+		@Override
+		public void rollback(ISaveContext context) {
+		}
+	}
+
+	/**
+	 * Looks for changes in the replayed resource delta that might affect the stored callers.
+	 */
+	private static class StoredIndexCheck implements IResourceChangeListener, IResourceDeltaVisitor {
+		boolean fOutdated;
+
+		@Override
+		public void resourceChanged(IResourceChangeEvent event) {
+			IResourceDelta delta= event.getDelta();
+			if (delta == null)
+				return;
+			try {
+				delta.accept(this);
+			} catch (CoreException e) {
+				fOutdated= true;
+			}
+		}
+
+		@Override
+		public boolean visit(IResourceDelta delta) throws CoreException {
+			if (fOutdated)
+				return false;
+			IResource resource= delta.getResource();
+			switch (resource.getType()) {
+				case IResource.PROJECT:
+					if (delta.getKind() != IResourceDelta.CHANGED || (delta.getFlags() & IResourceDelta.OPEN) != 0)
+						fOutdated= true;
+					return !fOutdated;
+				case IResource.FILE:
+					if (delta.getKind() == IResourceDelta.CHANGED && (delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED | IResourceDelta.ENCODING)) == 0)
+						return false; // markers or properties only
+					fOutdated= isJavaResource(resource);
+					return false;
+				default:
+					return true;
+			}
+		}
+
+		private static boolean isJavaResource(IResource resource) {
+			String name= resource.getName();
+			if (JavaCore.isJavaLikeFileName(name) || ".classpath".equals(name)) //$NON-NLS-1$
+				return true;
+			String extension= resource.getFileExtension();
+			return extension != null && ("class".equals(extension) || ArchiveFileFilter.isArchiveFileExtension(extension)); //$NON-NLS-1$
+		}
+	}
+
+	private static CallerIndex fgInstance;
+
+	/**
+	 * The entries in access order
+	 */
+	private final LinkedHashMap<String, Entry> fEntries= new LinkedHashMap<>(16, 0.75f, true);
+
+	private final Map<String, Set<String>> fKeysByName= new HashMap<>();
+
+	private final Map<String, Set<String>> fKeysByUnit= new HashMap<>();
+
+	/**
+	 * Handle identifiers of the changed compilation units which have not been processed yet
+	 */
+	private final Set<String> fChangedUnits= new HashSet<>();
+
+	private String fFilters;
+
+	private long fModificationCount;
+
+	/**
+	 * Tells whether the stored index has been loaded, or does not need to be loaded anymore
+	 */
+	private boolean fLoaded;
+
+	/**
+	 * Tells whether the entries have changed since the index has been loaded or stored
+	 */
+	private boolean fDirty;
+
+	private final IElementChangedListener fDeltaListener;
+
+	private final ISaveParticipant fSaveParticipant;
+
+	public static synchronized CallerIndex getInstance() {
+		if (fgInstance == null)
+			fgInstance= new CallerIndex();
+		return fgInstance;
+	}
+
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		fgInstance.doShutdown();
+		fgInstance= null;
+	}
+
+	private CallerIndex() {
+		fDeltaListener= new DeltaListener();
+		JavaCore.addElementChangedListener(fDeltaListener);
+		fSaveParticipant= new SaveParticipant();
+		try {
+			ISavedState savedState= ResourcesPlugin.getWorkspace().addSaveParticipant(JavaUI.ID_PLUGIN, fSaveParticipant);
+			if (getFile().exists())
+				checkStoredIndex(savedState);
+		} catch (CoreException e) {
+			JavaPlugin.log(e);
+			discardStoredIndex();
+		}
+	}
+
+	/**
+	 * Discards the stored index if the resources changed in a way that might affect the stored
+	 * callers while the plug-in was not active.
+	 *
+	 * @param savedState the state of the workspace when the index was stored, or
+	 *            <code>null</code> if there is none
+	 */
+	private void checkStoredIndex(ISavedState savedState) {
+		if (savedState == null) {
+			discardStoredIndex(); // cannot tell what changed since
+			return;
+		}
+		StoredIndexCheck check= new StoredIndexCheck();
+		savedState.processResourceChangeEvents(check);
+		if (check.fOutdated)
+			discardStoredIndex();
+	}
+
+	private synchronized void discardStoredIndex() {
+		fLoaded= true;
+		getFile().delete();
+	}
+
+	/**
+	 * Tells whether the callers of the given member can be indexed. The callers of types and
+	 * initializers are not indexed, since they are not found by a reference search.
+	 *
+	 * @param member the member
+	 * @return <code>true</code> if the callers of the member can be indexed
+	 */
+	public static boolean isIndexable(IMember member) {
+		return member instanceof IMethod || member instanceof IField;
+	}
+
+	/**
+	 * Returns the indexed callers of a member.
+	 *
+	 * @param member the member
+	 * @param limitTo the search mode, one of {@link org.eclipse.jdt.core.search.IJavaSearchConstants#REFERENCES},
+	 *            {@link org.eclipse.jdt.core.search.IJavaSearchConstants#READ_ACCESSES}, or
+	 *            {@link org.eclipse.jdt.core.search.IJavaSearchConstants#WRITE_ACCESSES}
+	 * @return a map from handle identifier to {@link MethodCall}, or <code>null</code> if the
+	 *         member is not indexed
+	 */
+	public synchronized Map<String, MethodCall> getCallers(IMember member, int limitTo) {
+		validate();
+		Entry entry= fEntries.get(getKey(member, limitTo));
+		return entry != null ? new HashMap<>(entry.fCallers) : null;
+	}
+
+	/**
+	 * Tells whether the callers of a member are indexed.
+	 *
+	 * @param member the member
+	 * @param limitTo the search mode
+	 * @return <code>true</code> if the member is indexed
+	 */
+	public synchronized boolean contains(IMember member, int limitTo) {
+		validate();
+		return fEntries.containsKey(getKey(member, limitTo));
+	}
+
+	/**
+	 * Returns a count which changes whenever the index gets invalidated. Clients take the count
+	 * before they search, and pass it to {@link #putCallers(IMember, int, Map, long)}, so that
+	 * the results of a search which overlapped with a change do not get indexed.
+	 *
+	 * @return the modification count
+	 */
+	public synchronized long getModificationCount() {
+		validate();
+		return fModificationCount;
+	}
+
+	/**
+	 * Adds the callers of a member to the index.
+	 *
+	 * @param member the member
+	 * @param limitTo the search mode
+	 * @param callers a map from handle identifier to {@link MethodCall}
+	 * @param modificationCount the modification count from before the search
+	 */
+	public synchronized void putCallers(IMember member, int limitTo, Map<String, MethodCall> callers, long modificationCount) {
+		validate();
+		if (modificationCount != fModificationCount || !isIndexable(member))
+			return;
+
+		Set<String> units= new HashSet<>();
+		addUnit(units, member);
+		for (MethodCall call : callers.values()) {
+			addUnit(units, call.getMember());
+		}
+		add(new Entry(getKey(member, limitTo), getName(member), new HashMap<>(callers), units));
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear() {
+		if (!fLoaded)
+			getFile().delete(); // the stored entries are outdated as well
+		fLoaded= true;
+		fDirty= true;
+		fEntries.clear();
+		fKeysByName.clear();
+		fKeysByUnit.clear();
+		fChangedUnits.clear();
+		fModificationCount++;
+	}
+
+	private static String getKey(IMember member, int limitTo) {
+		return limitTo + ":" + member.getHandleIdentifier(); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the name which occurs in the source of each caller.
+	 *
+	 * @param member the member
+	 * @return the name of the member, or the name of the type for constructors
+	 */
+	private static String getName(IMember member) {
+		try {
+			if (member instanceof IMethod && ((IMethod) member).isConstructor())
+				return member.getDeclaringType().getElementName();
+		} catch (JavaModelException e) {
+			// fall through
+		}
+		return member.getElementName();
+	}
+
+	private static void addUnit(Set<String> units, IMember member) {
+		ICompilationUnit unit= member.getCompilationUnit();
+		if (unit != null)
+			units.add(unit.getPrimary().getHandleIdentifier());
+	}
+
+	private void add(Entry entry) {
+		fDirty= true;
+		remove(entry.fKey);
+		fEntries.put(entry.fKey, entry);
+		addKey(fKeysByName, entry.fName, entry.fKey);
+		for (String unit : entry.fUnits) {
+			addKey(fKeysByUnit, unit, entry.fKey);
+		}
+		if (fEntries.size() > MAX_ENTRIES)
+			remove(fEntries.keySet().iterator().next());
+	}
+
+	private void remove(String key) {
+		Entry entry= fEntries.remove(key);
+		if (entry == null)
+			return;
+		fDirty= true;
+		removeKey(fKeysByName, entry.fName, key);
+		for (String unit : entry.fUnits) {
+			removeKey(fKeysByUnit, unit, key);
+		}
+	}
+
+	private void removeAll(Collection<String> keys) {
+		if (keys == null)
+			return;
+		for (String key : new ArrayList<>(keys)) {
+			remove(key);
+		}
+	}
+
+	private static void addKey(Map<String, Set<String>> map, String value, String key) {
+		Set<String> keys= map.get(value);
+		if (keys == null) {
+			keys= new HashSet<>();
+			map.put(value, keys);
+		}
+		keys.add(key);
+	}
+
+	private static void removeKey(Map<String, Set<String>> map, String value, String key) {
+		Set<String> keys= map.get(value);
+		if (keys != null) {
+			keys.remove(key);
+			if (keys.isEmpty())
+				map.remove(value);
+		}
+	}
+
+	/**
+	 * Processes the changed compilation units, and clears the index if the call hierarchy filters
+	 * have changed.
+	 */
+	private void validate() {
+		if (!fLoaded) {
+			fLoaded= true;
+			load();
+		}
+		String filters= getFilters();
+		if (!filters.equals(fFilters)) {
+			clear();
+			fFilters= filters;
+		}
+		if (fChangedUnits.isEmpty())
+			return;
+
+		for (String handle : fChangedUnits) {
+			removeAll(fKeysByUnit.get(handle));
+			IJavaElement unit= JavaCore.create(handle);
+			if (unit instanceof ICompilationUnit && unit.exists())
+				removeEntriesOfNames(getContents((ICompilationUnit) unit));
+		}
+		fChangedUnits.clear();
+	}
+
+	private static String getFilters() {
+		CallHierarchy callHierarchy= CallHierarchy.getDefault();
+		return callHierarchy.isFilterEnabled() ? String.valueOf(callHierarchy.getFilters()) : ""; //$NON-NLS-1$
+	}
+
+	/**
+	 * Removes the entries of all members whose name occurs in the given contents. Names in
+	 * comments and strings are not skipped, which is on the safe side.
+	 *
+	 * @param contents the contents of a compilation unit, or <code>null</code> to clear the index
+	 */
+	private void removeEntriesOfNames(String contents) {
+		if (contents == null) {
+			clear();
+			return;
+		}
+		int length= contents.length();
+		int i= 0;
+		while (i < length) {
+			if (Character.isJavaIdentifierStart(contents.charAt(i))) {
+				int start= i++;
+				while (i < length && Character.isJavaIdentifierPart(contents.charAt(i)))
+					i++;
+				removeAll(fKeysByName.get(contents.substring(start, i)));
+			} else {
+				i++;
+			}
+		}
+	}
+
+	private static String getContents(ICompilationUnit unit) {
+		try {
+			if (unit.isOpen())
+				return unit.getSource();
+			// avoid opening the compilation unit just to read it
+			IResource resource= unit.getResource();
+			if (!(resource instanceof IFile))
+				return unit.getSource();
+			IFile file= (IFile) resource;
+			Reader reader= new InputStreamReader(file.getContents(true), file.getCharset());
+			try {
+				StringBuilder builder= new StringBuilder();
+				char[] buffer= new char[8192];
+				int count;
+				while ((count= reader.read(buffer)) != -1)
+					builder.append(buffer, 0, count);
+				return builder.toString();
+			} finally {
+				reader.close();
+			}
+		} catch (CoreException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+			case IJavaElement.JAVA_PROJECT:
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || isClasspathChange(delta.getFlags())) {
+					clear();
+					return;
+				}
+				IJavaElementDelta[] children= delta.getAffectedChildren();
+				for (int i= 0; i < children.length; i++) {
+					processDelta(children[i]);
+				}
+				return;
+			case IJavaElement.COMPILATION_UNIT:
+				if (isHierarchyChange(delta)) {
+					clear();
+					return;
+				}
+				fChangedUnits.add(((ICompilationUnit) element).getPrimary().getHandleIdentifier());
+				fModificationCount++;
+				return;
+			case IJavaElement.CLASS_FILE:
+				clear();
+				return;
+			default:
+				return;
+		}
+	}
+
+	/**
+	 * Tells whether a compilation unit delta might change the type hierarchy. Units which have
+	 * been added or removed, or whose contents changed without a fine-grained delta, are treated
+	 * as hierarchy changes too.
+	 *
+	 * @param delta the delta of a compilation unit
+	 * @return <code>true</code> if types have been added or removed or their super types changed
+	 */
+	private static boolean isHierarchyChange(IJavaElementDelta delta) {
+		if (delta.getKind() != IJavaElementDelta.CHANGED)
+			return true;
+		int flags= delta.getFlags();
+		if ((flags & IJavaElementDelta.F_CONTENT) != 0 && (flags & IJavaElementDelta.F_FINE_GRAINED) == 0)
+			return true;
+		return isTypeHierarchyChange(delta.getAffectedChildren());
+	}
+
+	private static boolean isTypeHierarchyChange(IJavaElementDelta[] deltas) {
+		for (int i= 0; i < deltas.length; i++) {
+			IJavaElementDelta delta= deltas[i];
+			if (delta.getElement().getElementType() != IJavaElement.TYPE)
+				continue;
+			if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & IJavaElementDelta.F_SUPER_TYPES) != 0)
+				return true;
+			if (isTypeHierarchyChange(delta.getAffectedChildren()))
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean isClasspathChange(int flags) {
+		return (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+				| IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+				| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_REORDER
+				| IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED
+				| IJavaElementDelta.F_SOURCEATTACHED | IJavaElementDelta.F_SOURCEDETACHED)) != 0;
+	}
+
+	private void doShutdown() {
+		// the index has been stored when the workspace was saved
+		JavaCore.removeElementChangedListener(fDeltaListener);
+		ResourcesPlugin.getWorkspace().removeSaveParticipant(JavaUI.ID_PLUGIN);
+	}
+
+	private File getFile() {
+		return JavaPlugin.getDefault().getStateLocation().append(FILENAME).toFile();
+	}
+
+	private void load() {
+		File file= getFile();
+		if (!file.exists())
+			return;
+		try {
+			DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (in.readInt() != VERSION)
+					return;
+				fFilters= in.readUTF();
+				int entryCount= in.readInt();
+				for (int i= 0; i < entryCount; i++) {
+					Entry entry= readEntry(in);
+					if (entry != null)
+						add(entry);
+				}
+				fDirty= false;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			clear();
+			JavaPlugin.log(e);
+		}
+	}
+
+	private static Entry readEntry(DataInputStream in) throws IOException {
+		String key= in.readUTF();
+		String name= in.readUTF();
+		Map<String, MethodCall> callers= new HashMap<>();
+		Set<String> units= new HashSet<>();
+		boolean valid= true;
+		int callerCount= in.readInt();
+		for (int i= 0; i < callerCount; i++) {
+			IJavaElement caller= JavaCore.create(in.readUTF());
+			int locationCount= in.readInt();
+			MethodCall call= caller instanceof IMember ? new MethodCall((IMember) caller) : null;
+			for (int j= 0; j < locationCount; j++) {
+				int start= in.readInt();
+				int end= in.readInt();
+				if (call != null)
+					call.addCallLocation(new CallLocation(call.getMember(), call.getMember(), start, end, CallLocation.UNKNOWN_LINE_NUMBER));
+			}
+			if (call == null) {
+				valid= false;
+			} else {
+				callers.put(call.getKey(), call);
+			}
+		}
+		int unitCount= in.readInt();
+		for (int i= 0; i < unitCount; i++) {
+			units.add(in.readUTF());
+		}
+		return valid ? new Entry(key, name, callers, units) : null;
+	}
+
+	private void save() {
+		File file= getFile();
+		File tempFile= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		try {
+			DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				out.writeInt(VERSION);
+				out.writeUTF(fFilters != null ? fFilters : getFilters());
+				out.writeInt(fEntries.size());
+				for (Entry entry : fEntries.values()) {
+					writeEntry(out, entry);
+				}
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			fDirty= false;
+		} catch (IOException e) {
+			// the old index would not match the saved state of the workspace
+			tempFile.delete();
+			file.delete();
+			JavaPlugin.log(e);
+		}
+	}
+
+	private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+		out.writeUTF(entry.fKey);
+		out.writeUTF(entry.fName);
+		out.writeInt(entry.fCallers.size());
+		for (MethodCall call : entry.fCallers.values()) {
+			out.writeUTF(call.getKey());
+			Collection<CallLocation> locations= call.getCallLocations();
+			if (locations == null) {
+				out.writeInt(0);
+			} else {
+				out.writeInt(locations.size());
+				for (CallLocation location : locations) {
+					out.writeInt(location.getStart());
+					out.writeInt(location.getEnd());
+				}
+			}
+		}
+		out.writeInt(entry.fUnits.size());
+		for (String unit : entry.fUnits) {
+			out.writeUTF(unit);
+		}
+	}
+}
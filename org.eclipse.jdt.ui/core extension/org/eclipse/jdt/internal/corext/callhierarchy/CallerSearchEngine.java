@@ -0,0 +1,445 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.IField;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IOpenable;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.SearchRequestor;
+
+import org.eclipse.jdt.internal.corext.util.JdtFlags;
+import org.eclipse.jdt.internal.corext.util.SearchUtils;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Expands call hierarchies level by level, e.g. for an "Expand All" in the Call Hierarchy view.
+ * <p>
+ * Instead of one search per member, the callers of the members of a level are found with
+ * few searches: methods and fields which are searched alike are combined into one
+ * {@link SearchPattern#createOrPattern(SearchPattern, SearchPattern) or-pattern}, and the
+ * searches of a level run concurrently on a bounded number of threads. The matches of a
+ * combined search are attributed to the searched members by the name at the match offset,
+ * which is why a batch never contains two members with the same name. If a match cannot be
+ * attributed, the members of the batch are searched one by one.
+ * </p>
+ * <p>
+ * The results are stored in the {@link MethodWrapper}s, so that a later
+ * {@link MethodWrapper#getCalls(IProgressMonitor)} does not search again.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class CallerSearchEngine {
+
+	/**
+	 * Receives the calls of the expanded wrappers.
+	 */
+	public interface IExpansionListener {
+
+		/**
+		 * Tells whether the calls of the given wrapper should be found. This method is called
+		 * from a worker thread and only for wrappers which can have children, are not recursive,
+		 * and are not deeper than the maximum level.
+		 *
+		 * @param wrapper the method wrapper
+		 * @return <code>true</code> to expand the wrapper
+		 */
+		boolean shouldExpand(MethodWrapper wrapper);
+
+		/**
+		 * The calls of the given wrapper have been found. This method is called from a worker
+		 * thread, but never before the calls of the wrapper's parent have been reported.
+		 *
+		 * @param wrapper the expanded method wrapper
+		 * @param calls the calls of the wrapper
+		 */
+		void callsFound(MethodWrapper wrapper, MethodWrapper[] calls);
+	}
+
+	/**
+	 * Maximum number of members in one combined search
+	 */
+	private static final int MAX_BATCH_SIZE= 32;
+
+	private final int fThreadCount;
+
+	/**
+	 * Creates an engine which uses up to four threads, but not more than there are processors.
+	 */
+	public CallerSearchEngine() {
+		this(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+	}
+
+	/**
+	 * Creates an engine.
+	 *
+	 * @param threadCount the maximum number of concurrent searches
+	 */
+	public CallerSearchEngine(int threadCount) {
+		fThreadCount= Math.max(1, threadCount);
+	}
+
+	/**
+	 * Finds the calls of the given wrappers and of their calls, level by level, until
+	 * <code>maxLevel</code> is reached or there is nothing left to expand.
+	 *
+	 * @param wrappers the wrappers to expand
+	 * @param maxLevel the level of the deepest wrapper to expand, see
+	 *            {@link MethodWrapper#getLevel()}
+	 * @param listener the listener to notify about found calls
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	public void expand(MethodWrapper[] wrappers, int maxLevel, IExpansionListener listener, IProgressMonitor monitor) {
+		final IProgressMonitor parentMonitor= monitor != null ? monitor : new NullProgressMonitor();
+		IProgressMonitor workerMonitor= new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return parentMonitor.isCanceled();
+			}
+		};
+		ExecutorService executor= Executors.newFixedThreadPool(fThreadCount, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread= new Thread(runnable, "Call Hierarchy Search"); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		parentMonitor.beginTask(CallHierarchyMessages.CallerSearchEngine_taskname, IProgressMonitor.UNKNOWN);
+		try {
+			List<MethodWrapper> level= new ArrayList<>();
+			for (int i= 0; i < wrappers.length; i++) {
+				if (shouldExpand(wrappers[i], maxLevel, listener))
+					level.add(wrappers[i]);
+			}
+			while (!level.isEmpty()) {
+				level= expandLevel(level, maxLevel, listener, executor, workerMonitor);
+				parentMonitor.worked(1);
+			}
+		} finally {
+			executor.shutdownNow();
+			parentMonitor.done();
+		}
+	}
+
+	private List<MethodWrapper> expandLevel(List<MethodWrapper> level, int maxLevel, IExpansionListener listener, ExecutorService executor, IProgressMonitor monitor) {
+		// the same member can occur several times in a level, but is only searched once
+		Map<String, List<MethodWrapper>> wrappersByKey= new LinkedHashMap<>();
+		for (MethodWrapper wrapper : level) {
+			String key= wrapper.getMethodCall().getKey();
+			List<MethodWrapper> list= wrappersByKey.get(key);
+			if (list == null) {
+				list= new ArrayList<>(1);
+				wrappersByKey.put(key, list);
+			}
+			list.add(wrapper);
+		}
+
+		List<List<MethodWrapper>> singles= new ArrayList<>();
+		Map<Integer, List<Batch>> batchesByLimitTo= new HashMap<>();
+		for (List<MethodWrapper> wrappers : wrappersByKey.values()) {
+			MethodWrapper first= wrappers.get(0);
+			int limitTo= getBatchLimitTo(first);
+			if (limitTo == -1) {
+				singles.add(wrappers);
+			} else {
+				List<Batch> batches= batchesByLimitTo.get(Integer.valueOf(limitTo));
+				if (batches == null) {
+					batches= new ArrayList<>();
+					batchesByLimitTo.put(Integer.valueOf(limitTo), batches);
+				}
+				addToBatch(batches, limitTo, wrappers);
+			}
+		}
+
+		List<MethodWrapper> nextLevel= new ArrayList<>();
+		CompletionService<List<MethodWrapper>> completionService= new ExecutorCompletionService<>(executor);
+		int taskCount= 0;
+		for (List<Batch> batches : batchesByLimitTo.values()) {
+			for (Batch batch : batches) {
+				completionService.submit(new BatchTask(batch, maxLevel, listener, monitor));
+				taskCount++;
+			}
+		}
+		for (List<MethodWrapper> wrappers : singles) {
+			completionService.submit(new SingleTask(wrappers, maxLevel, listener, monitor));
+			taskCount++;
+		}
+
+		for (int i= 0; i < taskCount; i++) {
+			try {
+				nextLevel.addAll(completionService.take().get());
+			} catch (InterruptedException e) {
+				throw new OperationCanceledException();
+			} catch (ExecutionException e) {
+				Throwable cause= e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new IllegalStateException(cause);
+			}
+		}
+		return nextLevel;
+	}
+
+	private static void addToBatch(List<Batch> batches, int limitTo, List<MethodWrapper> wrappers) {
+		String name= wrappers.get(0).getMember().getElementName();
+		for (Batch batch : batches) {
+			if (batch.fWrappersByName.size() < MAX_BATCH_SIZE && !batch.fWrappersByName.containsKey(name)) {
+				batch.fWrappersByName.put(name, wrappers);
+				return;
+			}
+		}
+		Batch batch= new Batch(limitTo);
+		batch.fWrappersByName.put(name, wrappers);
+		batches.add(batch);
+	}
+
+	/**
+	 * Returns the search mode if the callers of the given wrapper can be found by a combined
+	 * search. Only non-private methods and fields are combined. All other members are searched
+	 * like in {@link CallerMethodWrapper#findChildren(IProgressMonitor)}.
+	 *
+	 * @param wrapper the wrapper
+	 * @return the <code>limitTo</code> of the search, or -1 if the wrapper is searched alone
+	 */
+	private static int getBatchLimitTo(MethodWrapper wrapper) {
+		if (!(wrapper instanceof CallerMethodWrapper) || wrapper.hasCachedCalls())
+			return -1;
+		IMember member= wrapper.getMember();
+		int limitTo= -1;
+		try {
+			if (JdtFlags.isPrivate(member))
+				return -1;
+			if (member instanceof IField)
+				limitTo= wrapper.getFieldSearchMode();
+			else if (member instanceof IMethod && !((IMethod) member).isConstructor())
+				limitTo= IJavaSearchConstants.REFERENCES;
+		} catch (JavaModelException e) {
+			// search alone
+		}
+		if (limitTo != -1 && isWorkspaceScope() && CallerIndex.getInstance().contains(member, limitTo))
+			return -1; // no search needed
+		return limitTo;
+	}
+
+	private static boolean isWorkspaceScope() {
+		return SearchEngine.createWorkspaceScope().equals(CallHierarchy.getDefault().getSearchScope());
+	}
+
+	private static boolean shouldExpand(MethodWrapper wrapper, int maxLevel, IExpansionListener listener) {
+		return wrapper.getLevel() <= maxLevel && wrapper.canHaveChildren() && !wrapper.isRecursive() && listener.shouldExpand(wrapper);
+	}
+
+	/**
+	 * Reports the calls of the given wrappers and returns the calls which have to be expanded
+	 * on the next level.
+	 *
+	 * @param wrappers wrappers of the same member
+	 * @param maxLevel the maximum level
+	 * @param listener the listener
+	 * @param monitor the progress monitor
+	 * @return the wrappers for the next level
+	 */
+	static List<MethodWrapper> reportCalls(List<MethodWrapper> wrappers, int maxLevel, IExpansionListener listener, IProgressMonitor monitor) {
+		List<MethodWrapper> result= new ArrayList<>();
+		for (MethodWrapper wrapper : wrappers) {
+			MethodWrapper[] calls= wrapper.getCalls(monitor);
+			listener.callsFound(wrapper, calls);
+			for (int i= 0; i < calls.length; i++) {
+				if (shouldExpand(calls[i], maxLevel, listener))
+					result.add(calls[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Non-private methods or fields with distinct names, searched with the same
+	 * <code>limitTo</code>.
+	 */
+	private static class Batch {
+		final int fLimitTo;
+		final Map<String, List<MethodWrapper>> fWrappersByName= new LinkedHashMap<>();
+
+		Batch(int limitTo) {
+			fLimitTo= limitTo;
+		}
+	}
+
+	private static class SingleTask implements Callable<List<MethodWrapper>> {
+		private final List<MethodWrapper> fWrappers;
+		private final int fMaxLevel;
+		private final IExpansionListener fListener;
+		private final IProgressMonitor fMonitor;
+
+		SingleTask(List<MethodWrapper> wrappers, int maxLevel, IExpansionListener listener, IProgressMonitor monitor) {
+			fWrappers= wrappers;
+			fMaxLevel= maxLevel;
+			fListener= listener;
+			fMonitor= monitor;
+		}
+
+		@Override
+		public List<MethodWrapper> call() {
+			return reportCalls(fWrappers, fMaxLevel, fListener, fMonitor);
+		}
+	}
+
+	private static class BatchTask implements Callable<List<MethodWrapper>> {
+		private final Batch fBatch;
+		private final int fMaxLevel;
+		private final IExpansionListener fListener;
+		private final IProgressMonitor fMonitor;
+
+		BatchTask(Batch batch, int maxLevel, IExpansionListener listener, IProgressMonitor monitor) {
+			fBatch= batch;
+			fMaxLevel= maxLevel;
+			fListener= listener;
+			fMonitor= monitor;
+		}
+
+		@Override
+		public List<MethodWrapper> call() {
+			if (fBatch.fWrappersByName.size() > 1)
+				search();
+			List<MethodWrapper> result= new ArrayList<>();
+			for (List<MethodWrapper> wrappers : fBatch.fWrappersByName.values()) {
+				result.addAll(reportCalls(wrappers, fMaxLevel, fListener, fMonitor));
+			}
+			return result;
+		}
+
+		/**
+		 * Searches the callers of all members of the batch at once and stores them in the
+		 * wrappers. Does not store anything if a match cannot be attributed to a member, so that
+		 * the members get searched one by one.
+		 */
+		private void search() {
+			SearchPattern pattern= null;
+			for (List<MethodWrapper> wrappers : fBatch.fWrappersByName.values()) {
+				SearchPattern memberPattern= SearchPattern.createPattern(wrappers.get(0).getMember(), fBatch.fLimitTo, SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
+				if (memberPattern == null)
+					return;
+				pattern= pattern == null ? memberPattern : SearchPattern.createOrPattern(pattern, memberPattern);
+			}
+
+			CallerIndex index= isWorkspaceScope() ? CallerIndex.getInstance() : null;
+			long modificationCount= index != null ? index.getModificationCount() : 0;
+			BatchSearchRequestor requestor= new BatchSearchRequestor(fBatch.fWrappersByName.keySet());
+			try {
+				new SearchEngine().search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() },
+						CallHierarchy.getDefault().getSearchScope(), requestor, fMonitor);
+			} catch (CoreException e) {
+				JavaPlugin.log(e);
+				return;
+			}
+			if (requestor.fFailed || fMonitor.isCanceled())
+				return;
+
+			for (Map.Entry<String, List<MethodWrapper>> entry : fBatch.fWrappersByName.entrySet()) {
+				CallSearchResultCollector collector= requestor.fCollectors.get(entry.getKey());
+				Map<String, MethodCall> calls= collector != null ? collector.getCallers() : new HashMap<String, MethodCall>(0);
+				MethodWrapper wrapper= entry.getValue().get(0);
+				wrapper.setCalls(calls);
+				if (index != null)
+					index.putCallers(wrapper.getMember(), fBatch.fLimitTo, calls, modificationCount);
+			}
+		}
+	}
+
+	/**
+	 * Accepts the same matches as {@link MethodReferencesSearchRequestor}, but collects them per
+	 * name of the referenced member.
+	 */
+	private static class BatchSearchRequestor extends SearchRequestor {
+		final Map<String, CallSearchResultCollector> fCollectors= new HashMap<>();
+		boolean fFailed;
+
+		private IOpenable fOpenable;
+		private IBuffer fBuffer;
+
+		BatchSearchRequestor(Iterable<String> names) {
+			for (String name : names) {
+				fCollectors.put(name, new CallSearchResultCollector());
+			}
+		}
+
+		@Override
+		public void acceptSearchMatch(SearchMatch match) throws CoreException {
+			if (fFailed || match.getAccuracy() != SearchMatch.A_ACCURATE || match.isInsideDocComment())
+				return;
+
+			if (match.getElement() instanceof IMember) {
+				IMember member= (IMember) match.getElement();
+				switch (member.getElementType()) {
+					case IJavaElement.METHOD:
+					case IJavaElement.TYPE:
+					case IJavaElement.FIELD:
+					case IJavaElement.INITIALIZER:
+						CallSearchResultCollector collector= fCollectors.get(getIdentifierAt(member, match.getOffset()));
+						if (collector == null) {
+							fFailed= true;
+						} else {
+							collector.addMember(member, member, match.getOffset(), match.getOffset() + match.getLength());
+						}
+						break;
+				}
+			}
+		}
+
+		private String getIdentifierAt(IMember member, int offset) throws JavaModelException {
+			IOpenable openable= member.getOpenable();
+			if (openable != fOpenable) {
+				// matches arrive grouped by compilation unit or class file
+				fOpenable= openable;
+				fBuffer= openable != null ? openable.getBuffer() : null;
+			}
+			if (fBuffer == null || offset < 0 || offset >= fBuffer.getLength() || !Character.isJavaIdentifierStart(fBuffer.getChar(offset)))
+				return null;
+			int end= offset + 1;
+			int length= fBuffer.getLength();
+			while (end < length && Character.isJavaIdentifierPart(fBuffer.getChar(end)))
+				end++;
+			return fBuffer.getText(offset, end - offset);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,7 @@ package org.eclipse.jdt.internal.corext.callhierarchy;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -36,12 +37,15 @@ import org.eclipse.jdt.internal.ui.callhierarchy.MethodWrapperWorkbenchAdapter;
  *
  */
 public abstract class MethodWrapper extends PlatformObject {
-    private Map<String, MethodCall> fElements = null;
+    private volatile Map<String, MethodCall> fElements = null;
 
     /*
      * A cache of previously found methods. This cache should be searched
      * before adding a "new" method object reference to the list of elements.
      * This way previously found methods won't be searched again.
+     * The cache is shared by all wrappers of a hierarchy, which can be
+     * searched concurrently (see CallerSearchEngine). Entries are only added
+     * once the search for a method has completed.
      */
     private Map<String, Map<String, MethodCall>> fMethodCache;
     private final MethodCall fMethodCall;
@@ -57,7 +61,7 @@ public abstract class MethodWrapper extends PlatformObject {
         Assert.isNotNull(methodCall);
 
         if (parent == null) {
-            setMethodCache(new HashMap<String, Map<String, MethodCall>>());
+            setMethodCache(new ConcurrentHashMap<String, Map<String, MethodCall>>());
             fLevel = 1;
         } else {
             setMethodCache(parent.getMethodCache());
@@ -80,16 +84,35 @@ public abstract class MethodWrapper extends PlatformObject {
 	    }
 	}
 
-    public MethodWrapper[] getCalls(IProgressMonitor progressMonitor) {
+    public synchronized MethodWrapper[] getCalls(IProgressMonitor progressMonitor) {
         if (fElements == null) {
             doFindChildren(progressMonitor);
         }
 
-        MethodWrapper[] result = new MethodWrapper[fElements.size()];
+        return createMethodWrappers(fElements);
+    }
+
+	/**
+	 * Returns the calls of this wrapper if they are known. Unlike
+	 * {@link #getCalls(IProgressMonitor)}, this does not wait for a running search, so it can be
+	 * called in the UI thread.
+	 *
+	 * @return the calls, or <code>null</code> if they have not been found yet
+	 * @since 3.14
+	 */
+	public MethodWrapper[] getCachedCalls() {
+		Map<String, MethodCall> elements= fElements;
+		if (elements == null)
+			elements= lookupMethod(getMethodCall());
+		return elements != null ? createMethodWrappers(elements) : null;
+	}
+
+    private MethodWrapper[] createMethodWrappers(Map<String, MethodCall> elements) {
+        MethodWrapper[] result = new MethodWrapper[elements.size()];
         int i = 0;
 
-        for (Iterator<String> iter = fElements.keySet().iterator(); iter.hasNext();) {
-            MethodCall methodCall = getMethodCallFromMap(fElements, iter.next());
+        for (Iterator<String> iter = elements.keySet().iterator(); iter.hasNext();) {
+            MethodCall methodCall = getMethodCallFromMap(elements, iter.next());
             result[i++] = createMethodWrapper(methodCall);
         }
 
@@ -203,11 +226,6 @@ public abstract class MethodWrapper extends PlatformObject {
 
     protected abstract String getTaskName();
 
-    private void addCallToCache(MethodCall methodCall) {
-        Map<String, MethodCall> cachedCalls = lookupMethod(this.getMethodCall());
-        cachedCalls.put(methodCall.getKey(), methodCall);
-    }
-
 	/**
 	 * Creates a method wrapper for the child of the receiver.
 	 * 
@@ -219,21 +237,15 @@ public abstract class MethodWrapper extends PlatformObject {
     private void doFindChildren(IProgressMonitor progressMonitor) {
         Map<String, MethodCall> existingResults = lookupMethod(getMethodCall());
 
-        if (existingResults != null && !existingResults.isEmpty()) {
-            fElements = new HashMap<>();
-            fElements.putAll(existingResults);
+        if (existingResults != null) {
+            fElements = new HashMap<>(existingResults);
         } else {
-            initCalls();
-
             if (progressMonitor != null) {
                 progressMonitor.beginTask(getTaskName(), 100);
             }
 
             try {
                 performSearch(progressMonitor);
-            } catch (OperationCanceledException e){
-            	fElements= null;
-            	throw e;
             } finally {
                 if (progressMonitor != null) {
                     progressMonitor.done();
@@ -283,12 +295,6 @@ public abstract class MethodWrapper extends PlatformObject {
         return fMethodCache;
     }
 
-    private void initCalls() {
-        this.fElements = new HashMap<>();
-
-        initCacheForMethod();
-    }
-
     /**
      * Looks up a previously created search result in the "global" cache.
      * @param methodCall the method call
@@ -299,25 +305,40 @@ public abstract class MethodWrapper extends PlatformObject {
     }
 
     private void performSearch(IProgressMonitor progressMonitor) {
-        fElements = findChildren(progressMonitor);
-
-        for (Iterator<String> iter = fElements.keySet().iterator(); iter.hasNext();) {
-            checkCanceled(progressMonitor);
+        Map<String, MethodCall> elements = findChildren(progressMonitor);
+        checkCanceled(progressMonitor);
 
-            MethodCall methodCall = getMethodCallFromMap(fElements, iter.next());
-            addCallToCache(methodCall);
-        }
+        setCalls(elements);
     }
 
+	/**
+	 * Sets the calls of this wrapper and adds them to the cache, e.g. after they have been found
+	 * by a search for several members at once.
+	 *
+	 * @param calls a map from handle identifier to {@link MethodCall}
+	 * @since 3.14
+	 */
+	synchronized void setCalls(Map<String, MethodCall> calls) {
+		fElements= new HashMap<>(calls);
+		getMethodCache().put(getMethodCall().getKey(), new HashMap<>(calls));
+	}
+
+	/**
+	 * Tells whether the calls of this wrapper are known, so that
+	 * {@link #getCalls(IProgressMonitor)} does not have to search. Does not wait for a running
+	 * search.
+	 *
+	 * @return <code>true</code> if the calls have already been found
+	 * @since 3.14
+	 */
+	public boolean hasCachedCalls() {
+		return fElements != null || lookupMethod(getMethodCall()) != null;
+	}
+
     private MethodCall getMethodCallFromMap(Map<String, MethodCall> elements, String key) {
         return elements.get(key);
     }
 
-    private void initCacheForMethod() {
-        Map<String, MethodCall> cachedCalls = new HashMap<>();
-        getMethodCache().put(this.getMethodCall().getKey(), cachedCalls);
-    }
-
     /**
      * Checks with the progress monitor to see whether the creation of the type hierarchy
      * should be canceled. Should be regularly called
@@ -365,7 +386,7 @@ public abstract class MethodWrapper extends PlatformObject {
 	 *
 	 * @since 3.6
 	 */
-	public void removeFromCache() {
+	public synchronized void removeFromCache() {
 		fElements= null;
 		fMethodCache.remove(getMethodCall().getKey());
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,14 +10,21 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Collection;
-import java.util.Hashtable;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -26,25 +33,19 @@ import java.util.Set;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
+import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 
 import org.eclipse.jdt.internal.corext.CorextMessages;
@@ -58,9 +59,15 @@ import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
  * History stores a list of key, object pairs. The list is bounded at size
  * MAX_HISTORY_SIZE. If the list exceeds this size the eldest element is removed
  * from the list. An element can be added/renewed with a call to <code>accessed(Object)</code>.
+ * <p>
+ * Changes are synchronized, but the positions are read from an immutable snapshot which is
+ * replaced on each change, so that {@link #getPosition(Object)} and
+ * {@link #getNormalizedPosition(Object)} never block.
+ * </p>
+ * The history is stored to/loaded from a binary file. Histories stored in xml by earlier
+ * versions are still loaded if there is no binary file. The xml file is no longer written, but it
+ * is kept for earlier versions that run on the same workspace.
  *
- * The history can be stored to/loaded from an xml file.
- * 
  * @param <K> key type
  * @param <V> value type
  */
@@ -70,16 +77,36 @@ public abstract class History<K, V> {
 	private static final String DEFAULT_INFO_NODE_NAME= "infoNode"; //$NON-NLS-1$
 	private static final int MAX_HISTORY_SIZE= 60;
 
+	private static final String XML_FILE_EXTENSION= ".xml"; //$NON-NLS-1$
+	private static final String BINARY_FILE_EXTENSION= ".dat"; //$NON-NLS-1$
+
+	/**
+	 * Format version of the binary file
+	 */
+	private static final int VERSION= 1;
+
 	private static JavaUIException createException(Throwable t, String message) {
 		return new JavaUIException(JavaUIStatus.createError(IStatus.ERROR, message, t));
 	}
 
 	private final Map<K, V> fHistory;
-	private final Hashtable<K, Integer> fPositions;
+	/**
+	 * Positions of the keys, replaced on each change and never modified. Its size is the size of
+	 * the history.
+	 */
+	private volatile Map<K, Integer> fPositions;
 	private final String fFileName;
 	private final String fRootNodeName;
 	private final String fInfoNodeName;
 
+	/**
+	 * Creates a history.
+	 *
+	 * @param fileName the name of the file in the state location, without or with the legacy
+	 *            <code>.xml</code> extension
+	 * @param rootNodeName the name of the root node in legacy xml files
+	 * @param infoNodeName the name of the element nodes
+	 */
 	public History(String fileName, String rootNodeName, String infoNodeName) {
 		fHistory= new LinkedHashMap<K, V>(80, 0.75f, true) {
 			private static final long serialVersionUID= 1L;
@@ -91,7 +118,7 @@ public abstract class History<K, V> {
 		fFileName= fileName;
 		fRootNodeName= rootNodeName;
 		fInfoNodeName= infoNodeName;
-		fPositions= new Hashtable<>(MAX_HISTORY_SIZE);
+		fPositions= Collections.emptyMap();
 	}
 
 	public History(String fileName) {
@@ -103,16 +130,16 @@ public abstract class History<K, V> {
 		rebuildPositions();
 	}
 
-	public synchronized boolean contains(V object) {
-		return fHistory.containsKey(getKey(object));
+	public boolean contains(V object) {
+		return fPositions.containsKey(getKey(object));
 	}
 
-	public synchronized boolean containsKey(K key) {
-		return fHistory.containsKey(key);
+	public boolean containsKey(K key) {
+		return fPositions.containsKey(key);
 	}
 
-	public synchronized boolean isEmpty() {
-		return fHistory.isEmpty();
+	public boolean isEmpty() {
+		return fPositions.isEmpty();
 	}
 
 	public synchronized Object remove(V object) {
@@ -136,14 +163,16 @@ public abstract class History<K, V> {
 	 * @param key The key of the object to inspect
 	 * @return value in [0.0, 1.0] the lower the older the element
 	 */
-	public synchronized float getNormalizedPosition(K key) {
-		if (!containsKey(key))
+	public float getNormalizedPosition(K key) {
+		Map<K, Integer> positions= fPositions;
+		Integer position= positions.get(key);
+		if (position == null)
 			return 0.0f;
 
-		int pos= fPositions.get(key).intValue() + 1;
+		int pos= position.intValue() + 1;
 
-		//containsKey(key) implies fHistory.size()>0
-		return (float)pos / (float)fHistory.size();
+		//position != null implies positions.size()>0
+		return (float)pos / (float)positions.size();
 	}
 
 	/**
@@ -154,59 +183,57 @@ public abstract class History<K, V> {
 	 * @param key The key of the object to inspect
 	 * @return value between 0 and MAX_HISTORY_SIZE - 1, or -1
 	 */
-	public synchronized int getPosition(K key) {
-		if (!containsKey(key))
+	public int getPosition(K key) {
+		Integer position= fPositions.get(key);
+		if (position == null)
 			return -1;
 
-		return fPositions.get(key).intValue();
+		return position.intValue();
 	}
 
 	public synchronized void load() {
-		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
-		File file= stateLocation.toFile();
-		if (file.exists()) {
-			InputStreamReader reader= null;
-	        try {
-				reader = new InputStreamReader(new FileInputStream(file), "utf-8");//$NON-NLS-1$
-				load(new InputSource(reader));
-			} catch (IOException e) {
-				JavaPlugin.log(e);
-			} catch (CoreException e) {
-				JavaPlugin.log(e);
-			} finally {
-				try {
-					if (reader != null)
-						reader.close();
-				} catch (IOException e) {
-					JavaPlugin.log(e);
-				}
+		File file= getFile(BINARY_FILE_EXTENSION);
+		try {
+			if (file.exists()) {
+				loadBinary(file);
+			} else {
+				file= getFile(XML_FILE_EXTENSION);
+				if (file.exists())
+					loadXml(file);
 			}
+		} catch (IOException e) {
+			JavaPlugin.log(createException(e, Messages.format(CorextMessages.History_error_read, BasicElementLabels.getResourceName(file.getName()))));
+		} catch (CoreException e) {
+			JavaPlugin.log(e);
 		}
+		rebuildPositions();
 	}
 
+	/**
+	 * Stores the history in a binary file. The file is first written to a temporary file, which
+	 * then replaces the previous file, so that a crash while saving never leaves a damaged file.
+	 */
 	public synchronized void save() {
-		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
-		File file= stateLocation.toFile();
-		OutputStream out= null;
+		File file= getFile(BINARY_FILE_EXTENSION);
+		File tempFile= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
 		try {
-			out= new FileOutputStream(file);
-			save(out);
+			DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				save(out);
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
 		} catch (IOException e) {
-			JavaPlugin.log(e);
+			tempFile.delete();
+			JavaPlugin.log(createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(file.getName()))));
 		} catch (CoreException e) {
+			tempFile.delete();
 			JavaPlugin.log(e);
-		} catch (TransformerFactoryConfigurationError e) {
-			// The XML library can be misconficgured (e.g. via
-			// -Djava.endorsed.dirs=C:\notExisting\xerces-2_7_1)
-			JavaPlugin.log(e);
-		} finally {
-			try {
-				if (out != null) {
-					out.close();
-				}
-			} catch (IOException e) {
-				JavaPlugin.log(e);
-			}
 		}
 	}
 
@@ -243,14 +270,87 @@ public abstract class History<K, V> {
 	protected abstract K getKey(V object);
 
 	private void rebuildPositions() {
-		fPositions.clear();
+		Map<K, Integer> positions= new HashMap<>(fHistory.size() * 4 / 3 + 1);
 		Collection<V> values= fHistory.values();
 		int pos=0;
 		for (Iterator<V> iter= values.iterator(); iter.hasNext();) {
 			V element= iter.next();
-			fPositions.put(getKey(element), new Integer(pos));
+			positions.put(getKey(element), Integer.valueOf(pos));
 			pos++;
 		}
+		fPositions= Collections.unmodifiableMap(positions);
+	}
+
+	private File getFile(String extension) {
+		String fileName= fFileName;
+		if (fileName.endsWith(XML_FILE_EXTENSION))
+			fileName= fileName.substring(0, fileName.length() - XML_FILE_EXTENSION.length());
+		return JavaPlugin.getDefault().getStateLocation().append(fileName + extension).toFile();
+	}
+
+	private static Document newDocument() throws CoreException {
+		try {
+			return DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		} catch (ParserConfigurationException e) {
+			throw createException(e, e.getMessage());
+		}
+	}
+
+	/*
+	 * The binary format is the version, the number of elements, and for each element the number
+	 * of attributes followed by their names and values. The elements are ordered from the eldest
+	 * to the newest.
+	 */
+	private void loadBinary(File file) throws IOException, CoreException {
+		DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != VERSION)
+				return;
+			Document document= newDocument();
+			int count= in.readInt();
+			for (int i= 0; i < count; i++) {
+				Element element= document.createElement(fInfoNodeName);
+				int attributeCount= in.readInt();
+				for (int j= 0; j < attributeCount; j++) {
+					String name= in.readUTF();
+					element.setAttribute(name, in.readUTF());
+				}
+				V object= createFromElement(element);
+				if (object != null) {
+					fHistory.put(getKey(object), object);
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private void save(DataOutputStream out) throws IOException, CoreException {
+		Document document= newDocument();
+		out.writeInt(VERSION);
+		Collection<V> values= getValues();
+		out.writeInt(values.size());
+		for (Iterator<V> iter= values.iterator(); iter.hasNext();) {
+			Element element= document.createElement(fInfoNodeName);
+			setAttributes(iter.next(), element);
+			NamedNodeMap attributes= element.getAttributes();
+			int length= attributes.getLength();
+			out.writeInt(length);
+			for (int i= 0; i < length; i++) {
+				Attr attribute= (Attr) attributes.item(i);
+				out.writeUTF(attribute.getName());
+				out.writeUTF(attribute.getValue());
+			}
+		}
+	}
+
+	private void loadXml(File file) throws IOException, CoreException {
+		InputStreamReader reader= new InputStreamReader(new FileInputStream(file), "utf-8");//$NON-NLS-1$
+		try {
+			load(new InputSource(reader));
+		} finally {
+			reader.close();
+		}
 	}
 
 	private void load(InputSource inputSource) throws CoreException {
@@ -285,39 +385,6 @@ public abstract class History<K, V> {
 				}
 			}
 		}
-		rebuildPositions();
-	}
-
-	private void save(OutputStream stream) throws CoreException {
-		try {
-			DocumentBuilderFactory factory= DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder= factory.newDocumentBuilder();
-			Document document= builder.newDocument();
-
-			Element rootElement = document.createElement(fRootNodeName);
-			document.appendChild(rootElement);
-
-			Iterator<V> values= getValues().iterator();
-			while (values.hasNext()) {
-				Object object= values.next();
-				Element element= document.createElement(fInfoNodeName);
-				setAttributes(object, element);
-				rootElement.appendChild(element);
-			}
-
-			Transformer transformer=TransformerFactory.newInstance().newTransformer();
-			transformer.setOutputProperty(OutputKeys.METHOD, "xml"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //$NON-NLS-1$
-			DOMSource source = new DOMSource(document);
-			StreamResult result = new StreamResult(stream);
-
-			transformer.transform(source, result);
-		} catch (TransformerException e) {
-			throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
-		} catch (ParserConfigurationException e) {
-			throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
-		}
 	}
 
 }
@@ -239,11 +239,6 @@ public class OpenTypeHistory extends History<TypeNameMatch, TypeNameMatch> {
 		internalCheckConsistency(monitor);
 	}
 
-	@Override
-	public synchronized boolean contains(TypeNameMatch type) {
-		return super.contains(type);
-	}
-
 	@Override
 	public synchronized void accessed(TypeNameMatch info) {
 		// Fetching the timestamp might not be cheap (remote file system
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -168,16 +168,49 @@ public class TypeInfoFilter {
 	}
 
 	private boolean matchesName(TypeNameMatch type) {
+		return matchesName(type.getSimpleTypeName());
+	}
+
+	/**
+	 * Checks whether a simple type name matches the name pattern of this filter.
+	 *
+	 * @param simpleTypeName the simple type name
+	 * @return <code>true</code> if the name matches
+	 * @since 3.14
+	 */
+	public boolean matchesName(String simpleTypeName) {
 		if (fText.length() == 0) {
 			return true; //empty pattern matches all names
 		}
-		return fNameMatcher.matches(type.getSimpleTypeName());
+		return fNameMatcher.matches(simpleTypeName);
 	}
 
 	private boolean matchesPackage(TypeNameMatch type) {
+		return matchesPackage(type.getTypeContainerName());
+	}
+
+	/**
+	 * Checks whether a type container name matches the package pattern of this filter.
+	 *
+	 * @param typeContainerName the package name followed by the names of the enclosing types
+	 * @return <code>true</code> if the name matches
+	 * @since 3.14
+	 */
+	public boolean matchesPackage(String typeContainerName) {
 		if (fPackageMatcher == null)
 			return true;
-		return fPackageMatcher.matches(type.getTypeContainerName());
+		return fPackageMatcher.matches(typeContainerName);
+	}
+
+	/**
+	 * Tells whether this filter's scope is the workspace scope, i.e. whether it matches all types
+	 * on the build path of any Java project.
+	 *
+	 * @return <code>true</code> for the workspace scope
+	 * @since 3.14
+	 */
+	public boolean isWorkspaceScope() {
+		return fIsWorkspaceScope;
 	}
 
 	private boolean matchesScope(TypeNameMatch type) {
@@ -187,9 +220,20 @@ public class TypeInfoFilter {
 	}
 
 	private boolean matchesModifiers(TypeNameMatch type) {
+		return matchesModifiers(type.getModifiers());
+	}
+
+	/**
+	 * Checks whether a type with the given modifiers is of the element kind of this filter.
+	 *
+	 * @param typeModifiers the modifiers of the type
+	 * @return <code>true</code> if the kind matches
+	 * @since 3.14
+	 */
+	public boolean matchesModifiers(int typeModifiers) {
 		if (fElementKind == IJavaSearchConstants.TYPE)
 			return true;
-		int modifiers= type.getModifiers() & TYPE_MODIFIERS;
+		int modifiers= typeModifiers & TYPE_MODIFIERS;
 		switch (fElementKind) {
 			case IJavaSearchConstants.CLASS:
 				return modifiers == 0;
@@ -0,0 +1,1032 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IClassFile;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+import org.eclipse.jdt.core.search.TypeNameRequestor;
+
+import org.eclipse.jdt.internal.corext.CorextMessages;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * In-memory index of the names of all types in the workspace scope, used by the open type dialog
+ * to filter types without querying the search engine.
+ * <p>
+ * The names are packed into a single char array, and each type is a fixed number of ints
+ * referring into it. Two sorted arrays of type indices allow to look up name prefixes and
+ * camel case patterns with a binary search: one is sorted by the simple names ignoring case, the
+ * other one by the camel case initials of the names (the first character followed by all
+ * upper case characters).
+ * </p>
+ * <p>
+ * The index is built in the background. After changes that add, remove or modify types in
+ * compilation units or class folders of the workspace, only the types of the changed files are
+ * searched again and patched into a copy of the index; other changes, e.g. to the build path or to
+ * archives, rebuild it. While it is being updated,
+ * {@link #search(TypeInfoFilter, TypeNameMatchRequestor, IProgressMonitor)} returns
+ * <code>false</code> and clients have to fall back to the search engine. Unsaved types in working
+ * copies are taken from the working copies.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class TypeNameIndex {
+
+	/**
+	 * Delay of an update after a change, to combine the changes of a build or a team operation
+	 */
+	private static final long UPDATE_DELAY= 1000;
+
+	// Layout of a type in Snapshot#fTypes
+	private static final int NAME= 0;
+	private static final int PACKAGE= 1;
+	private static final int ENCLOSING= 2;
+	private static final int FOLDER= 3;
+	private static final int FILE= 4;
+	private static final int MODIFIERS= 5;
+	private static final int STRIDE= 6;
+
+	/**
+	 * Value of {@link #FILE} if the file name is the outermost type name plus <code>.java</code>
+	 */
+	private static final int SOURCE_FILE= -1;
+	/**
+	 * Value of {@link #FILE} if the file name is the binary type name plus <code>.class</code>
+	 */
+	private static final int CLASS_FILE= -2;
+
+	private static final String JAVA_EXTENSION= ".java"; //$NON-NLS-1$
+	private static final String CLASS_EXTENSION= ".class"; //$NON-NLS-1$
+
+	/**
+	 * An immutable state of the index.
+	 */
+	private static class Snapshot {
+
+		private final char[] fChars;
+		/**
+		 * Start of each string in {@link #fChars}, followed by the end of the last string
+		 */
+		private final int[] fStringStarts;
+		private final int[] fTypes;
+		private final int fTypeCount;
+		/**
+		 * Type indices sorted by simple name, ignoring case
+		 */
+		private int[] fByName;
+		/**
+		 * Type indices sorted by the initials of the simple name
+		 */
+		private int[] fByInitials;
+		/**
+		 * Package fragment roots by archive path
+		 */
+		private final Map<String, List<IPackageFragmentRoot>> fArchiveRoots;
+		/**
+		 * Package fragment roots of external class folders by path
+		 */
+		private final Map<IPath, IPackageFragmentRoot> fFolderRoots;
+		/**
+		 * Number of chars that have been appended by {@link #patch(BitSet, Builder)} since the
+		 * index was built
+		 */
+		private final int fPatchedChars;
+
+		Snapshot(char[] chars, int[] stringStarts, int[] types, int typeCount, Map<String, List<IPackageFragmentRoot>> archiveRoots, Map<IPath, IPackageFragmentRoot> folderRoots) {
+			this(chars, stringStarts, types, typeCount, archiveRoots, folderRoots, 0);
+			fByName= sort(false);
+			fByInitials= sort(true);
+		}
+
+		private Snapshot(char[] chars, int[] stringStarts, int[] types, int typeCount, Map<String, List<IPackageFragmentRoot>> archiveRoots, Map<IPath, IPackageFragmentRoot> folderRoots, int patchedChars) {
+			fChars= chars;
+			fStringStarts= stringStarts;
+			fTypes= types;
+			fTypeCount= typeCount;
+			fArchiveRoots= archiveRoots;
+			fFolderRoots= folderRoots;
+			fPatchedChars= patchedChars;
+		}
+
+		private int[] sort(boolean byInitials) {
+			return sort(0, fTypeCount, byInitials);
+		}
+
+		/**
+		 * Sorts a range of types.
+		 *
+		 * @param from the first type index
+		 * @param to the type index after the last type
+		 * @param byInitials <code>true</code> to sort by initials, <code>false</code> to sort by name
+		 * @return the sorted type indices
+		 */
+		private int[] sort(int from, int to, final boolean byInitials) {
+			Integer[] indices= new Integer[to - from];
+			for (int i= 0; i < indices.length; i++) {
+				indices[i]= Integer.valueOf(from + i);
+			}
+			Arrays.sort(indices, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer type1, Integer type2) {
+					return compareTypes(type1.intValue(), type2.intValue(), byInitials);
+				}
+			});
+			int[] result= new int[indices.length];
+			for (int i= 0; i < indices.length; i++) {
+				result[i]= indices[i].intValue();
+			}
+			return result;
+		}
+
+		private int compareTypes(int type1, int type2, boolean byInitials) {
+			if (byInitials)
+				return compareInitials(getName(type1), getName(type2));
+			return compareNames(getName(type1), getName(type2));
+		}
+
+		/**
+		 * Returns a copy of this snapshot in which some types are replaced. The sorted arrays are
+		 * merged instead of being sorted again.
+		 *
+		 * @param removed the indices of the types to remove
+		 * @param added the builder with the types to add, created with this snapshot as base
+		 * @return the patched snapshot
+		 */
+		Snapshot patch(BitSet removed, Builder added) {
+			int[] newIndex= new int[fTypeCount];
+			int[] types= new int[(fTypeCount - removed.cardinality() + added.fTypeCount) * STRIDE];
+			int count= 0;
+			for (int type= 0; type < fTypeCount; type++) {
+				if (removed.get(type)) {
+					newIndex[type]= -1;
+				} else {
+					System.arraycopy(fTypes, type * STRIDE, types, count * STRIDE, STRIDE);
+					newIndex[type]= count++;
+				}
+			}
+			System.arraycopy(added.fTypes, 0, types, count * STRIDE, added.fTypeCount * STRIDE);
+
+			added.fStringStarts[added.fStringCount]= added.fCharCount;
+			char[] chars= Arrays.copyOf(added.fChars, added.fCharCount);
+			int[] stringStarts= Arrays.copyOf(added.fStringStarts, added.fStringCount + 1);
+			int patchedChars= fPatchedChars + chars.length - fChars.length;
+			Snapshot result= new Snapshot(chars, stringStarts, types, count + added.fTypeCount, fArchiveRoots, fFolderRoots, patchedChars);
+			result.fByName= result.merge(fByName, newIndex, count, false);
+			result.fByInitials= result.merge(fByInitials, newIndex, count, true);
+			return result;
+		}
+
+		/**
+		 * Merges the sorted types of the snapshot this snapshot has been patched from with the
+		 * added types.
+		 *
+		 * @param sorted the sorted type indices of the previous snapshot
+		 * @param newIndex the index of each previous type in this snapshot, <code>-1</code> if removed
+		 * @param firstAdded the index of the first added type
+		 * @param byInitials <code>true</code> to sort by initials, <code>false</code> to sort by name
+		 * @return the sorted type indices of this snapshot
+		 */
+		private int[] merge(int[] sorted, int[] newIndex, int firstAdded, boolean byInitials) {
+			int[] added= sort(firstAdded, fTypeCount, byInitials);
+			int[] result= new int[fTypeCount];
+			int count= 0;
+			int next= 0;
+			for (int i= 0; i < sorted.length; i++) {
+				int type= newIndex[sorted[i]];
+				if (type == -1)
+					continue;
+				while (next < added.length && compareTypes(added[next], type, byInitials) < 0) {
+					result[count++]= added[next++];
+				}
+				result[count++]= type;
+			}
+			while (next < added.length) {
+				result[count++]= added[next++];
+			}
+			return result;
+		}
+
+		/**
+		 * Tells whether the strings of replaced types take up so much space that the index should
+		 * be rebuilt.
+		 *
+		 * @return <code>true</code> if the index should be rebuilt
+		 */
+		boolean isFragmented() {
+			return fPatchedChars > fChars.length / 2;
+		}
+
+		/**
+		 * Returns the types declared in the given files.
+		 *
+		 * @param paths the paths of the files
+		 * @return the indices of the types
+		 */
+		BitSet getTypes(Set<String> paths) {
+			Set<String> folders= new HashSet<>();
+			for (String path : paths) {
+				folders.add(path.substring(0, path.lastIndexOf('/') + 1));
+			}
+			BitSet checkedFolders= new BitSet();
+			BitSet changedFolders= new BitSet();
+			BitSet result= new BitSet();
+			for (int type= 0; type < fTypeCount; type++) {
+				int folder= get(type, FOLDER);
+				if (!checkedFolders.get(folder)) {
+					checkedFolders.set(folder);
+					if (folders.contains(getString(folder)))
+						changedFolders.set(folder);
+				}
+				if (changedFolders.get(folder) && paths.contains(getPath(type)))
+					result.set(type);
+			}
+			return result;
+		}
+
+		int getName(int type) {
+			return fTypes[type * STRIDE + NAME];
+		}
+
+		int get(int type, int field) {
+			return fTypes[type * STRIDE + field];
+		}
+
+		String getString(int id) {
+			int start= fStringStarts[id];
+			return new String(fChars, start, fStringStarts[id + 1] - start);
+		}
+
+		private int compareNames(int name1, int name2) {
+			int start1= fStringStarts[name1];
+			int end1= fStringStarts[name1 + 1];
+			int start2= fStringStarts[name2];
+			int end2= fStringStarts[name2 + 1];
+			for (int i= start1, j= start2; i < end1 && j < end2; i++, j++) {
+				char c1= Character.toLowerCase(fChars[i]);
+				char c2= Character.toLowerCase(fChars[j]);
+				if (c1 != c2)
+					return c1 - c2;
+			}
+			return (end1 - start1) - (end2 - start2);
+		}
+
+		/**
+		 * Compares the beginning of a name with a prefix, ignoring case.
+		 *
+		 * @param name the string id of the name
+		 * @param prefix the prefix
+		 * @return 0 if the name starts with the prefix, else the order of the name relative to
+		 *         all names starting with the prefix
+		 */
+		private int compareNamePrefix(int name, String prefix) {
+			int start= fStringStarts[name];
+			int length= fStringStarts[name + 1] - start;
+			for (int i= 0; i < length && i < prefix.length(); i++) {
+				char c1= Character.toLowerCase(fChars[start + i]);
+				char c2= Character.toLowerCase(prefix.charAt(i));
+				if (c1 != c2)
+					return c1 - c2;
+			}
+			return length < prefix.length() ? -1 : 0;
+		}
+
+		private int compareInitials(int name1, int name2) {
+			int i= fStringStarts[name1];
+			int end1= fStringStarts[name1 + 1];
+			int j= fStringStarts[name2];
+			int end2= fStringStarts[name2 + 1];
+			if (i < end1 && j < end2) {
+				if (fChars[i] != fChars[j])
+					return fChars[i] - fChars[j];
+				i= nextUpperCase(i + 1, end1);
+				j= nextUpperCase(j + 1, end2);
+				while (i < end1 && j < end2) {
+					if (fChars[i] != fChars[j])
+						return fChars[i] - fChars[j];
+					i= nextUpperCase(i + 1, end1);
+					j= nextUpperCase(j + 1, end2);
+				}
+			}
+			return (i < end1 ? 1 : 0) - (j < end2 ? 1 : 0);
+		}
+
+		private int compareInitialsPrefix(int name, String initials) {
+			int i= fStringStarts[name];
+			int end= fStringStarts[name + 1];
+			for (int k= 0; k < initials.length(); k++) {
+				if (i >= end)
+					return -1;
+				char c= initials.charAt(k);
+				if (fChars[i] != c)
+					return fChars[i] - c;
+				i= nextUpperCase(i + 1, end);
+			}
+			return 0;
+		}
+
+		private int nextUpperCase(int index, int end) {
+			while (index < end && !Character.isUpperCase(fChars[index])) {
+				index++;
+			}
+			return index;
+		}
+
+		/**
+		 * Adds the types whose simple names start with a prefix, or whose initials start with the
+		 * given initials, to a set.
+		 *
+		 * @param prefix the prefix, or <code>null</code>
+		 * @param initials the initials, or <code>null</code>
+		 * @param result the set of type indices
+		 */
+		void addCandidates(String prefix, String initials, BitSet result) {
+			int[] sorted= prefix != null ? fByName : fByInitials;
+			int low= 0;
+			int high= fTypeCount;
+			while (low < high) { // first index not below the prefix
+				int mid= (low + high) >>> 1;
+				if (compare(sorted[mid], prefix, initials) < 0)
+					low= mid + 1;
+				else
+					high= mid;
+			}
+			for (int i= low; i < fTypeCount && compare(sorted[i], prefix, initials) == 0; i++) {
+				result.set(sorted[i]);
+			}
+		}
+
+		private int compare(int type, String prefix, String initials) {
+			if (prefix != null)
+				return compareNamePrefix(getName(type), prefix);
+			return compareInitialsPrefix(getName(type), initials);
+		}
+
+		String getTypeContainerName(int type) {
+			String packageName= getString(get(type, PACKAGE));
+			int enclosing= get(type, ENCLOSING);
+			if (enclosing == -1)
+				return packageName;
+			if (packageName.length() == 0)
+				return getString(enclosing);
+			return packageName + '.' + getString(enclosing);
+		}
+
+		String getFileName(int type) {
+			int file= get(type, FILE);
+			if (file >= 0)
+				return getString(file);
+			int enclosing= get(type, ENCLOSING);
+			String name= getString(getName(type));
+			if (file == SOURCE_FILE) {
+				if (enclosing == -1)
+					return name + JAVA_EXTENSION;
+				String enclosingNames= getString(enclosing);
+				int dot= enclosingNames.indexOf('.');
+				return (dot == -1 ? enclosingNames : enclosingNames.substring(0, dot)) + JAVA_EXTENSION;
+			}
+			if (enclosing == -1)
+				return name + CLASS_EXTENSION;
+			return getString(enclosing).replace('.', '$') + '$' + name + CLASS_EXTENSION;
+		}
+
+		String getPath(int type) {
+			return getString(get(type, FOLDER)) + getFileName(type);
+		}
+
+		IType resolve(int type) {
+			String folder= getString(get(type, FOLDER));
+			String packageName= getString(get(type, PACKAGE));
+			String fileName= getFileName(type);
+			int separator= folder.indexOf(IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR);
+			if (separator != -1) {
+				List<IPackageFragmentRoot> roots= fArchiveRoots.get(folder.substring(0, separator));
+				if (roots == null)
+					return null;
+				for (IPackageFragmentRoot root : roots) {
+					IClassFile classFile= root.getPackageFragment(packageName).getClassFile(fileName);
+					if (roots.size() == 1 || classFile.exists())
+						return classFile.getType();
+				}
+				return null;
+			}
+			if (!fFolderRoots.isEmpty()) {
+				IPath path= new Path(folder + fileName);
+				int packageSegments= packageName.length() == 0 ? 0 : packageName.split("\\.").length; //$NON-NLS-1$
+				IPackageFragmentRoot root= fFolderRoots.get(path.removeLastSegments(packageSegments + 1));
+				if (root != null)
+					return root.getPackageFragment(packageName).getClassFile(fileName).getType();
+			}
+			IFile file= ResourcesPlugin.getWorkspace().getRoot().getFile(new Path(folder + fileName));
+			IJavaElement element= JavaCore.create(file);
+			if (element instanceof IClassFile)
+				return ((IClassFile) element).getType();
+			if (!(element instanceof ICompilationUnit))
+				return null;
+			ICompilationUnit cu= (ICompilationUnit) element;
+			String name= getString(getName(type));
+			int enclosing= get(type, ENCLOSING);
+			if (enclosing == -1)
+				return cu.getType(name);
+			String[] enclosingNames= getString(enclosing).split("\\."); //$NON-NLS-1$
+			IType result= cu.getType(enclosingNames[0]);
+			for (int i= 1; i < enclosingNames.length; i++) {
+				result= result.getType(enclosingNames[i]);
+			}
+			return result.getType(name);
+		}
+	}
+
+	/**
+	 * Collects the type names reported by the search engine.
+	 */
+	private static class Builder extends TypeNameRequestor {
+
+		private char[] fChars= new char[1 << 16];
+		private int fCharCount;
+		private int[] fStringStarts= new int[1 << 12];
+		private int fStringCount;
+		private int[] fTypes= new int[STRIDE << 10];
+		private int fTypeCount;
+		private final Map<String, Integer> fSharedStrings= new HashMap<>();
+		private final StringBuffer fBuffer= new StringBuffer();
+
+		Builder() {
+		}
+
+		/**
+		 * Creates a builder for types that are added to a snapshot. The strings of the snapshot
+		 * keep their ids.
+		 *
+		 * @param base the snapshot
+		 * @param removed the types that are removed from the snapshot, their strings are shared
+		 */
+		Builder(Snapshot base, BitSet removed) {
+			fCharCount= base.fChars.length;
+			fChars= Arrays.copyOf(base.fChars, fCharCount + (1 << 12));
+			fStringCount= base.fStringStarts.length - 1;
+			fStringStarts= Arrays.copyOf(base.fStringStarts, fStringCount + (1 << 8));
+			fTypes= new int[STRIDE << 4];
+			for (int type= removed.nextSetBit(0); type >= 0; type= removed.nextSetBit(type + 1)) {
+				shareString(base, base.get(type, PACKAGE));
+				shareString(base, base.get(type, FOLDER));
+				if (base.get(type, ENCLOSING) != -1)
+					shareString(base, base.get(type, ENCLOSING));
+			}
+		}
+
+		private void shareString(Snapshot base, int id) {
+			fSharedStrings.put(base.getString(id), Integer.valueOf(id));
+		}
+
+		@Override
+		public void acceptType(int modifiers, char[] packageName, char[] simpleTypeName, char[][] enclosingTypeNames, String path) {
+			int separator= Math.max(path.lastIndexOf('/'), path.indexOf(IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR)) + 1;
+			boolean isClassFile= path.endsWith(CLASS_EXTENSION);
+			String fileName= path.substring(separator);
+
+			if ((fTypeCount + 1) * STRIDE > fTypes.length)
+				fTypes= Arrays.copyOf(fTypes, fTypes.length * 2);
+			int offset= fTypeCount * STRIDE;
+			fTypes[offset + NAME]= addString(simpleTypeName);
+			fTypes[offset + PACKAGE]= addSharedString(new String(packageName));
+			fTypes[offset + ENCLOSING]= enclosingTypeNames.length == 0 ? -1 : addSharedString(join(enclosingTypeNames, '.'));
+			fTypes[offset + FOLDER]= addSharedString(path.substring(0, separator));
+			fTypes[offset + MODIFIERS]= modifiers;
+
+			String outermostName= new String(enclosingTypeNames.length == 0 ? simpleTypeName : enclosingTypeNames[0]);
+			if (!isClassFile && fileName.equals(outermostName + JAVA_EXTENSION)) {
+				fTypes[offset + FILE]= SOURCE_FILE;
+			} else if (isClassFile && fileName.equals(getBinaryName(simpleTypeName, enclosingTypeNames) + CLASS_EXTENSION)) {
+				fTypes[offset + FILE]= CLASS_FILE;
+			} else {
+				fTypes[offset + FILE]= addString(fileName.toCharArray());
+			}
+			fTypeCount++;
+		}
+
+		private String join(char[][] names, char separator) {
+			fBuffer.setLength(0);
+			for (int i= 0; i < names.length; i++) {
+				if (i > 0)
+					fBuffer.append(separator);
+				fBuffer.append(names[i]);
+			}
+			return fBuffer.toString();
+		}
+
+		private String getBinaryName(char[] simpleTypeName, char[][] enclosingTypeNames) {
+			if (enclosingTypeNames.length == 0)
+				return new String(simpleTypeName);
+			return join(enclosingTypeNames, '$') + '$' + new String(simpleTypeName);
+		}
+
+		private int addString(char[] string) {
+			if (fCharCount + string.length > fChars.length)
+				fChars= Arrays.copyOf(fChars, Math.max(fChars.length * 2, fCharCount + string.length));
+			System.arraycopy(string, 0, fChars, fCharCount, string.length);
+			if (fStringCount + 2 > fStringStarts.length)
+				fStringStarts= Arrays.copyOf(fStringStarts, fStringStarts.length * 2);
+			fStringStarts[fStringCount]= fCharCount;
+			fCharCount+= string.length;
+			return fStringCount++;
+		}
+
+		private int addSharedString(String string) {
+			Integer id= fSharedStrings.get(string);
+			if (id == null) {
+				id= Integer.valueOf(addString(string.toCharArray()));
+				fSharedStrings.put(string, id);
+			}
+			return id.intValue();
+		}
+
+		Snapshot build(Map<String, List<IPackageFragmentRoot>> archiveRoots, Map<IPath, IPackageFragmentRoot> folderRoots) {
+			fStringStarts[fStringCount]= fCharCount;
+			char[] chars= Arrays.copyOf(fChars, fCharCount);
+			int[] stringStarts= Arrays.copyOf(fStringStarts, fStringCount + 1);
+			int[] types= Arrays.copyOf(fTypes, fTypeCount * STRIDE);
+			return new Snapshot(chars, stringStarts, types, fTypeCount, archiveRoots, folderRoots);
+		}
+	}
+
+	private class DeltaListener implements IElementChangedListener {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			Set<IJavaElement> units= new HashSet<>();
+			if (collectChanges(event.getDelta(), units))
+				markAsStale(null);
+			else if (!units.isEmpty())
+				markAsStale(units);
+		}
+
+		/**
+		 * Collects the compilation units and class files whose types have been added, removed or
+		 * modified.
+		 *
+		 * @param delta the Java element delta
+		 * @param units the set to add the changed compilation units and class files to
+		 * @return <code>true</code> if the index must be rebuilt
+		 */
+		private boolean collectChanges(IJavaElementDelta delta, Set<IJavaElement> units) {
+			IJavaElement element= delta.getElement();
+			boolean isChanged= delta.getKind() == IJavaElementDelta.CHANGED;
+			switch (element.getElementType()) {
+				case IJavaElement.JAVA_MODEL:
+				case IJavaElement.JAVA_PROJECT:
+				case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				case IJavaElement.PACKAGE_FRAGMENT:
+					if (!isChanged || (delta.getFlags() & ~(IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_CONTENT)) != 0)
+						return true;
+					IJavaElementDelta[] children= delta.getAffectedChildren();
+					for (int i= 0; i < children.length; i++) {
+						if (collectChanges(children[i], units))
+							return true;
+					}
+					return false;
+				case IJavaElement.COMPILATION_UNIT:
+					if (!JavaModelUtil.isPrimary((ICompilationUnit) element))
+						return false;
+					int flags= delta.getFlags();
+					if (!isChanged || (flags & IJavaElementDelta.F_CONTENT) != 0 && (flags & IJavaElementDelta.F_FINE_GRAINED) == 0
+							|| isChildrenTypeChange(delta))
+						return addUnit(element, units);
+					return false;
+				case IJavaElement.CLASS_FILE:
+					return addUnit(element, units);
+				default:
+					return false;
+			}
+		}
+
+		/**
+		 * Adds a compilation unit or class file whose types have changed.
+		 *
+		 * @param unit the compilation unit or class file
+		 * @param units the set of changed compilation units and class files
+		 * @return <code>true</code> if the index must be rebuilt, since the types of the unit
+		 *         cannot be updated on their own
+		 */
+		private boolean addUnit(IJavaElement unit, Set<IJavaElement> units) {
+			IPackageFragmentRoot root= (IPackageFragmentRoot) unit.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+			if (root == null || root.isArchive() || root.isExternal())
+				return true;
+			units.add(unit);
+			return false;
+		}
+
+		/**
+		 * Tells whether a delta below a compilation unit can add, remove or modify types.
+		 *
+		 * @param delta the Java element delta
+		 * @return <code>true</code> if the types of the compilation unit must be updated
+		 */
+		private boolean isTypeChange(IJavaElementDelta delta) {
+			IJavaElement element= delta.getElement();
+			boolean isChanged= delta.getKind() == IJavaElementDelta.CHANGED;
+			switch (element.getElementType()) {
+				case IJavaElement.TYPE:
+					if (!isChanged || (delta.getFlags() & IJavaElementDelta.F_MODIFIERS) != 0)
+						return true;
+					return isChildrenTypeChange(delta);
+				default:
+					// fields, methods, imports etc.
+					return false;
+			}
+		}
+
+		private boolean isChildrenTypeChange(IJavaElementDelta delta) {
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length; i++) {
+				if (isTypeChange(children[i]))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	private class UpdateJob extends Job {
+		public UpdateJob() {
+			super(CorextMessages.TypeNameIndex_job_name);
+			setSystem(true);
+			setPriority(Job.DECORATE);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				update(monitor);
+			} catch (OperationCanceledException e) {
+				return Status.CANCEL_STATUS;
+			} catch (JavaModelException e) {
+				JavaPlugin.log(e);
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	private static TypeNameIndex fgInstance;
+
+	private volatile Snapshot fSnapshot;
+	private volatile boolean fStale= true;
+	/**
+	 * Number of changes since the creation of the index. Guarded by <code>this</code>.
+	 */
+	private int fModificationCount;
+	/**
+	 * Whether the index has to be rebuilt. Guarded by <code>this</code>.
+	 */
+	private boolean fRebuild= true;
+	/**
+	 * The compilation units and class files whose types have changed since the last update.
+	 * Guarded by <code>this</code>.
+	 */
+	private Set<IJavaElement> fChangedUnits= new HashSet<>();
+	/**
+	 * Serializes the updates
+	 */
+	private final Object fUpdateLock= new Object();
+
+	private final IElementChangedListener fDeltaListener;
+	private final UpdateJob fUpdateJob;
+
+	/**
+	 * Returns the type name index. The index is built in the background when it is first
+	 * accessed.
+	 *
+	 * @return the index
+	 */
+	public static synchronized TypeNameIndex getInstance() {
+		if (fgInstance == null) {
+			fgInstance= new TypeNameIndex();
+			fgInstance.fUpdateJob.schedule();
+		}
+		return fgInstance;
+	}
+
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		JavaCore.removeElementChangedListener(fgInstance.fDeltaListener);
+		fgInstance.fUpdateJob.cancel();
+		fgInstance= null;
+	}
+
+	private TypeNameIndex() {
+		fDeltaListener= new DeltaListener();
+		JavaCore.addElementChangedListener(fDeltaListener, ElementChangedEvent.POST_CHANGE);
+		fUpdateJob= new UpdateJob();
+	}
+
+	/**
+	 * Tells whether the index is up to date.
+	 *
+	 * @return <code>true</code> if {@link #search(TypeInfoFilter, TypeNameMatchRequestor, IProgressMonitor)}
+	 *         can be used
+	 */
+	public boolean isReady() {
+		return fSnapshot != null && !fStale;
+	}
+
+	/**
+	 * Marks the index as stale and schedules an update.
+	 *
+	 * @param units the compilation units and class files whose types have changed, or
+	 *            <code>null</code> if the index must be rebuilt
+	 */
+	private synchronized void markAsStale(Set<IJavaElement> units) {
+		if (units == null)
+			fRebuild= true;
+		else
+			fChangedUnits.addAll(units);
+		fModificationCount++;
+		fStale= true;
+		fUpdateJob.schedule(UPDATE_DELAY);
+	}
+
+	/**
+	 * Updates the index from the search engine. Waits until the search indexes are ready.
+	 *
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @throws JavaModelException if the search fails
+	 * @throws OperationCanceledException if the monitor is canceled
+	 */
+	public void update(IProgressMonitor monitor) throws JavaModelException {
+		synchronized (fUpdateLock) {
+			int modificationCount;
+			boolean rebuild;
+			Set<IJavaElement> changedUnits;
+			Snapshot snapshot= fSnapshot;
+			synchronized (this) {
+				modificationCount= fModificationCount;
+				rebuild= fRebuild || snapshot == null || snapshot.isFragmented();
+				changedUnits= fChangedUnits;
+				fRebuild= false;
+				fChangedUnits= new HashSet<>();
+			}
+			boolean updated= false;
+			try {
+				if (rebuild)
+					snapshot= rebuild(monitor);
+				else if (!changedUnits.isEmpty())
+					snapshot= patch(snapshot, changedUnits, monitor);
+				updated= true;
+			} finally {
+				synchronized (this) {
+					if (updated) {
+						fSnapshot= snapshot;
+						fStale= modificationCount != fModificationCount;
+					} else if (rebuild) {
+						fRebuild= true;
+					} else {
+						fChangedUnits.addAll(changedUnits);
+					}
+				}
+			}
+		}
+	}
+
+	private static Snapshot rebuild(IProgressMonitor monitor) throws JavaModelException {
+		Builder builder= new Builder();
+		new SearchEngine().searchAllTypeNames(
+				null,
+				0,
+				null,
+				SearchPattern.R_PREFIX_MATCH,
+				IJavaSearchConstants.TYPE,
+				SearchEngine.createWorkspaceScope(),
+				builder,
+				IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
+				monitor);
+		Map<String, List<IPackageFragmentRoot>> archiveRoots= new HashMap<>();
+		Map<IPath, IPackageFragmentRoot> folderRoots= new HashMap<>();
+		computeRoots(archiveRoots, folderRoots);
+		return builder.build(archiveRoots, folderRoots);
+	}
+
+	/**
+	 * Replaces the types of the given compilation units and class files.
+	 *
+	 * @param snapshot the current index
+	 * @param units the changed compilation units and class files in the workspace
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return the updated index
+	 * @throws JavaModelException if the search fails
+	 */
+	private static Snapshot patch(Snapshot snapshot, Set<IJavaElement> units, IProgressMonitor monitor) throws JavaModelException {
+		Set<String> paths= new HashSet<>();
+		List<IJavaElement> existing= new ArrayList<>();
+		for (IJavaElement unit : units) {
+			paths.add(unit.getPath().toString());
+			if (unit.exists())
+				existing.add(unit);
+		}
+		BitSet removed= snapshot.getTypes(paths);
+		Builder builder= new Builder(snapshot, removed);
+		if (!existing.isEmpty()) {
+			new SearchEngine().searchAllTypeNames(
+					null,
+					0,
+					null,
+					SearchPattern.R_PREFIX_MATCH,
+					IJavaSearchConstants.TYPE,
+					SearchEngine.createJavaSearchScope(existing.toArray(new IJavaElement[existing.size()])),
+					builder,
+					IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
+					monitor);
+		}
+		return snapshot.patch(removed, builder);
+	}
+
+	private static void computeRoots(Map<String, List<IPackageFragmentRoot>> archiveRoots, Map<IPath, IPackageFragmentRoot> folderRoots) throws JavaModelException {
+		IJavaProject[] projects= JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects();
+		for (int i= 0; i < projects.length; i++) {
+			IPackageFragmentRoot[] roots= projects[i].getAllPackageFragmentRoots();
+			for (int j= 0; j < roots.length; j++) {
+				IPackageFragmentRoot root= roots[j];
+				if (root.isArchive()) {
+					addArchiveRoot(archiveRoots, root.getPath().toString(), root);
+					addArchiveRoot(archiveRoots, root.getPath().toOSString(), root);
+				} else if (root.isExternal() && !folderRoots.containsKey(root.getPath())) {
+					folderRoots.put(root.getPath(), root);
+				}
+			}
+		}
+	}
+
+	private static void addArchiveRoot(Map<String, List<IPackageFragmentRoot>> archiveRoots, String path, IPackageFragmentRoot root) {
+		List<IPackageFragmentRoot> roots= archiveRoots.get(path);
+		if (roots == null) {
+			roots= new ArrayList<>(1);
+			archiveRoots.put(path, roots);
+		}
+		for (IPackageFragmentRoot existing : roots) {
+			if (existing.getElementName().equals(root.getElementName()))
+				return; // the same archive on the build path of another project
+		}
+		roots.add(root);
+	}
+
+	/**
+	 * Reports all types matching a filter, like a search with
+	 * {@link SearchEngine#searchAllTypeNames(char[], int, char[], int, int, IJavaSearchScope, TypeNameMatchRequestor, int, IProgressMonitor)}
+	 * for the name and package patterns, the element kind and the scope of the filter.
+	 *
+	 * @param filter the filter
+	 * @param requestor the requestor
+	 * @param monitor the progress monitor
+	 * @return <code>false</code> if the index is not up to date and nothing has been reported
+	 * @throws JavaModelException if a working copy cannot be accessed
+	 * @throws OperationCanceledException if the monitor is canceled
+	 */
+	public boolean search(TypeInfoFilter filter, TypeNameMatchRequestor requestor, IProgressMonitor monitor) throws JavaModelException {
+		Snapshot snapshot= fSnapshot;
+		if (snapshot == null || fStale)
+			return false;
+
+		Set<String> unsavedPaths= new HashSet<>();
+		ICompilationUnit[] workingCopies= JavaCore.getWorkingCopies(null);
+		for (int i= 0; i < workingCopies.length; i++) {
+			ICompilationUnit workingCopy= workingCopies[i];
+			if (workingCopy.hasUnsavedChanges()) {
+				unsavedPaths.add(workingCopy.getPath().toString());
+				searchWorkingCopy(workingCopy, filter, requestor);
+			}
+		}
+
+		IJavaSearchScope scope= filter.getSearchScope();
+		BitSet candidates= getCandidates(snapshot, filter.getNamePattern(), filter.getSearchFlags());
+		int count= 0;
+		for (int type= candidates.nextSetBit(0); type >= 0; type= candidates.nextSetBit(type + 1)) {
+			if (++count % 1000 == 0 && monitor != null && monitor.isCanceled())
+				throw new OperationCanceledException();
+			int modifiers= snapshot.get(type, MODIFIERS);
+			if (!filter.matchesModifiers(modifiers) || !filter.matchesName(snapshot.getString(snapshot.getName(type))))
+				continue;
+			if (!filter.matchesPackage(snapshot.getTypeContainerName(type)))
+				continue;
+			String path= snapshot.getPath(type);
+			if (unsavedPaths.contains(path) || !filter.isWorkspaceScope() && !scope.encloses(path))
+				continue;
+			IType resolved= snapshot.resolve(type);
+			if (resolved != null)
+				requestor.acceptTypeNameMatch(SearchEngine.createTypeNameMatch(resolved, modifiers));
+		}
+		return true;
+	}
+
+	private static void searchWorkingCopy(ICompilationUnit workingCopy, TypeInfoFilter filter, TypeNameMatchRequestor requestor) throws JavaModelException {
+		IType[] types= workingCopy.getAllTypes();
+		for (int i= 0; i < types.length; i++) {
+			IType type= types[i];
+			int modifiers= type.getFlags();
+			if (!filter.matchesModifiers(modifiers) || !filter.matchesName(type.getElementName()))
+				continue;
+			String packageName= type.getPackageFragment().getElementName();
+			String qualifiedName= type.getTypeQualifiedName('.');
+			int dot= qualifiedName.lastIndexOf('.');
+			String containerName= packageName;
+			if (dot != -1)
+				containerName= packageName.length() == 0 ? qualifiedName.substring(0, dot) : packageName + '.' + qualifiedName.substring(0, dot);
+			if (!filter.matchesPackage(containerName))
+				continue;
+			if (filter.isWorkspaceScope() || filter.getSearchScope().encloses(type))
+				requestor.acceptTypeNameMatch(SearchEngine.createTypeNameMatch(type, modifiers));
+		}
+	}
+
+	/**
+	 * Returns the types which can match a name pattern. The result can contain types that do not
+	 * match.
+	 *
+	 * @param snapshot the index
+	 * @param pattern the name pattern
+	 * @param matchRule the match rule of the pattern, see {@link TypeInfoFilter#getSearchFlags()}
+	 * @return the indices of the candidate types
+	 */
+	private static BitSet getCandidates(Snapshot snapshot, String pattern, int matchRule) {
+		BitSet result= new BitSet(snapshot.fTypeCount);
+		switch (matchRule) {
+			case SearchPattern.R_PATTERN_MATCH:
+				int wildcard= 0;
+				while (wildcard < pattern.length() && pattern.charAt(wildcard) != '*' && pattern.charAt(wildcard) != '?') {
+					wildcard++;
+				}
+				snapshot.addCandidates(pattern.substring(0, wildcard), null, result);
+				break;
+			case SearchPattern.R_CAMELCASE_MATCH:
+				// camel case matching falls back to prefix matching
+				snapshot.addCandidates(pattern, null, result);
+				snapshot.addCandidates(null, getInitials(pattern), result);
+				break;
+			case SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH:
+				snapshot.addCandidates(null, getInitials(pattern), result);
+				break;
+			default: // exact and prefix match ignore case
+				snapshot.addCandidates(pattern, null, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the first character and all upper case characters of a camel case pattern. All names
+	 * matching the pattern start with the same initials, since each upper case character of the
+	 * pattern matches the next upper case character of the name.
+	 *
+	 * @param pattern the camel case pattern
+	 * @return the initials
+	 */
+	private static String getInitials(String pattern) {
+		StringBuffer buf= new StringBuffer();
+		for (int i= 0; i < pattern.length(); i++) {
+			char ch= pattern.charAt(i);
+			if (i == 0 || Character.isUpperCase(ch))
+				buf.append(ch);
+		}
+		return buf.toString();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 IBM Corporation and others.
+ * Copyright (c) 2008, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,12 +13,16 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.jarinjarloader;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.security.CodeSource;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
@@ -40,6 +44,8 @@ public class JarRsrcLoader {
 	}
 	
 	public static void main(String[] args) throws ClassNotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException, SecurityException, NoSuchMethodException, IOException {
+		long start = System.currentTimeMillis();
+		boolean trace = Boolean.getBoolean(JIJConstants.TRACE_PROPERTY);
 		ManifestInfo mi = getManifestInfo();
 		ClassLoader cl = Thread.currentThread().getContextClassLoader();
 		URL.setURLStreamHandlerFactory(new RsrcURLStreamHandlerFactory(cl));
@@ -51,13 +57,89 @@ public class JarRsrcLoader {
 			else
 				rsrcUrls[i] = new URL(JIJConstants.JAR_INTERNAL_URL_PROTOCOL_WITH_COLON + rsrcPath + JIJConstants.JAR_INTERNAL_SEPARATOR);    
 		}
-		ClassLoader jceClassLoader = new URLClassLoader(rsrcUrls, null);
+		ClassLoader jceClassLoader = createClassLoader(mi.rsrcClassPath, rsrcUrls, trace);
 		Thread.currentThread().setContextClassLoader(jceClassLoader);
 		Class c = Class.forName(mi.rsrcMainClass, true, jceClassLoader);
 		Method main = c.getMethod(JIJConstants.MAIN_METHOD_NAME, new Class[]{args.getClass()}); 
+		if (trace)
+			System.err.println("JarRsrcLoader: main class loaded in " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
 		main.invoke((Object)null, new Object[]{args});
 	}
 
+	/**
+	 * Creates the class loader for the Rsrc-Class-Path. Unless disabled with the system property
+	 * <code>jarinjarloader.index=false</code>, the entries of all libraries are indexed once, so
+	 * that classes can be read directly from the runnable JAR. If not all libraries can be indexed,
+	 * e.g. because they are compressed, a URL class loader is used.
+	 * 
+	 * @param rsrcClassPath the entries of the Rsrc-Class-Path
+	 * @param rsrcUrls the rsrc URLs of the entries
+	 * @param trace whether to report the time needed to build the index
+	 * @return the class loader
+	 */
+	private static ClassLoader createClassLoader(String[] rsrcClassPath, URL[] rsrcUrls, boolean trace) {
+		if (!"false".equals(System.getProperty(JIJConstants.INDEX_PROPERTY))) { //$NON-NLS-1$
+			long start = System.currentTimeMillis();
+			File archive = getArchive();
+			RsrcIndex index = archive != null ? RsrcIndex.create(archive, rsrcClassPath, rsrcUrls) : null;
+			if (trace) {
+				if (index != null)
+					System.err.println("JarRsrcLoader: indexed " + index.size() + " entries in " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				else
+					System.err.println("JarRsrcLoader: class path cannot be indexed"); //$NON-NLS-1$
+			}
+			if (index != null)
+				return new RsrcIndexClassLoader(rsrcUrls, index);
+		}
+		return new URLClassLoader(rsrcUrls, null);
+	}
+
+	private static File getArchive() {
+		try {
+			CodeSource codeSource = JarRsrcLoader.class.getProtectionDomain().getCodeSource();
+			if (codeSource == null || codeSource.getLocation() == null)
+				return null;
+			URL location = codeSource.getLocation();
+			if (!"file".equals(location.getProtocol())) //$NON-NLS-1$
+				return null;
+			File archive = new File(decodePath(location.getFile()));
+			return archive.isFile() ? archive : null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Decodes the escaped octets of a URL path. Unlike URLDecoder, '+' is kept, since it only
+	 * stands for a space in form data. JDK 1.3 cannot decode UTF-8 with URLDecoder either.
+	 * 
+	 * @param path the path of a file URL
+	 * @return the decoded path
+	 * @throws UnsupportedEncodingException if UTF-8 is not supported
+	 */
+	static String decodePath(String path) throws UnsupportedEncodingException {
+		if (path.indexOf('%') == -1)
+			return path;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(path.length());
+		StringBuffer result = new StringBuffer(path.length());
+		for (int i = 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+			if (c == '%' && i + 2 < path.length() && Character.digit(path.charAt(i + 1), 16) != -1 && Character.digit(path.charAt(i + 2), 16) != -1) {
+				bytes.write(Character.digit(path.charAt(i + 1), 16) << 4 | Character.digit(path.charAt(i + 2), 16));
+				i += 2;
+			} else {
+				if (bytes.size() > 0) {
+					result.append(new String(bytes.toByteArray(), JIJConstants.UTF8_ENCODING));
+					bytes.reset();
+				}
+				result.append(c);
+			}
+		}
+		if (bytes.size() > 0)
+			result.append(new String(bytes.toByteArray(), JIJConstants.UTF8_ENCODING));
+		return result.toString();
+	}
+
 	private static ManifestInfo getManifestInfo() throws IOException {
 		Enumeration resEnum;
 		resEnum = Thread.currentThread().getContextClassLoader().getResources(JarFile.MANIFEST_NAME); 
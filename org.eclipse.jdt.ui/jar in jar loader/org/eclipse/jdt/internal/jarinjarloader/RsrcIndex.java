@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.jarinjarloader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.cert.Certificate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * This class will be compiled into the binary jar-in-jar-loader.zip. This ZIP is used for the
+ * "Runnable JAR File Exporter"
+ *
+ * Index of all entries on the Rsrc-Class-Path, built once from the central directories of the
+ * runnable JAR and of the libraries stored in it. Libraries have to be stored uncompressed, so
+ * that their entries can be read in place instead of scanning the libraries as streams.
+ *
+ * @since 3.14
+ */
+final class RsrcIndex {
+
+	static final class Entry {
+		final int classPathIndex;
+		final long offset;
+		final int method;
+		final int compressedSize;
+		final int size;
+
+		Entry(int classPathIndex, long offset, int method, int compressedSize, int size) {
+			this.classPathIndex = classPathIndex;
+			this.offset = offset;
+			this.method = method;
+			this.compressedSize = compressedSize;
+			this.size = size;
+		}
+	}
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_SIZE = 22;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	private final RandomAccessFile file;
+	private final URL[] urls;
+	private final Map entries = new HashMap(); // String -> Entry
+	private final Entry[] manifestEntries;
+	private final Manifest[] manifests;
+	private final CodeSource[] codeSources;
+
+	private RsrcIndex(RandomAccessFile file, URL[] urls) {
+		this.file = file;
+		this.urls = urls;
+		this.manifestEntries = new Entry[urls.length];
+		this.manifests = new Manifest[urls.length];
+		this.codeSources = new CodeSource[urls.length];
+	}
+
+	/**
+	 * Indexes the Rsrc-Class-Path.
+	 *
+	 * @param archive the runnable JAR
+	 * @param classPath the entries of the Rsrc-Class-Path
+	 * @param urls the rsrc URLs of the class path entries
+	 * @return the index, or <code>null</code> if not all class path entries can be indexed
+	 */
+	static RsrcIndex create(File archive, String[] classPath, URL[] urls) {
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(archive, "r"); //$NON-NLS-1$
+			RsrcIndex index = new RsrcIndex(file, urls);
+			if (index.indexClassPath(classPath))
+				return index;
+		} catch (IOException e) {
+			// fall through, use the URL class loader
+		}
+		if (file != null) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+		return null;
+	}
+
+	private boolean indexClassPath(String[] classPath) throws IOException {
+		Map archiveEntries = readDirectory(0, file.length());
+		if (archiveEntries == null)
+			return false;
+		for (int i = 0; i < classPath.length; i++) {
+			String path = classPath[i];
+			if (path.endsWith(JIJConstants.PATH_SEPARATOR)) {
+				String prefix = path.equals(JIJConstants.CURRENT_DIR) ? "" : path; //$NON-NLS-1$
+				addEntries(archiveEntries, prefix, i);
+			} else {
+				Entry library = (Entry) archiveEntries.get(path);
+				if (library == null || library.method != ZipEntry.STORED)
+					return false;
+				Map libraryEntries = readDirectory(getDataOffset(library), library.size);
+				if (libraryEntries == null || isSigned(libraryEntries))
+					return false;
+				addEntries(libraryEntries, "", i); //$NON-NLS-1$
+			}
+		}
+		return true;
+	}
+
+	private void addEntries(Map directory, String prefix, int classPathIndex) {
+		for (Iterator iter = directory.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry mapEntry = (Map.Entry) iter.next();
+			String name = (String) mapEntry.getKey();
+			if (!name.startsWith(prefix) || name.endsWith(JIJConstants.PATH_SEPARATOR))
+				continue;
+			name = name.substring(prefix.length());
+			Entry entry = (Entry) mapEntry.getValue();
+			entry = new Entry(classPathIndex, entry.offset, entry.method, entry.compressedSize, entry.size);
+			if (name.equals(JarFile.MANIFEST_NAME))
+				manifestEntries[classPathIndex] = entry;
+			if (!entries.containsKey(name))
+				entries.put(name, entry);
+		}
+	}
+
+	/**
+	 * Signatures are verified by the URL class loader only.
+	 *
+	 * @param directory the entries of a library
+	 * @return <code>true</code> if the library is signed
+	 */
+	private static boolean isSigned(Map directory) {
+		for (Iterator iter = directory.keySet().iterator(); iter.hasNext();) {
+			String name = ((String) iter.next()).toUpperCase();
+			if (name.startsWith("META-INF/") && name.endsWith(".SF")) //$NON-NLS-1$ //$NON-NLS-2$
+				return true;
+		}
+		return false;
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	Entry getEntry(String name) {
+		return (Entry) entries.get(name);
+	}
+
+	URL getURL(Entry entry, String name) throws MalformedURLException {
+		return new URL(urls[entry.classPathIndex], name);
+	}
+
+	synchronized CodeSource getCodeSource(Entry entry) {
+		int index = entry.classPathIndex;
+		if (codeSources[index] == null)
+			codeSources[index] = new CodeSource(urls[index], (Certificate[]) null);
+		return codeSources[index];
+	}
+
+	synchronized Manifest getManifest(Entry entry) throws IOException {
+		int index = entry.classPathIndex;
+		if (manifests[index] == null && manifestEntries[index] != null)
+			manifests[index] = new Manifest(new ByteArrayInputStream(read(manifestEntries[index])));
+		return manifests[index];
+	}
+
+	URL getCodeSourceURL(Entry entry) {
+		return urls[entry.classPathIndex];
+	}
+
+	/**
+	 * Reads the content of an entry.
+	 *
+	 * @param entry the entry
+	 * @return the uncompressed content
+	 * @throws IOException if the entry cannot be read
+	 */
+	synchronized byte[] read(Entry entry) throws IOException {
+		long dataOffset = getDataOffset(entry);
+		if (entry.method == ZipEntry.STORED)
+			return read(dataOffset, entry.size);
+		if (entry.method != ZipEntry.DEFLATED)
+			throw new ZipException("unsupported compression method"); //$NON-NLS-1$
+
+		// nowrap inflaters may need an extra dummy byte
+		byte[] compressed = new byte[entry.compressedSize + 1];
+		file.seek(dataOffset);
+		file.readFully(compressed, 0, entry.compressedSize);
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(compressed);
+			byte[] result = new byte[entry.size];
+			int length = 0;
+			while (length < result.length) {
+				int count = inflater.inflate(result, length, result.length - length);
+				if (count == 0 && (inflater.finished() || inflater.needsInput()))
+					throw new ZipException("unexpected end of entry"); //$NON-NLS-1$
+				length += count;
+			}
+			return result;
+		} catch (DataFormatException e) {
+			throw new ZipException(e.getMessage());
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private long getDataOffset(Entry entry) throws IOException {
+		byte[] header = read(entry.offset, LOCAL_HEADER_SIZE);
+		if (getInt(header, 0) != LOCAL_HEADER_SIGNATURE)
+			throw new ZipException("invalid local header"); //$NON-NLS-1$
+		return entry.offset + LOCAL_HEADER_SIZE + getShort(header, 26) + getShort(header, 28);
+	}
+
+	/**
+	 * Reads the central directory of the ZIP archive in the given range of the file.
+	 *
+	 * @param start the start of the archive
+	 * @param length the length of the archive
+	 * @return the entries by name, or <code>null</code> if the archive is not supported
+	 * @throws IOException if the file cannot be read
+	 */
+	private Map readDirectory(long start, long length) throws IOException {
+		int tailLength = (int) Math.min(length, END_SIZE + MAX_COMMENT_SIZE);
+		byte[] tail = read(start + length - tailLength, tailLength);
+		int end = -1;
+		for (int i = tailLength - END_SIZE; i >= 0; i--) {
+			if (getInt(tail, i) == END_SIGNATURE) {
+				end = i;
+				break;
+			}
+		}
+		if (end == -1)
+			return null;
+		int count = getShort(tail, end + 10);
+		long directorySize = getInt(tail, end + 12);
+		long directoryOffset = getInt(tail, end + 16);
+		if (count == 0xFFFF || directorySize == ZIP64_MAGIC || directoryOffset == ZIP64_MAGIC)
+			return null; // zip64 archives are left to the URL class loader
+
+		byte[] directory = read(start + directoryOffset, (int) directorySize);
+		Map result = new HashMap(count * 2);
+		int position = 0;
+		for (int i = 0; i < count; i++) {
+			if (getInt(directory, position) != CENTRAL_HEADER_SIGNATURE)
+				return null;
+			int method = getShort(directory, position + 10);
+			long compressedSize = getInt(directory, position + 20);
+			long size = getInt(directory, position + 24);
+			int nameLength = getShort(directory, position + 28);
+			int extraLength = getShort(directory, position + 30);
+			int commentLength = getShort(directory, position + 32);
+			long offset = getInt(directory, position + 42);
+			if (compressedSize >= Integer.MAX_VALUE || size >= Integer.MAX_VALUE || offset == ZIP64_MAGIC)
+				return null;
+			String name = new String(directory, position + CENTRAL_HEADER_SIZE, nameLength, JIJConstants.UTF8_ENCODING);
+			result.put(name, new Entry(-1, start + offset, method, (int) compressedSize, (int) size));
+			position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+		}
+		return result;
+	}
+
+	private byte[] read(long position, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		file.seek(position);
+		file.readFully(bytes);
+		return bytes;
+	}
+
+	private static int getShort(byte[] bytes, int index) {
+		return (bytes[index] & 0xFF) | (bytes[index + 1] & 0xFF) << 8;
+	}
+
+	private static long getInt(byte[] bytes, int index) {
+		return getShort(bytes, index) | (long) getShort(bytes, index + 2) << 16;
+	}
+}
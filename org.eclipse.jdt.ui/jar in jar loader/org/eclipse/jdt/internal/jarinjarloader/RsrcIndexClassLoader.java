@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.jarinjarloader;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.jar.Manifest;
+
+/**
+ * This class will be compiled into the binary jar-in-jar-loader.zip. This ZIP is used for the
+ * "Runnable JAR File Exporter"
+ *
+ * Class loader for the Rsrc-Class-Path that looks up classes and resources in a {@link RsrcIndex}
+ * and reads class files directly from the runnable JAR. Lookups that miss the index do not have to
+ * search the nested libraries. Everything the index cannot serve is left to the URL class loader.
+ *
+ * @since 3.14
+ */
+public class RsrcIndexClassLoader extends URLClassLoader {
+
+	private final RsrcIndex index;
+
+	RsrcIndexClassLoader(URL[] urls, RsrcIndex index) {
+		super(urls, null);
+		this.index = index;
+	}
+
+	protected Class findClass(String name) throws ClassNotFoundException {
+		RsrcIndex.Entry entry = index.getEntry(name.replace('.', '/') + JIJConstants.CLASS_FILE_EXTENSION);
+		if (entry == null)
+			throw new ClassNotFoundException(name);
+		byte[] bytes;
+		try {
+			bytes = index.read(entry);
+			definePackage(name, entry);
+		} catch (IOException e) {
+			return super.findClass(name);
+		}
+		return defineClass(name, bytes, 0, bytes.length, index.getCodeSource(entry));
+	}
+
+	private void definePackage(String className, RsrcIndex.Entry entry) throws IOException {
+		int lastDot = className.lastIndexOf('.');
+		if (lastDot == -1)
+			return;
+		String packageName = className.substring(0, lastDot);
+		if (getPackage(packageName) != null)
+			return;
+		try {
+			Manifest manifest = index.getManifest(entry);
+			if (manifest != null)
+				definePackage(packageName, manifest, index.getCodeSourceURL(entry));
+			else
+				definePackage(packageName, null, null, null, null, null, null, null);
+		} catch (IllegalArgumentException e) {
+			// defined concurrently
+		}
+	}
+
+	public URL findResource(String name) {
+		if (name.endsWith(JIJConstants.PATH_SEPARATOR))
+			return super.findResource(name); // directories are not indexed
+		RsrcIndex.Entry entry = index.getEntry(name);
+		if (entry == null)
+			return null;
+		try {
+			return index.getURL(entry, name);
+		} catch (MalformedURLException e) {
+			return super.findResource(name);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -480,6 +480,11 @@ public interface IJavaHelpContextIds {
 	 */
 	public static final String CALL_HIERARCHY_SEARCH_IN_DIALOG= PREFIX + "call_hierarchy_search_in_dialog_context"; //$NON-NLS-1$
 	public static final String CALL_HIERARCHY_PIN_VIEW_ACTION= PREFIX + "call_hierarchy_pin_view_action_context"; //$NON-NLS-1$
+
+	/**
+	 * @since 3.14
+	 */
+	public static final String CALL_HIERARCHY_EXPAND_ALL_ACTION= PREFIX + "call_hierarchy_expand_all_action_context"; //$NON-NLS-1$
 	/**
 	 * @since 3.2
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -235,6 +235,7 @@ public class CallHierarchyViewPart extends ViewPart implements ICallHierarchyVie
     private CancelSearchAction fCancelSearchAction;
     private ExpandWithConstructorsAction fExpandWithConstructorsAction;
     private RemoveFromViewAction fRemoveFromViewAction;
+    private ExpandAllAction fExpandAllAction;
     private ShowSearchInDialogAction fShowSearchInDialogAction;
     private CompositeActionGroup fActionGroups;
     private CallHierarchyViewer fCallHierarchyViewer;
@@ -1024,6 +1025,9 @@ public class CallHierarchyViewPart extends ViewPart implements ICallHierarchyVie
         if (fRemoveFromViewAction.canActionBeAdded()){
         	menu.appendToGroup(GROUP_FOCUS, fRemoveFromViewAction);
         }
+        if (fExpandAllAction.canActionBeAdded()) {
+        	menu.appendToGroup(GROUP_FOCUS, fExpandAllAction);
+        }
 
         fActionGroups.setContext(new ActionContext(getSelection()));
         fActionGroups.fillContextMenu(menu);
@@ -1073,6 +1077,7 @@ public class CallHierarchyViewPart extends ViewPart implements ICallHierarchyVie
         setCancelEnabled(false);
         fExpandWithConstructorsAction= new ExpandWithConstructorsAction(this, fCallHierarchyViewer);
         fRemoveFromViewAction= new RemoveFromViewAction(this, fCallHierarchyViewer);
+        fExpandAllAction= new ExpandAllAction(this, fCallHierarchyViewer);
         fPinViewAction= new PinCallHierarchyViewAction(this);
         fToggleOrientationActions = new ToggleOrientationAction[] {
                 new ToggleOrientationAction(this, VIEW_ORIENTATION_VERTICAL),
@@ -1277,6 +1282,7 @@ public class CallHierarchyViewPart extends ViewPart implements ICallHierarchyVie
      * Cancels the caller/callee search jobs that are currently running.
      */
     void cancelJobs() {
+        fExpandAllAction.cancel();
         fCallHierarchyViewer.cancelJobs();
     }
 
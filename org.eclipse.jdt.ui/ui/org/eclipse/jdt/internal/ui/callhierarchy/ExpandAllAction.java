@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.callhierarchy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.swt.widgets.Control;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.viewers.IStructuredSelection;
+
+import org.eclipse.ui.PlatformUI;
+
+import org.eclipse.jdt.internal.corext.callhierarchy.CallerMethodWrapper;
+import org.eclipse.jdt.internal.corext.callhierarchy.CallerSearchEngine;
+import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
+
+import org.eclipse.jdt.internal.ui.IJavaHelpContextIds;
+
+/**
+ * Expands the selected nodes of the Call Hierarchy view down to the maximum call depth. The calls
+ * are found in the background by a {@link CallerSearchEngine}, and the nodes are expanded as soon
+ * as their calls are known.
+ *
+ * @since 3.14
+ */
+class ExpandAllAction extends Action {
+
+	private final CallHierarchyViewPart fPart;
+
+	private final CallHierarchyViewer fViewer;
+
+	private Job fJob;
+
+	/**
+	 * Wrappers whose calls have been found, but which have not been expanded yet. Guarded by
+	 * <code>this</code>.
+	 */
+	private List<MethodWrapper> fPendingWrappers= new ArrayList<>();
+
+	/**
+	 * Creates the expand all action.
+	 *
+	 * @param part the call hierarchy view part
+	 * @param viewer the call hierarchy viewer
+	 */
+	public ExpandAllAction(CallHierarchyViewPart part, CallHierarchyViewer viewer) {
+		fPart= part;
+		fViewer= viewer;
+		setText(CallHierarchyMessages.ExpandAllAction_text);
+		setDescription(CallHierarchyMessages.ExpandAllAction_description);
+		setToolTipText(CallHierarchyMessages.ExpandAllAction_tooltip);
+		PlatformUI.getWorkbench().getHelpSystem().setHelp(this, IJavaHelpContextIds.CALL_HIERARCHY_EXPAND_ALL_ACTION);
+	}
+
+	/*
+	 * @see org.eclipse.jface.action.Action#run()
+	 */
+	@Override
+	public void run() {
+		cancel();
+		IStructuredSelection selection= (IStructuredSelection) fPart.getSelection();
+		List<MethodWrapper> wrappers= new ArrayList<>();
+		for (Iterator<?> iter= selection.iterator(); iter.hasNext();) {
+			Object element= iter.next();
+			if (element instanceof MethodWrapper)
+				wrappers.add((MethodWrapper) element);
+		}
+		if (wrappers.isEmpty())
+			return;
+
+		final MethodWrapper[] roots= wrappers.toArray(new MethodWrapper[wrappers.size()]);
+		final int maxDepth= CallHierarchyUI.getDefault().getMaxCallDepth();
+		fJob= new Job(CallHierarchyMessages.ExpandAllAction_job_name) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					new CallerSearchEngine().expand(roots, maxDepth, new ExpansionListener(), monitor);
+				} catch (OperationCanceledException e) {
+					return Status.CANCEL_STATUS;
+				} finally {
+					asyncExec(new Runnable() {
+						@Override
+						public void run() {
+							fPart.setCancelEnabled(false);
+						}
+					});
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		fPart.setCancelEnabled(true);
+		fJob.schedule();
+	}
+
+	/**
+	 * Cancels the running expansion, if any.
+	 */
+	void cancel() {
+		if (fJob != null) {
+			fJob.cancel();
+			fJob= null;
+		}
+	}
+
+	/**
+	 * Checks whether this action can be added for the selected element in the call hierarchy.
+	 *
+	 * @return <code> true</code> if the action can be added, <code>false</code> otherwise
+	 */
+	protected boolean canActionBeAdded() {
+		IStructuredSelection selection= (IStructuredSelection) fPart.getSelection();
+		if (selection.isEmpty())
+			return false;
+		for (Iterator<?> iter= selection.iterator(); iter.hasNext();) {
+			if (!(iter.next() instanceof MethodWrapper))
+				return false;
+		}
+		return true;
+	}
+
+	private void asyncExec(Runnable runnable) {
+		Control control= fViewer.getControl();
+		if (!control.isDisposed())
+			control.getDisplay().asyncExec(runnable);
+	}
+
+	/**
+	 * Expands the nodes in the UI thread, in the order in which their calls have been found.
+	 */
+	private void expandPendingWrappers() {
+		List<MethodWrapper> wrappers;
+		synchronized (this) {
+			wrappers= fPendingWrappers;
+			fPendingWrappers= new ArrayList<>();
+		}
+		if (fViewer.getControl().isDisposed())
+			return;
+		for (MethodWrapper wrapper : wrappers) {
+			fViewer.setExpandedState(wrapper, true);
+		}
+	}
+
+	private class ExpansionListener implements CallerSearchEngine.IExpansionListener {
+
+		@Override
+		public boolean shouldExpand(MethodWrapper wrapper) {
+			if (wrapper instanceof CallerMethodWrapper) {
+				// the children of such nodes are the constructors, not the calls
+				CallerMethodWrapper caller= (CallerMethodWrapper) wrapper;
+				CallHierarchyContentProvider.ensureDefaultExpandWithConstructors(caller);
+				return !caller.getExpandWithConstructors();
+			}
+			return true;
+		}
+
+		@Override
+		public void callsFound(MethodWrapper wrapper, MethodWrapper[] calls) {
+			boolean schedule;
+			synchronized (ExpandAllAction.this) {
+				schedule= fPendingWrappers.isEmpty();
+				fPendingWrappers.add(wrapper);
+			}
+			if (schedule) {
+				asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						expandPendingWrappers();
+					}
+				});
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -96,6 +96,7 @@ import org.eclipse.jdt.internal.corext.util.Strings;
 import org.eclipse.jdt.internal.corext.util.TypeFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoRequestorAdapter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 
 import org.eclipse.jdt.launching.IVMInstall;
 import org.eclipse.jdt.launching.IVMInstallType;
@@ -500,9 +501,17 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 	protected void fillContentProvider(AbstractContentProvider provider, ItemsFilter itemsFilter, IProgressMonitor progressMonitor) throws CoreException {
 		TypeItemsFilter typeSearchFilter= (TypeItemsFilter) itemsFilter;
 		TypeSearchRequestor requestor= new TypeSearchRequestor(provider, typeSearchFilter);
+		progressMonitor.setTaskName(JavaUIMessages.FilteredTypesSelectionDialog_searchJob_taskName);
+
+		/*
+		 * Filter the types in memory if the type name index is up to date. The filter is not in
+		 * match everything mode, since the index may report types that do not match.
+		 */
+		if (TypeNameIndex.getInstance().search(typeSearchFilter.getTypeInfoFilter(), requestor, progressMonitor))
+			return;
+
 		SearchEngine engine= new SearchEngine((WorkingCopyOwner) null);
 		String packPattern= typeSearchFilter.getPackagePattern();
-		progressMonitor.setTaskName(JavaUIMessages.FilteredTypesSelectionDialog_searchJob_taskName);
 
 		/*
 		 * Setting the filter into match everything mode avoids filtering twice
@@ -576,6 +585,10 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 	private static class ConsistencyRunnable implements IRunnableWithProgress {
 		@Override
 		public void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+			if (fgFirstTime && TypeNameIndex.getInstance().isReady()) {
+				// building the index has already waited for the search indexes
+				fgFirstTime= false;
+			}
 			if (fgFirstTime) {
 				// Join the initialize after load job.
 				IJobManager manager= Job.getJobManager();
@@ -1030,6 +1043,10 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 			return true;
 		}
 
+		public TypeInfoFilter getTypeInfoFilter() {
+			return fTypeInfoFilter;
+		}
+
 		public int getElementKind() {
 			return fTypeInfoFilter.getElementKind();
 		}
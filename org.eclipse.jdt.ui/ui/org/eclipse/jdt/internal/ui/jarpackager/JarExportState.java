@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.jarpackager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * The state of the file entries of an exported JAR, used to export it incrementally.
+ * <p>
+ * For each entry the modification stamp and length of the exported file and a digest of its
+ * content are recorded. An entry whose file has not changed since the previous export can be
+ * copied from the previous archive without compressing it again. The state belongs to exactly one
+ * archive; it is discarded if the archive has been changed by someone else.
+ * </p>
+ * <p>
+ * The state is stored in the plug-in's state location, keyed by the location of the archive.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class JarExportState {
+
+	private static final String DIRECTORY= "jarExportState"; //$NON-NLS-1$
+
+	private static final int VERSION= 1;
+
+	private static final String DIGEST_ALGORITHM= "SHA-1"; //$NON-NLS-1$
+
+	/**
+	 * The recorded state of a single entry.
+	 */
+	public static class Record {
+		private final long fStamp;
+		private final long fLength;
+		private final byte[] fDigest;
+
+		public Record(long stamp, long length, byte[] digest) {
+			fStamp= stamp;
+			fLength= length;
+			fDigest= digest;
+		}
+
+		/**
+		 * Tells whether the file has the same modification stamp and length as when the record
+		 * was taken.
+		 *
+		 * @param stamp the current modification stamp of the file
+		 * @param length the current length of the file
+		 * @return <code>true</code> if the file is considered unchanged
+		 */
+		public boolean isUnchanged(long stamp, long length) {
+			return fStamp == stamp && fLength == length;
+		}
+
+		/**
+		 * Tells whether the content has the recorded digest.
+		 *
+		 * @param digest the digest of the content
+		 * @return <code>true</code> if the content is the same
+		 */
+		public boolean hasDigest(byte[] digest) {
+			return MessageDigest.isEqual(fDigest, digest);
+		}
+	}
+
+	private final Map<String, Record> fRecords= new HashMap<>();
+
+	/**
+	 * Returns the recorded state of an entry.
+	 *
+	 * @param name the name of the entry in the archive
+	 * @return the record, or <code>null</code> if none
+	 */
+	public Record get(String name) {
+		return fRecords.get(name);
+	}
+
+	/**
+	 * Records the state of an entry.
+	 *
+	 * @param name the name of the entry in the archive
+	 * @param record the record
+	 */
+	public void put(String name, Record record) {
+		fRecords.put(name, record);
+	}
+
+	/**
+	 * Reads the state recorded for an archive.
+	 *
+	 * @param archive the archive
+	 * @return the state, or <code>null</code> if no state has been recorded or if the archive has
+	 *         been changed since
+	 */
+	public static JarExportState read(File archive) {
+		File file= getStateFile(archive);
+		if (!file.exists() || !archive.exists())
+			return null;
+		try {
+			DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (in.readInt() != VERSION)
+					return null;
+				if (in.readLong() != archive.length() || in.readLong() != archive.lastModified())
+					return null;
+				JarExportState state= new JarExportState();
+				int count= in.readInt();
+				for (int i= 0; i < count; i++) {
+					String name= in.readUTF();
+					long stamp= in.readLong();
+					long length= in.readLong();
+					byte[] digest= new byte[in.readUnsignedByte()];
+					in.readFully(digest);
+					state.put(name, new Record(stamp, length, digest));
+				}
+				return state;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the state of an archive. The archive must have been written completely.
+	 *
+	 * @param archive the archive
+	 */
+	public void write(File archive) {
+		File file= getStateFile(archive);
+		File tempFile= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		try {
+			file.getParentFile().mkdirs();
+			DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				out.writeInt(VERSION);
+				out.writeLong(archive.length());
+				out.writeLong(archive.lastModified());
+				out.writeInt(fRecords.size());
+				for (Map.Entry<String, Record> entry : fRecords.entrySet()) {
+					Record record= entry.getValue();
+					out.writeUTF(entry.getKey());
+					out.writeLong(record.fStamp);
+					out.writeLong(record.fLength);
+					out.writeByte(record.fDigest.length);
+					out.write(record.fDigest);
+				}
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			tempFile.delete();
+			JavaPlugin.log(e);
+		}
+	}
+
+	/**
+	 * Computes the digest of a content.
+	 *
+	 * @param content the content
+	 * @return the digest
+	 */
+	public static byte[] digest(byte[] content) {
+		return getDigest().digest(content);
+	}
+
+	/**
+	 * Computes the digest of a content without reading it into memory.
+	 *
+	 * @param content the content, will be closed
+	 * @return the digest
+	 * @throws IOException if an I/O error has occurred
+	 */
+	public static byte[] digest(InputStream content) throws IOException {
+		MessageDigest digest= getDigest();
+		try {
+			byte[] buffer= new byte[8192];
+			int count;
+			while ((count= content.read(buffer, 0, buffer.length)) != -1)
+				digest.update(buffer, 0, count);
+		} finally {
+			content.close();
+		}
+		return digest.digest();
+	}
+
+	private static MessageDigest getDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has to support SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static File getStateFile(File archive) {
+		byte[] key= getDigest().digest(archive.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+		StringBuffer name= new StringBuffer();
+		for (int i= 0; i < key.length; i++) {
+			name.append(Character.forDigit((key[i] >> 4) & 0xF, 16));
+			name.append(Character.forDigit(key[i] & 0xF, 16));
+		}
+		name.append(".dat"); //$NON-NLS-1$
+		return JavaPlugin.getDefault().getStateLocation().append(DIRECTORY).append(name.toString()).toFile();
+	}
+}
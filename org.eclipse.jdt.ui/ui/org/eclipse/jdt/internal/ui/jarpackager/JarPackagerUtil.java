@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -69,6 +69,19 @@ public final class JarPackagerUtil {
 	private static final String META_INF_ENTRY= "META-INF"; //$NON-NLS-1$
 	private static final String REFACTORINGS_ENTRY= META_INF_ENTRY + "/REFACTORINGS.XML"; //$NON-NLS-1$
 
+	/**
+	 * The maximum size of an array that can be allocated on all VMs
+	 */
+	private static final int MAX_ARRAY_SIZE= Integer.MAX_VALUE - 8;
+
+	/**
+	 * Files smaller than this are read into memory before they are written, larger files are
+	 * streamed
+	 *
+	 * @since 3.14
+	 */
+	public static final int MAX_BUFFERED_SIZE= 8 * 1024 * 1024;
+
 	private JarPackagerUtil() {
 		// Do nothing
 	}
@@ -281,6 +294,115 @@ public final class JarPackagerUtil {
 		entry.setCrc(crc.getValue());
 	}
 
+	/**
+	 * Calculates the crc and size of the given content and updates the entry.
+	 *
+	 * @param entry
+	 *            the jar entry to update
+	 * @param content
+	 *            the complete content of the entry
+	 * @since 3.14
+	 */
+	public static void calculateCrcAndSize(final ZipEntry entry, final byte[] content) {
+		final CRC32 crc= new CRC32();
+		crc.update(content, 0, content.length);
+		entry.setSize(content.length);
+		entry.setCrc(crc.getValue());
+	}
+
+	/**
+	 * Reads the complete content of the stream and closes it.
+	 *
+	 * @param stream
+	 *            the input stream
+	 * @param sizeHint
+	 *            the expected number of bytes, or <code>-1</code> if unknown
+	 * @return the content
+	 *
+	 * @throws IOException
+	 *             if an input/output error occurs, or if the content does not fit into an array
+	 * @since 3.14
+	 */
+	public static byte[] readContents(final InputStream stream, final long sizeHint) throws IOException {
+		try {
+			byte[] content= readContents(stream, sizeHint, MAX_ARRAY_SIZE);
+			if (content.length == MAX_ARRAY_SIZE && stream.read() != -1)
+				throw new IOException("Content is too large to be read into memory"); //$NON-NLS-1$
+			return content;
+		} finally {
+			try {
+				stream.close();
+			} catch (IOException exception) {
+				// Do nothing
+			}
+		}
+	}
+
+	/**
+	 * Reads the content of the stream, but not more than the given number of bytes. The stream is
+	 * not closed.
+	 *
+	 * @param stream
+	 *            the input stream
+	 * @param sizeHint
+	 *            the expected number of bytes, or <code>-1</code> if unknown
+	 * @param limit
+	 *            the maximum number of bytes to read
+	 * @return the content; if it has <code>limit</code> bytes, the stream may have more
+	 *
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 * @since 3.14
+	 */
+	public static byte[] readContents(final InputStream stream, final long sizeHint, final int limit) throws IOException {
+		byte[] content= new byte[(int) Math.min(sizeHint >= 0 ? sizeHint : 4096, limit)];
+		int length= 0;
+		while (length < limit) {
+			if (length == content.length) {
+				int next= stream.read();
+				if (next == -1)
+					return content;
+				content= Arrays.copyOf(content, (int) Math.min(Math.max(4096, content.length * 2L), limit));
+				content[length++]= (byte) next;
+			} else {
+				int count= stream.read(content, length, content.length - length);
+				if (count == -1)
+					return Arrays.copyOf(content, length);
+				length+= count;
+			}
+		}
+		return content;
+	}
+
+	/**
+	 * Reads the content of the stream into memory if it is smaller than
+	 * {@link #MAX_BUFFERED_SIZE}, and closes the stream. Whether the content is buffered is
+	 * decided by the bytes actually read, not by a length determined before, since the file may
+	 * have changed in the meantime.
+	 *
+	 * @param stream
+	 *            the input stream
+	 * @param sizeHint
+	 *            the expected number of bytes, or <code>-1</code> if unknown
+	 * @return the content, or <code>null</code> if it is too large to be buffered
+	 *
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 * @since 3.14
+	 */
+	public static byte[] readBufferedContents(final InputStream stream, final long sizeHint) throws IOException {
+		try {
+			byte[] content= readContents(stream, sizeHint, MAX_BUFFERED_SIZE);
+			return content.length < MAX_BUFFERED_SIZE ? content : null;
+		} finally {
+			try {
+				stream.close();
+			} catch (IOException exception) {
+				// Do nothing
+			}
+		}
+	}
+
 	/**
 	 * Opens the archive file at the given location.<br>
 	 * <em>Note: It is the caller's responsibility to close the returned
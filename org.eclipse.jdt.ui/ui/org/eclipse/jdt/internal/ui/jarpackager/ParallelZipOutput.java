@@ -0,0 +1,525 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.jarpackager;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a ZIP archive whose entries are compressed on worker threads.
+ * <p>
+ * The entries are handed over with their complete content. Checksums and compressed data are
+ * computed in parallel, but the entries are appended to the archive by the calling thread in the
+ * order in which they were added, so the archive is the same as if it had been written
+ * sequentially. Since all sizes are known up front, no data descriptors are needed and
+ * {@link ZipEntry#STORED} entries do not have to be read twice.
+ * </p>
+ * <p>
+ * Entries which are too large to be held in memory can be streamed with
+ * {@link #putEntry(ZipEntry, InputStream)}; they are compressed on the calling thread.
+ * </p>
+ * <p>
+ * This class is not thread safe; all methods have to be called from the same thread.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class ParallelZipOutput {
+
+	private static final int LOCAL_HEADER_SIGNATURE= 0x04034b50;
+	private static final int DATA_DESCRIPTOR_SIGNATURE= 0x08074b50;
+	private static final int CENTRAL_HEADER_SIGNATURE= 0x02014b50;
+	private static final int END_SIGNATURE= 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE= 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE= 0x07064b50;
+
+	private static final int ZIP64_EXTRA_ID= 0x0001;
+	private static final int JAR_MAGIC= 0xCAFE;
+	private static final int DATA_DESCRIPTOR_FLAG= 0x0008;
+	private static final int UTF8_FLAG= 0x0800;
+
+	private static final int VERSION_DEFAULT= 20;
+	private static final int VERSION_ZIP64= 45;
+
+	private static final long ZIP64_MAGIC= 0xFFFFFFFFL;
+	private static final int ZIP64_MAGIC_COUNT= 0xFFFF;
+
+	/**
+	 * Maximum number of uncompressed bytes waiting to be written
+	 */
+	private static final long MAX_PENDING_BYTES= 64 * 1024 * 1024;
+
+	private static final int STREAM_BUFFER_SIZE= 64 * 1024;
+
+	private static class Entry {
+		final byte[] fName;
+		final int fMethod;
+		final int fDosTime;
+		int fFlags= UTF8_FLAG;
+		byte[] fData;
+		int fDataLength;
+		long fCrc;
+		long fSize;
+		long fCompressedSize;
+		long fOffset;
+		boolean fJarMagic;
+		boolean fRaw;
+
+		Entry(byte[] name, int method, int dosTime) {
+			fName= name;
+			fMethod= method;
+			fDosTime= dosTime;
+		}
+	}
+
+	private static class CompressTask implements Callable<Entry> {
+		private final Entry fEntry;
+		private final int fLevel;
+
+		CompressTask(Entry entry, int level) {
+			fEntry= entry;
+			fLevel= level;
+		}
+
+		@Override
+		public Entry call() {
+			if (fEntry.fRaw)
+				return fEntry;
+			byte[] data= fEntry.fData;
+			CRC32 crc= new CRC32();
+			crc.update(data, 0, fEntry.fDataLength);
+			fEntry.fCrc= crc.getValue();
+			fEntry.fSize= fEntry.fDataLength;
+			if (fEntry.fMethod == ZipEntry.DEFLATED) {
+				Deflater deflater= new Deflater(fLevel, true);
+				try {
+					deflater.setInput(data, 0, fEntry.fDataLength);
+					deflater.finish();
+					byte[] compressed= new byte[Math.max(64, fEntry.fDataLength / 2)];
+					int length= 0;
+					while (!deflater.finished()) {
+						if (length == compressed.length) {
+							byte[] larger= new byte[compressed.length * 2];
+							System.arraycopy(compressed, 0, larger, 0, length);
+							compressed= larger;
+						}
+						length+= deflater.deflate(compressed, length, compressed.length - length);
+					}
+					fEntry.fData= compressed;
+					fEntry.fDataLength= length;
+				} finally {
+					deflater.end();
+				}
+			}
+			return fEntry;
+		}
+	}
+
+	private static class PendingEntry extends FutureTask<Entry> {
+		final int fLength;
+
+		PendingEntry(Entry entry, int level) {
+			super(new CompressTask(entry, level));
+			fLength= entry.fDataLength;
+		}
+	}
+
+	private final OutputStream fOutput;
+	private final ExecutorService fExecutor;
+	private final int fMaxPendingEntries;
+	private final int fLevel;
+
+	private final ArrayDeque<PendingEntry> fPending= new ArrayDeque<>();
+	private long fPendingBytes;
+
+	private final List<Entry> fEntries= new ArrayList<>();
+	private final Set<String> fNames= new HashSet<>();
+	private final byte[] fBuffer= new byte[8];
+	private long fWritten;
+	private byte[] fComment;
+	private boolean fClosed;
+
+	/**
+	 * Creates a writer which compresses entries with the given number of worker threads.
+	 *
+	 * @param output the stream to write the archive to, will be closed by {@link #close()}
+	 * @param threads the number of worker threads, or <code>0</code> to use one per available
+	 *            processor
+	 */
+	public ParallelZipOutput(OutputStream output, int threads) {
+		fOutput= new BufferedOutputStream(output, 64 * 1024);
+		int workers= threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		fExecutor= Executors.newFixedThreadPool(workers, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread= new Thread(runnable, "JAR Compression Worker"); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		fMaxPendingEntries= workers * 8;
+		fLevel= Deflater.DEFAULT_COMPRESSION;
+	}
+
+	/**
+	 * Sets the archive comment.
+	 *
+	 * @param comment the comment, or <code>null</code>
+	 */
+	public void setComment(String comment) {
+		fComment= comment != null ? comment.getBytes(StandardCharsets.UTF_8) : null;
+	}
+
+	/**
+	 * Adds an entry to the archive. The entry's method and time are used; its size, compressed
+	 * size and CRC are computed from the content.
+	 *
+	 * @param entry the entry to add
+	 * @param content the complete content of the entry, must not be modified afterwards
+	 * @param length the number of valid bytes in <code>content</code>
+	 * @throws IOException if an I/O error has occurred, or if an entry with the same name has
+	 *             already been added
+	 */
+	public void putEntry(ZipEntry entry, byte[] content, int length) throws IOException {
+		Entry result= createEntry(entry);
+		result.fData= content;
+		result.fDataLength= length;
+		PendingEntry pending= new PendingEntry(result, fLevel);
+		if (length == 0)
+			pending.run(); // e.g. directories, not worth a hand-over
+		else
+			fExecutor.execute(pending);
+		addPending(pending, length);
+	}
+
+	/**
+	 * Adds an entry whose data has already been compressed with the entry's method, e.g. an
+	 * entry copied from another archive.
+	 *
+	 * @param entry the entry to add
+	 * @param rawData the data as it is stored in the archive, must not be modified afterwards
+	 * @param crc the CRC of the uncompressed data
+	 * @param size the size of the uncompressed data
+	 * @throws IOException if an I/O error has occurred, or if an entry with the same name has
+	 *             already been added
+	 * @see RawZipFile#readRawData(RawZipFile.Entry)
+	 */
+	public void putRawEntry(ZipEntry entry, byte[] rawData, long crc, long size) throws IOException {
+		Entry result= createEntry(entry);
+		result.fData= rawData;
+		result.fDataLength= rawData.length;
+		result.fCrc= crc;
+		result.fSize= size;
+		result.fRaw= true;
+		PendingEntry pending= new PendingEntry(result, fLevel);
+		pending.run();
+		addPending(pending, rawData.length);
+	}
+
+	/**
+	 * Adds an entry by streaming its content. The content is compressed on the calling thread
+	 * after all pending entries have been written. The entry's method and time are used; for
+	 * {@link ZipEntry#STORED} entries, the size and CRC have to be set.
+	 *
+	 * @param entry the entry to add
+	 * @param content the content of the entry, will not be closed
+	 * @throws IOException if an I/O error has occurred, if an entry with the same name has
+	 *             already been added, or if the size or CRC of a stored entry do not match its
+	 *             content
+	 */
+	public void putEntry(ZipEntry entry, InputStream content) throws IOException {
+		Entry result= createEntry(entry);
+		boolean stored= result.fMethod == ZipEntry.STORED;
+		if (stored) {
+			if (entry.getSize() == -1 || entry.getCrc() == -1)
+				throw new ZipException("STORED entry missing size or crc-32: " + entry.getName()); //$NON-NLS-1$
+			result.fCrc= entry.getCrc();
+			result.fSize= entry.getSize();
+			result.fCompressedSize= entry.getSize();
+		} else {
+			result.fFlags|= DATA_DESCRIPTOR_FLAG;
+		}
+		while (!fPending.isEmpty())
+			writeNextPending();
+		result.fOffset= fWritten;
+		writeLocalHeader(result);
+
+		byte[] buffer= new byte[STREAM_BUFFER_SIZE];
+		CRC32 crc= new CRC32();
+		long size= 0;
+		long start= fWritten;
+		Deflater deflater= stored ? null : new Deflater(fLevel, true);
+		try {
+			byte[] compressed= stored ? null : new byte[STREAM_BUFFER_SIZE];
+			int count;
+			while ((count= content.read(buffer, 0, buffer.length)) != -1) {
+				crc.update(buffer, 0, count);
+				size+= count;
+				if (deflater == null) {
+					writeBytes(buffer, count);
+				} else {
+					deflater.setInput(buffer, 0, count);
+					while (!deflater.needsInput())
+						writeBytes(compressed, deflater.deflate(compressed, 0, compressed.length));
+				}
+			}
+			if (deflater != null) {
+				deflater.finish();
+				while (!deflater.finished())
+					writeBytes(compressed, deflater.deflate(compressed, 0, compressed.length));
+			}
+		} finally {
+			if (deflater != null)
+				deflater.end();
+		}
+
+		if (stored) {
+			if (result.fSize != size || result.fCrc != crc.getValue())
+				throw new ZipException("invalid entry size or crc-32: " + entry.getName()); //$NON-NLS-1$
+		} else {
+			result.fCrc= crc.getValue();
+			result.fSize= size;
+			result.fCompressedSize= fWritten - start;
+			writeInt(DATA_DESCRIPTOR_SIGNATURE);
+			writeInt(result.fCrc);
+			if (result.fSize >= ZIP64_MAGIC || result.fCompressedSize >= ZIP64_MAGIC) {
+				writeLong(result.fCompressedSize);
+				writeLong(result.fSize);
+			} else {
+				writeInt(result.fCompressedSize);
+				writeInt(result.fSize);
+			}
+		}
+		fEntries.add(result);
+	}
+
+	private Entry createEntry(ZipEntry entry) throws IOException {
+		if (fClosed)
+			throw new IOException("Stream closed"); //$NON-NLS-1$
+		String name= entry.getName();
+		if (!fNames.add(name))
+			throw new ZipException("duplicate entry: " + name); //$NON-NLS-1$
+		int method= entry.getMethod() == ZipEntry.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED;
+		long time= entry.getTime();
+		Entry result= new Entry(name.getBytes(StandardCharsets.UTF_8), method, toDosTime(time != -1 ? time : System.currentTimeMillis()));
+		result.fJarMagic= fNames.size() == 1;
+		return result;
+	}
+
+	private void addPending(PendingEntry pending, int length) throws IOException {
+		fPending.add(pending);
+		fPendingBytes+= length;
+		while (fPending.size() > fMaxPendingEntries || fPendingBytes > MAX_PENDING_BYTES || fPending.peek().isDone()) {
+			writeNextPending();
+			if (fPending.isEmpty())
+				break;
+		}
+	}
+
+	/**
+	 * Writes all pending entries and the central directory, and closes the underlying stream.
+	 *
+	 * @throws IOException if an I/O error has occurred
+	 */
+	public void close() throws IOException {
+		if (fClosed)
+			return;
+		fClosed= true;
+		try {
+			while (!fPending.isEmpty())
+				writeNextPending();
+			writeCentralDirectory();
+		} finally {
+			fExecutor.shutdownNow();
+			fOutput.close();
+		}
+	}
+
+	private void writeNextPending() throws IOException {
+		PendingEntry pending= fPending.remove();
+		fPendingBytes-= pending.fLength;
+		Entry entry;
+		try {
+			entry= pending.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+		entry.fOffset= fWritten;
+		entry.fCompressedSize= entry.fDataLength;
+		writeLocalHeader(entry);
+		writeBytes(entry.fData, entry.fDataLength);
+		entry.fData= null;
+		fEntries.add(entry);
+	}
+
+	private void writeLocalHeader(Entry entry) throws IOException {
+		// sizes of streamed entries follow in the data descriptor
+		boolean descriptor= (entry.fFlags & DATA_DESCRIPTOR_FLAG) != 0;
+		boolean zip64= !descriptor && (entry.fSize >= ZIP64_MAGIC || entry.fCompressedSize >= ZIP64_MAGIC);
+		writeInt(LOCAL_HEADER_SIGNATURE);
+		writeShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+		writeShort(entry.fFlags);
+		writeShort(entry.fMethod);
+		writeInt(entry.fDosTime);
+		writeInt(descriptor ? 0 : entry.fCrc);
+		writeInt(descriptor ? 0 : zip64 ? ZIP64_MAGIC : entry.fCompressedSize);
+		writeInt(descriptor ? 0 : zip64 ? ZIP64_MAGIC : entry.fSize);
+		writeShort(entry.fName.length);
+		writeShort((entry.fJarMagic ? 4 : 0) + (zip64 ? 20 : 0));
+		writeBytes(entry.fName, entry.fName.length);
+		if (entry.fJarMagic)
+			writeJarMagic();
+		if (zip64) {
+			writeShort(ZIP64_EXTRA_ID);
+			writeShort(16);
+			writeLong(entry.fSize);
+			writeLong(entry.fCompressedSize);
+		}
+	}
+
+	private void writeCentralDirectory() throws IOException {
+		long start= fWritten;
+		for (Entry entry : fEntries) {
+			boolean zip64Sizes= entry.fSize >= ZIP64_MAGIC || entry.fCompressedSize >= ZIP64_MAGIC;
+			boolean zip64Offset= entry.fOffset >= ZIP64_MAGIC;
+			int zip64Length= (zip64Sizes ? 16 : 0) + (zip64Offset ? 8 : 0);
+			boolean zip64= zip64Length > 0;
+			int extraLength= (entry.fJarMagic ? 4 : 0) + (zip64 ? 4 + zip64Length : 0);
+			writeInt(CENTRAL_HEADER_SIGNATURE);
+			writeShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+			writeShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+			writeShort(entry.fFlags);
+			writeShort(entry.fMethod);
+			writeInt(entry.fDosTime);
+			writeInt(entry.fCrc);
+			writeInt(zip64Sizes ? ZIP64_MAGIC : entry.fCompressedSize);
+			writeInt(zip64Sizes ? ZIP64_MAGIC : entry.fSize);
+			writeShort(entry.fName.length);
+			writeShort(extraLength);
+			writeShort(0); // comment length
+			writeShort(0); // disk number
+			writeShort(0); // internal attributes
+			writeInt(0); // external attributes
+			writeInt(zip64Offset ? ZIP64_MAGIC : entry.fOffset);
+			writeBytes(entry.fName, entry.fName.length);
+			if (entry.fJarMagic)
+				writeJarMagic();
+			if (zip64) {
+				writeShort(ZIP64_EXTRA_ID);
+				writeShort(zip64Length);
+				if (zip64Sizes) {
+					writeLong(entry.fSize);
+					writeLong(entry.fCompressedSize);
+				}
+				if (zip64Offset)
+					writeLong(entry.fOffset);
+			}
+		}
+		long size= fWritten - start;
+		int count= fEntries.size();
+		if (count >= ZIP64_MAGIC_COUNT || size >= ZIP64_MAGIC || start >= ZIP64_MAGIC) {
+			long end= fWritten;
+			writeInt(ZIP64_END_SIGNATURE);
+			writeLong(44); // remaining size of the record
+			writeShort(VERSION_ZIP64);
+			writeShort(VERSION_ZIP64);
+			writeInt(0); // disk number
+			writeInt(0); // disk with the central directory
+			writeLong(count);
+			writeLong(count);
+			writeLong(size);
+			writeLong(start);
+			writeInt(ZIP64_LOCATOR_SIGNATURE);
+			writeInt(0); // disk with the zip64 end record
+			writeLong(end);
+			writeInt(1); // number of disks
+		}
+		writeInt(END_SIGNATURE);
+		writeShort(0); // disk number
+		writeShort(0); // disk with the central directory
+		writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+		writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+		writeInt(Math.min(size, ZIP64_MAGIC));
+		writeInt(Math.min(start, ZIP64_MAGIC));
+		if (fComment != null) {
+			writeShort(fComment.length);
+			writeBytes(fComment, fComment.length);
+		} else {
+			writeShort(0);
+		}
+	}
+
+	private void writeJarMagic() throws IOException {
+		writeShort(JAR_MAGIC);
+		writeShort(0);
+	}
+
+	private void writeShort(int value) throws IOException {
+		fBuffer[0]= (byte) value;
+		fBuffer[1]= (byte) (value >>> 8);
+		writeBytes(fBuffer, 2);
+	}
+
+	private void writeInt(long value) throws IOException {
+		fBuffer[0]= (byte) value;
+		fBuffer[1]= (byte) (value >>> 8);
+		fBuffer[2]= (byte) (value >>> 16);
+		fBuffer[3]= (byte) (value >>> 24);
+		writeBytes(fBuffer, 4);
+	}
+
+	private void writeLong(long value) throws IOException {
+		writeInt(value);
+		writeInt(value >>> 32);
+	}
+
+	private void writeBytes(byte[] bytes, int length) throws IOException {
+		fOutput.write(bytes, 0, length);
+		fWritten+= length;
+	}
+
+	private static int toDosTime(long time) {
+		Calendar calendar= Calendar.getInstance();
+		calendar.setTimeInMillis(time);
+		int year= calendar.get(Calendar.YEAR);
+		if (year < 1980)
+			return (1 << 21) | (1 << 16);
+		return (year - 1980) << 25
+				| (calendar.get(Calendar.MONTH) + 1) << 21
+				| calendar.get(Calendar.DAY_OF_MONTH) << 16
+				| calendar.get(Calendar.HOUR_OF_DAY) << 11
+				| calendar.get(Calendar.MINUTE) << 5
+				| calendar.get(Calendar.SECOND) >> 1;
+	}
+}
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.jarpackager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/**
+ * Gives access to the compressed data of the entries of a ZIP archive, so that they can be copied
+ * to another archive without inflating and deflating them again.
+ *
+ * @see ParallelZipOutput#putRawEntry(java.util.zip.ZipEntry, byte[], long, long)
+ * @since 3.14
+ */
+public class RawZipFile {
+
+	private static final int LOCAL_HEADER_SIGNATURE= 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE= 0x02014b50;
+	private static final int END_SIGNATURE= 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE= 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE= 0x07064b50;
+	private static final int ZIP64_EXTRA_ID= 0x0001;
+
+	private static final int LOCAL_HEADER_SIZE= 30;
+	private static final int CENTRAL_HEADER_SIZE= 46;
+	private static final int END_SIZE= 22;
+	private static final int ZIP64_END_SIZE= 56;
+	private static final int ZIP64_LOCATOR_SIZE= 20;
+	private static final int MAX_COMMENT_SIZE= 0xFFFF;
+
+	private static final long ZIP64_MAGIC= 0xFFFFFFFFL;
+	private static final int ZIP64_MAGIC_COUNT= 0xFFFF;
+
+	/**
+	 * An entry of the archive.
+	 */
+	public static class Entry {
+		private final int fMethod;
+		private final long fCrc;
+		private final long fSize;
+		private final long fCompressedSize;
+		private final long fOffset;
+
+		Entry(int method, long crc, long size, long compressedSize, long offset) {
+			fMethod= method;
+			fCrc= crc;
+			fSize= size;
+			fCompressedSize= compressedSize;
+			fOffset= offset;
+		}
+
+		public int getMethod() {
+			return fMethod;
+		}
+
+		public long getCrc() {
+			return fCrc;
+		}
+
+		public long getSize() {
+			return fSize;
+		}
+	}
+
+	private final RandomAccessFile fFile;
+	private final Map<String, Entry> fEntries= new HashMap<>();
+
+	/**
+	 * Opens the archive and reads its central directory.
+	 *
+	 * @param file the archive
+	 * @throws IOException if the archive cannot be read or is not a ZIP archive
+	 */
+	public RawZipFile(File file) throws IOException {
+		fFile= new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			readCentralDirectory();
+		} catch (IOException e) {
+			fFile.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the entry with the given name.
+	 *
+	 * @param name the name of the entry
+	 * @return the entry, or <code>null</code> if the archive has no such entry
+	 */
+	public Entry getEntry(String name) {
+		return fEntries.get(name);
+	}
+
+	/**
+	 * Reads the data of an entry as it is stored in the archive.
+	 *
+	 * @param entry the entry
+	 * @return the compressed data of the entry
+	 * @throws IOException if an I/O error has occurred
+	 */
+	public byte[] readRawData(Entry entry) throws IOException {
+		if (entry.fCompressedSize > Integer.MAX_VALUE)
+			throw new ZipException("entry too large"); //$NON-NLS-1$
+		byte[] header= read(entry.fOffset, LOCAL_HEADER_SIZE);
+		if (getInt(header, 0) != LOCAL_HEADER_SIGNATURE)
+			throw new ZipException("invalid local header"); //$NON-NLS-1$
+		long start= entry.fOffset + LOCAL_HEADER_SIZE + getShort(header, 26) + getShort(header, 28);
+		return read(start, (int) entry.fCompressedSize);
+	}
+
+	/**
+	 * Closes the archive.
+	 *
+	 * @throws IOException if an I/O error has occurred
+	 */
+	public void close() throws IOException {
+		fFile.close();
+	}
+
+	private void readCentralDirectory() throws IOException {
+		long length= fFile.length();
+		int tailSize= (int) Math.min(length, END_SIZE + MAX_COMMENT_SIZE);
+		byte[] tail= read(length - tailSize, tailSize);
+		int end= -1;
+		for (int i= tailSize - END_SIZE; i >= 0; i--) {
+			if (getInt(tail, i) == END_SIGNATURE) {
+				end= i;
+				break;
+			}
+		}
+		if (end == -1)
+			throw new ZipException("end of central directory not found"); //$NON-NLS-1$
+
+		long count= getShort(tail, end + 10);
+		long size= getInt(tail, end + 12);
+		long offset= getInt(tail, end + 16);
+		long endPosition= length - tailSize + end;
+		if ((count == ZIP64_MAGIC_COUNT || size == ZIP64_MAGIC || offset == ZIP64_MAGIC) && endPosition >= ZIP64_LOCATOR_SIZE) {
+			byte[] locator= read(endPosition - ZIP64_LOCATOR_SIZE, ZIP64_LOCATOR_SIZE);
+			if (getInt(locator, 0) == ZIP64_LOCATOR_SIGNATURE) {
+				byte[] zip64End= read(getLong(locator, 8), ZIP64_END_SIZE);
+				if (getInt(zip64End, 0) != ZIP64_END_SIGNATURE)
+					throw new ZipException("invalid zip64 end of central directory"); //$NON-NLS-1$
+				count= getLong(zip64End, 32);
+				size= getLong(zip64End, 40);
+				offset= getLong(zip64End, 48);
+			}
+		}
+		if (size > Integer.MAX_VALUE)
+			throw new ZipException("central directory too large"); //$NON-NLS-1$
+
+		byte[] directory= read(offset, (int) size);
+		int position= 0;
+		for (long i= 0; i < count; i++) {
+			if (getInt(directory, position) != CENTRAL_HEADER_SIGNATURE)
+				throw new ZipException("invalid central directory"); //$NON-NLS-1$
+			int method= getShort(directory, position + 10);
+			long crc= getInt(directory, position + 16);
+			long compressedSize= getInt(directory, position + 20);
+			long entrySize= getInt(directory, position + 24);
+			int nameLength= getShort(directory, position + 28);
+			int extraLength= getShort(directory, position + 30);
+			int commentLength= getShort(directory, position + 32);
+			long entryOffset= getInt(directory, position + 42);
+			String name= new String(directory, position + CENTRAL_HEADER_SIZE, nameLength, StandardCharsets.UTF_8);
+
+			int extra= position + CENTRAL_HEADER_SIZE + nameLength;
+			int extraEnd= extra + extraLength;
+			while (extra + 4 <= extraEnd) {
+				int id= getShort(directory, extra);
+				int dataSize= getShort(directory, extra + 2);
+				if (id == ZIP64_EXTRA_ID) {
+					int value= extra + 4;
+					if (entrySize == ZIP64_MAGIC) {
+						entrySize= getLong(directory, value);
+						value+= 8;
+					}
+					if (compressedSize == ZIP64_MAGIC) {
+						compressedSize= getLong(directory, value);
+						value+= 8;
+					}
+					if (entryOffset == ZIP64_MAGIC)
+						entryOffset= getLong(directory, value);
+				}
+				extra+= 4 + dataSize;
+			}
+
+			fEntries.put(name, new Entry(method, crc, entrySize, compressedSize, entryOffset));
+			position= extraEnd + commentLength;
+		}
+	}
+
+	private byte[] read(long position, int length) throws IOException {
+		byte[] bytes= new byte[length];
+		fFile.seek(position);
+		fFile.readFully(bytes);
+		return bytes;
+	}
+
+	private static int getShort(byte[] bytes, int index) {
+		return (bytes[index] & 0xFF) | (bytes[index + 1] & 0xFF) << 8;
+	}
+
+	private static long getInt(byte[] bytes, int index) {
+		return getShort(bytes, index) | (long) getShort(bytes, index + 2) << 16;
+	}
+
+	private static long getLong(byte[] bytes, int index) {
+		return getInt(bytes, index) | getInt(bytes, index + 4) << 32;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2016 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.jarpackagerfat;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -91,6 +92,25 @@ public class JarWriter4 extends JarWriter3 {
 		addEntry(newEntry, is);
 	}
 
+	/**
+	 * Adds an entry which is stored uncompressed even if the JAR is compressed. Libraries nested in
+	 * a runnable JAR are stored, so that the jar-in-jar loader can read their entries in place.
+	 *
+	 * @param file the file to add
+	 * @param path the path of the entry in the JAR
+	 * @throws IOException if an I/O error has occurred
+	 * @since 3.14
+	 */
+	public void addStoredEntry(File file, String path) throws IOException {
+		if (fJarPackage.areDirectoryEntriesIncluded())
+			addDirectories(path);
+		JarEntry newEntry= new JarEntry(path.replace(File.separatorChar, '/'));
+		newEntry.setMethod(ZipEntry.STORED);
+		JarPackagerUtil.calculateCrcAndSize(newEntry, new FileInputStream(file), new byte[4096]);
+		newEntry.setTime(System.currentTimeMillis());
+		addEntry(newEntry, new FileInputStream(file));
+	}
+
 	public void write(File file, IPath destinationPath) throws CoreException {
 		try {
 			addFile(file, destinationPath);
@@ -112,16 +132,23 @@ public class JarWriter4 extends JarWriter3 {
 			addDirectories(path);
 
 		JarEntry newEntry= new JarEntry(path.toString().replace(File.separatorChar, '/'));
+		byte[] contents= null;
 
 		if (fJarPackage.isCompressed())
 			newEntry.setMethod(ZipEntry.DEFLATED);
 			// Entry is filled automatically.
 		else {
 			newEntry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(newEntry, new FileInputStream(file), new byte[4096]);
+			// Small files are read only once, the CRC is computed from their content
+			if (file.length() < JarPackagerUtil.MAX_BUFFERED_SIZE)
+				contents= JarPackagerUtil.readBufferedContents(new FileInputStream(file), file.length());
+			if (contents != null)
+				JarPackagerUtil.calculateCrcAndSize(newEntry, contents);
+			else
+				JarPackagerUtil.calculateCrcAndSize(newEntry, new FileInputStream(file), new byte[4096]);
 		}
 
 		newEntry.setTime(file.lastModified());
-		addEntry(newEntry, new FileInputStream(file));
+		addEntry(newEntry, contents != null ? new ByteArrayInputStream(contents) : new FileInputStream(file));
 	}
 }
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.javaeditor;
+
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+
+import org.eclipse.jdt.core.IBuffer;
+import org.eclipse.jdt.core.IClassFile;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * Bounded least-recently-used cache of shared ASTs for Java elements that are not
+ * the active editor's input.
+ * <p>
+ * Each AST is stored together with the modification stamp of its element's document at
+ * the time the AST was requested. An entry is only returned while the stamp is unchanged.
+ * The cache is limited both by the number of entries and by a soft heap budget, which is
+ * derived from the maximum heap size and the estimated size of each AST. The ASTs are
+ * additionally held through soft references so that they can be reclaimed under memory
+ * pressure.
+ * </p>
+ *
+ * @since 3.14
+ */
+final class ASTCache {
+
+	/**
+	 * Stamp used for elements whose modification state cannot be tracked. ASTs for such
+	 * elements are never cached.
+	 */
+	static final long UNKNOWN_STAMP= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+
+	/**
+	 * Maximum number of cached ASTs.
+	 */
+	private static final int MAX_ENTRIES= 10;
+
+	/**
+	 * Fraction of the maximum heap size that the cached ASTs may use.
+	 */
+	private static final int HEAP_BUDGET_DIVISOR= 10;
+
+	/**
+	 * Estimated heap usage of an AST with resolved bindings per character of source.
+	 */
+	private static final int ESTIMATED_BYTES_PER_CHAR= 100;
+
+	private static final class Entry {
+		final SoftReference<CompilationUnit> fAST;
+		final long fStamp;
+		final long fWeight;
+
+		Entry(CompilationUnit ast, long stamp) {
+			fAST= new SoftReference<>(ast);
+			fStamp= stamp;
+			fWeight= (long) Math.max(ast.getLength(), 1) * ESTIMATED_BYTES_PER_CHAR;
+		}
+	}
+
+	private final LinkedHashMap<ITypeRoot, Entry> fEntries= new LinkedHashMap<>(16, 0.75f, true);
+	private final long fMaxWeight;
+	private long fWeight;
+
+	private final AtomicLong fHits= new AtomicLong();
+	private final AtomicLong fMisses= new AtomicLong();
+
+	/**
+	 * Creates a new AST cache with a heap budget derived from the maximum heap size.
+	 */
+	ASTCache() {
+		this(Runtime.getRuntime().maxMemory() / HEAP_BUDGET_DIVISOR);
+	}
+
+	/**
+	 * Creates a new AST cache.
+	 *
+	 * @param maxWeight the soft heap budget in bytes
+	 */
+	ASTCache(long maxWeight) {
+		fMaxWeight= maxWeight;
+	}
+
+	/**
+	 * Returns the modification stamp of the given Java element's content.
+	 *
+	 * @param input the Java element
+	 * @return the modification stamp or {@link #UNKNOWN_STAMP} if the element's state cannot
+	 *         be tracked
+	 */
+	static long getModificationStamp(ITypeRoot input) {
+		if (input == null || !input.isOpen())
+			return UNKNOWN_STAMP;
+
+		if (input instanceof IClassFile)
+			return 0; // class files only change with the class path, which flushes the cache
+
+		try {
+			IBuffer buffer= input.getBuffer();
+			if (buffer instanceof DocumentAdapter) {
+				IDocument document= ((DocumentAdapter) buffer).getDocument();
+				if (document instanceof IDocumentExtension4)
+					return ((IDocumentExtension4) document).getModificationStamp();
+			}
+		} catch (JavaModelException e) {
+			// fall through
+		}
+		return UNKNOWN_STAMP;
+	}
+
+	/**
+	 * Caches the given AST for the given Java element.
+	 *
+	 * @param input the Java element
+	 * @param ast the AST, or <code>null</code> to remove the element's entry
+	 * @param stamp the modification stamp the AST corresponds to
+	 */
+	synchronized void put(ITypeRoot input, CompilationUnit ast, long stamp) {
+		remove(input);
+		if (ast == null || stamp == UNKNOWN_STAMP)
+			return;
+
+		Entry entry= new Entry(ast, stamp);
+		if (entry.fWeight > fMaxWeight)
+			return;
+
+		fEntries.put(input, entry);
+		fWeight+= entry.fWeight;
+		trim();
+	}
+
+	/**
+	 * Returns the cached AST for the given Java element if it is still up to date.
+	 *
+	 * @param input the Java element
+	 * @return the AST or <code>null</code> if no valid AST is cached
+	 */
+	CompilationUnit get(ITypeRoot input) {
+		long stamp= getModificationStamp(input);
+		synchronized (this) {
+			Entry entry= fEntries.get(input);
+			if (entry != null) {
+				CompilationUnit ast= entry.fAST.get();
+				if (ast != null && stamp != UNKNOWN_STAMP && entry.fStamp == stamp) {
+					fHits.incrementAndGet();
+					return ast;
+				}
+				remove(input);
+			}
+		}
+		fMisses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Removes and returns the cached AST for the given Java element if it is still up to date.
+	 *
+	 * @param input the Java element
+	 * @return the AST or <code>null</code> if no valid AST is cached
+	 */
+	CompilationUnit take(ITypeRoot input) {
+		CompilationUnit ast= get(input);
+		if (ast != null)
+			remove(input);
+		return ast;
+	}
+
+	/**
+	 * Returns whether the given AST is held by this cache.
+	 *
+	 * @param ast the AST
+	 * @return <code>true</code> if the AST is cached
+	 */
+	synchronized boolean contains(CompilationUnit ast) {
+		for (Entry entry : fEntries.values()) {
+			if (entry.fAST.get() == ast)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the entry for the given Java element.
+	 *
+	 * @param input the Java element
+	 */
+	synchronized void remove(ITypeRoot input) {
+		Entry entry= fEntries.remove(input);
+		if (entry != null)
+			fWeight-= entry.fWeight;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	synchronized void clear() {
+		fEntries.clear();
+		fWeight= 0;
+	}
+
+	/**
+	 * Returns the number of successful lookups.
+	 *
+	 * @return the number of cache hits
+	 */
+	long getHitCount() {
+		return fHits.get();
+	}
+
+	/**
+	 * Returns the number of lookups that did not find a valid AST.
+	 *
+	 * @return the number of cache misses
+	 */
+	long getMissCount() {
+		return fMisses.get();
+	}
+
+	/**
+	 * Returns the number of cached ASTs.
+	 *
+	 * @return the number of entries
+	 */
+	synchronized int size() {
+		return fEntries.size();
+	}
+
+	private void trim() {
+		Iterator<Map.Entry<ITypeRoot, Entry>> iter= fEntries.entrySet().iterator();
+		while (iter.hasNext() && (fEntries.size() > MAX_ENTRIES || fWeight > fMaxWeight)) {
+			Entry eldest= iter.next().getValue();
+			iter.remove();
+			fWeight-= eldest.fWeight;
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ASTCache [entries=" + fEntries.size() + ", weight=" + fWeight + "/" + fMaxWeight //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ ", hits=" + fHits.get() + ", misses=" + fMisses.get() + "]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,11 @@
 package org.eclipse.jdt.internal.ui.javaeditor;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
@@ -26,8 +31,13 @@ import org.eclipse.ui.IWorkbenchPartReference;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
 
+import org.eclipse.jdt.core.ElementChangedEvent;
 import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
 import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
@@ -47,6 +57,10 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
 /**
  * Provides a shared AST for clients. The shared AST is
  * the AST of the active Java editor's input element.
+ * <p>
+ * ASTs of recently used, non-active Java elements are kept in a bounded
+ * {@link ASTCache} as long as the element's content does not change.
+ * </p>
  *
  * @since 3.0
  */
@@ -101,6 +115,10 @@ public final class ASTProvider implements IASTSharedValues {
 		 */
 		@Override
 		public void partClosed(IWorkbenchPartReference ref) {
+			IWorkbenchPart part= ref.getPart(false);
+			if (part instanceof JavaEditor)
+				fASTCache.remove(((JavaEditor) part).getInputJavaElement());
+
 			if (isActiveEditor(ref)) {
 				if (JavaPlugin.DEBUG_AST_PROVIDER)
 					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "closed active editor: " + ref.getTitle()); //$NON-NLS-1$ //$NON-NLS-2$
@@ -208,16 +226,130 @@ public final class ASTProvider implements IASTSharedValues {
 		}
 	}
 
+	/**
+	 * Flushes the AST cache when the Java model changes in a way that can
+	 * invalidate bindings of cached ASTs.
+	 *
+	 * @since 3.14
+	 */
+	private class ElementChangedListener implements IElementChangedListener {
+
+		/*
+		 * @see org.eclipse.jdt.core.IElementChangedListener#elementChanged(org.eclipse.jdt.core.ElementChangedEvent)
+		 */
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			if (fASTCache.size() == 0)
+				return;
+
+			if (!isBodyOnlyChange(event.getDelta(), event.getType() == ElementChangedEvent.POST_RECONCILE)) {
+				if (JavaPlugin.DEBUG_AST_PROVIDER)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "flushing AST cache: " + fASTCache); //$NON-NLS-1$ //$NON-NLS-2$
+				fASTCache.clear();
+			}
+		}
+
+		/**
+		 * Tells whether the given delta only describes changes inside of member bodies,
+		 * saves of working copies or editors being opened, which cannot affect the bindings
+		 * of other ASTs.
+		 *
+		 * @param delta the delta
+		 * @param isReconcile <code>true</code> if the delta is a reconcile delta
+		 * @return <code>true</code> if cached ASTs remain valid
+		 */
+		private boolean isBodyOnlyChange(IJavaElementDelta delta, boolean isReconcile) {
+			if (delta.getKind() != IJavaElementDelta.CHANGED)
+				return false;
+
+			int flags= delta.getFlags();
+			if ((flags & ~BODY_ONLY_FLAGS) != 0)
+				return false;
+
+			IJavaElement element= delta.getElement();
+			if (!isReconcile && element.getElementType() == IJavaElement.COMPILATION_UNIT
+					&& (flags & IJavaElementDelta.F_CONTENT) != 0 && !((ICompilationUnit) element).isWorkingCopy())
+				return false; // modified outside of an editor, structure is unknown
+
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length; i++) {
+				if (!isBodyOnlyChange(children[i], isReconcile))
+					return false;
+			}
+			return true;
+		}
+	}
+
 	private static final String DEBUG_PREFIX= "ASTProvider > "; //$NON-NLS-1$
 
-	private volatile ITypeRoot fReconcilingJavaElement;
-	private ITypeRoot fActiveJavaElement;
-	private CompilationUnit fAST;
+	/**
+	 * Maximum time in milliseconds to wait for the reconciler's AST.
+	 */
+	private static final long WAIT_TIMEOUT= 30000;
+
+	/**
+	 * Interval in milliseconds in which waiting clients check for cancellation.
+	 */
+	private static final long CANCEL_CHECK_INTERVAL= 100;
+
+	private static final int BODY_ONLY_FLAGS= IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_FINE_GRAINED
+			| IJavaElementDelta.F_AST_AFFECTED | IJavaElementDelta.F_PRIMARY_RESOURCE | IJavaElementDelta.F_PRIMARY_WORKING_COPY;
+
+	/**
+	 * The AST state of the active Java element. Instances are immutable and are replaced as a
+	 * whole, so that readers never need to lock.
+	 * <p>
+	 * The AST future is
+	 * <ul>
+	 * <li>completed with an AST if the AST is available,</li>
+	 * <li>not completed if the AST is currently being built by the reconciler or a client,</li>
+	 * <li>completed with <code>null</code> if there is no AST and nobody is building one.</li>
+	 * </ul>
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	private static final class ASTState {
+
+		final ITypeRoot fJavaElement;
+		final CompletableFuture<CompilationUnit> fAST;
+		final long fStamp;
+		final boolean fIsReconciling;
+
+		ASTState(ITypeRoot javaElement, CompletableFuture<CompilationUnit> ast, long stamp, boolean isReconciling) {
+			fJavaElement= javaElement;
+			fAST= ast;
+			fStamp= stamp;
+			fIsReconciling= isReconciling;
+		}
+
+		ASTState(ITypeRoot javaElement, CompilationUnit ast, long stamp) {
+			this(javaElement, CompletableFuture.completedFuture(ast), stamp, false);
+		}
+
+		boolean isActive(ITypeRoot javaElement) {
+			return javaElement != null && javaElement.equals(fJavaElement);
+		}
+
+		/**
+		 * Returns the AST if it is available.
+		 *
+		 * @return the AST or <code>null</code> if the AST is not available (yet)
+		 */
+		CompilationUnit getAST() {
+			return fAST.getNow(null);
+		}
+
+		boolean isBuildingAST() {
+			return !fAST.isDone();
+		}
+	}
+
+	private final AtomicReference<ASTState> fState= new AtomicReference<>(new ASTState(null, (CompilationUnit) null, ASTCache.UNKNOWN_STAMP));
+	private final ASTCache fASTCache= new ASTCache();
 	private ActivationListener fActivationListener;
-	private Object fReconcileLock= new Object();
-	private Object fWaitLock= new Object();
-	private volatile boolean fIsReconciling;
-	private IWorkbenchPart fActiveEditor;
+	private ElementChangedListener fElementChangedListener;
+	private volatile IWorkbenchPart fActiveEditor;
 
 
 	/**
@@ -249,6 +381,9 @@ public final class ASTProvider implements IASTSharedValues {
 		IWorkbenchWindow[] windows= PlatformUI.getWorkbench().getWorkbenchWindows();
 		for (int i= 0, length= windows.length; i < length; i++)
 			windows[i].getPartService().addPartListener(fActivationListener);
+
+		fElementChangedListener= new ElementChangedListener();
+		JavaCore.addElementChangedListener(fElementChangedListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
 	}
 
 	void activeJavaEditorChanged(IWorkbenchPart editor) {
@@ -257,24 +392,32 @@ public final class ASTProvider implements IASTSharedValues {
 		if (editor instanceof JavaEditor)
 			javaElement= ((JavaEditor)editor).getInputJavaElement();
 
-		synchronized (this) {
+		if (fState.get().isActive(javaElement)) {
+			// Same element, e.g. in another editor: keep its AST and a reconcile in progress
 			fActiveEditor= editor;
-			fActiveJavaElement= javaElement;
-			cache(null, javaElement);
+			if (JavaPlugin.DEBUG_AST_PROVIDER)
+				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "active editor is: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$
+			return;
 		}
 
+		CompilationUnit cachedAST= javaElement != null ? fASTCache.take(javaElement) : null;
+		long cachedStamp= cachedAST != null ? ASTCache.getModificationStamp(javaElement) : ASTCache.UNKNOWN_STAMP;
+
+		fActiveEditor= editor;
+		ASTState oldState= fState.getAndSet(new ASTState(javaElement, cachedAST, cachedStamp));
+
+		CompilationUnit oldAST= oldState.getAST();
+		if (oldAST != null && oldState.fJavaElement != null)
+			fASTCache.put(oldState.fJavaElement, oldAST, oldState.fStamp);
+
+		// Release clients waiting for the AST of the previous element
+		oldState.fAST.complete(null);
+
+		if (JavaPlugin.DEBUG_AST_PROVIDER && cachedAST != null)
+			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "reusing cached AST: " + toString(cachedAST) + " for: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
 		if (JavaPlugin.DEBUG_AST_PROVIDER)
 			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "active editor is: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$
-
-		synchronized (fReconcileLock) {
-			if (fIsReconciling && (fReconcilingJavaElement == null || !fReconcilingJavaElement.equals(javaElement))) {
-				fIsReconciling= false;
-				fReconcilingJavaElement= null;
-			} else if (javaElement == null) {
-				fIsReconciling= false;
-				fReconcilingJavaElement= null;
-			}
-		}
 	}
 
 	/**
@@ -285,7 +428,29 @@ public final class ASTProvider implements IASTSharedValues {
 	 * @return <code>true</code> if the given AST is the cached one
 	 */
 	public boolean isCached(CompilationUnit ast) {
-		return ast != null && fAST == ast;
+		return ast != null && (fState.get().getAST() == ast || fASTCache.contains(ast));
+	}
+
+	/**
+	 * Returns the number of AST requests for non-active Java elements that have been
+	 * answered from the AST cache.
+	 *
+	 * @return the number of cache hits
+	 * @since 3.14
+	 */
+	public long getCacheHitCount() {
+		return fASTCache.getHitCount();
+	}
+
+	/**
+	 * Returns the number of AST requests for non-active Java elements that could not
+	 * be answered from the AST cache.
+	 *
+	 * @return the number of cache misses
+	 * @since 3.14
+	 */
+	public long getCacheMissCount() {
+		return fASTCache.getMissCount();
 	}
 
 	/**
@@ -296,8 +461,8 @@ public final class ASTProvider implements IASTSharedValues {
 	 * @return <code>true</code> if the given compilation unit is the active one
 	 * @since 3.1
 	 */
-	public synchronized boolean isActive(ICompilationUnit cu) {
-		return cu != null && cu.equals(fActiveJavaElement);
+	public boolean isActive(ICompilationUnit cu) {
+		return fState.get().isActive(cu);
 	}
 
 	/**
@@ -314,27 +479,37 @@ public final class ASTProvider implements IASTSharedValues {
 		if (JavaPlugin.DEBUG_AST_PROVIDER)
 			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "about to reconcile: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$
 
-		synchronized (fReconcileLock) {
-			fReconcilingJavaElement= javaElement;
-			fIsReconciling= true;
-		}
-		cache(null, javaElement);
+		startBuildingAST(javaElement, null);
 	}
 
 	/**
-	 * Disposes the cached AST.
+	 * Publishes a new, not yet completed AST future for the given element if it is the active one.
+	 *
+	 * @param javaElement the Java element
+	 * @param expectedState the state that must still be current, or <code>null</code> to replace any
+	 *            state of the given element
+	 * @return the new state or <code>null</code> if the element is not active or the state changed
 	 */
-	private synchronized void disposeAST() {
-
-		if (fAST == null)
-			return;
-
-		if (JavaPlugin.DEBUG_AST_PROVIDER)
-			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "disposing AST: " + toString(fAST) + " for: " + toString(fActiveJavaElement)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-
-		fAST= null;
+	private ASTState startBuildingAST(ITypeRoot javaElement, ASTState expectedState) {
+		// Remember the content state before building starts, any later change makes the AST outdated
+		long stamp= ASTCache.getModificationStamp(javaElement);
+		ASTState newState= new ASTState(javaElement, new CompletableFuture<CompilationUnit>(), stamp, true);
+
+		ASTState state;
+		do {
+			state= fState.get();
+			if (!state.isActive(javaElement)) {
+				if (JavaPlugin.DEBUG_AST_PROVIDER)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "don't cache AST for inactive: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$
+				return null;
+			}
+			if (expectedState != null && state != expectedState)
+				return null;
+		} while (!fState.compareAndSet(state, newState));
 
-		cache(null, null);
+		// Waiting clients continue with the new future
+		state.fAST.complete(null);
+		return newState;
 	}
 
 	/**
@@ -368,39 +543,15 @@ public final class ASTProvider implements IASTSharedValues {
 			return "AST without any type"; //$NON-NLS-1$
 	}
 
-	/**
-	 * Caches the given compilation unit AST for the given Java element.
-	 *
-	 * @param ast the ast
-	 * @param javaElement the java element
-	 */
-	private synchronized void cache(CompilationUnit ast, ITypeRoot javaElement) {
-
-		if (fActiveJavaElement != null && !fActiveJavaElement.equals(javaElement)) {
-			if (JavaPlugin.DEBUG_AST_PROVIDER && javaElement != null) // don't report call from disposeAST()
-				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "don't cache AST for inactive: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$
-			return;
-		}
-
-		if (JavaPlugin.DEBUG_AST_PROVIDER && (javaElement != null || ast != null)) // don't report call from disposeAST()
-			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "caching AST: " + toString(ast) + " for: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-
-		if (fAST != null)
-			disposeAST();
-
-		fAST= ast;
-
-		// Signal AST change
-		synchronized (fWaitLock) {
-			fWaitLock.notifyAll();
-		}
-	}
-
 	/**
 	 * Returns a shared compilation unit AST for the given Java element.
 	 * <p>
 	 * Clients are not allowed to modify the AST and must synchronize all access to its nodes.
 	 * </p>
+	 * <p>
+	 * This method does not lock: clients that need to wait for the AST of the active element
+	 * wait on the future published when reconciling starts, concurrently with other clients.
+	 * </p>
 	 *
 	 * @param input the Java element, must not be <code>null</code>
 	 * @param waitFlag {@link SharedASTProvider#WAIT_YES}, {@link SharedASTProvider#WAIT_NO} or
@@ -412,70 +563,91 @@ public final class ASTProvider implements IASTSharedValues {
 		if (input == null || waitFlag == null)
 			throw new IllegalArgumentException("input or wait flag are null"); //$NON-NLS-1$
 
-		if (progressMonitor != null && progressMonitor.isCanceled())
-			return null;
+		while (true) {
+			if (progressMonitor != null && progressMonitor.isCanceled())
+				return null;
 
-		boolean isActiveElement;
-		synchronized (this) {
-			isActiveElement= input.equals(fActiveJavaElement);
-			if (isActiveElement) {
-				if (fAST != null) {
-					if (JavaPlugin.DEBUG_AST_PROVIDER)
-						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning cached AST:" + toString(fAST) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			ASTState state= fState.get();
+			if (!state.isActive(input))
+				return getInactiveAST(input, waitFlag, progressMonitor);
 
-					return fAST;
-				}
-				if (waitFlag == SharedASTProvider.WAIT_NO) {
-					if (JavaPlugin.DEBUG_AST_PROVIDER)
-						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning null (WAIT_NO) for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
-
-					return null;
+			CompilationUnit ast= state.getAST();
+			if (ast != null) {
+				if (JavaPlugin.DEBUG_AST_PROVIDER)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning cached AST:" + toString(ast) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
-				}
+				return ast;
 			}
-		}
 
-		final boolean canReturnNull= waitFlag == SharedASTProvider.WAIT_NO || (waitFlag == SharedASTProvider.WAIT_ACTIVE_ONLY && !(isActiveElement && fAST == null));
-		boolean isReconciling= false;
-		final ITypeRoot activeElement;
-		if (isActiveElement) {
-			synchronized (fReconcileLock) {
-				activeElement= fReconcilingJavaElement;
-				isReconciling= isReconciling(input);
-				if (!isReconciling && !canReturnNull)
-					aboutToBeReconciled(input);
+			if (waitFlag == SharedASTProvider.WAIT_NO) {
+				if (JavaPlugin.DEBUG_AST_PROVIDER)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning null (WAIT_NO) for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+
+				return null;
 			}
-		} else
-			activeElement= null;
 
-		if (isReconciling) {
-			try {
-				// Wait for AST
-				synchronized (fWaitLock) {
-					if (isReconciling(input)) {
-						if (JavaPlugin.DEBUG_AST_PROVIDER)
-							System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "waiting for AST for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
-						fWaitLock.wait(30000); // XXX: The 30 seconds timeout is an attempt to at least avoid a deadlock. See https://bugs.eclipse.org/366048#c21
-					}
+			if (state.isBuildingAST()) {
+				try {
+					ast= waitForAST(state, input, progressMonitor);
+				} catch (InterruptedException e) {
+					return null; // thread has been interrupted don't compute AST
 				}
+				if (state.isBuildingAST())
+					return null; // timed out or cancelled, don't wait for the same AST again
+				if (ast != null && fState.get().isActive(input))
+					return ast;
+				continue; // no AST or the active element changed in the meantime, start over
+			}
 
-				// Check whether active element is still valid
-				synchronized (this) {
-					if (activeElement == fActiveJavaElement && fAST != null) {
-						if (JavaPlugin.DEBUG_AST_PROVIDER)
-							System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "...got AST: " + toString(fAST) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			// Nobody builds the AST: publish a future so that other clients wait for this one
+			ASTState buildingState= startBuildingAST(input, state);
+			if (buildingState != null)
+				return buildActiveAST(input, buildingState, progressMonitor);
+		}
+	}
 
-						return fAST;
-					}
-				}
-				return getAST(input, waitFlag, progressMonitor);
-			} catch (InterruptedException e) {
-				return null; // thread has been interrupted don't compute AST
-			}
-		} else if (canReturnNull)
+	/**
+	 * Returns an AST for a Java element that is not the active one, either from
+	 * the AST cache or, if allowed by the wait flag, newly created.
+	 *
+	 * @param input the Java element
+	 * @param waitFlag the wait flag
+	 * @param progressMonitor the progress monitor or <code>null</code>
+	 * @return the AST or <code>null</code> if the AST is not available
+	 */
+	private CompilationUnit getInactiveAST(ITypeRoot input, WAIT_FLAG waitFlag, IProgressMonitor progressMonitor) {
+		CompilationUnit ast= fASTCache.get(input);
+		if (ast != null) {
+			if (JavaPlugin.DEBUG_AST_PROVIDER)
+				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning AST from cache: " + toString(ast) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+			return ast;
+		}
+
+		if (waitFlag != SharedASTProvider.WAIT_YES)
 			return null;
 
+		long stamp= ASTCache.getModificationStamp(input);
+		ast= createAST(input, progressMonitor);
+		if (progressMonitor != null && progressMonitor.isCanceled()) {
+			if (JavaPlugin.DEBUG_AST_PROVIDER)
+				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "Ignore created AST for: " + input.getElementName() + " - operation has been cancelled"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			return null;
+		}
+		if (ast != null)
+			fASTCache.put(input, ast, stamp);
+		return ast;
+	}
 
+	/**
+	 * Creates the AST for the active Java element and publishes it through the given state.
+	 *
+	 * @param input the active Java element
+	 * @param buildingState the state published for building the AST
+	 * @param progressMonitor the progress monitor or <code>null</code>
+	 * @return the AST or <code>null</code> if the AST could not be created
+	 */
+	private CompilationUnit buildActiveAST(ITypeRoot input, ASTState buildingState, IProgressMonitor progressMonitor) {
 		CompilationUnit ast= null;
 		try {
 			ast= createAST(input, progressMonitor);
@@ -485,29 +657,50 @@ public final class ASTProvider implements IASTSharedValues {
 					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "Ignore created AST for: " + input.getElementName() + " - operation has been cancelled"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 			}
 		} finally {
-			if (isActiveElement) {
-				if (fAST != null) {
-					// in the meantime, reconcile created a new AST. Return that one
-					if (JavaPlugin.DEBUG_AST_PROVIDER)
-						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "Ignore created AST for " + input.getElementName() + " - AST from reconciler is newer"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-					reconciled(fAST, input, null);
-					return fAST;
-				} else
-					reconciled(ast, input, null);
+			ASTState state= fState.get();
+			CompilationUnit newerAST= state != buildingState && state.isActive(input) ? state.getAST() : null;
+			if (newerAST != null) {
+				// in the meantime, reconcile created a new AST. Return that one
+				if (JavaPlugin.DEBUG_AST_PROVIDER)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "Ignore created AST for " + input.getElementName() + " - AST from reconciler is newer"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				ast= newerAST;
 			}
+			// Publish the AST only in the state it has been built for, and release clients that still
+			// wait on it. A newer state belongs to a reconcile of newer content.
+			buildingState.fAST.complete(ast);
 		}
 		return ast;
 	}
 
 	/**
-	 * Tells whether the given Java element is the one
-	 * reported as currently being reconciled.
+	 * Waits until the AST of the given state has been built.
 	 *
-	 * @param javaElement the Java element
-	 * @return <code>true</code> if reported as currently being reconciled
+	 * @param state the state whose AST is being built
+	 * @param input the Java element
+	 * @param progressMonitor the progress monitor or <code>null</code>
+	 * @return the AST or <code>null</code> if building the AST did not produce an AST, the wait
+	 *         timed out or the operation has been cancelled
+	 * @throws InterruptedException if the thread has been interrupted
 	 */
-	private boolean isReconciling(ITypeRoot javaElement) {
-		return javaElement != null && javaElement.equals(fReconcilingJavaElement) && fIsReconciling;
+	private CompilationUnit waitForAST(ASTState state, ITypeRoot input, IProgressMonitor progressMonitor) throws InterruptedException {
+		if (JavaPlugin.DEBUG_AST_PROVIDER)
+			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "waiting for AST for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// XXX: The 30 seconds timeout is an attempt to at least avoid a deadlock. See https://bugs.eclipse.org/366048#c21
+		long end= System.currentTimeMillis() + WAIT_TIMEOUT;
+		while (true) {
+			try {
+				CompilationUnit ast= state.fAST.get(CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+				if (JavaPlugin.DEBUG_AST_PROVIDER)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "...got AST: " + toString(ast) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				return ast;
+			} catch (TimeoutException e) {
+				if (progressMonitor != null && progressMonitor.isCanceled() || System.currentTimeMillis() >= end)
+					return null;
+			} catch (ExecutionException e) {
+				return null; // the future is never completed exceptionally
+			}
+		}
 	}
 
 	/**
@@ -580,6 +773,7 @@ public final class ASTProvider implements IASTSharedValues {
 		return false;
 	}
 
+
 	/**
 	 * Disposes this AST provider.
 	 */
@@ -589,11 +783,16 @@ public final class ASTProvider implements IASTSharedValues {
 		PlatformUI.getWorkbench().removeWindowListener(fActivationListener);
 		fActivationListener= null;
 
-		disposeAST();
+		JavaCore.removeElementChangedListener(fElementChangedListener);
+		fElementChangedListener= null;
 
-		synchronized (fWaitLock) {
-			fWaitLock.notifyAll();
-		}
+		if (JavaPlugin.DEBUG_AST_PROVIDER)
+			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "disposing: " + fASTCache); //$NON-NLS-1$ //$NON-NLS-2$
+		fASTCache.clear();
+
+		// Dispose the AST and release waiting clients
+		ASTState state= fState.getAndSet(new ASTState(null, (CompilationUnit) null, ASTCache.UNKNOWN_STAMP));
+		state.fAST.complete(null);
 	}
 
 	/**
@@ -610,21 +809,19 @@ public final class ASTProvider implements IASTSharedValues {
 		if (JavaPlugin.DEBUG_AST_PROVIDER)
 			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "reconciled: " + toString(javaElement) + ", AST: " + toString(ast)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
-		synchronized (fReconcileLock) {
-			fIsReconciling= false;
-			if (javaElement == null || !javaElement.equals(fReconcilingJavaElement)) {
-
-				if (JavaPlugin.DEBUG_AST_PROVIDER)
-					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "  ignoring AST of out-dated editor"); //$NON-NLS-1$ //$NON-NLS-2$
+		ASTState state= fState.get();
+		if (!state.isActive(javaElement) || !state.fIsReconciling) {
+			if (JavaPlugin.DEBUG_AST_PROVIDER)
+				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "  ignoring AST of out-dated editor"); //$NON-NLS-1$ //$NON-NLS-2$
+			return;
+		}
 
-				// Signal - threads might wait for wrong element
-				synchronized (fWaitLock) {
-					fWaitLock.notifyAll();
-				}
+		if (JavaPlugin.DEBUG_AST_PROVIDER)
+			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "caching AST: " + toString(ast) + " for: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
-				return;
-			}
-			cache(ast, javaElement);
+		if (!state.fAST.complete(ast)) {
+			// A client already completed the future with the AST it created, this AST is newer
+			fState.compareAndSet(state, new ASTState(javaElement, ast, state.fStamp));
 		}
 	}
 
@@ -637,4 +834,3 @@ public final class ASTProvider implements IASTSharedValues {
 	}
 
 }
-
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,10 @@
 package org.eclipse.jdt.internal.ui.javaeditor;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.swt.custom.StyleRange;
 
@@ -272,6 +274,25 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		}
 	}
 
+	/**
+	 * Adds the current positions which start in the given range to the given list.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 *
+	 * @param list The list
+	 * @param offset The range offset
+	 * @param length The range length
+	 * @since 3.14
+	 */
+	public void addAllPositions(List<Position> list, int offset, int length) {
+		synchronized (fPositionLock) {
+			int i= computeIndexAtOffset(fPositions, offset);
+			int n= computeIndexAtOffset(fPositions, offset + length);
+			list.addAll(fPositions.subList(i, n));
+		}
+	}
+
 	/**
 	 * Create a text presentation in the background.
 	 * <p>
@@ -381,7 +402,8 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 
 		String positionCategory= getPositionCategory();
 
-		List<HighlightedPosition> removedPositionsList= Arrays.asList(removedPositions);
+		Set<Position> removedPositionsSet= Collections.newSetFromMap(new IdentityHashMap<Position, Boolean>(removedPositions.length));
+		Collections.addAll(removedPositionsSet, removedPositions);
 
 		try {
 			synchronized (fPositionLock) {
@@ -396,15 +418,38 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 				 * is stored in newPositions.
 				 */
 				List<Position> newPositions= new ArrayList<>(newSize);
+
+				/*
+				 * Only the old positions between the first and the last added or removed position
+				 * need to be merged, the ones before and after are copied.
+				 */
+				int from= 0;
+				int to= oldPositions.size();
+				if (addedPositions.length + removedPositions.length > 0) {
+					int minStart= Integer.MAX_VALUE;
+					int maxStart= Integer.MIN_VALUE;
+					for (int i= 0; i < addedPositions.length; i++) {
+						minStart= Math.min(minStart, addedPositions[i].getOffset());
+						maxStart= Math.max(maxStart, addedPositions[i].getOffset());
+					}
+					for (int i= 0; i < removedPositions.length; i++) {
+						minStart= Math.min(minStart, removedPositions[i].getOffset());
+						maxStart= Math.max(maxStart, removedPositions[i].getOffset());
+					}
+					from= computeIndexAtOffset(oldPositions, minStart);
+					to= computeIndexAfterOffset(oldPositions, maxStart);
+				}
+				newPositions.addAll(oldPositions.subList(0, from));
+
 				Position position= null;
 				Position addedPosition= null;
-				for (int i= 0, j= 0, n= oldPositions.size(), m= addedPositions.length; i < n || position != null || j < m || addedPosition != null;) {
+				for (int i= from, j= 0, n= to, m= addedPositions.length; i < n || position != null || j < m || addedPosition != null;) {
 					// loop variant: i + j < old(i + j)
 
 					// a) find the next non-deleted Position from the old list
 					while (position == null && i < n) {
 						position= oldPositions.get(i++);
-						if (position.isDeleted() || contain(removedPositionsList, position)) {
+						if (position.isDeleted() || removedPositionsSet.contains(position)) {
 							document.removePosition(positionCategory, position);
 							position= null;
 						}
@@ -435,6 +480,7 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 						addedPosition= null;
 					}
 				}
+				newPositions.addAll(oldPositions.subList(to, oldPositions.size()));
 				fPositions= newPositions;
 			}
 		} catch (BadPositionCategoryException e) {
@@ -461,33 +507,6 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 //		}
 //	}
 
-	/**
-	 * Returns <code>true</code> iff the positions contain the position.
-	 * @param positions the positions, must be ordered by offset but may overlap
-	 * @param position the position
-	 * @return <code>true</code> iff the positions contain the position
-	 */
-	private boolean contain(List<? extends Position> positions, Position position) {
-		return indexOf(positions, position) != -1;
-	}
-
-	/**
-	 * Returns index of the position in the positions, <code>-1</code> if not found.
-	 * @param positions the positions, must be ordered by offset but may overlap
-	 * @param position the position
-	 * @return the index
-	 */
-	private int indexOf(List<? extends Position> positions, Position position) {
-		int index= computeIndexAtOffset(positions, position.getOffset());
-		int size= positions.size();
-		while (index < size) {
-			if (positions.get(index) == position)
-				return index;
-			index++;
-		}
-		return -1;
-	}
-
 	/**
 	 * Insert the given position in <code>fPositions</code>, s.t. the offsets remain in linear order.
 	 *
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@
 package org.eclipse.jdt.internal.ui.javaeditor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.swt.widgets.Display;
@@ -22,9 +23,13 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextInputListener;
 import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextPresentation;
 import org.eclipse.jface.text.source.ISourceViewer;
 
@@ -32,12 +37,16 @@ import org.eclipse.ui.IWorkbenchPartSite;
 
 import org.eclipse.jdt.core.ITypeRoot;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.BooleanLiteral;
 import org.eclipse.jdt.core.dom.CharacterLiteral;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ConstructorInvocation;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.NumberLiteral;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
@@ -186,8 +195,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 */
 		private void addPosition(int offset, int length, Highlighting highlighting) {
 			boolean isExisting= false;
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			for (int i= computeIndexAtOffset(offset), n= fRemovedPositions.size(); i < n && fRemovedOffsets[i] == offset; i++) {
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
 				if (position == null)
 					continue;
@@ -211,8 +219,8 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 * @param length The range length
 		 */
 		private void retainPositions(int offset, int length) {
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			int end= offset + length;
+			for (int i= computeIndexAtOffset(offset), n= fRemovedPositions.size(); i < n && fRemovedOffsets[i] <= end; i++) {
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
 				if (position != null && position.isContained(offset, length)) {
 					fRemovedPositions.set(i, null);
@@ -220,10 +228,170 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 				}
 			}
 		}
+
+		/**
+		 * Returns the index of the first removed position with an offset equal or greater than the given offset.
+		 *
+		 * @param offset the offset
+		 * @return the index of the first removed position with an offset equal or greater than the given offset
+		 */
+		private int computeIndexAtOffset(int offset) {
+			int i= -1;
+			int j= fRemovedPositions.size();
+			while (j - i > 1) {
+				int k= (i + j) >> 1;
+				if (fRemovedOffsets[k] >= offset)
+					j= k;
+				else
+					i= k;
+			}
+			return j;
+		}
+	}
+
+	/**
+	 * Tracks the region of the document that has been changed since the last semantic
+	 * highlighting pass.
+	 *
+	 * @since 3.14
+	 */
+	private static class DirtyRegionTracker implements IDocumentListener, ITextInputListener {
+
+		/** The tracked document, can be <code>null</code> */
+		private IDocument fDocument;
+		/** Start offset of the dirty region, <code>-1</code> if the document has not been changed */
+		private int fDirtyStart= -1;
+		/** End offset of the dirty region */
+		private int fDirtyEnd;
+		/** Number of document changes */
+		private long fModificationCount;
+		/** <code>true</code> iff the next pass must cover the whole compilation unit */
+		private boolean fFullPassRequired= true;
+
+		/**
+		 * Installs this tracker on the given viewer.
+		 *
+		 * @param sourceViewer the source viewer
+		 */
+		public void install(ISourceViewer sourceViewer) {
+			sourceViewer.addTextInputListener(this);
+			setDocument(sourceViewer.getDocument());
+		}
+
+		/**
+		 * Uninstalls this tracker from the given viewer.
+		 *
+		 * @param sourceViewer the source viewer
+		 */
+		public void uninstall(ISourceViewer sourceViewer) {
+			sourceViewer.removeTextInputListener(this);
+			setDocument(null);
+		}
+
+		private synchronized void setDocument(IDocument document) {
+			if (fDocument != null)
+				fDocument.removeDocumentListener(this);
+			fDocument= document;
+			if (fDocument != null)
+				fDocument.addDocumentListener(this);
+			fDirtyStart= -1;
+			fModificationCount++;
+			fFullPassRequired= true;
+		}
+
+		/**
+		 * @return the number of document changes so far
+		 */
+		public synchronized long getModificationCount() {
+			return fModificationCount;
+		}
+
+		/**
+		 * Requests that the next pass covers the whole compilation unit.
+		 */
+		public synchronized void requireFullPass() {
+			fFullPassRequired= true;
+		}
+
+		/**
+		 * Returns the dirty region and starts tracking anew if the document has not been changed
+		 * since the given modification count. Otherwise, the changes are kept for the next pass.
+		 *
+		 * @param modificationCount the modification count at the time the AST was created
+		 * @return the region changed since the last pass, or <code>null</code> if the whole
+		 *         compilation unit must be reconciled
+		 */
+		public synchronized IRegion reset(long modificationCount) {
+			boolean fullPassRequired= fFullPassRequired;
+			fFullPassRequired= false;
+			if (modificationCount != fModificationCount)
+				return null;
+			IRegion dirtyRegion= null;
+			if (!fullPassRequired && fDirtyStart != -1)
+				dirtyRegion= new Region(fDirtyStart, fDirtyEnd - fDirtyStart);
+			fDirtyStart= -1;
+			return dirtyRegion;
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+		 */
+		@Override
+		public void documentAboutToBeChanged(DocumentEvent event) {
+			// Do nothing
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+		 */
+		@Override
+		public synchronized void documentChanged(DocumentEvent event) {
+			int offset= event.getOffset();
+			int oldEnd= offset + event.getLength();
+			int newEnd= offset + (event.getText() != null ? event.getText().length() : 0);
+			if (fDirtyStart == -1) {
+				fDirtyStart= offset;
+				fDirtyEnd= newEnd;
+			} else {
+				if (fDirtyEnd >= oldEnd)
+					fDirtyEnd+= newEnd - oldEnd;
+				else if (fDirtyEnd > offset)
+					fDirtyEnd= newEnd;
+				fDirtyStart= Math.min(fDirtyStart, offset);
+				fDirtyEnd= Math.max(fDirtyEnd, newEnd);
+			}
+			fModificationCount++;
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.ITextInputListener#inputDocumentAboutToBeChanged(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IDocument)
+		 */
+		@Override
+		public void inputDocumentAboutToBeChanged(IDocument oldInput, IDocument newInput) {
+			setDocument(null);
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.ITextInputListener#inputDocumentChanged(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IDocument)
+		 */
+		@Override
+		public void inputDocumentChanged(IDocument oldInput, IDocument newInput) {
+			setDocument(newInput);
+		}
 	}
 
 	/** Position collector */
 	private PositionCollector fCollector= new PositionCollector();
+	/**
+	 * Dirty region tracker
+	 * @since 3.14
+	 */
+	private final DirtyRegionTracker fDirtyRegionTracker= new DirtyRegionTracker();
+	/**
+	 * Modification count of the document when the current reconcile started
+	 * @since 3.14
+	 */
+	private volatile long fJobModificationCount= -1;
 
 	/** The Java editor this semantic highlighting reconciler is installed on */
 	private JavaEditor fEditor;
@@ -242,6 +410,12 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	private List<Position> fRemovedPositions= new ArrayList<>();
 	/** Number of removed positions */
 	private int fNOfRemovedPositions;
+	/**
+	 * Offsets of the removed highlighted positions at the start of the reconcile, in ascending
+	 * order. The removed positions are sorted accordingly.
+	 * @since 3.14
+	 */
+	private int[] fRemovedOffsets= new int[0];
 
 	/** Background job */
 	private Job fJob;
@@ -277,7 +451,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 */
 	@Override
 	public void aboutToBeReconciled() {
-		// Do nothing
+		fJobModificationCount= fDirtyRegionTracker.getModificationCount();
 	}
 
 	/*
@@ -305,11 +479,13 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (ast == null || fJobPresenter.isCanceled())
 				return;
 
-			ASTNode[] subtrees= getAffectedSubtrees(ast);
+			IRegion dirtyRegion= fDirtyRegionTracker.reset(fJobModificationCount);
+			fJobModificationCount= -1;
+			ASTNode[] subtrees= getAffectedSubtrees(ast, forced ? null : dirtyRegion);
 			if (subtrees.length == 0)
 				return;
 
-			startReconcilingPositions();
+			startReconcilingPositions(subtrees);
 
 			if (!fJobPresenter.isCanceled()) {
 				fJobDeprecatedMemberHighlighting= null;
@@ -329,6 +505,8 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 
 			if (!fJobPresenter.isCanceled())
 				updatePresentation(textPresentation, fAddedPositions, fRemovedPositions);
+			else
+				fDirtyRegionTracker.requireFullPass();
 
 			stopReconcilingPositions();
 		} finally {
@@ -343,20 +521,97 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	}
 
 	/**
+	 * Returns the subtrees that may be affected by the document changes in the given region.
+	 * Changes inside the body of a method or initializer only affect the highlighting of that
+	 * body, all other changes may affect the whole compilation unit.
+	 *
 	 * @param node Root node
+	 * @param dirtyRegion the region changed since the last pass, or <code>null</code> if unknown
 	 * @return Array of subtrees that may be affected by past document changes
 	 */
-	private ASTNode[] getAffectedSubtrees(ASTNode node) {
-		// TODO: only return nodes which are affected by document changes - would require an 'anchor' concept for taking distant effects into account
+	private ASTNode[] getAffectedSubtrees(CompilationUnit node, IRegion dirtyRegion) {
+		if (dirtyRegion != null) {
+			Block body= getEnclosingBody(node, dirtyRegion);
+			if (body != null)
+				return new ASTNode[] { body };
+		}
 		return new ASTNode[] { node };
 	}
 
+	/**
+	 * Returns the innermost body of a method or initializer which strictly encloses the given
+	 * region, i.e. the region does not touch the braces of the body.
+	 *
+	 * @param node the root node
+	 * @param region the region
+	 * @return the body, or <code>null</code> if none or if its declaration has been recovered
+	 * @since 3.14
+	 */
+	private Block getEnclosingBody(CompilationUnit node, IRegion region) {
+		int start= region.getOffset();
+		int end= start + region.getLength();
+		ASTNode current= NodeFinder.perform(node, start, region.getLength());
+		while (current != null) {
+			ASTNode parent= current.getParent();
+			if (current instanceof Block && (parent instanceof MethodDeclaration || parent instanceof Initializer)) {
+				if ((parent.getFlags() & (ASTNode.MALFORMED | ASTNode.RECOVERED)) != 0)
+					return null;
+				if (current.getStartPosition() < start && end < current.getStartPosition() + current.getLength())
+					return (Block) current;
+			}
+			current= parent;
+		}
+		return null;
+	}
+
 	/**
 	 * Start reconciling positions.
+	 *
+	 * @param subtrees the AST subtrees
 	 */
-	private void startReconcilingPositions() {
-		fJobPresenter.addAllPositions(fRemovedPositions);
+	private void startReconcilingPositions(ASTNode[] subtrees) {
+		for (int i= 0, n= subtrees.length; i < n; i++) {
+			ASTNode subtree= subtrees[i];
+			if (subtree.getNodeType() == ASTNode.COMPILATION_UNIT)
+				fJobPresenter.addAllPositions(fRemovedPositions);
+			else
+				fJobPresenter.addAllPositions(fRemovedPositions, subtree.getStartPosition(), subtree.getLength());
+		}
 		fNOfRemovedPositions= fRemovedPositions.size();
+		sortRemovedPositions();
+	}
+
+	/**
+	 * Sorts the removed positions by offset and remembers their offsets, so that the
+	 * position collector can look up existing positions by binary search.
+	 * <p>
+	 * The offsets are snapshotted since the positions can concurrently be updated in the UI thread.
+	 * </p>
+	 * @since 3.14
+	 */
+	private void sortRemovedPositions() {
+		int n= fRemovedPositions.size();
+		long[] keys= new long[n];
+		boolean sorted= true;
+		int previous= Integer.MIN_VALUE;
+		for (int i= 0; i < n; i++) {
+			int offset= fRemovedPositions.get(i).getOffset();
+			keys[i]= (long) offset << 32 | i;
+			if (offset < previous)
+				sorted= false;
+			previous= offset;
+		}
+		if (!sorted) {
+			Arrays.sort(keys);
+			List<Position> positions= new ArrayList<>(n);
+			for (int i= 0; i < n; i++)
+				positions.add(fRemovedPositions.get((int) keys[i]));
+			fRemovedPositions= positions;
+		}
+		if (fRemovedOffsets.length < n)
+			fRemovedOffsets= new int[n];
+		for (int i= 0; i < n; i++)
+			fRemovedOffsets[i]= (int) (keys[i] >> 32);
 	}
 
 	/**
@@ -365,10 +620,6 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @param subtrees the AST subtrees
 	 */
 	private void reconcilePositions(ASTNode[] subtrees) {
-		// FIXME: remove positions not covered by subtrees
-
-
-
 		for (int i= 0, n= subtrees.length; i < n; i++)
 			subtrees[i].accept(fCollector);
 		List<Position> oldPositions= fRemovedPositions;
@@ -436,6 +687,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 
 		fEditor= editor;
 		fSourceViewer= sourceViewer;
+		fDirtyRegionTracker.install(fSourceViewer);
 
 		if (fEditor instanceof CompilationUnitEditor) {
 			((CompilationUnitEditor)fEditor).addReconcileListener(this);
@@ -460,6 +712,8 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			fEditor= null;
 		}
 
+		if (fSourceViewer != null)
+			fDirtyRegionTracker.uninstall(fSourceViewer);
 		fSourceViewer= null;
 		fSemanticHighlightings= null;
 		fHighlightings= null;
@@ -538,6 +792,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @since 3.2
 	 */
 	public void refresh() {
+		fDirtyRegionTracker.requireFullPass();
 		scheduleJob();
 	}
 }
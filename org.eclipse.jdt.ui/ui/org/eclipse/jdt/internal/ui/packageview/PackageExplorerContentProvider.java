@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,14 @@ package org.eclipse.jdt.internal.ui.packageview;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
@@ -77,13 +83,95 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	protected static final int GRANT_PARENT= 1 << 1;
 	protected static final int PROJECT= 1 << 2;
 
+	/**
+	 * The number of view updates above which they are replaced by a refresh of the whole viewer.
+	 */
+	private static final int MAX_UPDATES= 200;
+
+	/**
+	 * The time in milliseconds after which the update job yields the display thread, if more
+	 * updates are pending.
+	 */
+	private static final long UPDATE_TIME_SLICE= 50;
+
+	/**
+	 * Refreshes elements in the viewer. Can be merged with other updates of the same subtree, see
+	 * {@link PackageExplorerContentProvider#coalesceUpdates(List)}.
+	 */
+	private final class RefreshUpdate implements Runnable {
+		private final List<Object> fElements;
+		private final boolean fUpdateLabels;
+
+		public RefreshUpdate(List<Object> elements, boolean updateLabels) {
+			fElements= elements;
+			fUpdateLabels= updateLabels;
+		}
+
+		@Override
+		public void run() {
+			Object[] elements= fElements.toArray();
+			for (int i= 0; i < elements.length; i++) {
+				Object element= elements[i];
+				if (element == null || fViewer.testFindItems(element).length > 0) {
+					fViewer.refresh(element, fUpdateLabels);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds an element to the viewer.
+	 */
+	private final class AddUpdate implements Runnable {
+		private final Object fParent;
+		private final Object fElement;
+
+		public AddUpdate(Object parent, Object element) {
+			fParent= parent;
+			fElement= element;
+		}
+
+		@Override
+		public void run() {
+			Widget[] items= fViewer.testFindItems(fElement);
+			for (int i= 0; i < items.length; i++) {
+				Widget item= items[i];
+				if (item instanceof TreeItem && !item.isDisposed()) {
+					TreeItem parentItem= ((TreeItem) item).getParentItem();
+					if (parentItem != null && !parentItem.isDisposed() && fParent.equals(parentItem.getData())) {
+						return; // no add, element already added (most likely by a refresh)
+					}
+				}
+			}
+			fViewer.add(fParent, fElement);
+		}
+	}
+
+	/**
+	 * Removes an element from the viewer.
+	 */
+	private final class RemoveUpdate implements Runnable {
+		private final Object fElement;
+
+		public RemoveUpdate(Object element) {
+			fElement= element;
+		}
+
+		@Override
+		public void run() {
+			if (fViewer.testFindItems(fElement).length > 0) {
+				fViewer.remove(fElement);
+			}
+		}
+	}
+
 	private TreeViewer fViewer;
 	private Object fInput;
 	private boolean fIsFlatLayout;
 	private boolean fShowLibrariesNode;
 	private boolean fFoldPackages;
 
-	private Collection<Runnable> fPendingUpdates;
+	private List<Runnable> fPendingUpdates;
 
 	private UIJob fUpdateJob;
 
@@ -138,14 +226,30 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 			}
 			//Are we in the UIThread? If so spin it until we are done
 			if (!hasPendingUpdates && ctrl.getDisplay().getThread() == Thread.currentThread() && !fViewer.isBusy()) {
-				runUpdates(runnables);
+				runUpdates(coalesceUpdates(new ArrayList<>(runnables)), Long.MAX_VALUE);
 			} else {
+				// merge with the pending updates outside of the lock, since coalescing accesses the Java model.
+				// The pending list is never modified once set, it is only replaced.
+				List<Runnable> pendingUpdates;
 				synchronized (this) {
-					if (fPendingUpdates == null) {
-						fPendingUpdates= runnables;
-					} else {
-						fPendingUpdates.addAll(runnables);
+					pendingUpdates= fPendingUpdates;
+				}
+				List<Runnable> updates= new ArrayList<>();
+				if (pendingUpdates != null) {
+					updates.addAll(pendingUpdates);
+				}
+				updates.addAll(runnables);
+				updates= coalesceUpdates(updates);
+				synchronized (this) {
+					if (fPendingUpdates != pendingUpdates) {
+						// the pending updates have been run or extended meanwhile, append without merging
+						updates= new ArrayList<>();
+						if (fPendingUpdates != null) {
+							updates.addAll(fPendingUpdates);
+						}
+						updates.addAll(runnables);
 					}
+					fPendingUpdates= updates;
 				}
 				postAsyncUpdate(ctrl.getDisplay());
 			}
@@ -159,8 +263,8 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 					TreeViewer viewer= fViewer;
 					if (viewer != null && viewer.isBusy()) {
 						schedule(100); // reschedule when viewer is busy: bug 184991
-					} else {
-						runPendingUpdates();
+					} else if (runPendingUpdates(UPDATE_TIME_SLICE)) {
+						schedule(); // yield the display thread and continue with the remaining updates
 					}
 					return Status.OK_STATUS;
 				}
@@ -174,7 +278,18 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	 * Run all of the runnables that are the widget updates. Must be called in the display thread.
 	 */
 	public void runPendingUpdates() {
-		Collection<Runnable> pendingUpdates;
+		runPendingUpdates(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Runs the pending updates until the time slice is used up. Must be called in the display
+	 * thread.
+	 *
+	 * @param timeSlice the time in milliseconds after which no further updates are started
+	 * @return <code>true</code> if updates are still pending
+	 */
+	private boolean runPendingUpdates(long timeSlice) {
+		List<Runnable> pendingUpdates;
 		synchronized (this) {
 			pendingUpdates= fPendingUpdates;
 			fPendingUpdates= null;
@@ -182,16 +297,181 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 		if (pendingUpdates != null && fViewer != null) {
 			Control control = fViewer.getControl();
 			if (control != null && !control.isDisposed()) {
-				runUpdates(pendingUpdates);
+				int count= runUpdates(pendingUpdates, timeSlice);
+				if (count < pendingUpdates.size()) {
+					List<Runnable> remaining= new ArrayList<>(pendingUpdates.subList(count, pendingUpdates.size()));
+					synchronized (this) {
+						if (fPendingUpdates != null) {
+							remaining.addAll(fPendingUpdates);
+						}
+						fPendingUpdates= remaining;
+					}
+					return true;
+				}
 			}
 		}
+		return false;
 	}
 
-	private void runUpdates(Collection<Runnable> runnables) {
+	/**
+	 * Runs updates until the time slice is used up. At least one update is run.
+	 *
+	 * @param runnables the updates to run
+	 * @param timeSlice the time in milliseconds after which no further updates are started
+	 * @return the number of updates that have been run
+	 */
+	private int runUpdates(List<Runnable> runnables, long timeSlice) {
+		long start= System.nanoTime();
+		long slice= TimeUnit.MILLISECONDS.toNanos(timeSlice);
+		int count= 0;
 		Iterator<Runnable> runnableIterator = runnables.iterator();
-		while (runnableIterator.hasNext()){
+		while (runnableIterator.hasNext()) {
 			runnableIterator.next().run();
+			count++;
+			if (System.nanoTime() - start >= slice)
+				break;
 		}
+		return count;
+	}
+
+	/**
+	 * Merges view updates on the same subtree: refreshes, additions and removals are dropped if an
+	 * ancestor gets refreshed anyway. If there are still more than {@link #MAX_UPDATES} updates
+	 * left, they are replaced by a single refresh of the viewer input, which only updates the labels
+	 * if one of the replaced refreshes did. Other updates are kept in their order.
+	 * <p>
+	 * Ancestors are only taken into account up to the project, since projects can show up in
+	 * several places, for example in several working sets.
+	 * </p>
+	 *
+	 * @param updates the updates to coalesce
+	 * @return the coalesced updates
+	 */
+	private List<Runnable> coalesceUpdates(List<Runnable> updates) {
+		Set<Object> refreshed= new HashSet<>();
+		Set<Object> labelsRefreshed= new HashSet<>();
+		boolean fullRefresh= false;
+		boolean fullLabelsRefresh= false;
+		for (Runnable update : updates) {
+			if (update instanceof RefreshUpdate) {
+				RefreshUpdate refresh= (RefreshUpdate) update;
+				for (Object element : refresh.fElements) {
+					if (isViewerInput(element)) {
+						fullRefresh= true;
+						fullLabelsRefresh|= refresh.fUpdateLabels;
+					} else {
+						refreshed.add(element);
+						if (refresh.fUpdateLabels)
+							labelsRefreshed.add(element);
+					}
+				}
+			}
+		}
+		if (refreshed.isEmpty() && !fullRefresh && updates.size() <= MAX_UPDATES)
+			return updates; // nothing to merge
+
+		Map<Object, Boolean> parentRefreshed= new HashMap<>();
+		Map<Object, Boolean> parentLabelsRefreshed= new HashMap<>();
+		Set<Object> emitted= new HashSet<>();
+		Set<Object> labelsEmitted= new HashSet<>();
+		boolean fullRefreshEmitted= false;
+		boolean fullLabelsRefreshEmitted= false;
+
+		List<Runnable> result= new ArrayList<>();
+		int viewUpdates= 0;
+		for (Runnable update : updates) {
+			if (update instanceof RefreshUpdate) {
+				RefreshUpdate refresh= (RefreshUpdate) update;
+				boolean labels= refresh.fUpdateLabels;
+				List<Object> elements= new ArrayList<>(refresh.fElements.size());
+				for (Object element : refresh.fElements) {
+					if (isViewerInput(element)) {
+						if (fullLabelsRefreshEmitted || fullRefreshEmitted && !labels || fullLabelsRefresh && !labels)
+							continue;
+						fullRefreshEmitted= true;
+						fullLabelsRefreshEmitted= labels;
+					} else {
+						if (fullLabelsRefresh || fullRefresh && !labels)
+							continue;
+						if (labels ? isParentRefreshed(element, labelsRefreshed, parentLabelsRefreshed) : isParentRefreshed(element, refreshed, parentRefreshed))
+							continue;
+						if (!labels && labelsRefreshed.contains(element))
+							continue;
+						if (labels ? !labelsEmitted.add(element) : !emitted.add(element))
+							continue;
+						emitted.add(element);
+					}
+					elements.add(element);
+				}
+				if (!elements.isEmpty()) {
+					result.add(elements.size() == refresh.fElements.size() ? refresh : new RefreshUpdate(elements, labels));
+					viewUpdates++;
+				}
+			} else if (update instanceof AddUpdate) {
+				Object parent= ((AddUpdate) update).fParent;
+				if (!fullRefresh && !refreshed.contains(parent) && !isParentRefreshed(parent, refreshed, parentRefreshed)) {
+					result.add(update);
+					viewUpdates++;
+				}
+			} else if (update instanceof RemoveUpdate) {
+				if (!fullRefresh && !isParentRefreshed(((RemoveUpdate) update).fElement, refreshed, parentRefreshed)) {
+					result.add(update);
+					viewUpdates++;
+				}
+			} else {
+				result.add(update);
+			}
+		}
+
+		if (viewUpdates > MAX_UPDATES) {
+			// too many updates, refresh everything at once
+			boolean updateLabels= false;
+			for (Runnable update : result) {
+				if (update instanceof RefreshUpdate && ((RefreshUpdate) update).fUpdateLabels) {
+					updateLabels= true;
+					break;
+				}
+			}
+			List<Runnable> collapsed= new ArrayList<>();
+			boolean inputRefreshed= false;
+			for (Runnable update : result) {
+				if (update instanceof RefreshUpdate || update instanceof AddUpdate || update instanceof RemoveUpdate) {
+					if (!inputRefreshed) {
+						collapsed.add(new RefreshUpdate(Collections.singletonList(fInput), updateLabels));
+						inputRefreshed= true;
+					}
+				} else {
+					collapsed.add(update);
+				}
+			}
+			return collapsed;
+		}
+		return result;
+	}
+
+	private boolean isViewerInput(Object element) {
+		return element == null || element.equals(fInput);
+	}
+
+	/**
+	 * Tells whether an ancestor of an element up to its project is contained in a set of refreshed
+	 * elements.
+	 *
+	 * @param element the element
+	 * @param refreshed the refreshed elements
+	 * @param cache the results for the elements tested so far against the same set
+	 * @return <code>true</code> if an ancestor is refreshed
+	 */
+	private boolean isParentRefreshed(Object element, Set<Object> refreshed, Map<Object, Boolean> cache) {
+		if (element == null || element instanceof IJavaProject || element instanceof IProject)
+			return false; // projects can show up in several working sets
+		Boolean result= cache.get(element);
+		if (result == null) {
+			Object parent= internalGetParent(element);
+			result= Boolean.valueOf(parent != null && (refreshed.contains(parent) || isParentRefreshed(parent, refreshed, cache)));
+			cache.put(element, result);
+		}
+		return result.booleanValue();
 	}
 
 
@@ -929,48 +1209,15 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	}
 
 	protected void postRefresh(final List<Object> toRefresh, final boolean updateLabels, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			@Override
-			public void run() {
-				Object[] elements= toRefresh.toArray();
-				for (int i= 0; i < elements.length; i++) {
-					Object element= elements[i];
-					if (element == null || fViewer.testFindItems(element).length > 0) {
-						fViewer.refresh(element, updateLabels);
-					}
-				}
-			}
-		});
+		runnables.add(new RefreshUpdate(toRefresh, updateLabels));
 	}
 
 	protected void postAdd(final Object parent, final Object element, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			@Override
-			public void run() {
-				Widget[] items= fViewer.testFindItems(element);
-				for (int i= 0; i < items.length; i++) {
-					Widget item= items[i];
-					if (item instanceof TreeItem && !item.isDisposed()) {
-						TreeItem parentItem= ((TreeItem) item).getParentItem();
-						if (parentItem != null && !parentItem.isDisposed() && parent.equals(parentItem.getData())) {
-							return; // no add, element already added (most likely by a refresh)
-						}
-					}
-				}
-				fViewer.add(parent, element);
-			}
-		});
+		runnables.add(new AddUpdate(parent, element));
 	}
 
 	protected void postRemove(final Object element, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			@Override
-			public void run() {
-				if (fViewer.testFindItems(element).length > 0) {
-					fViewer.remove(element);
-				}
-			}
-		});
+		runnables.add(new RemoveUpdate(element));
 	}
 
 	protected void postProjectStateChanged(final Object root, Collection<Runnable> runnables) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -341,6 +341,24 @@ public final class CompletionProposalCategory {
 		return result;
 	}
 
+	/**
+	 * Returns the computers of this category for the given partition, so that their proposals can
+	 * be computed concurrently.
+	 *
+	 * @param partition the partition type where to invocation occurred
+	 * @return the computers, in the order of
+	 *         {@link #computeCompletionProposals(ContentAssistInvocationContext, String, SubProgressMonitor)}
+	 * @since 3.14
+	 */
+	List<CompletionProposalComputerDescriptor> getComputerDescriptors(String partition) {
+		List<CompletionProposalComputerDescriptor> result= new ArrayList<>();
+		for (CompletionProposalComputerDescriptor desc : new ArrayList<>(fRegistry.getProposalComputerDescriptors(partition))) {
+			if (desc.getCategory() == this)
+				result.add(desc);
+		}
+		return result;
+	}
+
 	/**
 	 * Safely computes context information objects of all computers of this category through their
 	 * extension. If an extension is disabled, throws an exception or otherwise does not adhere to
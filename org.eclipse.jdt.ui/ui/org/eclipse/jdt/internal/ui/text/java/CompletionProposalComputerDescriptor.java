@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,6 +19,9 @@ import java.util.Set;
 
 import org.osgi.framework.Bundle;
 
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
@@ -120,15 +123,13 @@ final class CompletionProposalComputerDescriptor {
 	/** The ui category. */
 	private final CompletionProposalCategory fCategory;
 	/** The first error message in the most recent operation, or <code>null</code>. */
-	private String fLastError;
+	private volatile String fLastError;
 	/**
 	 * Tells whether to inform the user when <code>MAX_DELAY</code> has been exceeded.
 	 * We start timing execution after the first session because the first may take
 	 * longer due to plug-in activation and initialization.
 	 */
-	private boolean fIsReportingDelay= false;
-	/** The start of the last operation. */
-	private long fStart;
+	private volatile boolean fIsReportingDelay= false;
 	/**
 	 * Tells whether we tried to load the computer.
 	 * @since 3.4
@@ -144,6 +145,21 @@ final class CompletionProposalComputerDescriptor {
 	 */
 	private boolean fNeedsSortingAfterFiltering;
 
+	/**
+	 * The latencies of {@link #computeCompletionProposals(ContentAssistInvocationContext, IProgressMonitor)}.
+	 *
+	 * @since 3.14
+	 */
+	private final LatencyHistogram fLatencies= new LatencyHistogram();
+
+	/**
+	 * Tells whether the computer has accessed the UI from a background thread and thus has to be
+	 * run in the UI thread.
+	 *
+	 * @since 3.14
+	 */
+	private volatile boolean fRequiresUIThread;
+
 
 	/**
 	 * Creates a new descriptor.
@@ -319,6 +335,27 @@ final class CompletionProposalComputerDescriptor {
 	 *         {@link org.eclipse.jface.text.contentassist.ICompletionProposal})
 	 */
 	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+		return computeCompletionProposals(context, monitor, false);
+	}
+
+	/**
+	 * Safely computes completion proposals through the described extension in a thread other than
+	 * the UI thread. Like
+	 * {@link #computeCompletionProposals(ContentAssistInvocationContext, IProgressMonitor)}, but if
+	 * the extension accesses the UI, <code>null</code> is returned and the extension is marked to
+	 * {@linkplain #requiresUIThread() require the UI thread}.
+	 *
+	 * @param context the invocation context passed on to the extension
+	 * @param monitor the progress monitor passed on to the extension
+	 * @return the list of computed completion proposals, or <code>null</code> if they have to be
+	 *         computed in the UI thread
+	 * @since 3.14
+	 */
+	List<ICompletionProposal> computeCompletionProposalsInBackground(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+		return computeCompletionProposals(context, monitor, true);
+	}
+
+	private List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor, boolean inBackground) {
 		if (!isEnabled())
 			return Collections.emptyList();
 
@@ -328,10 +365,11 @@ final class CompletionProposalComputerDescriptor {
 			if (computer == null) // not active yet
 				return Collections.emptyList();
 
+			long start= System.currentTimeMillis();
 			try {
 				PerformanceStats stats= startMeter(context, computer);
 				List<ICompletionProposal> proposals= computer.computeCompletionProposals(context, monitor);
-				stopMeter(stats, COMPUTE_COMPLETION_PROPOSALS);
+				stopMeter(stats, start, COMPUTE_COMPLETION_PROPOSALS);
 
 				if (proposals != null) {
 					fLastError= computer.getErrorMessage();
@@ -339,6 +377,7 @@ final class CompletionProposalComputerDescriptor {
 				}
 			} finally {
 				fIsReportingDelay= true;
+				fLatencies.record(System.currentTimeMillis() - start);
 			}
 			status= createAPIViolationStatus(COMPUTE_COMPLETION_PROPOSALS);
 		} catch (InvalidRegistryObjectException x) {
@@ -346,6 +385,10 @@ final class CompletionProposalComputerDescriptor {
 		} catch (CoreException x) {
 			status= createExceptionStatus(x);
 		} catch (RuntimeException x) {
+			if (inBackground && isInvalidThreadAccess(x)) {
+				fRequiresUIThread= true;
+				return null;
+			}
 			status= createExceptionStatus(x);
 		} finally {
 			monitor.done();
@@ -356,6 +399,34 @@ final class CompletionProposalComputerDescriptor {
 		return Collections.emptyList();
 	}
 
+	private static boolean isInvalidThreadAccess(Throwable x) {
+		for (Throwable cause= x; cause != null; cause= cause.getCause()) {
+			if (cause instanceof SWTException && ((SWTException) cause).code == SWT.ERROR_THREAD_INVALID_ACCESS)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Tells whether the described extension has to compute its proposals in the UI thread.
+	 *
+	 * @return <code>true</code> if the extension has accessed the UI from another thread before
+	 * @since 3.14
+	 */
+	boolean requiresUIThread() {
+		return fRequiresUIThread;
+	}
+
+	/**
+	 * Returns the latencies of the proposal computations of the described extension.
+	 *
+	 * @return the latency histogram
+	 * @since 3.14
+	 */
+	LatencyHistogram getLatencyHistogram() {
+		return fLatencies;
+	}
+
 	/**
 	 * Safely computes context information objects through the described extension. If the extension
 	 * is disabled, throws an exception or otherwise does not adhere to the contract described in
@@ -376,9 +447,10 @@ final class CompletionProposalComputerDescriptor {
 			if (computer == null) // not active yet
 				return Collections.emptyList();
 
+			long start= System.currentTimeMillis();
 			PerformanceStats stats= startMeter(context, computer);
 			List<IContextInformation> proposals= computer.computeContextInformation(context, monitor);
-			stopMeter(stats, COMPUTE_CONTEXT_INFORMATION);
+			stopMeter(stats, start, COMPUTE_CONTEXT_INFORMATION);
 
 			if (proposals != null) {
 				fLastError= computer.getErrorMessage();
@@ -419,9 +491,10 @@ final class CompletionProposalComputerDescriptor {
 			if (computer == null) // not active yet
 				return;
 
+			long start= System.currentTimeMillis();
 			PerformanceStats stats= startMeter(SESSION_STARTED, computer);
 			computer.sessionStarted();
-			stopMeter(stats, SESSION_ENDED);
+			stopMeter(stats, start, SESSION_ENDED);
 
 			return;
 		} catch (InvalidRegistryObjectException x) {
@@ -452,9 +525,10 @@ final class CompletionProposalComputerDescriptor {
 			if (computer == null) // not active yet
 				return;
 
+			long start= System.currentTimeMillis();
 			PerformanceStats stats= startMeter(SESSION_ENDED, computer);
 			computer.sessionEnded();
-			stopMeter(stats, SESSION_ENDED);
+			stopMeter(stats, start, SESSION_ENDED);
 
 			return;
 		} catch (InvalidRegistryObjectException x) {
@@ -477,14 +551,10 @@ final class CompletionProposalComputerDescriptor {
 			stats= null;
 		}
 
-		if (fIsReportingDelay) {
-			fStart= System.currentTimeMillis();
-		}
-
 		return stats;
 	}
 
-	private void stopMeter(final PerformanceStats stats, String operation) {
+	private void stopMeter(final PerformanceStats stats, long start, String operation) {
 		if (MEASURE_PERFORMANCE) {
 			stats.endRun();
 			if (stats.isFailure()) {
@@ -496,7 +566,7 @@ final class CompletionProposalComputerDescriptor {
 
 		if (fIsReportingDelay) {
 			long current= System.currentTimeMillis();
-			if (current - fStart > MAX_DELAY) {
+			if (current - start > MAX_DELAY) {
 				IStatus status= createPerformanceStatus(operation);
 				fRegistry.informUser(this, status);
 			}
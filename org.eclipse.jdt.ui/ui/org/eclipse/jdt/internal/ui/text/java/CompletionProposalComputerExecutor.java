@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.java;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Runs the computations of a content assist invocation concurrently on a small, bounded pool of
+ * worker threads.
+ * <p>
+ * The caller waits for the results until a soft deadline has passed. The deadline is soft in the
+ * sense that the caller keeps waiting after it as long as none of the completed computations has
+ * a result, so that content assist does not come up empty just because the fast computers have
+ * nothing to contribute. It never waits past a hard deadline though, so that a hanging computer,
+ * or one that waits for the UI thread, cannot block the caller. Results of computations that
+ * complete later are passed to a {@link ILateResultListener}.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class CompletionProposalComputerExecutor {
+
+	/**
+	 * Receives the results of computations that complete after the deadline.
+	 *
+	 * @param <T> the type of the computed elements
+	 */
+	public interface ILateResultListener<T> {
+		/**
+		 * Called in the worker thread when a computation completes after the deadline.
+		 *
+		 * @param index the index of the computation
+		 * @param result the result of the computation, can be <code>null</code>
+		 */
+		void resultAvailable(int index, List<T> result);
+	}
+
+	/**
+	 * The computations of one invocation.
+	 *
+	 * @param <T> the type of the computed elements
+	 */
+	public static final class Invocation<T> {
+
+		private final class Computation extends FutureTask<List<T>> {
+			private final int fIndex;
+			/** Tells whether the result has been handed out, guarded by the invocation. */
+			private boolean fReported;
+			/** Tells whether the failure of the computation has been logged, guarded by this. */
+			private boolean fFailureLogged;
+
+			Computation(int index, Callable<List<T>> callable) {
+				super(callable);
+				fIndex= index;
+			}
+
+			@Override
+			protected void done() {
+				computationDone(this);
+			}
+
+			/**
+			 * Returns the result, a failure is logged the first time the result is collected.
+			 *
+			 * @param collect <code>true</code> if the result is collected, <code>false</code> if
+			 *            the caller just looks at it
+			 * @return the result, an empty list if the computation has failed
+			 */
+			List<T> getResult(boolean collect) {
+				try {
+					return get();
+				} catch (CancellationException e) {
+					return Collections.emptyList();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return Collections.emptyList();
+				} catch (ExecutionException e) {
+					if (collect)
+						logFailure(e.getCause());
+					return Collections.emptyList();
+				}
+			}
+
+			private void logFailure(Throwable failure) {
+				synchronized (this) {
+					if (fFailureLogged)
+						return;
+					fFailureLogged= true;
+				}
+				JavaPlugin.log(failure);
+			}
+		}
+
+		private final List<Computation> fComputations;
+		private ILateResultListener<T> fLateResultListener;
+		private boolean fCancelled;
+
+		Invocation(List<? extends Callable<List<T>>> computations) {
+			fComputations= new ArrayList<>(computations.size());
+			for (int i= 0; i < computations.size(); i++)
+				fComputations.add(new Computation(i, computations.get(i)));
+		}
+
+		/**
+		 * Waits for the results of the computations.
+		 *
+		 * @param deadline the soft deadline in milliseconds from now
+		 * @param hardDeadline the time in milliseconds from now after which the caller stops
+		 *            waiting even if no computation has a result yet, must not be smaller than
+		 *            <code>deadline</code>
+		 * @param listener the listener to receive the results of the computations that complete
+		 *            after this method has returned
+		 * @return the results in the order of the computations, with <code>null</code> for those
+		 *         that have not completed yet
+		 * @throws InterruptedException if the calling thread has been interrupted
+		 */
+		public List<List<T>> await(long deadline, long hardDeadline, ILateResultListener<T> listener) throws InterruptedException {
+			long start= System.nanoTime();
+			long end= start + TimeUnit.MILLISECONDS.toNanos(deadline);
+			long hardEnd= start + TimeUnit.MILLISECONDS.toNanos(Math.max(deadline, hardDeadline));
+			synchronized (this) {
+				while (!isAllDone()) {
+					long now= System.nanoTime();
+					if (now - end >= 0 && (hasResult() || now - hardEnd >= 0))
+						break;
+					long remaining= (now - end < 0 ? end : hardEnd) - now;
+					TimeUnit.NANOSECONDS.timedWait(this, remaining);
+				}
+
+				List<List<T>> results= new ArrayList<>(fComputations.size());
+				for (Computation computation : fComputations) {
+					if (computation.isDone()) {
+						computation.fReported= true;
+						results.add(computation.getResult(true));
+					} else {
+						results.add(null);
+					}
+				}
+				fLateResultListener= listener;
+				return results;
+			}
+		}
+
+		/**
+		 * Tells whether a computation has completed.
+		 *
+		 * @param index the index of the computation
+		 * @return <code>true</code> if the computation has completed or has been cancelled
+		 */
+		public boolean isDone(int index) {
+			return fComputations.get(index).isDone();
+		}
+
+		/**
+		 * Returns the result of a computation, waiting for it to complete if necessary.
+		 *
+		 * @param index the index of the computation
+		 * @return the result, can be <code>null</code>
+		 */
+		public List<T> getResult(int index) {
+			return fComputations.get(index).getResult(true);
+		}
+
+		/**
+		 * Cancels the computations which have not started yet and discards the results of all
+		 * computations which have not been reported yet.
+		 */
+		public void cancel() {
+			synchronized (this) {
+				fCancelled= true;
+				fLateResultListener= null;
+			}
+			for (Computation computation : fComputations)
+				computation.cancel(false);
+		}
+
+		private boolean isAllDone() {
+			for (Computation computation : fComputations) {
+				if (!computation.isDone())
+					return false;
+			}
+			return true;
+		}
+
+		private boolean hasResult() {
+			for (Computation computation : fComputations) {
+				if (computation.isDone()) {
+					List<T> result= computation.getResult(false);
+					if (result == null || !result.isEmpty())
+						return true;
+				}
+			}
+			return false;
+		}
+
+		void computationDone(Computation computation) {
+			ILateResultListener<T> listener;
+			synchronized (this) {
+				notifyAll();
+				if (fCancelled || fLateResultListener == null || computation.fReported)
+					return;
+				computation.fReported= true;
+				listener= fLateResultListener;
+			}
+			listener.resultAvailable(computation.fIndex, computation.getResult(true));
+		}
+	}
+
+	private static final String THREAD_NAME= "Completion Proposal Computer"; //$NON-NLS-1$
+
+	private static final long KEEP_ALIVE_SECONDS= 60;
+
+	private static CompletionProposalComputerExecutor fgInstance;
+
+	private final ThreadPoolExecutor fExecutor;
+
+	/**
+	 * Returns the shared executor.
+	 *
+	 * @return the shared executor
+	 */
+	public static synchronized CompletionProposalComputerExecutor getInstance() {
+		if (fgInstance == null)
+			fgInstance= new CompletionProposalComputerExecutor(Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+		return fgInstance;
+	}
+
+	/**
+	 * Stops the worker threads of the shared executor.
+	 */
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		fgInstance.fExecutor.shutdownNow();
+		fgInstance= null;
+	}
+
+	/**
+	 * Creates an executor.
+	 *
+	 * @param threads the maximum number of worker threads
+	 */
+	public CompletionProposalComputerExecutor(int threads) {
+		fExecutor= new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread= new Thread(runnable, THREAD_NAME);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		fExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Starts the computations of an invocation.
+	 *
+	 * @param computations the computations
+	 * @return the invocation to wait for the results
+	 * @param <T> the type of the computed elements
+	 */
+	public <T> Invocation<T> start(List<? extends Callable<List<T>>> computations) {
+		Invocation<T> invocation= new Invocation<>(computations);
+		for (FutureTask<List<T>> computation : invocation.fComputations)
+			fExecutor.execute(computation);
+		return invocation;
+	}
+}
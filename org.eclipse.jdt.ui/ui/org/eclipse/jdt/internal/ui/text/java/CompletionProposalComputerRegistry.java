@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -28,6 +29,7 @@ import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Link;
 
 import org.eclipse.core.runtime.CoreException;
@@ -45,6 +47,7 @@ import org.eclipse.jface.preference.IPreferenceStore;
 
 import org.eclipse.jface.text.IDocument;
 
+import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.dialogs.PreferencesUtil;
 
 import org.eclipse.jdt.internal.corext.util.Messages;
@@ -212,6 +215,22 @@ public final class CompletionProposalComputerRegistry {
 		return fPublicDescriptors;
 	}
 
+	/**
+	 * Returns the latencies of the proposal computations of the extensions to the
+	 * <code>javaCompletionProposalComputer</code> extension point, recorded since they have been
+	 * loaded.
+	 *
+	 * @return the latency histograms by extension id, in the order that the extensions were read
+	 *         in
+	 * @since 3.14
+	 */
+	public Map<String, LatencyHistogram> getLatencyHistograms() {
+		Map<String, LatencyHistogram> histograms= new LinkedHashMap<>();
+		for (CompletionProposalComputerDescriptor descriptor : new ArrayList<>(getProposalComputerDescriptors()))
+			histograms.put(descriptor.getId(), descriptor.getLatencyHistogram());
+		return histograms;
+	}
+
 	/**
 	 * Returns the list of proposal categories contributed to the
 	 * <code>javaCompletionProposalComputer</code> extension point.
@@ -429,7 +448,17 @@ public final class CompletionProposalComputerRegistry {
 	 * @param descriptor the descriptor of the misbehaving extension
 	 * @param status a status object that will be logged
 	 */
-	void informUser(CompletionProposalComputerDescriptor descriptor, IStatus status) {
+	void informUser(final CompletionProposalComputerDescriptor descriptor, final IStatus status) {
+		if (Display.getCurrent() == null) {
+			// the proposals are computed concurrently
+			PlatformUI.getWorkbench().getDisplay().asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					informUser(descriptor, status);
+				}
+			});
+			return;
+		}
 		JavaPlugin.log(status);
         String title= JavaTextMessages.CompletionProposalComputerRegistry_error_dialog_title;
         CompletionProposalCategory category= descriptor.getCategory();
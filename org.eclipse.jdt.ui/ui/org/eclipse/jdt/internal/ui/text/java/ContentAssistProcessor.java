@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,7 +19,9 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
@@ -29,6 +31,7 @@ import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Link;
 import org.eclipse.swt.widgets.Shell;
 
@@ -47,6 +50,7 @@ import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.resource.JFaceResources;
 
+import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.contentassist.ContentAssistEvent;
 import org.eclipse.jface.text.contentassist.ContentAssistant;
@@ -73,6 +77,8 @@ import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.JavaUIMessages;
 import org.eclipse.jdt.internal.ui.dialogs.OptionalMessageDialog;
+import org.eclipse.jdt.internal.ui.text.java.CompletionProposalComputerExecutor.ILateResultListener;
+import org.eclipse.jdt.internal.ui.text.java.CompletionProposalComputerExecutor.Invocation;
 
 
 /**
@@ -177,6 +183,9 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 				cat.sessionEnded();
 			}
 
+			if (JavaPlugin.DEBUG_RESULT_COLLECTOR && fConcurrentComputation != null)
+				printLatencies();
+			cancelConcurrentComputation();
 			fSelectedProposal= null;
 			fCategoryIteration= null;
 			fRepetition= -1;
@@ -207,10 +216,203 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		 */
 		@Override
 		public void assistSessionRestarted(ContentAssistEvent event) {
+			if (fConcurrentComputation != null && fConcurrentComputation.isRefreshing())
+				return; // showing late proposals, not a new invocation
 			fRepetition= 0;
 		}
 	}
 
+	/**
+	 * Computes the proposals of one invocation with the computers running concurrently, see
+	 * {@link PreferenceConstants#CODEASSIST_CONCURRENT_COMPUTATION}.
+	 * <p>
+	 * Computers which access the UI are run in the UI thread, all others on the
+	 * {@link CompletionProposalComputerExecutor}. The proposals which are computed after the
+	 * deadline are added to the proposal list as long as it is open and the caret has not moved:
+	 * the list is asked to show the possible completions again, and
+	 * {@link ContentAssistProcessor#computeCompletionProposals(ITextViewer, int)} returns the
+	 * proposals of this computation instead of computing new ones.
+	 * </p>
+	 * <p>
+	 * Each computer which runs in the background gets a context of its own, since the contexts
+	 * cache state, like the collector of a Java computer, which must not leak into the other
+	 * computers while they are still computing.
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	private final class ConcurrentComputation implements ILateResultListener<ICompletionProposal> {
+		/**
+		 * The time in milliseconds after which the computation stops waiting for the computers,
+		 * even if none of them has computed proposals yet.
+		 */
+		private static final int MAX_WAIT= 5000;
+
+		private final ITextViewer fViewer;
+		private final IDocument fDocument;
+		private final int fOffset;
+		private final ContentAssistInvocationContext fContext;
+		private final Display fDisplay;
+		private final List<CompletionProposalCategory> fComputedCategories;
+		private final List<CompletionProposalComputerDescriptor> fDescriptors= new ArrayList<>();
+		/** The proposals by descriptor, <code>null</code> while they are being computed. */
+		private final List<List<ICompletionProposal>> fResults= new ArrayList<>();
+		/** Shared by all computers, so that they can be cancelled at once. */
+		private final IProgressMonitor fMonitor= new NullProgressMonitor();
+		private Invocation<ICompletionProposal> fInvocation;
+		private boolean fIsRefreshing;
+
+		ConcurrentComputation(ITextViewer viewer, int offset, ContentAssistInvocationContext context, List<CompletionProposalCategory> categories) {
+			fViewer= viewer;
+			fDocument= viewer.getDocument();
+			fOffset= offset;
+			fContext= context;
+			fDisplay= Display.getCurrent();
+			fComputedCategories= categories;
+			for (CompletionProposalCategory category : categories)
+				fDescriptors.addAll(category.getComputerDescriptors(fPartition));
+			for (int i= 0; i < fDescriptors.size(); i++)
+				fResults.add(null);
+		}
+
+		/**
+		 * Computes the proposals until the deadline has passed.
+		 *
+		 * @param deadline the soft deadline in milliseconds
+		 * @return the proposals computed so far
+		 */
+		List<ICompletionProposal> compute(int deadline) {
+			long start= System.currentTimeMillis();
+			List<Callable<List<ICompletionProposal>>> computations= new ArrayList<>(fDescriptors.size());
+			for (final CompletionProposalComputerDescriptor descriptor : fDescriptors) {
+				final boolean inUIThread= descriptor.requiresUIThread() || fDisplay == null;
+				// created here, since creating a context may access the viewer
+				final ContentAssistInvocationContext context= inUIThread ? null : createContext(fViewer, fOffset);
+				computations.add(new Callable<List<ICompletionProposal>>() {
+					@Override
+					public List<ICompletionProposal> call() throws Exception {
+						if (inUIThread)
+							return null;
+						return descriptor.computeCompletionProposalsInBackground(context, fMonitor);
+					}
+				});
+			}
+			fInvocation= CompletionProposalComputerExecutor.getInstance().start(computations);
+
+			// meanwhile, run the computers which have to run in the UI thread
+			for (int i= 0; i < fDescriptors.size(); i++) {
+				CompletionProposalComputerDescriptor descriptor= fDescriptors.get(i);
+				if (descriptor.requiresUIThread() || fDisplay == null)
+					fResults.set(i, descriptor.computeCompletionProposals(fContext, fMonitor));
+			}
+
+			try {
+				long elapsed= System.currentTimeMillis() - start;
+				fInvocation.await(Math.max(0, deadline - elapsed), Math.max(0, Math.max(deadline, MAX_WAIT) - elapsed), fDisplay == null ? null : this);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			for (int i= 0; i < fDescriptors.size(); i++) {
+				if (fResults.get(i) == null && fInvocation.isDone(i))
+					setResult(i, fInvocation.getResult(i));
+			}
+			return getProposals();
+		}
+
+		/*
+		 * @see org.eclipse.jdt.internal.ui.text.java.CompletionProposalComputerExecutor.ILateResultListener#resultAvailable(int, java.util.List)
+		 */
+		@Override
+		public void resultAvailable(final int index, final List<ICompletionProposal> result) {
+			fDisplay.asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					if (fConcurrentComputation != ConcurrentComputation.this || fResults.get(index) != null)
+						return;
+					setResult(index, result);
+					if (!fResults.get(index).isEmpty())
+						refresh();
+				}
+			});
+		}
+
+		/**
+		 * Sets the result of a computer, runs the computer in the UI thread if it could not
+		 * compute its proposals in the background.
+		 *
+		 * @param index the index of the computer
+		 * @param result the result, or <code>null</code> if it has to be computed in the UI thread
+		 */
+		private void setResult(int index, List<ICompletionProposal> result) {
+			if (result == null)
+				result= fDescriptors.get(index).computeCompletionProposals(fContext, fMonitor);
+			fResults.set(index, result);
+		}
+
+		/**
+		 * Returns the proposals computed so far and updates the state of the processor accordingly.
+		 *
+		 * @return the proposals computed so far, in the order of the computers
+		 */
+		List<ICompletionProposal> getProposals() {
+			List<ICompletionProposal> proposals= new ArrayList<>();
+			boolean needsSortingAfterFiltering= false;
+			for (int i= 0; i < fDescriptors.size(); i++) {
+				List<ICompletionProposal> computed= fResults.get(i);
+				if (computed == null)
+					continue;
+				CompletionProposalComputerDescriptor descriptor= fDescriptors.get(i);
+				proposals.addAll(computed);
+				needsSortingAfterFiltering= needsSortingAfterFiltering || (descriptor.getCategory().isSortingAfterFilteringNeeded() && !computed.isEmpty());
+				if (fErrorMessage == null)
+					fErrorMessage= descriptor.getErrorMessage();
+			}
+			if (fErrorMessage == null) {
+				for (CompletionProposalCategory category : fComputedCategories) {
+					if (category.getErrorMessage() != null) {
+						fErrorMessage= category.getErrorMessage();
+						break;
+					}
+				}
+			}
+			setNeedsSortingAfterFiltering(needsSortingAfterFiltering);
+			return proposals;
+		}
+
+		/**
+		 * Shows the proposal list again with the late proposals added, unless the user has moved on.
+		 */
+		private void refresh() {
+			if (fCategoryIteration == null || fViewer.getDocument() != fDocument)
+				return; // session has ended
+			if (fViewer.getTextWidget() == null || fViewer.getTextWidget().isDisposed() || fViewer.getSelectedRange().x != fOffset)
+				return; // the list has been filtered, the late proposals show up when it is computed again
+			if (JavaPlugin.getDefault().getPreferenceStore().getBoolean(PreferenceConstants.CODEASSIST_PREFIX_COMPLETION))
+				return;
+			fIsRefreshing= true;
+			try {
+				fAssistant.showPossibleCompletions();
+			} finally {
+				fIsRefreshing= false;
+			}
+		}
+
+		/**
+		 * Tells whether the proposal list is being shown again with the late proposals.
+		 *
+		 * @return <code>true</code> if the proposals of this computation are to be returned
+		 */
+		boolean isRefreshing() {
+			return fIsRefreshing;
+		}
+
+		void cancel() {
+			fMonitor.setCanceled(true);
+			if (fInvocation != null)
+				fInvocation.cancel();
+		}
+	}
+
 	/**
 	 * Dialog settings key for the "all categories are disabled" warning dialog. See
 	 * {@link OptionalMessageDialog}.
@@ -258,6 +460,13 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 */
 	private boolean fNeedsSortingAfterFiltering;
 
+	/**
+	 * The concurrent computation of the current invocation, <code>null</code> if none.
+	 *
+	 * @since 3.14
+	 */
+	private ConcurrentComputation fConcurrentComputation;
+
 
 	public ContentAssistProcessor(ContentAssistant assistant, String partition) {
 		Assert.isNotNull(partition);
@@ -324,9 +533,20 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 * @return the list of proposals
 	 */
 	private List<ICompletionProposal> collectProposals(ITextViewer viewer, int offset, IProgressMonitor monitor, ContentAssistInvocationContext context) {
+		if (fConcurrentComputation != null && fConcurrentComputation.isRefreshing())
+			return fConcurrentComputation.getProposals();
+		cancelConcurrentComputation();
+
+		List<CompletionProposalCategory> providers= getCategories();
+		if (isConcurrentComputation()) {
+			fConcurrentComputation= new ConcurrentComputation(viewer, offset, context, providers);
+			List<ICompletionProposal> proposals= fConcurrentComputation.compute(JavaPlugin.getDefault().getPreferenceStore().getInt(PreferenceConstants.CODEASSIST_COMPUTATION_DEADLINE));
+			monitor.worked(providers.size());
+			return proposals;
+		}
+
 		boolean needsSortingAfterFiltering= false;
 		List<ICompletionProposal> proposals= new ArrayList<>();
-		List<CompletionProposalCategory> providers= getCategories();
 		for (CompletionProposalCategory cat : providers) {
 			List<ICompletionProposal> computed= cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1));
 			proposals.addAll(computed);
@@ -334,10 +554,44 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 			if (fErrorMessage == null)
 				fErrorMessage= cat.getErrorMessage();
 		}
+		setNeedsSortingAfterFiltering(needsSortingAfterFiltering);
+		return proposals;
+	}
+
+	private void setNeedsSortingAfterFiltering(boolean needsSortingAfterFiltering) {
 		if (fNeedsSortingAfterFiltering && !needsSortingAfterFiltering)
 			fAssistant.setSorter(null);
 		fNeedsSortingAfterFiltering= needsSortingAfterFiltering;
-		return proposals;
+	}
+
+	/**
+	 * Tells whether the computers are to be run concurrently.
+	 *
+	 * @return <code>true</code> if the computers are run concurrently
+	 * @since 3.14
+	 * @see PreferenceConstants#CODEASSIST_CONCURRENT_COMPUTATION
+	 */
+	private boolean isConcurrentComputation() {
+		return JavaPlugin.getDefault().getPreferenceStore().getBoolean(PreferenceConstants.CODEASSIST_CONCURRENT_COMPUTATION);
+	}
+
+	/**
+	 * Prints the latencies of the computers which have computed proposals so far.
+	 *
+	 * @since 3.14
+	 */
+	private void printLatencies() {
+		for (Map.Entry<String, LatencyHistogram> entry : fComputerRegistry.getLatencyHistograms().entrySet()) {
+			if (entry.getValue().getCount() > 0)
+				System.err.println("Computer latencies (" + entry.getKey() + "):\t" + entry.getValue()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private void cancelConcurrentComputation() {
+		if (fConcurrentComputation != null) {
+			fConcurrentComputation.cancel();
+			fConcurrentComputation= null;
+		}
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,8 +16,10 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -127,13 +129,7 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 
 	private static final long JAVA_CODE_ASSIST_TIMEOUT= Long.getLong("org.eclipse.jdt.ui.codeAssistTimeout", 5000).longValue(); // ms //$NON-NLS-1$
 
-	private String fErrorMessage;
-
-	private final IProgressMonitor fTimeoutProgressMonitor;
-
-	public JavaCompletionProposalComputer() {
-		fTimeoutProgressMonitor= createTimeoutProgressMonitor(JAVA_CODE_ASSIST_TIMEOUT);
-	}
+	private volatile String fErrorMessage;
 
 	protected int guessContextInformationPosition(ContentAssistInvocationContext context) {
 		return context.getInvocationOffset();
@@ -164,7 +160,7 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 	}
 
 	private List<IContextInformation> addContextInformations(JavaContentAssistInvocationContext context, int offset) {
-		List<ICompletionProposal> proposals= internalComputeCompletionProposals(offset, context);
+		List<ICompletionProposal> proposals= internalComputeCompletionProposals(offset, context, null);
 		List<IContextInformation> result= new ArrayList<>(proposals.size());
 		List<IContextInformation> anonymousResult= new ArrayList<>(proposals.size());
 
@@ -209,12 +205,12 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
 		if (context instanceof JavaContentAssistInvocationContext) {
 			JavaContentAssistInvocationContext javaContext= (JavaContentAssistInvocationContext) context;
-			return internalComputeCompletionProposals(context.getInvocationOffset(), javaContext);
+			return internalComputeCompletionProposals(context.getInvocationOffset(), javaContext, monitor);
 		}
 		return Collections.emptyList();
 	}
 
-	private List<ICompletionProposal> internalComputeCompletionProposals(int offset, JavaContentAssistInvocationContext context) {
+	private List<ICompletionProposal> internalComputeCompletionProposals(int offset, JavaContentAssistInvocationContext context, IProgressMonitor monitor) {
 		ICompilationUnit unit= context.getCompilationUnit();
 		if (unit == null)
 			return Collections.emptyList();
@@ -244,20 +240,38 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 		collector.setFavoriteReferences(getFavoriteStaticMembers());
 
 		try {
-			Point selection= viewer.getSelectedRange();
-			if (selection.y > 0)
+			// the context captured the selection in the UI thread, this may run concurrently
+			Point selection= context.getSelectedRange();
+			if (selection != null && selection.y > 0)
 				collector.setReplacementLength(selection.y);
-			unit.codeComplete(offset, collector, fTimeoutProgressMonitor);
+			// a monitor per call, a cancelled computation may still be running when the next one starts
+			unit.codeComplete(offset, collector, createTimeoutProgressMonitor(JAVA_CODE_ASSIST_TIMEOUT, monitor));
 		} catch (OperationCanceledException x) {
+			if (monitor != null && monitor.isCanceled())
+				return Collections.emptyList(); // the invocation has been cancelled, nobody waits for the result
 			IBindingService bindingSvc= PlatformUI.getWorkbench().getAdapter(IBindingService.class);
 			String keyBinding= bindingSvc.getBestActiveBindingFormattedFor(IWorkbenchCommandConstants.EDIT_CONTENT_ASSIST);
 			fErrorMessage= Messages.format(JavaTextMessages.CompletionProcessor_error_javaCompletion_took_too_long_message, keyBinding);
-		} catch (JavaModelException x) {
-			Shell shell= viewer.getTextWidget().getShell();
-			if (x.isDoesNotExist() && !unit.getJavaProject().isOnClasspath(unit))
-				MessageDialog.openInformation(shell, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_title, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_message);
+		} catch (final JavaModelException x) {
+			final boolean notOnBuildPath= x.isDoesNotExist() && !unit.getJavaProject().isOnClasspath(unit);
+			final StyledText textWidget= viewer.getTextWidget();
+			Runnable runnable= new Runnable() {
+				@Override
+				public void run() {
+					if (textWidget.isDisposed())
+						return;
+					Shell shell= textWidget.getShell();
+					if (notOnBuildPath)
+						MessageDialog.openInformation(shell, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_title, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_message);
+					else
+						ErrorDialog.openError(shell, JavaTextMessages.CompletionProcessor_error_accessing_title, JavaTextMessages.CompletionProcessor_error_accessing_message, x.getStatus());
+				}
+			};
+			Display display= textWidget.getDisplay();
+			if (display.getThread() == Thread.currentThread())
+				runnable.run();
 			else
-				ErrorDialog.openError(shell, JavaTextMessages.CompletionProcessor_error_accessing_title, JavaTextMessages.CompletionProcessor_error_accessing_message, x.getStatus());
+				display.asyncExec(runnable); // computed concurrently
 		}
 
 		ICompletionProposal[] javaProposals= collector.getJavaCompletionProposals();
@@ -284,13 +298,15 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 	 * Returns a new progress monitor that get cancelled after the given timeout.
 	 * 
 	 * @param timeout the timeout in ms
+	 * @param monitor the monitor of the invocation, which cancels the returned monitor as well,
+	 *            or <code>null</code>
 	 * @return the progress monitor
 	 * @since 3.5
 	 */
-	private IProgressMonitor createTimeoutProgressMonitor(final long timeout) {
+	private IProgressMonitor createTimeoutProgressMonitor(final long timeout, final IProgressMonitor monitor) {
 		return new IProgressMonitor() {
 
-			private long fEndTime;
+			private volatile long fEndTime= System.currentTimeMillis() + timeout;
 			
 			@Override
 			public void beginTask(String name, int totalWork) {
@@ -298,7 +314,7 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 			}
 			@Override
 			public boolean isCanceled() {
-				return fEndTime <= System.currentTimeMillis();
+				return fEndTime <= System.currentTimeMillis() || monitor != null && monitor.isCanceled();
 			}
 			@Override
 			public void done() {
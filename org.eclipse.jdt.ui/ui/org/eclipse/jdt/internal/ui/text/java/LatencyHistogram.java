@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.java;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in milliseconds with fixed, roughly exponential buckets. Recording is
+ * thread safe and does not lock.
+ *
+ * @since 3.14
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * The inclusive upper bounds of the buckets in milliseconds. The last bucket counts all
+	 * latencies above the last bound.
+	 */
+	private static final long[] BOUNDS= { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
+
+	private final AtomicLongArray fCounts= new AtomicLongArray(BOUNDS.length + 1);
+	private final AtomicLong fTotal= new AtomicLong();
+	private final AtomicLong fMax= new AtomicLong();
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param millis the latency in milliseconds
+	 */
+	public void record(long millis) {
+		int bucket= 0;
+		while (bucket < BOUNDS.length && millis > BOUNDS[bucket])
+			bucket++;
+		fCounts.incrementAndGet(bucket);
+		fTotal.addAndGet(millis);
+		long max;
+		do {
+			max= fMax.get();
+		} while (millis > max && !fMax.compareAndSet(max, millis));
+	}
+
+	/**
+	 * Returns the upper bounds of the buckets.
+	 *
+	 * @return the inclusive upper bounds in milliseconds, the last bucket has no upper bound
+	 */
+	public static long[] getBucketBounds() {
+		return BOUNDS.clone();
+	}
+
+	/**
+	 * Returns the number of recorded latencies per bucket.
+	 *
+	 * @return the counts, one more than there are bounds
+	 */
+	public long[] getCounts() {
+		long[] counts= new long[fCounts.length()];
+		for (int i= 0; i < counts.length; i++)
+			counts[i]= fCounts.get(i);
+		return counts;
+	}
+
+	/**
+	 * Returns the number of recorded latencies.
+	 *
+	 * @return the number of recorded latencies
+	 */
+	public long getCount() {
+		long count= 0;
+		for (int i= 0; i < fCounts.length(); i++)
+			count+= fCounts.get(i);
+		return count;
+	}
+
+	/**
+	 * Returns the highest recorded latency.
+	 *
+	 * @return the highest latency in milliseconds, or <code>0</code> if none has been recorded
+	 */
+	public long getMax() {
+		return fMax.get();
+	}
+
+	/**
+	 * Returns the mean of the recorded latencies.
+	 *
+	 * @return the mean in milliseconds, or <code>0</code> if none has been recorded
+	 */
+	public double getMean() {
+		long count= getCount();
+		return count == 0 ? 0 : (double) fTotal.get() / count;
+	}
+
+	/**
+	 * Returns an upper estimate of a percentile, i.e. the upper bound of the bucket which contains
+	 * the percentile.
+	 *
+	 * @param percentile the percentile, between <code>0</code> and <code>100</code>
+	 * @return the estimated percentile in milliseconds, or {@link #getMax()} if it is in the last
+	 *         bucket
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts= getCounts();
+		long count= 0;
+		for (int i= 0; i < counts.length; i++)
+			count+= counts[i];
+		if (count == 0)
+			return 0;
+		long rank= (long) Math.ceil(count * percentile / 100);
+		long seen= 0;
+		for (int i= 0; i < BOUNDS.length; i++) {
+			seen+= counts[i];
+			if (seen >= rank && seen > 0)
+				return Math.min(BOUNDS[i], getMax());
+		}
+		return getMax();
+	}
+
+	/**
+	 * Discards all recorded latencies.
+	 */
+	public void reset() {
+		for (int i= 0; i < fCounts.length(); i++)
+			fCounts.set(i, 0);
+		fTotal.set(0);
+		fMax.set(0);
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer buf= new StringBuffer();
+		buf.append("count=").append(getCount()); //$NON-NLS-1$
+		buf.append(", p50=").append(getPercentile(50)); //$NON-NLS-1$
+		buf.append(", p90=").append(getPercentile(90)); //$NON-NLS-1$
+		buf.append(", p99=").append(getPercentile(99)); //$NON-NLS-1$
+		buf.append(", max=").append(getMax()); //$NON-NLS-1$
+		long[] counts= getCounts();
+		buf.append(" ["); //$NON-NLS-1$
+		for (int i= 0; i < counts.length; i++) {
+			if (i > 0)
+				buf.append(", "); //$NON-NLS-1$
+			buf.append(i < BOUNDS.length ? "<=" + BOUNDS[i] : ">" + BOUNDS[BOUNDS.length - 1]).append(':').append(counts[i]); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		buf.append(']');
+		return buf.toString();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,25 +15,34 @@ package org.eclipse.jdt.internal.ui.text.java.hover;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.Reader;
-import java.io.StringReader;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.osgi.framework.Bundle;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Drawable;
 import org.eclipse.swt.graphics.FontData;
+import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.core.resources.IFile;
 
@@ -298,6 +307,261 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 	}
 
 
+	/**
+	 * Hover input which shows the header of an element while its Javadoc is still being computed.
+	 * The information controls that show this input switch to the complete input when it is
+	 * available.
+	 *
+	 * @since 3.14
+	 */
+	public static final class StreamingJavadocInput extends JavadocBrowserInformationControlInput {
+		private final String fHeader;
+		/** Guarded by fgJavadocJobs. */
+		private JavadocJob fJob;
+		/** Guarded by this. */
+		private JavadocBrowserInformationControlInput fCompletedInput;
+		/** Guarded by this. */
+		private final List<StreamingInputListener> fListeners= new ArrayList<>();
+		/** Guarded by this. */
+		private boolean fShown;
+		/** Guarded by this. */
+		private boolean fDiscarded;
+
+		StreamingJavadocInput(IJavaElement element, String header, int leadingImageWidth) {
+			super(null, element, createInput(null, element, new StringBuffer(header), null, leadingImageWidth).getHtml(), leadingImageWidth);
+			fHeader= header;
+		}
+
+		/**
+		 * Completes this input with the Javadoc, called when the Javadoc has been computed.
+		 *
+		 * @param content the Javadoc, or <code>null</code> if it could not be computed
+		 */
+		void complete(JavadocHoverCache.Content content) {
+			StringBuffer buffer= new StringBuffer(fHeader);
+			String base= null;
+			if (content != null) {
+				if (content.getHtml() != null)
+					HTMLPrinter.addParagraph(buffer, content.getHtml());
+				base= content.getBaseURL();
+			}
+			final JavadocBrowserInformationControlInput completedInput= createInput(null, getElement(), buffer, base, getLeadingImageWidth());
+			final List<StreamingInputListener> listeners;
+			synchronized (this) {
+				fCompletedInput= completedInput;
+				notifyAll();
+				listeners= new ArrayList<>(fListeners);
+				fListeners.clear();
+			}
+			for (final StreamingInputListener listener : listeners) {
+				listener.fDisplay.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						listener.showCompletedInput(StreamingJavadocInput.this, completedInput);
+					}
+				});
+			}
+		}
+
+		/**
+		 * Waits for the complete input.
+		 *
+		 * @param timeout the maximum time to wait in milliseconds
+		 * @return the complete input, or <code>null</code> if the Javadoc has not been computed yet
+		 */
+		public synchronized JavadocBrowserInformationControlInput waitForCompletedInput(long timeout) {
+			long end= System.currentTimeMillis() + timeout;
+			try {
+				for (long remaining= timeout; fCompletedInput == null && remaining > 0; remaining= end - System.currentTimeMillis())
+					wait(remaining);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return fCompletedInput;
+		}
+
+		/**
+		 * Called in the UI thread when this input is shown in an information control.
+		 *
+		 * @param listener the listener of the information control
+		 */
+		void shownIn(StreamingInputListener listener) {
+			JavadocBrowserInformationControlInput completedInput;
+			boolean discarded;
+			synchronized (this) {
+				fShown= true;
+				discarded= fDiscarded;
+				fDiscarded= false;
+				completedInput= fCompletedInput;
+				if (completedInput == null)
+					fListeners.add(listener);
+			}
+			if (completedInput != null)
+				listener.showCompletedInput(this, completedInput);
+			else if (discarded)
+				addToJob(this); // the input has been discarded before it was shown
+		}
+
+		/**
+		 * Called when this input has been superseded by the input of another hover computation.
+		 * The Javadoc job is canceled if the input has not been shown and no other input waits for
+		 * it.
+		 */
+		void discard() {
+			synchronized (this) {
+				if (fShown || fCompletedInput != null)
+					return;
+				fDiscarded= true;
+			}
+			synchronized (fgJavadocJobs) {
+				if (fJob != null)
+					fJob.removeInput(this);
+			}
+		}
+
+		/**
+		 * Called in the UI thread when this input is no longer shown in an information control.
+		 * The Javadoc job is canceled if no other input waits for it.
+		 *
+		 * @param listener the listener of the information control
+		 */
+		void hiddenIn(StreamingInputListener listener) {
+			synchronized (this) {
+				if (!fListeners.remove(listener) || !fListeners.isEmpty())
+					return;
+			}
+			synchronized (fgJavadocJobs) {
+				if (fJob != null)
+					fJob.removeInput(this);
+			}
+		}
+	}
+
+	/**
+	 * Computes the Javadoc of an element for all the {@link StreamingJavadocInput}s that wait for
+	 * it. There is at most one job per element.
+	 *
+	 * @since 3.14
+	 */
+	private static final class JavadocJob extends Job {
+		private final IJavaElement fElement;
+		private final String fKey;
+		/** Guarded by fgJavadocJobs. */
+		private final List<StreamingJavadocInput> fInputs= new ArrayList<>();
+
+		JavadocJob(IJavaElement element, String key) {
+			super(JavaHoverMessages.JavadocHover_computingJavadoc_job);
+			fElement= element;
+			fKey= key;
+			setSystem(true);
+			setPriority(Job.SHORT);
+		}
+
+		/**
+		 * Adds an input that waits for the Javadoc.
+		 *
+		 * @param input the input
+		 */
+		void addInput(StreamingJavadocInput input) {
+			fInputs.add(input);
+			input.fJob= this;
+		}
+
+		/**
+		 * Removes an input that no longer waits for the Javadoc, and cancels the job if it was the
+		 * last one.
+		 *
+		 * @param input the input
+		 */
+		void removeInput(StreamingJavadocInput input) {
+			fInputs.remove(input);
+			input.fJob= null;
+			if (fInputs.isEmpty()) {
+				if (fgJavadocJobs.get(fKey) == this)
+					fgJavadocJobs.remove(fKey);
+				cancel();
+			}
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			if (monitor.isCanceled())
+				return Status.CANCEL_STATUS;
+			JavadocHoverCache.Content content= null;
+			try {
+				content= getJavadocContent(fElement);
+			} finally {
+				List<StreamingJavadocInput> inputs;
+				synchronized (fgJavadocJobs) {
+					if (fgJavadocJobs.get(fKey) == this)
+						fgJavadocJobs.remove(fKey);
+					inputs= new ArrayList<>(fInputs);
+					for (StreamingJavadocInput input : inputs) {
+						input.fJob= null;
+					}
+					fInputs.clear();
+				}
+				for (StreamingJavadocInput input : inputs) {
+					input.complete(content);
+				}
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	/**
+	 * Replaces a {@link StreamingJavadocInput} shown in an information control with the complete
+	 * input.
+	 *
+	 * @since 3.14
+	 */
+	private static final class StreamingInputListener implements IInputChangedListener, DisposeListener {
+		private final BrowserInformationControl fControl;
+		private final Display fDisplay;
+		private boolean fDisposed;
+		private StreamingJavadocInput fShownInput;
+
+		StreamingInputListener(BrowserInformationControl control) {
+			fControl= control;
+			fDisplay= Display.getCurrent();
+			control.addInputChangeListener(this);
+			control.addDisposeListener(this);
+		}
+
+		@Override
+		public void inputChanged(Object newInput) {
+			if (fShownInput != null && fShownInput != newInput) {
+				// the hover has been hidden or shows another input
+				StreamingJavadocInput hiddenInput= fShownInput;
+				fShownInput= null;
+				hiddenInput.hiddenIn(this);
+			}
+			if (newInput instanceof StreamingJavadocInput && newInput != fShownInput) {
+				fShownInput= (StreamingJavadocInput) newInput;
+				fShownInput.shownIn(this);
+			}
+		}
+
+		@Override
+		public void widgetDisposed(DisposeEvent e) {
+			fDisposed= true;
+			if (fShownInput != null) {
+				fShownInput.hiddenIn(this);
+				fShownInput= null;
+			}
+		}
+
+		void showCompletedInput(StreamingJavadocInput input, JavadocBrowserInformationControlInput completedInput) {
+			if (fDisposed || fControl.getInput() != input)
+				return;
+			fControl.setInput(completedInput);
+			Rectangle bounds= fControl.getBounds();
+			Point hint= fControl.computeSizeHint();
+			if (hint.x > bounds.width || hint.y > bounds.height)
+				fControl.setSize(Math.max(hint.x, bounds.width), Math.max(hint.y, bounds.height));
+		}
+	}
+
 	/**
 	 * Presenter control creator.
 	 *
@@ -372,6 +636,7 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 				tbm.update(true);
 
 				addLinkListener(iControl);
+				new StreamingInputListener(iControl);
 				return iControl;
 
 			} else {
@@ -438,6 +703,7 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 				setHoverColors();
 				
 				addLinkListener(iControl);
+				new StreamingInputListener(iControl);
 				return iControl;
 			} else {
 				return new DefaultInformationControl(parent, tooltipAffordanceString) {
@@ -496,6 +762,21 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 		}
 	}
 
+	/**
+	 * The time in milliseconds the hover waits for the Javadoc before it shows the header of the
+	 * element only.
+	 *
+	 * @since 3.14
+	 */
+	private static final long STREAMING_DELAY= 200;
+
+	/**
+	 * The running Javadoc jobs by element handle identifier.
+	 *
+	 * @since 3.14
+	 */
+	private static final Map<String, JavadocJob> fgJavadocJobs= new HashMap<>();
+
 	private static final long LABEL_FLAGS=  JavaElementLabels.ALL_FULLY_QUALIFIED
 		| JavaElementLabels.M_PRE_RETURNTYPE | JavaElementLabels.M_PARAMETER_ANNOTATIONS | JavaElementLabels.M_PARAMETER_TYPES | JavaElementLabels.M_PARAMETER_NAMES | JavaElementLabels.M_EXCEPTIONS
 		| JavaElementLabels.F_PRE_TYPE_SIGNATURE | JavaElementLabels.M_PRE_TYPE_PARAMETERS | JavaElementLabels.T_TYPE_PARAMETERS
@@ -523,6 +804,14 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 	 */
 	private IInformationControlCreator fPresenterControlCreator;
 
+	/**
+	 * The last input with the header only returned by this hover, discarded by the next hover
+	 * computation unless it has been shown. Guarded by this.
+	 *
+	 * @since 3.14
+	 */
+	private StreamingJavadocInput fLastStreamingInput;
+
 	/*
 	 * @see org.eclipse.jdt.internal.ui.text.java.hover.AbstractJavaEditorTextHover#getInformationPresenterControlCreator()
 	 * @since 3.1
@@ -655,7 +944,7 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 	@Override
 	@Deprecated
 	public String getHoverInfo(ITextViewer textViewer, IRegion hoverRegion) {
-		JavadocBrowserInformationControlInput info= (JavadocBrowserInformationControlInput) getHoverInfo2(textViewer, hoverRegion);
+		JavadocBrowserInformationControlInput info= internalGetHoverInfo(textViewer, hoverRegion, false);
 		return info != null ? info.getHtml() : null;
 	}
 
@@ -664,15 +953,97 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 	 */
 	@Override
 	public Object getHoverInfo2(ITextViewer textViewer, IRegion hoverRegion) {
-		return internalGetHoverInfo(textViewer, hoverRegion);
+		return internalGetHoverInfo(textViewer, hoverRegion, true);
 	}
 
-	private JavadocBrowserInformationControlInput internalGetHoverInfo(ITextViewer textViewer, IRegion hoverRegion) {
+	private JavadocBrowserInformationControlInput internalGetHoverInfo(ITextViewer textViewer, IRegion hoverRegion, boolean allowStreaming) {
 		IJavaElement[] elements= getJavaElementsAt(textViewer, hoverRegion);
 		if (elements == null || elements.length == 0)
 			return null;
 
-		return getHoverInfo(elements, getEditorInputJavaElement(), hoverRegion, null);
+		ITypeRoot editorInputElement= getEditorInputJavaElement();
+		if (allowStreaming)
+			discardLastStreamingInput();
+		// the Javadoc of elements in source is computed directly, only library Javadoc is cached
+		if (allowStreaming && elements.length == 1 && hasJavadoc(elements[0]) && isStreamed(elements[0])) {
+			JavadocBrowserInformationControlInput info= getStreamingHoverInfo(elements[0], editorInputElement, hoverRegion, STREAMING_DELAY);
+			if (info instanceof StreamingJavadocInput) {
+				synchronized (this) {
+					fLastStreamingInput= (StreamingJavadocInput) info;
+				}
+			}
+			return info;
+		}
+		return getHoverInfo(elements, editorInputElement, hoverRegion, null);
+	}
+
+	/**
+	 * Tells whether the Javadoc of an element is computed in a job, i.e. whether it can be cached
+	 * and is not cached yet.
+	 *
+	 * @param element the element
+	 * @return <code>true</code> if the hover waits for the Javadoc for a limited time only
+	 * @since 3.14
+	 */
+	private static boolean isStreamed(IJavaElement element) {
+		JavadocHoverCache cache= JavadocHoverCache.getInstance();
+		return cache.isCacheable(element) && cache.get(element) == null;
+	}
+
+	private void discardLastStreamingInput() {
+		StreamingJavadocInput input;
+		synchronized (this) {
+			input= fLastStreamingInput;
+			fLastStreamingInput= null;
+		}
+		if (input != null)
+			input.discard();
+	}
+
+	/**
+	 * Computes the hover info of a single element whose Javadoc is not cached. The Javadoc is
+	 * computed in a job that is shared by all hovers of the element; if it takes longer than the
+	 * given delay, a {@link StreamingJavadocInput} with the header only is returned, which the hover
+	 * replaces with the complete input when it is available.
+	 *
+	 * @param element the element
+	 * @param editorInputElement the editor input, or <code>null</code>
+	 * @param hoverRegion the text range of the hovered word
+	 * @param delay the time in milliseconds to wait for the Javadoc, <code>0</code> to return the
+	 *            header only without waiting
+	 * @return the hover info
+	 * @since 3.14
+	 */
+	public static JavadocBrowserInformationControlInput getStreamingHoverInfo(IJavaElement element, ITypeRoot editorInputElement, IRegion hoverRegion, long delay) {
+		StreamingJavadocInput input= new StreamingJavadocInput(element, getHeader(element, editorInputElement, hoverRegion), 20);
+		addToJob(input);
+
+		if (delay > 0) {
+			JavadocBrowserInformationControlInput completedInput= input.waitForCompletedInput(delay);
+			if (completedInput != null)
+				return completedInput;
+		}
+		return input;
+	}
+
+	/**
+	 * Adds the input to the Javadoc job of its element, and schedules the job if there is none.
+	 *
+	 * @param input the input that waits for the Javadoc
+	 * @since 3.14
+	 */
+	private static void addToJob(StreamingJavadocInput input) {
+		IJavaElement element= input.getElement();
+		String key= element.getHandleIdentifier();
+		synchronized (fgJavadocJobs) {
+			JavadocJob job= fgJavadocJobs.get(key);
+			if (job == null) {
+				job= new JavadocJob(element, key);
+				fgJavadocJobs.put(key, job);
+				job.schedule();
+			}
+			job.addInput(input);
+		}
 	}
 
 	/**
@@ -747,34 +1118,12 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 		} else {
 			element= elements[0];
 
-			if (element instanceof IPackageFragment || element instanceof IMember
-					|| element instanceof ILocalVariable || element instanceof ITypeParameter) {
-				HTMLPrinter.addSmallHeader(buffer, getInfoText(element, editorInputElement, hoverRegion, true));
-				buffer.append("<br>"); //$NON-NLS-1$
-				addAnnotations(buffer, element, editorInputElement, hoverRegion);
-				Reader reader= null;
-				try {
-					String content= JavadocContentAccess2.getHTMLContent(element, true);
-					IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
-					boolean isBinary= root.exists() && root.getKind() == IPackageFragmentRoot.K_BINARY;
-					if (content != null) {
-						base= JavadocContentAccess2.extractBaseURL(content);
-						if (base == null) {
-							base= JavaDocLocations.getBaseURL(element, isBinary);
-						}
-						reader= new StringReader(content);
-					} else {
-						String explanationForMissingJavadoc= JavaDocLocations.getExplanationForMissingJavadoc(element, root);
-						if (explanationForMissingJavadoc != null)
-							reader= new StringReader(explanationForMissingJavadoc);
-					}
-				} catch (CoreException ex) {
-					reader= new StringReader(JavaDocLocations.handleFailedJavadocFetch(ex));
-				}
-
-				if (reader != null) {
-					HTMLPrinter.addParagraph(buffer, reader);
-				}
+			if (hasJavadoc(element)) {
+				buffer.append(getHeader(element, editorInputElement, hoverRegion));
+				JavadocHoverCache.Content content= getJavadocContent(element);
+				if (content.getHtml() != null)
+					HTMLPrinter.addParagraph(buffer, content.getHtml());
+				base= content.getBaseURL();
 				hasContents= true;
 			}
 			leadingImageWidth= 20;
@@ -783,22 +1132,82 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 		if (!hasContents)
 			return null;
 
-		if (buffer.length() > 0) {
-	
-			ColorRegistry registry = JFaceResources.getColorRegistry();
-			RGB fgRGB = registry.getRGB("org.eclipse.jdt.ui.Javadoc.foregroundColor"); //$NON-NLS-1$ 
-			RGB bgRGB= registry.getRGB("org.eclipse.jdt.ui.Javadoc.backgroundColor"); //$NON-NLS-1$ 
+		if (buffer.length() > 0)
+			return createInput(previousInput, element, buffer, base, leadingImageWidth);
 
-			HTMLPrinter.insertPageProlog(buffer, 0, fgRGB, bgRGB, JavadocHover.getStyleSheet());
-			if (base != null) {
-				int endHeadIdx= buffer.indexOf("</head>"); //$NON-NLS-1$
-				buffer.insert(endHeadIdx, "\n<base href='" + base + "'>\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		return null;
+	}
+
+	private static boolean hasJavadoc(IJavaElement element) {
+		return element instanceof IPackageFragment || element instanceof IMember
+				|| element instanceof ILocalVariable || element instanceof ITypeParameter;
+	}
+
+	/**
+	 * Returns the header of the hover, i.e. the signature and the annotations of the element.
+	 *
+	 * @param element the element
+	 * @param editorInputElement the editor input, or <code>null</code>
+	 * @param hoverRegion the text range of the hovered word, or <code>null</code>
+	 * @return the HTML of the header
+	 * @since 3.14
+	 */
+	private static String getHeader(IJavaElement element, ITypeRoot editorInputElement, IRegion hoverRegion) {
+		StringBuffer buffer= new StringBuffer();
+		HTMLPrinter.addSmallHeader(buffer, getInfoText(element, editorInputElement, hoverRegion, true));
+		buffer.append("<br>"); //$NON-NLS-1$
+		addAnnotations(buffer, element, editorInputElement, hoverRegion);
+		return buffer.toString();
+	}
+
+	/**
+	 * Returns the rendered Javadoc of the element, from the {@link JavadocHoverCache} if the element
+	 * is in a library.
+	 *
+	 * @param element the element
+	 * @return the rendered Javadoc, or an explanation why it is not available
+	 * @since 3.14
+	 */
+	private static JavadocHoverCache.Content getJavadocContent(IJavaElement element) {
+		JavadocHoverCache cache= JavadocHoverCache.getInstance();
+		JavadocHoverCache.Content cached= cache.get(element);
+		if (cached != null)
+			return cached;
+
+		try {
+			String content= JavadocContentAccess2.getHTMLContent(element, true);
+			IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+			boolean isBinary= root.exists() && root.getKind() == IPackageFragmentRoot.K_BINARY;
+			JavadocHoverCache.Content result;
+			if (content != null) {
+				String base= JavadocContentAccess2.extractBaseURL(content);
+				if (base == null) {
+					base= JavaDocLocations.getBaseURL(element, isBinary);
+				}
+				result= new JavadocHoverCache.Content(content, base);
+			} else {
+				result= new JavadocHoverCache.Content(JavaDocLocations.getExplanationForMissingJavadoc(element, root), null);
 			}
-			HTMLPrinter.addPageEpilog(buffer);
-			return new JavadocBrowserInformationControlInput(previousInput, element, buffer.toString(), leadingImageWidth);
+			cache.put(element, result);
+			return result;
+		} catch (CoreException ex) {
+			// not cached, the attached Javadoc may be available later
+			return new JavadocHoverCache.Content(JavaDocLocations.handleFailedJavadocFetch(ex), null);
 		}
+	}
 
-		return null;
+	private static JavadocBrowserInformationControlInput createInput(JavadocBrowserInformationControlInput previousInput, IJavaElement element, StringBuffer buffer, String base, int leadingImageWidth) {
+		ColorRegistry registry = JFaceResources.getColorRegistry();
+		RGB fgRGB = registry.getRGB("org.eclipse.jdt.ui.Javadoc.foregroundColor"); //$NON-NLS-1$ 
+		RGB bgRGB= registry.getRGB("org.eclipse.jdt.ui.Javadoc.backgroundColor"); //$NON-NLS-1$ 
+
+		HTMLPrinter.insertPageProlog(buffer, 0, fgRGB, bgRGB, JavadocHover.getStyleSheet());
+		if (base != null) {
+			int endHeadIdx= buffer.indexOf("</head>"); //$NON-NLS-1$
+			buffer.insert(endHeadIdx, "\n<base href='" + base + "'>\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		HTMLPrinter.addPageEpilog(buffer);
+		return new JavadocBrowserInformationControlInput(previousInput, element, buffer.toString(), leadingImageWidth);
 	}
 
 	private static String getInfoText(IJavaElement element, ITypeRoot editorInputElement, IRegion hoverRegion, boolean allowImage) {
@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.java.hover;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Workspace wide cache of the rendered Javadoc of elements in libraries, so that hovering the same
+ * library members again does not resolve and render their Javadoc again.
+ * <p>
+ * Entries are keyed by the handle identifier of the element and are valid as long as the stamp of
+ * its library does not change, i.e. the resolved classpath entry including its source and Javadoc
+ * attachments, and the time stamps of the archive and of the source attachment. The cache is
+ * cleared whenever a classpath changes, since the Javadoc of a member can be inherited from
+ * another library. The size of the cache is bounded by the total length of the cached HTML, the
+ * least recently used entries are evicted first.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class JavadocHoverCache {
+
+	/**
+	 * The rendered Javadoc of an element.
+	 */
+	public static final class Content {
+		private final String fHtml;
+		private final String fBaseURL;
+		private final String fStamp;
+
+		/**
+		 * Creates the content.
+		 *
+		 * @param html the rendered Javadoc, or <code>null</code> if there is none
+		 * @param baseURL the base URL of the links in the Javadoc, or <code>null</code> if none
+		 */
+		public Content(String html, String baseURL) {
+			this(html, baseURL, null);
+		}
+
+		private Content(String html, String baseURL, String stamp) {
+			fHtml= html;
+			fBaseURL= baseURL;
+			fStamp= stamp;
+		}
+
+		/**
+		 * Returns the rendered Javadoc.
+		 *
+		 * @return the HTML, or <code>null</code> if there is none
+		 */
+		public String getHtml() {
+			return fHtml;
+		}
+
+		/**
+		 * Returns the base URL of the links in the Javadoc.
+		 *
+		 * @return the base URL, or <code>null</code> if none
+		 */
+		public String getBaseURL() {
+			return fBaseURL;
+		}
+
+		int getWeight() {
+			return 1 + (fHtml != null ? fHtml.length() : 0) + (fBaseURL != null ? fBaseURL.length() : 0);
+		}
+	}
+
+	/**
+	 * The maximum total number of characters of the cached content.
+	 */
+	private static final int MAX_WEIGHT= 2 * 1024 * 1024;
+
+	private static JavadocHoverCache fgInstance;
+
+	/** The cached content by element handle identifier, in access order. Guarded by this. */
+	private final LinkedHashMap<String, Content> fContents= new LinkedHashMap<>(64, 0.75f, true);
+
+	/** Guarded by this. */
+	private int fWeight;
+
+	private final int fMaxWeight;
+
+	private final IElementChangedListener fClasspathListener= new IElementChangedListener() {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			if (isClasspathChanged(event.getDelta()))
+				clear();
+		}
+	};
+
+	/**
+	 * Returns the cache.
+	 *
+	 * @return the cache
+	 */
+	public static synchronized JavadocHoverCache getInstance() {
+		if (fgInstance == null) {
+			fgInstance= new JavadocHoverCache(MAX_WEIGHT);
+			JavaCore.addElementChangedListener(fgInstance.fClasspathListener, ElementChangedEvent.POST_CHANGE);
+		}
+		return fgInstance;
+	}
+
+	/**
+	 * Discards the cache.
+	 */
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		JavaCore.removeElementChangedListener(fgInstance.fClasspathListener);
+		fgInstance.clear();
+		fgInstance= null;
+	}
+
+	private JavadocHoverCache(int maxWeight) {
+		fMaxWeight= maxWeight;
+	}
+
+	/**
+	 * Returns the cached Javadoc of an element.
+	 *
+	 * @param element the element
+	 * @return the cached content, or <code>null</code> if the content is not cached or no longer
+	 *         valid
+	 */
+	public Content get(IJavaElement element) {
+		String stamp= getStamp(element);
+		if (stamp == null)
+			return null;
+		String key= element.getHandleIdentifier();
+		synchronized (this) {
+			Content content= fContents.get(key);
+			if (content == null)
+				return null;
+			if (!content.fStamp.equals(stamp)) {
+				remove(key);
+				return null;
+			}
+			return content;
+		}
+	}
+
+	/**
+	 * Caches the Javadoc of an element, if the element is in a library.
+	 *
+	 * @param element the element
+	 * @param content the rendered Javadoc
+	 */
+	public void put(IJavaElement element, Content content) {
+		String stamp= getStamp(element);
+		if (stamp == null)
+			return;
+		Content stamped= new Content(content.fHtml, content.fBaseURL, stamp);
+		if (stamped.getWeight() > fMaxWeight)
+			return;
+		String key= element.getHandleIdentifier();
+		synchronized (this) {
+			remove(key);
+			fContents.put(key, stamped);
+			fWeight+= stamped.getWeight();
+			for (Iterator<Content> iter= fContents.values().iterator(); fWeight > fMaxWeight && iter.hasNext();) {
+				fWeight-= iter.next().getWeight();
+				iter.remove();
+			}
+		}
+	}
+
+	/**
+	 * Tells whether the Javadoc of an element can be cached, i.e. whether the element is in a
+	 * library.
+	 *
+	 * @param element the element
+	 * @return <code>true</code> if the Javadoc of the element can be cached
+	 */
+	public boolean isCacheable(IJavaElement element) {
+		return getStamp(element) != null;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear() {
+		fContents.clear();
+		fWeight= 0;
+	}
+
+	/**
+	 * Returns the number of cached entries.
+	 *
+	 * @return the number of entries
+	 */
+	public synchronized int size() {
+		return fContents.size();
+	}
+
+	private void remove(String key) {
+		Content removed= fContents.remove(key);
+		if (removed != null)
+			fWeight-= removed.getWeight();
+	}
+
+	/**
+	 * Returns the stamp of the library of an element.
+	 *
+	 * @param element the element
+	 * @return the stamp, or <code>null</code> if the element is not in a library
+	 */
+	private static String getStamp(IJavaElement element) {
+		IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+		if (root == null)
+			return null;
+		try {
+			if (!root.exists() || root.getKind() != IPackageFragmentRoot.K_BINARY)
+				return null;
+			IClasspathEntry entry= root.getResolvedClasspathEntry();
+			IResource resource= root.getResource();
+			long timeStamp= resource != null ? resource.getModificationStamp() : root.getPath().toFile().lastModified();
+			IPath sourcePath= root.getSourceAttachmentPath();
+			long sourceTimeStamp= sourcePath != null ? getTimeStamp(sourcePath) : 0;
+			return entry + "@" + timeStamp + "@" + sourceTimeStamp; //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (JavaModelException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the time stamp of a source attachment.
+	 *
+	 * @param path the path of the source archive or folder, in the workspace or in the file system
+	 * @return the modification stamp of the workspace resource, or the last modification time of
+	 *         the file
+	 */
+	private static long getTimeStamp(IPath path) {
+		IResource resource= ResourcesPlugin.getWorkspace().getRoot().findMember(path);
+		if (resource != null)
+			return resource.getModificationStamp();
+		return path.toFile().lastModified();
+	}
+
+	private static boolean isClasspathChanged(IJavaElementDelta delta) {
+		int flags= delta.getFlags();
+		if ((flags & (IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED)) != 0)
+			return true;
+		if (delta.getElement().getElementType() == IJavaElement.JAVA_MODEL && (flags & IJavaElementDelta.F_CHILDREN) != 0
+				|| delta.getElement().getElementType() == IJavaElement.JAVA_PROJECT) {
+			for (IJavaElementDelta child : delta.getAffectedChildren()) {
+				if (child.getElement().getElementType() <= IJavaElement.PACKAGE_FRAGMENT_ROOT && isClasspathChanged(child))
+					return true;
+			}
+		}
+		return false;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,6 @@
 package org.eclipse.jdt.internal.ui.text.spelling;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.core.runtime.Assert;
@@ -149,17 +148,9 @@ public class JavaSpellingProblem extends SpellingProblem {
 			else {
 
 				proposals= new ArrayList<>(checker.getProposals(arguments[0],
-						sentence));
+						sentence, threshold > 0 ? threshold : Integer.MAX_VALUE, null));
 				size= proposals.size();
 
-				if (threshold > 0 && size > threshold) {
-
-					Collections.sort(proposals);
-					proposals= proposals
-							.subList(size - threshold - 1, size - 1);
-					size= proposals.size();
-				}
-
 				boolean extendable= !fixed ? (checker.acceptsWords() || AddWordProposal.canAskToConfigure()) : false;
 				result= new IJavaCompletionProposal[size + (extendable ? 3 : 2)];
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -80,7 +80,7 @@ public final class WordCompletionProposalComputer implements IJavaCompletionProp
 
 					if (checker != null) {
 
-						final List<RankedWordProposal> proposals= new ArrayList<>(checker.getProposals(candidate, Character.isUpperCase(candidate.charAt(0))));
+						final List<RankedWordProposal> proposals= new ArrayList<>(checker.getProposals(candidate, Character.isUpperCase(candidate.charAt(0)), Integer.MAX_VALUE, monitor));
 						final List<ICompletionProposal> result= new ArrayList<>(proposals.size());
 
 						for (Iterator<RankedWordProposal> it= proposals.iterator(); it.hasNext();) {
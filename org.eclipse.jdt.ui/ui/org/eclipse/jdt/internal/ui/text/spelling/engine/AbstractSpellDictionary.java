@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,27 +11,31 @@
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.MalformedInputException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.URIUtil;
 
 import org.eclipse.core.resources.ResourcesPlugin;
 
@@ -52,58 +56,6 @@ import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
  */
 public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
-	/**
-	 * Byte array wrapper
-	 * @since 3.6
-	 */
-	private static class ByteArrayWrapper {
-
-		private static int hashCode(byte[] array) {
-			int prime= 31;
-			if (array == null)
-				return 0;
-			int result= 1;
-			for (int index= 0; index < array.length; index++) {
-				result= prime * result + array[index];
-			}
-			return result;
-		}
-
-		private byte[] byteArray;
-
-		public ByteArrayWrapper(byte[] byteArray) {
-			this.byteArray= byteArray;
-		}
-		@Override
-		public int hashCode() {
-			final int prime= 31;
-			int result= 1;
-			result= prime * result + ByteArrayWrapper.hashCode(byteArray);
-			return result;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (!(obj instanceof ByteArrayWrapper))
-				return false;
-			ByteArrayWrapper other= (ByteArrayWrapper)obj;
-			if (!Arrays.equals(byteArray, other.byteArray))
-				return false;
-			return true;
-		}
-	}
-
-	
-	/**
-	 * Canonical name for UTF-8 encoding
-	 * @since 3.6
-	 */
-	private static final String UTF_8= "UTF-8"; //$NON-NLS-1$
-
 	/** The bucket capacity */
 	protected static final int BUCKET_CAPACITY= 4;
 
@@ -119,11 +71,30 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 */
 	protected static final float LOAD_FACTOR= 0.85f;
 
+	/**
+	 * The directory in the plug-in's state location that holds the dictionary images.
+	 * @since 3.14
+	 */
+	private static final String IMAGE_DIRECTORY= "dictionaries"; //$NON-NLS-1$
+
 	/** The phonetic distance algorithm */
 	private IPhoneticDistanceAlgorithm fDistanceAlgorithm= new DefaultPhoneticDistanceAlgorithm();
 
-	/** The mapping from phonetic hashes to word lists */
-	private final Map<ByteArrayWrapper, Object> fHashBuckets= new HashMap<>(getInitialSize(), LOAD_FACTOR);
+	/**
+	 * The maximum number of candidates per phonetic hash that are ranked for proposals.
+	 * See https://bugs.eclipse.org/bugs/show_bug.cgi?id=195357
+	 * @since 3.14
+	 */
+	private static final int MAX_CANDIDATES= 500;
+
+	/**
+	 * The maximum number of candidates that are ranked for proposals.
+	 * @since 3.14
+	 */
+	private static final int MAX_TOTAL_CANDIDATES= 10000;
+
+	/** The mapping from phonetic hashes to words */
+	private final IWordStore fWordStore= createWordStore();
 
 	/** The phonetic hash provider */
 	private IPhoneticHashProvider fHashProvider= new DefaultPhoneticHashProvider();
@@ -153,21 +124,30 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	}
 
 	/**
-	 * Returns all candidates with the same phonetic hash.
+	 * Creates the store that maps the phonetic hashes to the words of this dictionary.
+	 * <p>
+	 * The default implementation returns a {@link DefaultWordStore}. Subclasses for large
+	 * dictionaries may return a {@link PackedWordStore} instead.
+	 * </p>
+	 * <p>
+	 * Note: This method is called while this dictionary is being constructed.
+	 * </p>
 	 *
-	 * @param hash
-	 *                   The hash to retrieve the candidates of
-	 * @return Array of candidates for the phonetic hash
+	 * @return the word store
+	 * @since 3.14
 	 */
-	protected final Object getCandidates(final String hash) {
-		ByteArrayWrapper hashBytes;
-		try {
-			hashBytes= new ByteArrayWrapper(hash.getBytes(UTF_8));
-		} catch (UnsupportedEncodingException e) {
-			JavaPlugin.log(e);
-			return null;
-		}
-		return fHashBuckets.get(hashBytes);
+	protected IWordStore createWordStore() {
+		return new DefaultWordStore(getInitialSize(), LOAD_FACTOR);
+	}
+
+	/**
+	 * Returns the store that maps the phonetic hashes to the words of this dictionary.
+	 *
+	 * @return the word store
+	 * @since 3.14
+	 */
+	protected final IWordStore getWordStore() {
+		return fWordStore;
 	}
 
 	/**
@@ -184,68 +164,80 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @return Set of ranked words with bounded distance to the specified word
 	 */
 	protected final Set<RankedWordProposal> getCandidates(final String word, final boolean sentence, final ArrayList<String> hashs) {
+		return toProposalSet(rankCandidates(word, hashs, Integer.MAX_VALUE, null), sentence);
+	}
 
-		int distance= 0;
-		String hash= null;
-
-		final StringBuffer buffer= new StringBuffer(BUFFER_CAPACITY);
-		final HashSet<RankedWordProposal> result= new HashSet<>(BUCKET_CAPACITY * hashs.size());
-
-		for (int index= 0; index < hashs.size(); index++) {
-
-			hash= hashs.get(index);
+	/**
+	 * Ranks the words with the given phonetic hashes by their distance to the specified word.
+	 *
+	 * @param word
+	 *                   The word to find the nearest matches for
+	 * @param hashs
+	 *                   The phonetic hashes of the candidates, the most promising first
+	 * @param limit
+	 *                   The maximum number of proposals
+	 * @param monitor
+	 *                   The progress monitor to check for cancellation, or <code>null</code>
+	 * @return the best proposals with bounded distance to the word, ordered from best to worst
+	 * @since 3.14
+	 */
+	private List<RankedWordProposal> rankCandidates(final String word, final Collection<String> hashs, final int limit, final IProgressMonitor monitor) {
 
-			final Object candidates= getCandidates(hash);
-			if (candidates == null)
-				continue;
-			else if (candidates instanceof byte[]) {
-				String candidate;
-				try {
-					candidate= new String((byte[])candidates, UTF_8);
-				} catch (UnsupportedEncodingException e) {
-					JavaPlugin.log(e);
-					return result;
-				}
-				distance= fDistanceAlgorithm.getDistance(word, candidate);
-				if (distance < DISTANCE_THRESHOLD) {
-					buffer.setLength(0);
-					buffer.append(candidate);
-					if (sentence)
-						buffer.setCharAt(0, Character.toUpperCase(buffer.charAt(0)));
-					result.add(new RankedWordProposal(buffer.toString(), -distance));
-				}
-				continue;
-			}
+		final LinkedHashSet<String> candidates= new LinkedHashSet<>();
+		final ArrayList<String> words= new ArrayList<>();
 
-			@SuppressWarnings("unchecked")
-			final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
-			int candidateSize= Math.min(500, candidateList.size()); // see https://bugs.eclipse.org/bugs/show_bug.cgi?id=195357
-			for (int offset= 0; offset < candidateSize; offset++) {
+		for (final Iterator<String> iterator= hashs.iterator(); iterator.hasNext() && candidates.size() < MAX_TOTAL_CANDIDATES;) {
+			words.clear();
+			fWordStore.getWords(iterator.next(), Math.min(MAX_CANDIDATES, MAX_TOTAL_CANDIDATES - candidates.size()), words);
+			candidates.addAll(words);
+		}
 
-				String candidate;
-				try {
-					candidate= new String(candidateList.get(offset), UTF_8);
-				} catch (UnsupportedEncodingException e) {
-					JavaPlugin.log(e);
-					return result;
-				}
-				distance= fDistanceAlgorithm.getDistance(word, candidate);
+		return new ProposalEngine(fDistanceAlgorithm, word, new ArrayList<>(candidates), getDistanceThreshold(), limit, monitor).computeProposals();
+	}
 
-				if (distance < DISTANCE_THRESHOLD) {
+	/**
+	 * Converts the ranked words to proposals.
+	 *
+	 * @param ranked
+	 *                   The ranked words, ordered from best to worst
+	 * @param sentence
+	 *                   <code>true</code> iff the proposals start a new sentence,
+	 *                   <code>false</code> otherwise
+	 * @return the set of proposals
+	 * @since 3.14
+	 */
+	private static Set<RankedWordProposal> toProposalSet(final List<RankedWordProposal> ranked, final boolean sentence) {
 
-					buffer.setLength(0);
-					buffer.append(candidate);
+		final HashSet<RankedWordProposal> result= new HashSet<>(BUCKET_CAPACITY * ranked.size());
+		final StringBuffer buffer= new StringBuffer(BUFFER_CAPACITY);
 
-					if (sentence)
-						buffer.setCharAt(0, Character.toUpperCase(buffer.charAt(0)));
+		for (int index= 0; index < ranked.size(); index++) {
 
-					result.add(new RankedWordProposal(buffer.toString(), -distance));
-				}
+			RankedWordProposal proposal= ranked.get(index);
+			if (sentence) {
+				buffer.setLength(0);
+				buffer.append(proposal.getText());
+				buffer.setCharAt(0, Character.toUpperCase(buffer.charAt(0)));
+				proposal= new RankedWordProposal(buffer.toString(), proposal.getRank());
 			}
+			result.add(proposal);
 		}
 		return result;
 	}
 
+	/**
+	 * Returns the distance from which on words are not proposed as corrections.
+	 * <p>
+	 * Subclasses may override to propose more or fewer words.
+	 * </p>
+	 *
+	 * @return the distance threshold
+	 * @since 3.14
+	 */
+	protected int getDistanceThreshold() {
+		return DISTANCE_THRESHOLD;
+	}
+
 	/**
 	 * Returns all approximations that have a phonetic hash with smallest
 	 * possible distance to the specified word.
@@ -260,46 +252,42 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 *                   specified word
 	 */
 	protected final void getCandidates(final String word, final boolean sentence, final Set<RankedWordProposal> result) {
+		getCandidates(word, sentence, Integer.MAX_VALUE, result);
+	}
+
+	/**
+	 * Returns at most <code>limit</code> approximations that have a phonetic hash with smallest
+	 * possible distance to the specified word.
+	 *
+	 * @param word
+	 *                   The word to find the nearest matches for
+	 * @param sentence
+	 *                   <code>true</code> iff the proposals start a new sentence,
+	 *                   <code>false</code> otherwise
+	 * @param limit
+	 *                   The maximum number of proposals
+	 * @param result
+	 *                   Set of ranked words with smallest possible distance to the
+	 *                   specified word
+	 * @since 3.14
+	 */
+	private void getCandidates(final String word, final boolean sentence, final int limit, final Set<RankedWordProposal> result) {
 
 		int distance= 0;
 		int minimum= Integer.MAX_VALUE;
 
 		StringBuffer buffer= new StringBuffer(BUFFER_CAPACITY);
 
-		final Object candidates= getCandidates(fHashProvider.getHash(word));
-		if (candidates == null)
-			return;
-		else if (candidates instanceof byte[]) {
-			String candidate;
-			try {
-				candidate= new String((byte[])candidates, UTF_8);
-			} catch (UnsupportedEncodingException e) {
-				JavaPlugin.log(e);
-				return;
-			}
-			distance= fDistanceAlgorithm.getDistance(word, candidate);
-			buffer.append(candidate);
-			if (sentence)
-				buffer.setCharAt(0, Character.toUpperCase(buffer.charAt(0)));
-			result.add(new RankedWordProposal(buffer.toString(), -distance));
-			return;
-		}
-
-		@SuppressWarnings("unchecked")
-		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+		final ArrayList<String> candidateList= new ArrayList<>();
+		fWordStore.getWords(fHashProvider.getHash(word), Integer.MAX_VALUE, candidateList);
 		final ArrayList<RankedWordProposal> matches= new ArrayList<>(candidateList.size());
 
 		for (int index= 0; index < candidateList.size(); index++) {
-			String candidate;
-			try {
-				candidate= new String(candidateList.get(index), UTF_8);
-			} catch (UnsupportedEncodingException e) {
-				JavaPlugin.log(e);
-				return;
-			}
+			final String candidate= candidateList.get(index);
 			distance= fDistanceAlgorithm.getDistance(word, candidate);
 
-			if (distance <= minimum) {
+			// all matches have the same rank, so the first ones within the limit are kept
+			if (distance < minimum || distance == minimum && matches.size() < limit) {
 
 				if (distance < minimum)
 					matches.clear();
@@ -325,7 +313,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @since 3.3
 	 */
 	protected boolean isEmpty() {
-		return fHashBuckets.size() == 0;
+		return fWordStore.isEmpty();
 	}
 
 	/**
@@ -348,6 +336,11 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 	@Override
 	public Set<RankedWordProposal> getProposals(final String word, final boolean sentence) {
+		return getProposals(word, sentence, Integer.MAX_VALUE, null);
+	}
+
+	@Override
+	public Set<RankedWordProposal> getProposals(final String word, final boolean sentence, final int limit, final IProgressMonitor monitor) {
 
 		try {
 
@@ -366,12 +359,10 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		final String hash= fHashProvider.getHash(word);
 		final char[] mutators= fHashProvider.getMutators();
 
-		final ArrayList<String> neighborhood= new ArrayList<>((word.length() + 1) * (mutators.length + 2));
+		// the phonetic hash of the word itself comes first, duplicates are only looked up once
+		final LinkedHashSet<String> neighborhood= new LinkedHashSet<>((word.length() + 1) * (mutators.length + 2));
 		neighborhood.add(hash);
 
-		final Set<RankedWordProposal> candidates= getCandidates(word, sentence, neighborhood);
-		neighborhood.clear();
-
 		char previous= 0;
 		char next= 0;
 
@@ -446,13 +437,10 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			--offset;
 		}
 
-		neighborhood.remove(hash);
-		final Set<RankedWordProposal> matches= getCandidates(word, sentence, neighborhood);
-
-		if (matches.size() == 0 && candidates.size() == 0)
-			getCandidates(word, sentence, candidates);
+		final Set<RankedWordProposal> candidates= toProposalSet(rankCandidates(word, neighborhood, limit, monitor), sentence);
 
-		candidates.addAll(matches);
+		if (candidates.size() == 0 && limit > 0)
+			getCandidates(word, sentence, limit, candidates);
 
 		return candidates;
 	}
@@ -474,31 +462,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 */
 	protected final void hashWord(final String word) {
 
-		final String hash= fHashProvider.getHash(word);
-		ByteArrayWrapper hashBytes;
-		byte[] wordBytes;
-		try {
-			hashBytes= new ByteArrayWrapper(hash.getBytes(UTF_8));
-			wordBytes= word.getBytes(UTF_8);
-		} catch (UnsupportedEncodingException e) {
-			JavaPlugin.log(e);
-			return;
-		}
-
-		Object bucket= fHashBuckets.get(hashBytes);
-
-		if (bucket == null) {
-			fHashBuckets.put(hashBytes, wordBytes);
-		} else if (bucket instanceof ArrayList) {
-			@SuppressWarnings("unchecked")
-			ArrayList<byte[]> bucketList= (ArrayList<byte[]>)bucket;
-			bucketList.add(wordBytes);
-		} else {
-			ArrayList<Object> list= new ArrayList<>(BUCKET_CAPACITY);
-			list.add(bucket);
-			list.add(wordBytes);
-			fHashBuckets.put(hashBytes, list);
-		}
+		fWordStore.addWord(fHashProvider.getHash(word), word);
 	}
 
 	@Override
@@ -518,39 +482,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			// Do nothing
 		}
 
-		final Object candidates= getCandidates(fHashProvider.getHash(word));
-		if (candidates == null)
-			return false;
-		else if (candidates instanceof byte[]) {
-			String candidate;
-			try {
-				candidate= new String((byte[])candidates, UTF_8);
-			} catch (UnsupportedEncodingException e) {
-				JavaPlugin.log(e);
-				return false;
-			}
-			if (candidate.equals(word) || candidate.equals(word.toLowerCase()))
-				return true;
-			return false;
-		}
-		@SuppressWarnings("unchecked")
-		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
-		byte[] wordBytes;
-		byte[] lowercaseWordBytes;
-		try {
-			wordBytes= word.getBytes(UTF_8);
-			lowercaseWordBytes= word.toLowerCase().getBytes(UTF_8);
-		} catch (UnsupportedEncodingException e) {
-			JavaPlugin.log(e);
-			return false;
-		}
-		for (int index= 0; index < candidateList.size(); index++) {
-			byte[] candidate= candidateList.get(index);
-			if (Arrays.equals(candidate, wordBytes) || Arrays.equals(candidate, lowercaseWordBytes)) {
-				return true;
-			}
-		}
-		return false;
+		final String hash= fHashProvider.getHash(word);
+		return fWordStore.containsWord(hash, word) || fWordStore.containsWord(hash, word.toLowerCase());
 	}
 
 	@Override
@@ -587,7 +520,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 	@Override
 	public synchronized final boolean isLoaded() {
-		return fLoaded || fHashBuckets.size() > 0;
+		return fLoaded || !fWordStore.isEmpty();
 	}
 
 	/**
@@ -603,6 +536,15 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			 return fLoaded;
 
 		if (url != null) {
+			File image= getImageFile(url);
+			String signature= image != null ? getImageSignature(url) : null;
+			if (signature != null)
+				image= getVersionedImageFile(image, signature);
+			if (signature != null && fWordStore instanceof PackedWordStore && ((PackedWordStore) fWordStore).map(image, signature)) {
+				fMustLoad= false;
+				return true;
+			}
+
 			InputStream stream= null;
 			int line= 0;
 			try {
@@ -638,6 +580,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 						if (doRead)
 							hashWord(word);
 					}
+					if (signature != null)
+						saveImage(image, signature);
 					return true;
 				}
 			} catch (FileNotFoundException ex) {
@@ -670,18 +614,158 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return false;
 	}
 
+	/**
+	 * Returns the file that caches a precompiled binary image of the word list at the given URL.
+	 * <p>
+	 * The image is only used if the word store of this dictionary is a {@link PackedWordStore}.
+	 * Each version of the word list is cached in its own file, whose name is the name of the
+	 * returned file followed by a suffix. The default implementation returns <code>null</code>,
+	 * which means that the word list is always read and hashed on load.
+	 * </p>
+	 *
+	 * @param url
+	 *                   The URL of the word list
+	 * @return the image file, or <code>null</code> if no image is used
+	 * @see #getStateImageFile(String)
+	 * @since 3.14
+	 */
+	protected File getImageFile(URL url) {
+		return null;
+	}
+
+	/**
+	 * Returns the file with the given name in the directory of the plug-in's state location
+	 * that holds the dictionary images.
+	 *
+	 * @param name
+	 *                   The name of the image file
+	 * @return the image file, or <code>null</code> if the state location is not available
+	 * @since 3.14
+	 */
+	protected static File getStateImageFile(String name) {
+		JavaPlugin plugin= JavaPlugin.getDefault();
+		if (plugin == null)
+			return null;
+		return plugin.getStateLocation().append(IMAGE_DIRECTORY).append(name).toFile();
+	}
+
+	/**
+	 * Returns the signature that identifies the current content of the word list at the given
+	 * URL together with the way it is hashed. An image is only used while its signature
+	 * matches.
+	 *
+	 * @param url
+	 *                   The URL of the word list
+	 * @return the signature, or <code>null</code> if the state of the word list cannot be
+	 *         determined
+	 * @since 3.14
+	 */
+	private String getImageSignature(URL url) {
+		long lastModified;
+		long length;
+		if ("file".equals(url.getProtocol())) { //$NON-NLS-1$
+			File file;
+			try {
+				file= URIUtil.toFile(URIUtil.toURI(url));
+			} catch (URISyntaxException e) {
+				return null;
+			}
+			if (file == null || !file.isFile())
+				return null;
+			lastModified= file.lastModified();
+			length= file.length();
+		} else {
+			try {
+				URLConnection connection= url.openConnection();
+				lastModified= connection.getLastModified();
+				length= connection.getContentLengthLong();
+			} catch (IOException e) {
+				return null;
+			}
+			if (lastModified == 0 || length < 0)
+				return null;
+		}
+
+		StringBuilder signature= new StringBuilder(url.toExternalForm());
+		signature.append('\n').append(lastModified);
+		signature.append('\n').append(length);
+		signature.append('\n').append(getEncoding());
+		signature.append('\n').append(fHashProvider.getClass().getName());
+		JavaPlugin plugin= JavaPlugin.getDefault();
+		if (plugin != null)
+			signature.append('\n').append(plugin.getBundle().getVersion());
+		return signature.toString();
+	}
+
+	/**
+	 * Returns the file that caches the image of the given version of a word list. A new file
+	 * is used for each version, since a file which is still mapped by an earlier load cannot
+	 * be replaced on all platforms.
+	 *
+	 * @param image
+	 *                   The image file returned by {@link #getImageFile(URL)}
+	 * @param signature
+	 *                   The signature of the word list
+	 * @return the image file for the signature
+	 * @since 3.14
+	 */
+	private static File getVersionedImageFile(File image, String signature) {
+		return new File(image.getParentFile(), image.getName() + '.' + Integer.toHexString(signature.hashCode()));
+	}
+
+	/**
+	 * Deletes the images of other versions of a word list.
+	 *
+	 * @param image
+	 *                   The image file of the current version
+	 * @since 3.14
+	 */
+	private static void deleteOtherImages(File image) {
+		File directory= image.getParentFile();
+		File[] files= directory != null ? directory.listFiles() : null;
+		if (files == null)
+			return;
+		String name= image.getName();
+		String prefix= name.substring(0, name.lastIndexOf('.') + 1);
+		for (int i= 0; i < files.length; i++) {
+			String other= files[i].getName();
+			// images that are still mapped cannot be deleted on all platforms, they are deleted by a later save
+			if (other.startsWith(prefix) && other.indexOf('.', prefix.length()) == -1 && !other.equals(name))
+				files[i].delete();
+		}
+	}
+
+	/**
+	 * Saves the words of this dictionary to the given image and then reads them from
+	 * the mapped image, which releases the heap used while loading.
+	 *
+	 * @param image
+	 *                   The image file
+	 * @param signature
+	 *                   The signature of the word list
+	 * @since 3.14
+	 */
+	private void saveImage(File image, String signature) {
+		if (!(fWordStore instanceof PackedWordStore))
+			return;
+
+		PackedWordStore store= (PackedWordStore) fWordStore;
+		try {
+			store.save(image, signature);
+			store.map(image, signature);
+			deleteOtherImages(image);
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+		}
+	}
+
 	/**
 	 * Compacts the dictionary.
 	 *
 	 * @since 3.3.
 	 */
 	private void compact() {
-		Iterator<Object> iter= fHashBuckets.values().iterator();
-		while (iter.hasNext()) {
-			Object element= iter.next();
-			if (element instanceof ArrayList)
-				((ArrayList<?>)element).trimToSize();
-		}
+		fWordStore.compact();
 	}
 
 	/**
@@ -708,7 +792,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	public synchronized void unload() {
 		fLoaded= false;
 		fMustLoad= true;
-		fHashBuckets.clear();
+		fWordStore.clear();
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -38,6 +38,31 @@ public final class DefaultPhoneticDistanceAlgorithm implements IPhoneticDistance
 
 	@Override
 	public final int getDistance(final String from, final String to) {
+		return getDistance(from, to, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the distance between the two words if it is less than the given limit.
+	 * <p>
+	 * The computation stops as soon as the distance is known to reach the limit, which makes
+	 * ranking many candidates against a threshold considerably cheaper.
+	 * </p>
+	 *
+	 * @param from
+	 *                   The first word
+	 * @param to
+	 *                   The second word
+	 * @param limit
+	 *                   The distance from which on the exact distance is of no interest
+	 * @return the distance between the words, or a value greater than or equal to
+	 *         <code>limit</code> if the distance is at least <code>limit</code>
+	 * @since 3.14
+	 */
+	public final int getDistance(final String from, final String to, final int limit) {
+
+		// every character that has to be inserted or removed costs at least this much
+		if ((long) Math.abs(from.length() - to.length()) * Math.min(COST_INSERT, COST_REMOVE) >= limit)
+			return limit;
 
 		final char[] first= (" " + from).toCharArray(); //$NON-NLS-1$
 		final char[] second= (" " + to).toCharArray(); //$NON-NLS-1$
@@ -58,8 +83,13 @@ public final class DefaultPhoneticDistanceAlgorithm implements IPhoneticDistance
 		int change= Integer.MAX_VALUE;
 
 		int minimum, diagonal, insert, remove;
+		int rowMinimum= 0;
+		int previousRowMinimum;
 		for (int row= 1; row < rows; row++) {
 
+			previousRowMinimum= rowMinimum;
+			rowMinimum= metric[row][0];
+
 			source= first[row];
 			for (int column= 1; column < columns; column++) {
 
@@ -68,6 +98,8 @@ public final class DefaultPhoneticDistanceAlgorithm implements IPhoneticDistance
 
 				if (source == target) {
 					metric[row][column]= diagonal;
+					if (diagonal < rowMinimum)
+						rowMinimum= diagonal;
 					continue;
 				}
 
@@ -94,7 +126,13 @@ public final class DefaultPhoneticDistanceAlgorithm implements IPhoneticDistance
 					minimum= change;
 
 				metric[row][column]= minimum;
+				if (minimum < rowMinimum)
+					rowMinimum= minimum;
 			}
+
+			// all further cells are derived from the last two rows by adding positive costs
+			if (rowMinimum >= limit && previousRowMinimum >= limit)
+				return limit;
 		}
 		return metric[rows - 1][columns - 1];
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,13 +10,16 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 
 import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IProgressMonitor;
 
 import org.eclipse.jface.preference.IPreferenceStore;
 
@@ -263,6 +266,11 @@ public class DefaultSpellChecker implements ISpellChecker {
 
 	@Override
 	public Set<RankedWordProposal> getProposals(final String word, final boolean sentence) {
+		return getProposals(word, sentence, Integer.MAX_VALUE, null);
+	}
+
+	@Override
+	public Set<RankedWordProposal> getProposals(final String word, final boolean sentence, final int limit, final IProgressMonitor monitor) {
 
 		// synchronizing might not be needed here since getProposals is
 		// a read-only access and only called in the same thread as
@@ -277,10 +285,19 @@ public class DefaultSpellChecker implements ISpellChecker {
 
 		for (final Iterator<ISpellDictionary> iterator= copy.iterator(); iterator.hasNext();) {
 
+			if (monitor != null && monitor.isCanceled())
+				break;
+
 			dictionary= iterator.next();
-			proposals.addAll(dictionary.getProposals(word, sentence));
+			proposals.addAll(dictionary.getProposals(word, sentence, limit, monitor));
 		}
-		return proposals;
+
+		if (proposals.size() <= limit)
+			return proposals;
+
+		final List<RankedWordProposal> sorted= new ArrayList<>(proposals);
+		Collections.sort(sorted, Collections.reverseOrder());
+		return new HashSet<>(sorted.subList(0, limit));
 	}
 
 	@Override
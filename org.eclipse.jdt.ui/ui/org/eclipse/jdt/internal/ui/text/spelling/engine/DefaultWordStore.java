@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Word store that maps phonetic hashes to either a single word or a list of words
+ * in a {@link HashMap}.
+ * <p>
+ * This store is well suited for small dictionaries. Large dictionaries should use
+ * a {@link PackedWordStore}.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class DefaultWordStore implements IWordStore {
+
+	/**
+	 * Byte array wrapper
+	 * @since 3.6
+	 */
+	private static class ByteArrayWrapper {
+
+		private static int hashCode(byte[] array) {
+			int prime= 31;
+			if (array == null)
+				return 0;
+			int result= 1;
+			for (int index= 0; index < array.length; index++) {
+				result= prime * result + array[index];
+			}
+			return result;
+		}
+
+		private byte[] byteArray;
+
+		public ByteArrayWrapper(byte[] byteArray) {
+			this.byteArray= byteArray;
+		}
+		@Override
+		public int hashCode() {
+			final int prime= 31;
+			int result= 1;
+			result= prime * result + ByteArrayWrapper.hashCode(byteArray);
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (!(obj instanceof ByteArrayWrapper))
+				return false;
+			ByteArrayWrapper other= (ByteArrayWrapper)obj;
+			if (!Arrays.equals(byteArray, other.byteArray))
+				return false;
+			return true;
+		}
+	}
+
+	/** The bucket capacity */
+	private static final int BUCKET_CAPACITY= 4;
+
+	/** The mapping from phonetic hashes to word lists */
+	private final Map<ByteArrayWrapper, Object> fHashBuckets;
+
+	/**
+	 * Creates a new word store.
+	 *
+	 * @param initialSize
+	 *                   The initial size of the hash map
+	 * @param loadFactor
+	 *                   The load factor of the hash map
+	 */
+	public DefaultWordStore(int initialSize, float loadFactor) {
+		fHashBuckets= new HashMap<>(initialSize, loadFactor);
+	}
+
+	@Override
+	public void addWord(String hash, String word) {
+		ByteArrayWrapper hashBytes= new ByteArrayWrapper(hash.getBytes(StandardCharsets.UTF_8));
+		byte[] wordBytes= word.getBytes(StandardCharsets.UTF_8);
+
+		Object bucket= fHashBuckets.get(hashBytes);
+
+		if (bucket == null) {
+			fHashBuckets.put(hashBytes, wordBytes);
+		} else if (bucket instanceof ArrayList) {
+			@SuppressWarnings("unchecked")
+			ArrayList<byte[]> bucketList= (ArrayList<byte[]>)bucket;
+			bucketList.add(wordBytes);
+		} else {
+			ArrayList<Object> list= new ArrayList<>(BUCKET_CAPACITY);
+			list.add(bucket);
+			list.add(wordBytes);
+			fHashBuckets.put(hashBytes, list);
+		}
+	}
+
+	@Override
+	public boolean containsWord(String hash, String word) {
+		final Object candidates= getBucket(hash);
+		if (candidates == null)
+			return false;
+
+		byte[] wordBytes= word.getBytes(StandardCharsets.UTF_8);
+		if (candidates instanceof byte[])
+			return Arrays.equals((byte[])candidates, wordBytes);
+
+		@SuppressWarnings("unchecked")
+		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+		for (int index= 0; index < candidateList.size(); index++) {
+			if (Arrays.equals(candidateList.get(index), wordBytes))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void getWords(String hash, int limit, List<String> words) {
+		final Object candidates= getBucket(hash);
+		if (candidates == null || limit <= 0)
+			return;
+
+		if (candidates instanceof byte[]) {
+			words.add(new String((byte[])candidates, StandardCharsets.UTF_8));
+			return;
+		}
+
+		@SuppressWarnings("unchecked")
+		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+		int candidateSize= Math.min(limit, candidateList.size());
+		for (int index= 0; index < candidateSize; index++)
+			words.add(new String(candidateList.get(index), StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return fHashBuckets.size() == 0;
+	}
+
+	@Override
+	public void compact() {
+		Iterator<Object> iter= fHashBuckets.values().iterator();
+		while (iter.hasNext()) {
+			Object element= iter.next();
+			if (element instanceof ArrayList)
+				((ArrayList<?>)element).trimToSize();
+		}
+	}
+
+	@Override
+	public void clear() {
+		fHashBuckets.clear();
+	}
+
+	/**
+	 * Returns all candidates with the same phonetic hash.
+	 *
+	 * @param hash
+	 *                   The hash to retrieve the candidates of
+	 * @return a <code>byte[]</code> or a list of <code>byte[]</code>, or <code>null</code>
+	 */
+	private Object getBucket(String hash) {
+		return fHashBuckets.get(new ByteArrayWrapper(hash.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,8 @@ package org.eclipse.jdt.internal.ui.text.spelling.engine;
 import java.util.Locale;
 import java.util.Set;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
 /**
  * Interface for spell checkers.
  *
@@ -73,6 +75,23 @@ public interface ISpellChecker {
 	 */
 	Set<RankedWordProposal> getProposals(String word, boolean sentence);
 
+	/**
+	 * Returns the best ranked proposals for a word.
+	 *
+	 * @param word
+	 *                   The word to retrieve the proposals for
+	 * @param sentence
+	 *                   <code>true</code> iff the proposals should start a
+	 *                   sentence, <code>false</code> otherwise
+	 * @param limit
+	 *                   The maximum number of proposals
+	 * @param monitor
+	 *                   The progress monitor to check for cancellation, or <code>null</code>
+	 * @return Set of at most <code>limit</code> ranked proposals for the word
+	 * @since 3.14
+	 */
+	Set<RankedWordProposal> getProposals(String word, boolean sentence, int limit, IProgressMonitor monitor);
+
 	/**
 	 * Ignores the specified word until calling <code>checkWord(String)</code>.
 	 *
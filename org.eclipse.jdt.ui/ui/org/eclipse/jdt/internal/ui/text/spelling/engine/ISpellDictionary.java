@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,8 @@ package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
 import java.util.Set;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
 /**
  * Interface of dictionaries to use for spell checking.
  *
@@ -47,6 +49,23 @@ public interface ISpellDictionary {
 	 */
 	public Set<RankedWordProposal> getProposals(String word, boolean sentence);
 
+	/**
+	 * Returns the best ranked word proposals for an incorrectly spelled word.
+	 *
+	 * @param word
+	 *                   The word to retrieve the proposals for
+	 * @param sentence
+	 *                   <code>true</code> iff the proposals start a new sentence,
+	 *                   <code>false</code> otherwise
+	 * @param limit
+	 *                   The maximum number of proposals
+	 * @param monitor
+	 *                   The progress monitor to check for cancellation, or <code>null</code>
+	 * @return Set of at most <code>limit</code> ranked word proposals
+	 * @since 3.14
+	 */
+	public Set<RankedWordProposal> getProposals(String word, boolean sentence, int limit, IProgressMonitor monitor);
+
 	/**
 	 * Is the specified word correctly spelled?
 	 *
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.util.List;
+
+/**
+ * Interface of stores that map phonetic hashes to the words of a spell dictionary.
+ *
+ * @see AbstractSpellDictionary#createWordStore()
+ * @since 3.14
+ */
+public interface IWordStore {
+
+	/**
+	 * Adds a word to this store.
+	 *
+	 * @param hash
+	 *                   The phonetic hash of the word
+	 * @param word
+	 *                   The word to add
+	 */
+	public void addWord(String hash, String word);
+
+	/**
+	 * Tells whether this store contains the specified word.
+	 *
+	 * @param hash
+	 *                   The phonetic hash under which to look for the word
+	 * @param word
+	 *                   The word to look for
+	 * @return <code>true</code> iff the word is stored under the phonetic hash
+	 */
+	public boolean containsWord(String hash, String word);
+
+	/**
+	 * Adds the words with the specified phonetic hash to the given list, in the order in which
+	 * they have been added to this store.
+	 *
+	 * @param hash
+	 *                   The phonetic hash to retrieve the words of
+	 * @param limit
+	 *                   The maximum number of words to add
+	 * @param words
+	 *                   The list to add the words to
+	 */
+	public void getWords(String hash, int limit, List<String> words);
+
+	/**
+	 * Tells whether this store is empty.
+	 *
+	 * @return <code>true</code> iff this store contains no words
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Releases memory that has been reserved for adding further words.
+	 */
+	public void compact();
+
+	/**
+	 * Removes all words from this store.
+	 */
+	public void clear();
+}
@@ -0,0 +1,499 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact word store for large dictionaries.
+ * <p>
+ * All phonetic hashes and words are stored UTF-8 encoded and length prefixed in a single
+ * byte arena. Phonetic hashes are mapped to their words by an open-addressed hash table
+ * with linear probing, where each slot holds the hash code and arena offset of the
+ * phonetic hash and the indices of the first and last word with that hash. The words
+ * with the same phonetic hash are chained through a table of arena offsets and next
+ * indices. Apart from the arena and the two tables, no objects are allocated per word.
+ * </p>
+ * <p>
+ * The tables and the arena can be saved to a binary image with {@link #save(File, String)}.
+ * A store that has been opened from such an image with {@link #map(File, String)} reads
+ * directly from the memory-mapped file, so that its pages are shared with the operating
+ * system's file cache instead of being copied onto the heap. The first word that is added
+ * to a mapped store copies the tables and the arena onto the heap.
+ * </p>
+ *
+ * @since 3.14
+ */
+public class PackedWordStore implements IWordStore {
+
+	/** Number of ints per slot: hash code, key offset + 1 (0 if empty), first word, last word */
+	static final int SLOT_SIZE= 4;
+
+	/** Number of ints per word: arena offset, next word */
+	static final int WORD_SIZE= 2;
+
+	/** The index that terminates a word chain */
+	static final int NO_WORD= -1;
+
+	/** The initial number of words */
+	private static final int INITIAL_WORDS= 64;
+
+	/** The initial arena size */
+	private static final int INITIAL_ARENA= 1024;
+
+	/** The magic number at the start of a binary image */
+	private static final int IMAGE_MAGIC= 0x4A445344;
+
+	/** The version of the binary image format */
+	private static final int IMAGE_VERSION= 1;
+
+	/** The maximum load factor of the slot table */
+	private final float fLoadFactor;
+
+	/** The initial number of slots, a power of two */
+	private final int fInitialSlots;
+
+	/** The slot table, {@link #SLOT_SIZE} ints per slot */
+	IntBuffer fSlots;
+
+	/** The number of slots, always a power of two */
+	int fSlotCount;
+
+	/** The number of used slots */
+	int fHashCount;
+
+	/** The word table, {@link #WORD_SIZE} ints per word */
+	IntBuffer fWords;
+
+	/** The number of words */
+	int fWordCount;
+
+	/** The byte arena holding phonetic hashes and words */
+	ByteBuffer fArena;
+
+	/** The used size of the arena */
+	int fArenaSize;
+
+	/**
+	 * Creates a new packed word store.
+	 *
+	 * @param initialSize
+	 *                   The expected number of phonetic hashes
+	 * @param loadFactor
+	 *                   The maximum load factor of the slot table
+	 */
+	public PackedWordStore(int initialSize, float loadFactor) {
+		fLoadFactor= loadFactor;
+		fInitialSlots= Integer.highestOneBit(Math.max(16, (int) (initialSize / loadFactor)) - 1) << 1;
+		clear();
+	}
+
+	@Override
+	public synchronized void addWord(String hash, String word) {
+		if (fArena.isReadOnly()) {
+			fSlots= copyOf(fSlots, fSlots.capacity());
+			fWords= copyOf(fWords, fWords.capacity());
+			fArena= copyOf(fArena, fArena.capacity());
+		}
+
+		byte[] key= hash.getBytes(StandardCharsets.UTF_8);
+		int hashCode= hashCode(key, 0, key.length);
+		int slot= findSlot(key, hashCode);
+		if (fSlots.get(slot * SLOT_SIZE + 1) == 0) {
+			if (fHashCount + 1 > fSlotCount * fLoadFactor) {
+				rehash(fSlotCount * 2);
+				slot= findSlot(key, hashCode);
+			}
+			int base= slot * SLOT_SIZE;
+			fSlots.put(base, hashCode);
+			fSlots.put(base + 1, append(key) + 1);
+			fSlots.put(base + 2, NO_WORD);
+			fSlots.put(base + 3, NO_WORD);
+			fHashCount++;
+		}
+
+		if ((fWordCount + 1) * WORD_SIZE > fWords.capacity())
+			fWords= copyOf(fWords, Math.max(INITIAL_WORDS, fWordCount * 2) * WORD_SIZE);
+
+		int index= fWordCount++;
+		fWords.put(index * WORD_SIZE, append(word.getBytes(StandardCharsets.UTF_8)));
+		fWords.put(index * WORD_SIZE + 1, NO_WORD);
+
+		int base= slot * SLOT_SIZE;
+		int last= fSlots.get(base + 3);
+		if (last == NO_WORD)
+			fSlots.put(base + 2, index);
+		else
+			fWords.put(last * WORD_SIZE + 1, index);
+		fSlots.put(base + 3, index);
+	}
+
+	@Override
+	public synchronized boolean containsWord(String hash, String word) {
+		int index= firstWord(hash);
+		if (index == NO_WORD)
+			return false;
+
+		byte[] bytes= word.getBytes(StandardCharsets.UTF_8);
+		for (; index != NO_WORD; index= fWords.get(index * WORD_SIZE + 1)) {
+			if (matches(fWords.get(index * WORD_SIZE), bytes))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public synchronized void getWords(String hash, int limit, List<String> words) {
+		int count= 0;
+		for (int index= firstWord(hash); index != NO_WORD && count < limit; index= fWords.get(index * WORD_SIZE + 1), count++)
+			words.add(decode(fWords.get(index * WORD_SIZE)));
+	}
+
+	@Override
+	public synchronized boolean isEmpty() {
+		return fHashCount == 0;
+	}
+
+	@Override
+	public synchronized void compact() {
+		if (fArena.isReadOnly())
+			return;
+		fWords= copyOf(fWords, fWordCount * WORD_SIZE);
+		fArena= copyOf(fArena, fArenaSize);
+	}
+
+	@Override
+	public synchronized void clear() {
+		fSlotCount= fInitialSlots;
+		fSlots= IntBuffer.allocate(fSlotCount * SLOT_SIZE);
+		fHashCount= 0;
+		fWords= IntBuffer.allocate(INITIAL_WORDS * WORD_SIZE);
+		fWordCount= 0;
+		fArena= ByteBuffer.allocate(INITIAL_ARENA);
+		fArenaSize= 0;
+	}
+
+	/**
+	 * Returns the number of heap bytes used by the tables and the arena of this store.
+	 * Memory-mapped tables do not count.
+	 *
+	 * @return the number of heap bytes used
+	 */
+	public synchronized long getFootprint() {
+		if (fArena.isDirect())
+			return 0;
+		return (long) fSlots.capacity() * 4 + (long) fWords.capacity() * 4 + fArena.capacity();
+	}
+
+	/**
+	 * Tells whether this store reads from a memory-mapped image.
+	 *
+	 * @return <code>true</code> iff the store has been opened with {@link #map(File, String)}
+	 *         and no word has been added since
+	 */
+	public synchronized boolean isMapped() {
+		return fArena.isDirect();
+	}
+
+	/**
+	 * Saves the words of this store to a binary image.
+	 * <p>
+	 * The image is first written to a temporary file, which then replaces the given file,
+	 * so that readers never see a partially written image.
+	 * </p>
+	 *
+	 * @param file the file to write
+	 * @param signature the signature that identifies the source of the words, see
+	 *            {@link #map(File, String)}
+	 * @throws IOException if the image cannot be written
+	 */
+	public synchronized void save(File file, String signature) throws IOException {
+		byte[] signatureBytes= signature.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer header= ByteBuffer.allocate(align(12 + signatureBytes.length) + 16);
+		header.putInt(IMAGE_MAGIC);
+		header.putInt(IMAGE_VERSION);
+		header.putInt(signatureBytes.length);
+		header.put(signatureBytes);
+		header.position(align(header.position()));
+		header.putInt(fSlotCount);
+		header.putInt(fHashCount);
+		header.putInt(fWordCount);
+		header.putInt(fArenaSize);
+		header.flip();
+
+		ByteBuffer arena= fArena.duplicate();
+		arena.clear();
+		arena.limit(fArenaSize);
+		ByteBuffer[] buffers= { header, toBytes(fSlots, fSlotCount * SLOT_SIZE), toBytes(fWords, fWordCount * WORD_SIZE), arena };
+
+		File directory= file.getParentFile();
+		if (directory != null)
+			directory.mkdirs();
+		File temp= File.createTempFile(file.getName(), ".tmp", directory); //$NON-NLS-1$
+		try {
+			try (FileChannel channel= FileChannel.open(temp.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				for (ByteBuffer buffer : buffers) {
+					while (buffer.hasRemaining())
+						channel.write(buffer);
+				}
+			}
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Replaces the words of this store with the words of the given binary image.
+	 * <p>
+	 * The image is mapped into memory read-only. It is only used if it has been written by
+	 * {@link #save(File, String)} with the same signature, otherwise this store is left
+	 * unchanged.
+	 * </p>
+	 *
+	 * @param file the image file
+	 * @param signature the expected signature of the image
+	 * @return <code>true</code> iff the image has been mapped
+	 */
+	public synchronized boolean map(File file, String signature) {
+		if (!file.isFile())
+			return false;
+
+		try (FileChannel channel= FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer image= channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (image.getInt() != IMAGE_MAGIC || image.getInt() != IMAGE_VERSION)
+				return false;
+
+			byte[] signatureBytes= new byte[image.getInt()];
+			image.get(signatureBytes);
+			if (!Arrays.equals(signatureBytes, signature.getBytes(StandardCharsets.UTF_8)))
+				return false;
+
+			image.position(align(image.position()));
+			int slotCount= image.getInt();
+			int hashCount= image.getInt();
+			int wordCount= image.getInt();
+			int arenaSize= image.getInt();
+			if (Integer.bitCount(slotCount) != 1 || hashCount < 0 || hashCount >= slotCount || wordCount < 0 || arenaSize < 0)
+				return false;
+			if (image.remaining() != (long) slotCount * SLOT_SIZE * 4 + (long) wordCount * WORD_SIZE * 4 + arenaSize)
+				return false;
+
+			fSlots= slice(image, slotCount * SLOT_SIZE * 4).asIntBuffer();
+			fSlotCount= slotCount;
+			fHashCount= hashCount;
+			fWords= slice(image, wordCount * WORD_SIZE * 4).asIntBuffer();
+			fWordCount= wordCount;
+			fArena= slice(image, arenaSize);
+			fArenaSize= arenaSize;
+			return true;
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the index of the first word with the given phonetic hash.
+	 *
+	 * @param hash the phonetic hash
+	 * @return the index of the first word or {@link #NO_WORD}
+	 */
+	private int firstWord(String hash) {
+		byte[] key= hash.getBytes(StandardCharsets.UTF_8);
+		int slot= findSlot(key, hashCode(key, 0, key.length));
+		if (fSlots.get(slot * SLOT_SIZE + 1) == 0)
+			return NO_WORD;
+		return fSlots.get(slot * SLOT_SIZE + 2);
+	}
+
+	/**
+	 * Returns the slot holding the given key, or the empty slot where it has to be inserted.
+	 *
+	 * @param key the UTF-8 encoded phonetic hash
+	 * @param hashCode the hash code of the key
+	 * @return the slot index
+	 */
+	private int findSlot(byte[] key, int hashCode) {
+		int mask= fSlotCount - 1;
+		int slot= mix(hashCode) & mask;
+		while (true) {
+			int base= slot * SLOT_SIZE;
+			int keyOffset= fSlots.get(base + 1);
+			if (keyOffset == 0 || fSlots.get(base) == hashCode && matches(keyOffset - 1, key))
+				return slot;
+			slot= (slot + 1) & mask;
+		}
+	}
+
+	private void rehash(int slotCount) {
+		IntBuffer oldSlots= fSlots;
+		int oldSlotCount= fSlotCount;
+
+		fSlotCount= slotCount;
+		fSlots= IntBuffer.allocate(slotCount * SLOT_SIZE);
+		int mask= slotCount - 1;
+		for (int oldSlot= 0; oldSlot < oldSlotCount; oldSlot++) {
+			int oldBase= oldSlot * SLOT_SIZE;
+			if (oldSlots.get(oldBase + 1) == 0)
+				continue;
+
+			int slot= mix(oldSlots.get(oldBase)) & mask;
+			while (fSlots.get(slot * SLOT_SIZE + 1) != 0)
+				slot= (slot + 1) & mask;
+
+			for (int i= 0; i < SLOT_SIZE; i++)
+				fSlots.put(slot * SLOT_SIZE + i, oldSlots.get(oldBase + i));
+		}
+	}
+
+	/**
+	 * Appends the given bytes with a length prefix to the arena.
+	 *
+	 * @param bytes the bytes to append
+	 * @return the arena offset of the record
+	 */
+	private int append(byte[] bytes) {
+		int required= fArenaSize + 5 + bytes.length;
+		if (required > fArena.capacity())
+			fArena= copyOf(fArena, Math.max(required, fArena.capacity() * 2));
+
+		int offset= fArenaSize;
+		int position= offset;
+		int length= bytes.length;
+		while ((length & ~0x7F) != 0) {
+			fArena.put(position++, (byte) ((length & 0x7F) | 0x80));
+			length>>>= 7;
+		}
+		fArena.put(position++, (byte) length);
+		for (int i= 0; i < bytes.length; i++)
+			fArena.put(position++, bytes[i]);
+		fArenaSize= position;
+		return offset;
+	}
+
+	/**
+	 * Returns the number of bytes of the record at the given arena offset.
+	 *
+	 * @param offset the arena offset of the record
+	 * @return the number of bytes
+	 */
+	private int lengthAt(int offset) {
+		int length= 0;
+		int shift= 0;
+		byte b;
+		do {
+			b= fArena.get(offset++);
+			length|= (b & 0x7F) << shift;
+			shift+= 7;
+		} while ((b & 0x80) != 0);
+		return length;
+	}
+
+	/**
+	 * Returns the arena offset of the bytes of the record at the given arena offset.
+	 *
+	 * @param offset the arena offset of the record
+	 * @return the offset following the length prefix
+	 */
+	private int dataAt(int offset) {
+		while ((fArena.get(offset++) & 0x80) != 0) {
+			// skip length prefix
+		}
+		return offset;
+	}
+
+	private boolean matches(int offset, byte[] bytes) {
+		int length= lengthAt(offset);
+		if (length != bytes.length)
+			return false;
+		for (int i= 0, position= dataAt(offset); i < length; i++, position++) {
+			if (fArena.get(position) != bytes[i])
+				return false;
+		}
+		return true;
+	}
+
+	private String decode(int offset) {
+		int length= lengthAt(offset);
+		byte[] bytes= new byte[length];
+		for (int i= 0, position= dataAt(offset); i < length; i++, position++)
+			bytes[i]= fArena.get(position);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static int hashCode(byte[] bytes, int offset, int length) {
+		int result= 1;
+		for (int i= offset, end= offset + length; i < end; i++)
+			result= 31 * result + bytes[i];
+		return result;
+	}
+
+	private static int align(int position) {
+		return (position + 3) & ~3;
+	}
+
+	private static int mix(int hashCode) {
+		return hashCode ^ (hashCode >>> 16);
+	}
+
+	private static IntBuffer copyOf(IntBuffer buffer, int capacity) {
+		IntBuffer result= IntBuffer.allocate(capacity);
+		IntBuffer source= buffer.duplicate();
+		source.clear();
+		source.limit(Math.min(source.capacity(), capacity));
+		result.put(source);
+		result.clear();
+		return result;
+	}
+
+	private static ByteBuffer toBytes(IntBuffer buffer, int length) {
+		ByteBuffer result= ByteBuffer.allocate(length * 4);
+		IntBuffer source= buffer.duplicate();
+		source.clear();
+		source.limit(length);
+		result.asIntBuffer().put(source);
+		return result;
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int length) {
+		ByteBuffer result= buffer.slice();
+		result.limit(length);
+		buffer.position(buffer.position() + length);
+		return result;
+	}
+
+	private static ByteBuffer copyOf(ByteBuffer buffer, int capacity) {
+		ByteBuffer result= ByteBuffer.allocate(capacity);
+		ByteBuffer source= buffer.duplicate();
+		source.clear();
+		source.limit(Math.min(source.capacity(), capacity));
+		result.put(source);
+		result.clear();
+		return result;
+	}
+}
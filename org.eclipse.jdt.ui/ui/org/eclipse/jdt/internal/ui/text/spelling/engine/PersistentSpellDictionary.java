@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URL;
@@ -88,4 +89,14 @@ public class PersistentSpellDictionary extends AbstractSpellDictionary {
 	protected final URL getURL() {
 		return fLocation;
 	}
+
+	@Override
+	protected IWordStore createWordStore() {
+		return new PackedWordStore(getInitialSize(), LOAD_FACTOR);
+	}
+
+	@Override
+	protected File getImageFile(URL url) {
+		return getStateImageFile("user-" + Integer.toHexString(url.toExternalForm().hashCode()) + ".dictionary.image"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
 }
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Ranks candidate words by their phonetic distance to a misspelled word and keeps the best
+ * ones.
+ * <p>
+ * Large candidate lists are split and ranked in the common fork/join pool. Only the
+ * <code>limit</code> best proposals are kept. As soon as any part has found that many
+ * proposals, the distance of its worst proposal becomes the cut-off for all other parts, so
+ * that the distance computation of hopeless candidates can stop early.
+ * </p>
+ *
+ * @since 3.14
+ */
+final class ProposalEngine {
+
+	/** The number of candidates below which the distances are computed on the calling thread */
+	private static final int SEQUENTIAL_THRESHOLD= 256;
+
+	/** The number of candidates after which the progress monitor is checked for cancellation */
+	private static final int CANCEL_CHECK_INTERVAL= 64;
+
+	/**
+	 * Orders proposals from worst to best. Proposals with the same rank are ordered by
+	 * descending text, so that the result does not depend on how the candidates were split.
+	 */
+	private static final Comparator<RankedWordProposal> WORST_FIRST= new Comparator<RankedWordProposal>() {
+		@Override
+		public int compare(RankedWordProposal first, RankedWordProposal second) {
+			int result= first.compareTo(second);
+			if (result != 0)
+				return result;
+			return second.getText().compareTo(first.getText());
+		}
+	};
+
+	private final class RankTask extends RecursiveTask<PriorityQueue<RankedWordProposal>> {
+
+		private static final long serialVersionUID= 1L;
+
+		private final int fStart;
+		private final int fEnd;
+
+		RankTask(int start, int end) {
+			fStart= start;
+			fEnd= end;
+		}
+
+		@Override
+		protected PriorityQueue<RankedWordProposal> compute() {
+			if (fEnd - fStart <= SEQUENTIAL_THRESHOLD)
+				return rank(fStart, fEnd);
+
+			int middle= (fStart + fEnd) >>> 1;
+			RankTask left= new RankTask(fStart, middle);
+			left.fork();
+			PriorityQueue<RankedWordProposal> result= new RankTask(middle, fEnd).compute();
+			for (RankedWordProposal proposal : left.join())
+				offer(result, proposal);
+			return result;
+		}
+	}
+
+	private final IPhoneticDistanceAlgorithm fAlgorithm;
+	private final String fWord;
+	private final List<String> fCandidates;
+	private final int fLimit;
+	private final IProgressMonitor fMonitor;
+
+	/** The largest distance that can still make it into the result */
+	private final AtomicInteger fCutOff;
+
+	/**
+	 * Creates a new proposal engine.
+	 *
+	 * @param algorithm the distance algorithm
+	 * @param word the misspelled word
+	 * @param candidates the candidate words
+	 * @param threshold the distance from which on candidates are not proposed
+	 * @param limit the maximum number of proposals
+	 * @param monitor the progress monitor to check for cancellation, or <code>null</code>
+	 */
+	ProposalEngine(IPhoneticDistanceAlgorithm algorithm, String word, List<String> candidates, int threshold, int limit, IProgressMonitor monitor) {
+		fAlgorithm= algorithm;
+		fWord= word;
+		fCandidates= candidates;
+		fLimit= limit;
+		fMonitor= monitor;
+		fCutOff= new AtomicInteger(threshold - 1);
+	}
+
+	/**
+	 * Ranks the candidates.
+	 * <p>
+	 * If the progress monitor is canceled, the proposals found so far are returned.
+	 * </p>
+	 *
+	 * @return the best proposals, ordered from best to worst
+	 */
+	List<RankedWordProposal> computeProposals() {
+		if (fLimit <= 0 || fCandidates.isEmpty())
+			return Collections.emptyList();
+
+		PriorityQueue<RankedWordProposal> queue;
+		if (fCandidates.size() <= SEQUENTIAL_THRESHOLD)
+			queue= rank(0, fCandidates.size());
+		else
+			queue= ForkJoinPool.commonPool().invoke(new RankTask(0, fCandidates.size()));
+
+		List<RankedWordProposal> result= new ArrayList<>(queue);
+		Collections.sort(result, Collections.reverseOrder(WORST_FIRST));
+		return result;
+	}
+
+	private PriorityQueue<RankedWordProposal> rank(int start, int end) {
+		PriorityQueue<RankedWordProposal> queue= new PriorityQueue<>(Math.max(1, Math.min(fLimit, end - start)), WORST_FIRST);
+		for (int index= start; index < end; index++) {
+			if ((index - start) % CANCEL_CHECK_INTERVAL == 0 && fMonitor != null && fMonitor.isCanceled())
+				break;
+
+			String candidate= fCandidates.get(index);
+			int cutOff= fCutOff.get();
+			int distance= getDistance(candidate, cutOff + 1);
+			if (distance <= cutOff)
+				offer(queue, new RankedWordProposal(candidate, -distance));
+		}
+		return queue;
+	}
+
+	private int getDistance(String candidate, int limit) {
+		if (fAlgorithm instanceof DefaultPhoneticDistanceAlgorithm)
+			return ((DefaultPhoneticDistanceAlgorithm) fAlgorithm).getDistance(fWord, candidate, limit);
+		return fAlgorithm.getDistance(fWord, candidate);
+	}
+
+	private void offer(PriorityQueue<RankedWordProposal> queue, RankedWordProposal proposal) {
+		if (queue.size() < fLimit) {
+			queue.add(proposal);
+		} else if (WORST_FIRST.compare(proposal, queue.peek()) > 0) {
+			queue.poll();
+			queue.add(proposal);
+		}
+
+		if (queue.size() == fLimit) {
+			int distance= -queue.peek().getRank();
+			int cutOff;
+			do {
+				cutOff= fCutOff.get();
+			} while (distance < cutOff && !fCutOff.compareAndSet(cutOff, distance));
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -3705,6 +3705,31 @@ public class PreferenceConstants {
 	 */
 	public static final String CODEASSIST_SORTER= "content_assist_sorter"; //$NON-NLS-1$
 
+	/**
+	 * A named preference that controls whether the completion proposal computers are run
+	 * concurrently. Proposals of computers which do not finish before the
+	 * {@linkplain #CODEASSIST_COMPUTATION_DEADLINE deadline} are added to the open proposal list
+	 * when they are available.
+	 * <p>
+	 * Value is of type <code>Boolean</code>.
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	public static final String CODEASSIST_CONCURRENT_COMPUTATION= "content_assist_concurrent_computation"; //$NON-NLS-1$
+
+	/**
+	 * A named preference that holds the time in milliseconds content assist waits for concurrently
+	 * running completion proposal computers before it shows the proposals computed so far.
+	 * <p>
+	 * Value is of type <code>Integer</code>.
+	 * </p>
+	 *
+	 * @see #CODEASSIST_CONCURRENT_COMPUTATION
+	 * @since 3.14
+	 */
+	public static final String CODEASSIST_COMPUTATION_DEADLINE= "content_assist_computation_deadline"; //$NON-NLS-1$
+
 	/**
 	 * A named preference that holds the source hover background color.
 	 * <p>
@@ -3905,6 +3930,8 @@ public class PreferenceConstants {
 		store.setDefault(PreferenceConstants.CODEASSIST_CATEGORY_ORDER, "org.eclipse.jdt.ui.spellingProposalCategory:65545\0org.eclipse.jdt.ui.javaTypeProposalCategory:65540\0org.eclipse.jdt.ui.javaNoTypeProposalCategory:65539\0org.eclipse.jdt.ui.textProposalCategory:65541\0org.eclipse.jdt.ui.javaAllProposalCategory:65542\0org.eclipse.jdt.ui.templateProposalCategory:2\0org.eclipse.jdt.ui.swtProposalCategory:3\0"); //$NON-NLS-1$
 		store.setDefault(PreferenceConstants.CODEASSIST_LRU_HISTORY, ""); //$NON-NLS-1$
 		store.setDefault(PreferenceConstants.CODEASSIST_SORTER, "org.eclipse.jdt.ui.RelevanceSorter"); //$NON-NLS-1$
+		store.setDefault(PreferenceConstants.CODEASSIST_CONCURRENT_COMPUTATION, false);
+		store.setDefault(PreferenceConstants.CODEASSIST_COMPUTATION_DEADLINE, 500);
 		store.setDefault(PreferenceConstants.CODEASSIST_FAVORITE_STATIC_MEMBERS, ""); //$NON-NLS-1$
 
 		store.setDefault(PreferenceConstants.EDITOR_SUB_WORD_NAVIGATION, true);
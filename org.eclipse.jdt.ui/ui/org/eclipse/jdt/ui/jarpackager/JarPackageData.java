@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -83,6 +83,8 @@ public class JarPackageData {
 	private IPath		fJarLocation; // external location
 	private boolean	fOverwrite;
 	private boolean	fCompress;
+	private boolean	fCompressInParallel;
+	private boolean	fIncrementalExport;
 
 	private boolean	fSaveDescription;
 	private IPath		fDescriptionLocation; // internal location
@@ -160,6 +162,8 @@ public class JarPackageData {
 		setExportOutputFolders(false);
 		setUseSourceFolderHierarchy(false);
 		setCompress(true);
+		setCompressInParallel(false);
+		setIncrementalExport(false);
 		setSaveDescription(false);
 		setJarLocation(Path.EMPTY);
 		setDescriptionLocation(Path.EMPTY);
@@ -194,6 +198,54 @@ public class JarPackageData {
 		fCompress= state;
 	}
 
+	/**
+	 * Tells whether the entries of the JAR are compressed on several threads.
+	 * The order of the entries in the JAR does not depend on this setting.
+	 *
+	 * @return	<code>true</code> if the entries are compressed in parallel
+	 *
+	 * @since 3.14
+	 */
+	public boolean isCompressedInParallel() {
+		return fCompressInParallel;
+	}
+
+	/**
+	 * Set whether the entries of the JAR are compressed on several threads.
+	 * This needs memory for the entries waiting to be written.
+	 *
+	 * @param state a boolean indicating the new state
+	 *
+	 * @since 3.14
+	 */
+	public void setCompressInParallel(boolean state) {
+		fCompressInParallel= state;
+	}
+
+	/**
+	 * Tells whether the JAR is exported incrementally. Entries for files
+	 * which have not changed since the previous export are copied from
+	 * the existing JAR instead of being compressed again.
+	 *
+	 * @return	<code>true</code> if the JAR is exported incrementally
+	 *
+	 * @since 3.14
+	 */
+	public boolean isIncrementalExport() {
+		return fIncrementalExport;
+	}
+
+	/**
+	 * Set whether the JAR is exported incrementally.
+	 *
+	 * @param state a boolean indicating the new state
+	 *
+	 * @since 3.14
+	 */
+	public void setIncrementalExport(boolean state) {
+		fIncrementalExport= state;
+	}
+
 	/**
 	 * Tells whether files can be overwritten without warning.
 	 *
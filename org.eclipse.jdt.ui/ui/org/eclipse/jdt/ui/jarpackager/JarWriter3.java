@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,8 @@ package org.eclipse.jdt.ui.jarpackager;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -21,7 +23,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -29,6 +35,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
@@ -59,8 +66,11 @@ import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
 import org.eclipse.jdt.internal.corext.util.Messages;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.jarpackager.JarExportState;
 import org.eclipse.jdt.internal.ui.jarpackager.JarPackagerMessages;
 import org.eclipse.jdt.internal.ui.jarpackager.JarPackagerUtil;
+import org.eclipse.jdt.internal.ui.jarpackager.ParallelZipOutput;
+import org.eclipse.jdt.internal.ui.jarpackager.RawZipFile;
 import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
 
 
@@ -79,6 +89,17 @@ public class JarWriter3 {
 
 	private JarOutputStream fJarOutputStream;
 
+	private ParallelZipOutput fParallelOutput;
+
+	/*
+	 * Incremental export: the new archive is written to a temporary file, unchanged
+	 * entries are copied from the previous archive
+	 */
+	private File fTempJarFile;
+	private JarExportState fExportState;
+	private JarExportState fPreviousState;
+	private RawZipFile fPreviousArchive;
+
 	private JarPackageData fJarPackage;
 
 	/**
@@ -101,14 +122,37 @@ public class JarWriter3 {
 			throw new OperationCanceledException();
 
 		try {
-			if (fJarPackage.usesManifest() && fJarPackage.areGeneratedFilesExported()) {
-				Manifest manifest= fJarPackage.getManifestProvider().create(fJarPackage);
-				fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile())), manifest);
-			} else
-				fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile())));
-			String comment= jarPackage.getComment();
-			if (comment != null)
-				fJarOutputStream.setComment(comment);
+			if (fJarPackage.isCompressedInParallel() || fJarPackage.isIncrementalExport()) {
+				File jarFile= fJarPackage.getAbsoluteJarLocation().toFile();
+				OutputStream output;
+				if (fJarPackage.isIncrementalExport()) {
+					openPreviousExport(jarFile);
+					fTempJarFile= new File(jarFile.getPath() + ".tmp"); //$NON-NLS-1$
+					output= new FileOutputStream(fTempJarFile);
+				} else {
+					output= new FileOutputStream(jarFile);
+				}
+				fParallelOutput= new ParallelZipOutput(output, fJarPackage.isCompressedInParallel() ? 0 : 1);
+				if (fJarPackage.usesManifest() && fJarPackage.areGeneratedFilesExported()) {
+					Manifest manifest= fJarPackage.getManifestProvider().create(fJarPackage);
+					ByteArrayOutputStream contents= new ByteArrayOutputStream();
+					manifest.write(contents);
+					JarEntry entry= new JarEntry(JarFile.MANIFEST_NAME);
+					entry.setMethod(ZipEntry.DEFLATED);
+					entry.setTime(System.currentTimeMillis());
+					writeEntry(entry, contents.toByteArray());
+				}
+				fParallelOutput.setComment(jarPackage.getComment());
+			} else {
+				if (fJarPackage.usesManifest() && fJarPackage.areGeneratedFilesExported()) {
+					Manifest manifest= fJarPackage.getManifestProvider().create(fJarPackage);
+					fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile())), manifest);
+				} else
+					fJarOutputStream= new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fJarPackage.getAbsoluteJarLocation().toFile())));
+				String comment= jarPackage.getComment();
+				if (comment != null)
+					fJarOutputStream.setComment(comment);
+			}
 			if (fJarPackage.isRefactoringAware()) {
 				Assert.isTrue(fJarPackage.areDirectoryEntriesIncluded());
 				final IPath metaPath= new Path(JarPackagerUtil.getMetaEntry());
@@ -116,6 +160,7 @@ public class JarWriter3 {
 				addHistory(fJarPackage, new Path(JarPackagerUtil.getRefactoringsEntry()), new NullProgressMonitor());
 			}
 		} catch (IOException exception) {
+			discardIncrementalExport();
 			throw JarPackagerUtil.createCoreException(exception.getLocalizedMessage(), exception);
 		}
 	}
@@ -159,7 +204,7 @@ public class JarWriter3 {
 		}
 
 		for (int i= directories.size() - 1; i >= 0; --i) {
-			fJarOutputStream.putNextEntry(directories.get(i));
+			writeEntry(directories.get(i), new byte[0]);
 		}
 	}
 
@@ -207,7 +252,7 @@ public class JarWriter3 {
 		}
 
 		for (int i= directories.size() - 1; i >= 0; --i) {
-			fJarOutputStream.putNextEntry(directories.get(i));
+			writeEntry(directories.get(i), new byte[0]);
 		}
 	}
 
@@ -223,32 +268,114 @@ public class JarWriter3 {
 	 */
 	protected void addFile(IFile resource, IPath path) throws IOException, CoreException {
 		JarEntry newEntry= new JarEntry(path.toString().replace(File.separatorChar, '/'));
-		byte[] readBuffer= new byte[4096];
-
-		if (fJarPackage.isCompressed())
-			newEntry.setMethod(ZipEntry.DEFLATED);
-			// Entry is filled automatically.
-		else {
-			newEntry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(newEntry, resource.getContents(false), readBuffer);
-		}
+		byte[] contents= null;
 
 		long lastModified= System.currentTimeMillis();
+		long length= -1;
 		URI locationURI= resource.getLocationURI();
 		if (locationURI != null) {
 			IFileInfo info= EFS.getStore(locationURI).fetchInfo();
-			if (info.exists())
+			if (info.exists()) {
 				lastModified= info.getLastModified();
+				length= info.getLength();
+			}
+		}
+
+		if (fJarPackage.isCompressed())
+			newEntry.setMethod(ZipEntry.DEFLATED);
+			// Entry is filled automatically.
+		else {
+			newEntry.setMethod(ZipEntry.STORED);
+			// Small files are read only once, the CRC is computed from their content
+			if (isBuffered(length))
+				contents= JarPackagerUtil.readBufferedContents(resource.getContents(false), length);
+			if (contents == null)
+				JarPackagerUtil.calculateCrcAndSize(newEntry, resource.getContents(false), new byte[4096]);
+			else if (fParallelOutput == null)
+				JarPackagerUtil.calculateCrcAndSize(newEntry, contents);
+			// else the CRC is computed by the workers
 		}
 
 		// Set modification time
 		newEntry.setTime(lastModified);
 
-		InputStream contentStream = resource.getContents(false);
+		if (fExportState != null) {
+			addFileIncrementally(resource, newEntry, lastModified, length, contents);
+			return;
+		}
+
+		InputStream contentStream= contents != null ? new ByteArrayInputStream(contents) : resource.getContents(false);
 
 		addEntry(newEntry, contentStream);
 	}
 
+	/**
+	 * Writes the file unless it has not changed since the previous export, in which
+	 * case its entry is copied from the previous archive.
+	 *
+	 * @param resource the file to write
+	 * @param entry the entry for the file
+	 * @param lastModified the modification stamp of the file
+	 * @param length the length of the file, or <code>-1</code> if unknown
+	 * @param contents the contents of the file if they have been read already, or
+	 *            <code>null</code>
+	 * @throws IOException if an I/O error has occurred
+	 * @throws CoreException if the resource can-t be accessed
+	 */
+	private void addFileIncrementally(IFile resource, JarEntry entry, long lastModified, long length, byte[] contents) throws IOException, CoreException {
+		String name= entry.getName();
+		JarExportState.Record previous= fPreviousState != null ? fPreviousState.get(name) : null;
+		if (previous != null && previous.isUnchanged(lastModified, length) && copyPreviousEntry(entry)) {
+			fExportState.put(name, previous);
+			return;
+		}
+
+		if (contents == null && isBuffered(length))
+			contents= JarPackagerUtil.readBufferedContents(resource.getContents(false), length);
+		if (contents == null) {
+			byte[] digest= JarExportState.digest(resource.getContents(false));
+			fExportState.put(name, new JarExportState.Record(lastModified, length, digest));
+			if (previous != null && previous.hasDigest(digest) && copyPreviousEntry(entry))
+				return;
+			addEntry(entry, resource.getContents(false));
+			return;
+		}
+
+		byte[] digest= JarExportState.digest(contents);
+		fExportState.put(name, new JarExportState.Record(lastModified, contents.length, digest));
+		// touched, but e.g. recompiled to the same class file
+		if (previous != null && previous.hasDigest(digest) && copyPreviousEntry(entry))
+			return;
+		addEntry(entry, new ByteArrayInputStream(contents));
+	}
+
+	/**
+	 * Tells whether a file is small enough to try to read it into memory before it is written.
+	 * The bytes actually read decide, see {@link JarPackagerUtil#readBufferedContents(InputStream, long)}.
+	 *
+	 * @param length the length of the file, or <code>-1</code> if unknown
+	 * @return <code>true</code> if the file can be read into memory
+	 */
+	private static boolean isBuffered(long length) {
+		return length >= 0 && length < JarPackagerUtil.MAX_BUFFERED_SIZE;
+	}
+
+	/**
+	 * Copies the compressed data of the entry with the same name from the previous archive.
+	 *
+	 * @param entry the entry to write
+	 * @return <code>true</code> if the entry has been copied, <code>false</code> if it has to
+	 *         be written from its content
+	 * @throws IOException if an I/O error has occurred
+	 */
+	private boolean copyPreviousEntry(JarEntry entry) throws IOException {
+		RawZipFile.Entry previous= fPreviousArchive.getEntry(entry.getName());
+		if (previous == null || previous.getMethod() != entry.getMethod())
+			return false;
+		fParallelOutput.putRawEntry(entry, fPreviousArchive.readRawData(previous), previous.getCrc(), previous.getSize());
+		return true;
+	}
+
 	/**
 	 * Write the given entry describing the given content to the
 	 * current archive
@@ -261,6 +388,18 @@ public class JarWriter3 {
 	 * @since 3.4
 	 */
 	protected void addEntry(JarEntry entry, InputStream content) throws IOException {
+		if (fParallelOutput != null) {
+			try {
+				byte[] contents= JarPackagerUtil.readContents(content, entry.getSize(), JarPackagerUtil.MAX_BUFFERED_SIZE);
+				if (contents.length < JarPackagerUtil.MAX_BUFFERED_SIZE)
+					fParallelOutput.putEntry(entry, contents, contents.length);
+				else
+					fParallelOutput.putEntry(entry, new SequenceInputStream(new ByteArrayInputStream(contents), content));
+			} finally {
+				content.close();
+			}
+			return;
+		}
 		byte[] readBuffer= new byte[4096];
 		try {
 			fJarOutputStream.putNextEntry(entry);
@@ -383,15 +522,86 @@ public class JarWriter3 {
 	 *             used to return information in the status object.
 	 */
 	public void close() throws CoreException {
-		if (fJarOutputStream != null)
+		if (fJarOutputStream != null || fParallelOutput != null)
 			try {
-				fJarOutputStream.close();
+				if (fParallelOutput != null) {
+					try {
+						try {
+							fParallelOutput.close();
+						} finally {
+							if (fPreviousArchive != null)
+								fPreviousArchive.close();
+						}
+						if (fTempJarFile != null)
+							finishIncrementalExport();
+					} finally {
+						// has been moved unless the export failed
+						if (fTempJarFile != null)
+							fTempJarFile.delete();
+					}
+				} else
+					fJarOutputStream.close();
 				registerInWorkspaceIfNeeded();
 			} catch (IOException ex) {
 				throw JarPackagerUtil.createCoreException(ex.getLocalizedMessage(), ex);
 			}
 	}
 
+	/**
+	 * Reads the state of the previous export of the archive, if it can be used for an
+	 * incremental export.
+	 *
+	 * @param jarFile the archive
+	 */
+	private void openPreviousExport(File jarFile) {
+		fExportState= new JarExportState();
+		fPreviousState= JarExportState.read(jarFile);
+		if (fPreviousState != null) {
+			try {
+				fPreviousArchive= new RawZipFile(jarFile);
+			} catch (IOException e) {
+				// not an archive we can copy from, export everything
+				fPreviousState= null;
+			}
+		}
+	}
+
+	/**
+	 * Closes and deletes the temporary archive of an incremental export which has failed.
+	 */
+	private void discardIncrementalExport() {
+		if (fTempJarFile == null)
+			return;
+		try {
+			try {
+				if (fParallelOutput != null)
+					fParallelOutput.close();
+			} finally {
+				if (fPreviousArchive != null)
+					fPreviousArchive.close();
+			}
+		} catch (IOException e) {
+			// the export has failed already
+		} finally {
+			fTempJarFile.delete();
+		}
+	}
+
+	/**
+	 * Replaces the archive with the newly written one and records its state.
+	 *
+	 * @throws IOException if the archive cannot be replaced
+	 */
+	private void finishIncrementalExport() throws IOException {
+		File jarFile= fJarPackage.getAbsoluteJarLocation().toFile();
+		try {
+			Files.move(fTempJarFile.toPath(), jarFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(fTempJarFile.toPath(), jarFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		fExportState.write(jarFile);
+	}
+
 	private void registerInWorkspaceIfNeeded() {
 		IPath jarPath= fJarPackage.getAbsoluteJarLocation();
 		IProject[] projects= ResourcesPlugin.getWorkspace().getRoot().getProjects();
@@ -462,26 +672,33 @@ public class JarWriter3 {
 		Assert.isNotNull(file);
 		Assert.isNotNull(path);
 		final JarEntry entry= new JarEntry(path.toString().replace(File.separatorChar, '/'));
-		byte[] buffer= new byte[4096];
+		final byte[] contents= JarPackagerUtil.readContents(new BufferedInputStream(new FileInputStream(file)), file.length());
 		if (data.isCompressed())
 			entry.setMethod(ZipEntry.DEFLATED);
 		else {
 			entry.setMethod(ZipEntry.STORED);
-			JarPackagerUtil.calculateCrcAndSize(entry, new BufferedInputStream(new FileInputStream(file)), buffer);
+			JarPackagerUtil.calculateCrcAndSize(entry, contents);
 		}
 		entry.setTime(System.currentTimeMillis());
-		final InputStream stream= new BufferedInputStream(new FileInputStream(file));
-		try {
+		writeEntry(entry, contents);
+	}
+
+	/**
+	 * Writes an entry whose complete content is known to the current archive.
+	 *
+	 * @param entry
+	 *            the entry to write
+	 * @param contents
+	 *            the content of the entry
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private void writeEntry(JarEntry entry, byte[] contents) throws IOException {
+		if (fParallelOutput != null) {
+			fParallelOutput.putEntry(entry, contents, contents.length);
+		} else {
 			fJarOutputStream.putNextEntry(entry);
-			int count;
-			while ((count= stream.read(buffer, 0, buffer.length)) != -1)
-				fJarOutputStream.write(buffer, 0, count);
-		} finally {
-			try {
-				stream.close();
-			} catch (IOException exception) {
-				// Do nothing
-			}
+			fJarOutputStream.write(contents);
 		}
 	}
 }
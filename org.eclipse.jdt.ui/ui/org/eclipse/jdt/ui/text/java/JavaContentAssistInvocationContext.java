@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.text.java;
 
+import org.eclipse.swt.graphics.Point;
+
 import org.eclipse.core.runtime.Assert;
 
 import org.eclipse.jface.text.ITextViewer;
@@ -34,6 +36,10 @@ import org.eclipse.jdt.internal.ui.text.java.ContentAssistHistory.RHSHistory;
 /**
  * Describes the context of a content assist invocation in a Java editor.
  * <p>
+ * The values which are computed lazily are computed at most once, even if the context is accessed
+ * from several threads.
+ * </p>
+ * <p>
  * Clients may use but not subclass this class.
  * </p>
  *
@@ -43,8 +49,10 @@ import org.eclipse.jdt.internal.ui.text.java.ContentAssistHistory.RHSHistory;
  */
 public class JavaContentAssistInvocationContext extends ContentAssistInvocationContext {
 	private final IEditorPart fEditor;
+	private final Point fSelectedRange;
 
 	private IJavaProject fJavaProject;
+	/* the lazily computed fields are guarded by this */
 	private ICompilationUnit fCU= null;
 	private boolean fCUComputed= false;
 
@@ -68,6 +76,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 		super(viewer, offset);
 		Assert.isNotNull(editor);
 		fEditor= editor;
+		fSelectedRange= viewer.getSelectedRange();
 	}
 
 	/**
@@ -80,6 +89,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 		fCU= unit;
 		fCUComputed= true;
 		fEditor= null;
+		fSelectedRange= null;
 	}
 
 	/**
@@ -92,6 +102,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 		super();
 		fJavaProject= javaProject;
 		fEditor= null;
+		fSelectedRange= null;
 	}
 
 	/**
@@ -100,7 +111,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 * 
 	 * @return the compilation unit that content assist is invoked in, possibly <code>null</code>
 	 */
-	public ICompilationUnit getCompilationUnit() {
+	public synchronized ICompilationUnit getCompilationUnit() {
 		if (!fCUComputed) {
 			fCUComputed= true;
 			if (fCollector != null)
@@ -125,6 +136,19 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 		return unit == null ? fJavaProject : unit.getJavaProject();
 	}
 
+	/**
+	 * Returns the range that was selected in the viewer when content assist was invoked. Unlike
+	 * the viewer, the selected range can be accessed outside of the UI thread, for example by
+	 * completion proposal computers which run concurrently.
+	 *
+	 * @return the selected range as (offset, length), or <code>null</code> if this context has
+	 *         no viewer
+	 * @since 3.14
+	 */
+	public Point getSelectedRange() {
+		return fSelectedRange == null ? null : new Point(fSelectedRange.x, fSelectedRange.y);
+	}
+
 	/**
 	 * Returns the keyword proposals that are available in this context, possibly none.
 	 * <p>
@@ -135,7 +159,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 *
 	 * @return the available keyword proposals
 	 */
-	public IJavaCompletionProposal[] getKeywordProposals() {
+	public synchronized IJavaCompletionProposal[] getKeywordProposals() {
 		if (fKeywordProposals == null) {
 			if (fCollector != null && !fCollector.isIgnored(CompletionProposal.KEYWORD) && fCollector.getContext() != null) {
 				// use the existing collector if it exists, collects keywords, and has already been invoked
@@ -160,7 +184,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 *
 	 * @return the core completion context if available, <code>null</code> otherwise
 	 */
-	public CompletionContext getCoreContext() {
+	public synchronized CompletionContext getCoreContext() {
 		if (fCollector != null) {
 			CompletionContext context= fCollector.getContext();
 			if (context != null) {
@@ -199,7 +223,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 *
 	 * @return the content assist type history for the expected type
 	 */
-	private RHSHistory getRHSHistory() {
+	private synchronized RHSHistory getRHSHistory() {
 		if (fRHSHistory == null) {
 			CompletionContext context= getCoreContext();
 			if (context != null) {
@@ -225,7 +249,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 *
 	 * @return the expected type if any, <code>null</code> otherwise
 	 */
-	public IType getExpectedType() {
+	public synchronized IType getExpectedType() {
 		if (fType == null && getCompilationUnit() != null) {
 			CompletionContext context= getCoreContext();
 			if (context != null) {
@@ -250,7 +274,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 *
 	 * @return a label provider that can be used to compute proposal labels
 	 */
-	public CompletionProposalLabelProvider getLabelProvider() {
+	public synchronized CompletionProposalLabelProvider getLabelProvider() {
 		if (fLabelProvider == null) {
 			if (fCollector != null)
 				fLabelProvider= fCollector.getLabelProvider();
@@ -272,7 +296,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 *
 	 * @param collector the collector
 	 */
-	void setCollector(CompletionProposalCollector collector) {
+	synchronized void setCollector(CompletionProposalCollector collector) {
 		fCollector= collector;
 	}
 
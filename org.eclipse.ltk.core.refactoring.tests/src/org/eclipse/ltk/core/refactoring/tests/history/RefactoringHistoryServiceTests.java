@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2015 IBM Corporation and others.
+ * Copyright (c) 2006, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -556,6 +556,24 @@ public class RefactoringHistoryServiceTests extends TestCase {
 		assertEquals("Refactoring history has wrong size", 0, proxies.length);
 	}
 
+	public void testReadProjectHistory7() throws Exception {
+		final RefactoringHistoryService service= RefactoringHistoryService.getInstance();
+		RefactoringHistory history= service.getProjectHistory(fProject.getProject(), STAMP_FACTOR * 5, STAMP_FACTOR * 15, RefactoringDescriptor.NONE, null);
+		RefactoringDescriptorProxy[] proxies= history.getDescriptors();
+		assertEquals("Refactoring history has wrong size", 11, proxies.length);
+		assertDescendingSortOrder(proxies);
+		assertEquals("Wrong first time stamp", STAMP_FACTOR * 15, proxies[0].getTimeStamp());
+		assertEquals("Wrong last time stamp", STAMP_FACTOR * 5, proxies[proxies.length - 1].getTimeStamp());
+		service.deleteRefactoringDescriptors(new RefactoringDescriptorProxy[] { proxies[0], proxies[proxies.length - 1]}, null);
+		history= service.getProjectHistory(fProject.getProject(), STAMP_FACTOR * 5, STAMP_FACTOR * 15, RefactoringDescriptor.NONE, null);
+		proxies= history.getDescriptors();
+		assertEquals("Refactoring history has wrong size", 9, proxies.length);
+		assertEquals("Wrong first time stamp", STAMP_FACTOR * 14, proxies[0].getTimeStamp());
+		assertEquals("Wrong last time stamp", STAMP_FACTOR * 6, proxies[proxies.length - 1].getTimeStamp());
+		history= service.getProjectHistory(fProject.getProject(), null);
+		assertEquals("Refactoring history has wrong size", RefactoringHistoryServiceTests.TOTAL_PROJECT_NUMBER - 2, history.getDescriptors().length);
+	}
+
 	public void testReadRefactoringHistory0() throws Exception {
 		setUpWorkspaceRefactorings();
 		RefactoringHistory history= RefactoringHistoryService.getInstance().getWorkspaceHistory(null);
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.history;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.InputSource;
+
+import org.eclipse.ltk.core.refactoring.RefactoringCore;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.core.refactoring.RefactoringSessionDescriptor;
+import org.eclipse.ltk.core.refactoring.history.RefactoringHistory;
+import org.eclipse.ltk.internal.core.refactoring.IRefactoringSessionRequestor;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringSessionReader;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryManager;
+
+import junit.framework.TestCase;
+
+public class RefactoringSessionStreamingTests extends TestCase {
+
+	private static final int DESCRIPTOR_NUMBER= 50000;
+
+	private static byte[] createScript(int number) throws Exception {
+		RefactoringDescriptor[] descriptors= new RefactoringDescriptor[number];
+		for (int index= 0; index < number; index++) {
+			int flags= index % 2 == 0 ? RefactoringDescriptor.BREAKING_CHANGE : RefactoringDescriptor.STRUCTURAL_CHANGE;
+			MockRefactoringDescriptor descriptor= new MockRefactoringDescriptor("test" + index % 10, "A mock refactoring number " + index, "A mock comment", flags);
+			descriptor.getArguments().put("input", "/test/src/p/A" + index + ".java");
+			descriptor.getArguments().put("name", "B" + index);
+			descriptor.setTimeStamp(index + 1);
+			descriptors[index]= descriptor;
+		}
+		ByteArrayOutputStream stream= new ByteArrayOutputStream(number * 256);
+		RefactoringCore.getHistoryService().writeRefactoringSession(new RefactoringSessionDescriptor(descriptors, RefactoringSessionDescriptor.VERSION_1_0, null), stream, true);
+		return stream.toByteArray();
+	}
+
+	public void testReadLargeScript() throws Exception {
+		byte[] script= createScript(DESCRIPTOR_NUMBER);
+		RefactoringHistory history= RefactoringCore.getHistoryService().readRefactoringHistory(new ByteArrayInputStream(script), RefactoringDescriptor.NONE);
+		assertEquals("Wrong number of refactoring descriptors", DESCRIPTOR_NUMBER, history.getDescriptors().length);
+		history= RefactoringCore.getHistoryService().readRefactoringHistory(new ByteArrayInputStream(script), RefactoringDescriptor.BREAKING_CHANGE);
+		RefactoringDescriptorProxy[] proxies= history.getDescriptors();
+		assertEquals("Wrong number of refactoring descriptors", DESCRIPTOR_NUMBER / 2, proxies.length);
+		for (int index= 0; index < proxies.length; index++) {
+			RefactoringDescriptor descriptor= proxies[index].requestDescriptor(null);
+			assertTrue("Descriptor should be a breaking change", (descriptor.getFlags() & RefactoringDescriptor.BREAKING_CHANGE) != 0);
+		}
+	}
+
+	public void testReadWrittenScript() throws Exception {
+		byte[] script= createScript(DESCRIPTOR_NUMBER);
+		RefactoringHistory history= RefactoringCore.getHistoryService().readRefactoringHistory(new ByteArrayInputStream(script), RefactoringDescriptor.NONE);
+		RefactoringDescriptorProxy[] proxies= history.getDescriptors();
+		RefactoringHistoryManager.sortRefactoringDescriptorsAscending(proxies);
+		ByteArrayOutputStream stream= new ByteArrayOutputStream(script.length);
+		RefactoringCore.getHistoryService().writeRefactoringDescriptors(proxies, stream, RefactoringDescriptor.NONE, true, null);
+		assertEquals("Script should be written unchanged", new String(script, "utf-8"), stream.toString("utf-8"));
+	}
+
+	public void testOutputOfDOMWriter() throws Exception {
+		// the expected output has been written by the DOM based serialization which the streaming writer replaced
+		String delimiter= System.getProperty("line.separator", "\n");
+		ByteArrayOutputStream stream= new ByteArrayOutputStream();
+		RefactoringHistoryManager.writeRefactoringSession(stream, new RefactoringSessionDescriptor(new RefactoringDescriptor[0], RefactoringSessionDescriptor.VERSION_1_0, null), true);
+		assertEquals("Wrong empty session", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + delimiter + "<session version=\"1.0\"/>", stream.toString("utf-8"));
+
+		MockRefactoringDescriptor first= new MockRefactoringDescriptor("test0", "Rename 'A' to \u00c4\u00df\u20ac", "Line 1\nLine 2\r\n\tindented", RefactoringDescriptor.BREAKING_CHANGE);
+		first.getArguments().put("input", "/test/src/p/A.java");
+		first.getArguments().put("name", "B");
+		first.getArguments().put("Zeta", "upper");
+		first.getArguments().put("element1", "x&y");
+		first.setTimeStamp(1);
+		MockRefactoringDescriptor second= new MockRefactoringDescriptor("test1", "Second", null, RefactoringDescriptor.NONE);
+		second.setTimeStamp(2);
+		stream= new ByteArrayOutputStream();
+		RefactoringHistoryManager.writeRefactoringSession(stream, new RefactoringSessionDescriptor(new RefactoringDescriptor[] { first, second }, RefactoringSessionDescriptor.VERSION_1_0, "Session <comment> & \"quotes\""), true);
+		String expected= "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + delimiter
+				+ "<session comment=\"Session &lt;comment&gt; &amp; &quot;quotes&quot;\" version=\"1.0\">" + delimiter
+				+ "<refactoring Zeta=\"upper\" comment=\"Line 1&#x0A;Line 2&#x0D;&#x0A;&#x09;indented\" description=\"Rename &apos;A&apos; to \u00c4\u00df\u20ac\" element1=\"x&amp;y\" flags=\"1\" id=\"org.eclipse.ltk.core.mock\" input=\"/test/src/p/A.java\" name=\"B\" project=\"test0\" stamp=\"1\"/>" + delimiter
+				+ "<refactoring description=\"Second\" id=\"org.eclipse.ltk.core.mock\" project=\"test1\" stamp=\"2\"/>" + delimiter
+				+ "</session>";
+		assertEquals("Wrong session", expected, stream.toString("utf-8"));
+	}
+
+	public void testSelectAndStop() throws Exception {
+		byte[] script= createScript(100);
+		final List<RefactoringDescriptor> selected= new ArrayList<>();
+		new RefactoringSessionReader(false, null).readSession(new InputSource(new ByteArrayInputStream(script)), new IRefactoringSessionRequestor() {
+
+			@Override
+			public boolean accept(RefactoringDescriptor descriptor) {
+				selected.add(descriptor);
+				return selected.size() < 3;
+			}
+
+			@Override
+			public boolean select(String id, String project, long stamp, int flags) {
+				return "test5".equals(project) && stamp > 10;
+			}
+		});
+		assertEquals("Wrong number of refactoring descriptors", 3, selected.size());
+		assertEquals("Wrong time stamp", 16, selected.get(0).getTimeStamp());
+		assertEquals("Wrong time stamp", 26, selected.get(1).getTimeStamp());
+		assertEquals("Wrong time stamp", 36, selected.get(2).getTimeStamp());
+	}
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring;
+
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
+
+/**
+ * Requestor which receives the refactorings of a session while it is read by a
+ * {@link RefactoringSessionReader}.
+ *
+ * @since 3.8
+ */
+public interface IRefactoringSessionRequestor {
+
+	/**
+	 * Accepts a refactoring descriptor which has been read and selected.
+	 *
+	 * @param descriptor
+	 *            the refactoring descriptor
+	 * @return <code>true</code> to continue reading the session,
+	 *         <code>false</code> to stop reading
+	 */
+	public boolean accept(RefactoringDescriptor descriptor);
+
+	/**
+	 * Determines whether a refactoring descriptor should be created for the
+	 * refactoring with the specified properties.
+	 * <p>
+	 * This method is called before the descriptor is created, so that the
+	 * cost of creating unwanted descriptors can be avoided.
+	 * </p>
+	 *
+	 * @param id
+	 *            the unique identifier of the refactoring
+	 * @param project
+	 *            the name of the project of the refactoring, or
+	 *            <code>null</code>
+	 * @param stamp
+	 *            the time stamp of the refactoring, or <code>-1</code>
+	 * @param flags
+	 *            the flags of the refactoring
+	 * @return <code>true</code> to create and accept the descriptor,
+	 *         <code>false</code> to skip it
+	 */
+	public boolean select(String id, String project, long stamp, int flags);
+}
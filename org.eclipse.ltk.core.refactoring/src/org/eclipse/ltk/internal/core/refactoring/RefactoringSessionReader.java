@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2008 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,7 @@ import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
+import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -48,6 +49,12 @@ import org.eclipse.ltk.internal.core.refactoring.history.RefactoringContribution
  */
 public final class RefactoringSessionReader extends DefaultHandler {
 
+	/** Exception which stops reading once the requestor is done */
+	private static final class StopReadingException extends SAXException {
+
+		private static final long serialVersionUID= 1L;
+	}
+
 	/** The comment of the refactoring session, or <code>null</code> */
 	private String fComment= null;
 
@@ -59,11 +66,11 @@ public final class RefactoringSessionReader extends DefaultHandler {
 
 	private final boolean fCreateDefaultDescriptors;
 
-	/**
-	 * The current list of refactoring descriptors, or <code>null</code>
-	 * (element type: <code>RefactoringDescriptor</code>)
-	 */
-	private List<RefactoringDescriptor> fRefactoringDescriptors= null;
+	/** Has a refactoring been found during parsing? */
+	private boolean fRefactoringFound= false;
+
+	/** The requestor to pass the refactorings to, or <code>null</code> */
+	private IRefactoringSessionRequestor fRequestor= null;
 
 	/** Has a session been found during parsing? */
 	private boolean fSessionFound= false;
@@ -132,19 +139,65 @@ public final class RefactoringSessionReader extends DefaultHandler {
 	 *             if an error occurs while reading form the input source
 	 */
 	public RefactoringSessionDescriptor readSession(final InputSource source) throws CoreException {
+		final List<RefactoringDescriptor> descriptors= new ArrayList<>();
+		try {
+			parse(source, new IRefactoringSessionRequestor() {
+
+				@Override
+				public boolean accept(final RefactoringDescriptor descriptor) {
+					descriptors.add(descriptor);
+					return true;
+				}
+
+				@Override
+				public boolean select(final String id, final String project, final long stamp, final int flags) {
+					return true;
+				}
+			});
+			if (!descriptors.isEmpty())
+				return new RefactoringSessionDescriptor(descriptors.toArray(new RefactoringDescriptor[descriptors.size()]), fVersion, fComment);
+		} finally {
+			reset();
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the refactorings of a refactoring session from the specified input
+	 * object.
+	 * <p>
+	 * In contrast to {@link #readSession(InputSource)}, the refactorings are
+	 * passed to the requestor while the session is read, and no descriptors
+	 * are created for refactorings which are not selected by the requestor.
+	 * </p>
+	 *
+	 * @param source
+	 *            the input source
+	 * @param requestor
+	 *            the requestor to pass the refactorings to
+	 * @throws CoreException
+	 *             if an error occurs while reading form the input source
+	 */
+	public void readSession(final InputSource source, final IRefactoringSessionRequestor requestor) throws CoreException {
+		Assert.isNotNull(requestor);
+		try {
+			parse(source, requestor);
+		} finally {
+			reset();
+		}
+	}
+
+	private void parse(final InputSource source, final IRefactoringSessionRequestor requestor) throws CoreException {
 		fSessionFound= false;
+		fRefactoringFound= false;
+		fRequestor= requestor;
 		try {
 			source.setSystemId("/"); //$NON-NLS-1$
 			createParser(SAXParserFactory.newInstance()).parse(source, this);
 			if (!fSessionFound)
 				throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.REFACTORING_HISTORY_FORMAT_ERROR, RefactoringCoreMessages.RefactoringSessionReader_no_session, null));
-			if (fRefactoringDescriptors != null) {
-				if (fVersion == null || "".equals(fVersion)) //$NON-NLS-1$
-					throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.MISSING_REFACTORING_HISTORY_VERSION, RefactoringCoreMessages.RefactoringSessionReader_missing_version_information, null));
-				if (!IRefactoringSerializationConstants.CURRENT_VERSION.equals(fVersion))
-					throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.UNSUPPORTED_REFACTORING_HISTORY_VERSION, RefactoringCoreMessages.RefactoringSessionReader_unsupported_version_information, null));
-				return new RefactoringSessionDescriptor(fRefactoringDescriptors.toArray(new RefactoringDescriptor[fRefactoringDescriptors.size()]), fVersion, fComment);
-			}
+		} catch (StopReadingException exception) {
+			// The requestor is done
 		} catch (IOException exception) {
 			throwCoreException(exception, exception.getLocalizedMessage());
 		} catch (ParserConfigurationException exception) {
@@ -157,14 +210,17 @@ public final class RefactoringSessionReader extends DefaultHandler {
 			});
 			throwCoreException(exception, message);
 		} catch (SAXException exception) {
+			if (exception.getException() instanceof CoreException)
+				throw (CoreException) exception.getException();
 			throwCoreException(exception, exception.getLocalizedMessage());
-		} finally {
-			fRefactoringDescriptors= null;
-			fVersion= null;
-			fComment= null;
-			fLocator= null;
 		}
-		return null;
+	}
+
+	private void reset() {
+		fRequestor= null;
+		fVersion= null;
+		fComment= null;
+		fLocator= null;
 	}
 
 	private void throwCoreException(Exception exception, String message) throws CoreException {
@@ -175,6 +231,25 @@ public final class RefactoringSessionReader extends DefaultHandler {
 				exception));
 	}
 
+	/**
+	 * Checks the version of the current session.
+	 *
+	 * @throws SAXException
+	 *             wrapping a core exception if the version is missing or
+	 *             not supported
+	 */
+	private void checkVersion() throws SAXException {
+		IStatus status= null;
+		if (!fSessionFound)
+			status= new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.REFACTORING_HISTORY_FORMAT_ERROR, RefactoringCoreMessages.RefactoringSessionReader_no_session, null);
+		else if (fVersion == null || "".equals(fVersion)) //$NON-NLS-1$
+			status= new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.MISSING_REFACTORING_HISTORY_VERSION, RefactoringCoreMessages.RefactoringSessionReader_missing_version_information, null);
+		else if (!IRefactoringSerializationConstants.CURRENT_VERSION.equals(fVersion))
+			status= new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.UNSUPPORTED_REFACTORING_HISTORY_VERSION, RefactoringCoreMessages.RefactoringSessionReader_unsupported_version_information, null);
+		if (status != null)
+			throw new SAXException(new CoreException(status));
+	}
+
 	/*
 	 * @see org.xml.sax.helpers.DefaultHandler#setDocumentLocator(org.xml.sax.Locator)
 	 */
@@ -220,14 +295,27 @@ public final class RefactoringSessionReader extends DefaultHandler {
 			} catch (NumberFormatException exception) {
 				// Do nothing
 			}
+			long time= -1;
+			try {
+				time= Long.valueOf(stamp).longValue();
+			} catch (NumberFormatException exception) {
+				// Do nothing
+			}
+			if (!fCreateDefaultDescriptors && fProject != null && project == null) {
+				project= fProject; // override project from file if fProject != null
+			}
+
+			if (!fRefactoringFound) {
+				fRefactoringFound= true;
+				checkVersion();
+			}
+			if (!fRequestor.select(id, project, time, flag))
+				return;
 
 			RefactoringDescriptor descriptor= null;
 			if (fCreateDefaultDescriptors) {
 				descriptor= new DefaultRefactoringDescriptor(id, project, description, comment, map, flag);
 			} else {
-				if (fProject != null && project == null) {
-					project= fProject; // override project from file if fProject != null
-				}
 				try {
 					descriptor= RefactoringContributionManager.getInstance().createDescriptor(id, project, description, comment, map, flag);
 				} catch (RuntimeException e) {
@@ -240,14 +328,10 @@ public final class RefactoringSessionReader extends DefaultHandler {
 					};
 				}
 			}
-			try {
-				descriptor.setTimeStamp(Long.valueOf(stamp).longValue());
-			} catch (NumberFormatException exception) {
-				// Do nothing
-			}
-			if (fRefactoringDescriptors == null)
-				fRefactoringDescriptors= new ArrayList<>();
-			fRefactoringDescriptors.add(descriptor);
+			if (time >= 0)
+				descriptor.setTimeStamp(time);
+			if (!fRequestor.accept(descriptor))
+				throw new StopReadingException();
 
 		} else if (IRefactoringSerializationConstants.ELEMENT_SESSION.equals(qualifiedName)) {
 			fSessionFound= true;
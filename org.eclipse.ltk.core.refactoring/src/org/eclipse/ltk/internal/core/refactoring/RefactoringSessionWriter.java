@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.ltk.core.refactoring.IRefactoringCoreStatusCodes;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
+
+/**
+ * Streaming writer for XML-based refactoring sessions.
+ * <p>
+ * The writer produces the same output as the DOM documents which were
+ * written to the history before, but writes each refactoring as soon as it
+ * has been ended. Attributes are written in ascending order of their names.
+ * </p>
+ * <p>
+ * The writer does not close the underlying output stream.
+ * </p>
+ *
+ * @since 3.8
+ */
+public final class RefactoringSessionWriter {
+
+	/** The XML declaration */
+	private static final String XML_VERSION= "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"; //$NON-NLS-1$
+
+	/** The line delimiter */
+	private static final String LINE_DELIMITER= System.getProperty("line.separator", "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+
+	/** Has the XML declaration already been written? */
+	private boolean fDeclaration= false;
+
+	/** Should project information be included? */
+	private final boolean fProjects;
+
+	/** The current refactoring arguments, or <code>null</code> */
+	private Map<String, String> fRefactoringArguments= null;
+
+	/** The current session arguments, or <code>null</code> */
+	private Map<String, String> fSessionArguments= null;
+
+	/** Has the start tag of the current session already been written? */
+	private boolean fSessionStarted= false;
+
+	/** The writer to write to */
+	private final Writer fWriter;
+
+	/**
+	 * Creates a new refactoring session writer.
+	 *
+	 * @param stream
+	 *            the output stream to write to
+	 * @param projects
+	 *            <code>true</code> to include project information,
+	 *            <code>false</code> otherwise
+	 */
+	public RefactoringSessionWriter(final OutputStream stream, final boolean projects) {
+		Assert.isNotNull(stream);
+		fWriter= new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+		fProjects= projects;
+	}
+
+	/**
+	 * Begins a refactoring specified by the given arguments.
+	 * <p>
+	 * Calls to
+	 * {@link RefactoringSessionWriter#beginRefactoring(String, long, String, String, String, int)}
+	 * must be balanced with calls to
+	 * {@link RefactoringSessionWriter#endRefactoring()}. If the writer is
+	 * already processing a refactoring, nothing happens.
+	 * </p>
+	 *
+	 * @param id
+	 *            the unique identifier of the refactoring
+	 * @param stamp
+	 *            the time stamp of the refactoring, or <code>-1</code>
+	 * @param project
+	 *            the non-empty name of the project this refactoring is
+	 *            associated with, or <code>null</code>
+	 * @param description
+	 *            a human-readable description of the refactoring
+	 * @param comment
+	 *            the comment associated with the refactoring, or
+	 *            <code>null</code>
+	 * @param flags
+	 *            the flags associated with refactoring
+	 */
+	public void beginRefactoring(final String id, final long stamp, final String project, final String description, final String comment, final int flags) {
+		Assert.isNotNull(id);
+		Assert.isNotNull(description);
+		Assert.isTrue(flags >= RefactoringDescriptor.NONE);
+		if (fRefactoringArguments == null) {
+			fRefactoringArguments= new TreeMap<>();
+			fRefactoringArguments.put(IRefactoringSerializationConstants.ATTRIBUTE_ID, id);
+			if (stamp >= 0)
+				fRefactoringArguments.put(IRefactoringSerializationConstants.ATTRIBUTE_STAMP, Long.toString(stamp));
+			if (flags != RefactoringDescriptor.NONE)
+				fRefactoringArguments.put(IRefactoringSerializationConstants.ATTRIBUTE_FLAGS, String.valueOf(flags));
+			fRefactoringArguments.put(IRefactoringSerializationConstants.ATTRIBUTE_DESCRIPTION, description);
+			if (comment != null && !"".equals(comment)) //$NON-NLS-1$
+				fRefactoringArguments.put(IRefactoringSerializationConstants.ATTRIBUTE_COMMENT, comment);
+			if (project != null && fProjects)
+				fRefactoringArguments.put(IRefactoringSerializationConstants.ATTRIBUTE_PROJECT, project);
+		}
+	}
+
+	/**
+	 * Begins a refactoring session.
+	 * <p>
+	 * Calls to {@link RefactoringSessionWriter#beginSession(String, String)}
+	 * must be balanced with calls to
+	 * {@link RefactoringSessionWriter#endSession()}. If the writer has already
+	 * written a session or a refactoring, nothing happens.
+	 * </p>
+	 *
+	 * @param comment
+	 *            the comment associated with the refactoring session, or
+	 *            <code>null</code>
+	 * @param version
+	 *            the non-empty version tag
+	 */
+	public void beginSession(final String comment, final String version) {
+		if (!fDeclaration && fSessionArguments == null) {
+			fSessionArguments= new TreeMap<>();
+			fSessionArguments.put(IRefactoringSerializationConstants.ATTRIBUTE_VERSION, version);
+			if (comment != null && !"".equals(comment)) //$NON-NLS-1$
+				fSessionArguments.put(IRefactoringSerializationConstants.ATTRIBUTE_COMMENT, comment);
+			fSessionStarted= false;
+		}
+	}
+
+	/**
+	 * Creates a refactoring argument with the specified name and value.
+	 * <p>
+	 * If no refactoring is currently processed, this call has no effect.
+	 * </p>
+	 *
+	 * @param name
+	 *            the non-empty name of the argument
+	 * @param value
+	 *            the value of the argument
+	 */
+	public void createArgument(final String name, final String value) {
+		Assert.isNotNull(name);
+		Assert.isTrue(!"".equals(name)); //$NON-NLS-1$
+		Assert.isNotNull(value);
+		if (fRefactoringArguments != null)
+			fRefactoringArguments.put(name, value);
+	}
+
+	/**
+	 * Ends the current refactoring and writes it to the output stream.
+	 * <p>
+	 * If no refactoring is currently processed, this call has no effect.
+	 * </p>
+	 *
+	 * @throws CoreException
+	 *             if an error occurs while writing the refactoring
+	 */
+	public void endRefactoring() throws CoreException {
+		if (fRefactoringArguments != null) {
+			final Map<String, String> arguments= fRefactoringArguments;
+			fRefactoringArguments= null;
+			try {
+				writeDeclaration();
+				if (fSessionArguments != null) {
+					if (!fSessionStarted) {
+						writeStartTag(IRefactoringSerializationConstants.ELEMENT_SESSION, fSessionArguments, false);
+						fSessionStarted= true;
+					}
+					fWriter.write(LINE_DELIMITER);
+				}
+				writeStartTag(IRefactoringSerializationConstants.ELEMENT_REFACTORING, arguments, true);
+				if (fSessionArguments == null)
+					fWriter.flush();
+			} catch (IOException exception) {
+				throw createCoreException(exception);
+			}
+		}
+	}
+
+	/**
+	 * Writes a refactoring with the specified attributes, without checking or
+	 * completing them.
+	 * <p>
+	 * If the writer is already processing a refactoring, nothing happens.
+	 * </p>
+	 *
+	 * @param attributes
+	 *            the attributes of the refactoring element, including its
+	 *            identifier and description
+	 * @throws CoreException
+	 *             if an error occurs while writing the refactoring
+	 */
+	public void writeRefactoring(final Map<String, String> attributes) throws CoreException {
+		Assert.isNotNull(attributes);
+		if (fRefactoringArguments == null) {
+			fRefactoringArguments= new TreeMap<>(attributes);
+			endRefactoring();
+		}
+	}
+
+	/**
+	 * Ends the current refactoring session and flushes the output stream.
+	 * <p>
+	 * If no refactoring session is currently processed, this call has no
+	 * effect.
+	 * </p>
+	 *
+	 * @throws CoreException
+	 *             if an error occurs while writing the session
+	 */
+	public void endSession() throws CoreException {
+		if (fSessionArguments != null) {
+			final Map<String, String> arguments= fSessionArguments;
+			fSessionArguments= null;
+			try {
+				if (fSessionStarted) {
+					fWriter.write(LINE_DELIMITER);
+					fWriter.write("</"); //$NON-NLS-1$
+					fWriter.write(IRefactoringSerializationConstants.ELEMENT_SESSION);
+					fWriter.write('>');
+				} else {
+					writeDeclaration();
+					writeStartTag(IRefactoringSerializationConstants.ELEMENT_SESSION, arguments, true);
+				}
+				fWriter.flush();
+			} catch (IOException exception) {
+				throw createCoreException(exception);
+			} finally {
+				fSessionStarted= false;
+			}
+		}
+	}
+
+	private static CoreException createCoreException(final IOException exception) {
+		return new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.REFACTORING_HISTORY_IO_ERROR, exception.getLocalizedMessage(), exception));
+	}
+
+	private static String getReplacement(final char character) {
+		// Encode special XML characters into the equivalent character references.
+		// The first five are defined by default for all XML documents.
+		// The next three (#xD, #xA, #x9) are encoded to avoid them
+		// being converted to spaces on deserialization
+		// (fixes bug 93720)
+		switch (character) {
+			case '<':
+				return "lt"; //$NON-NLS-1$
+			case '>':
+				return "gt"; //$NON-NLS-1$
+			case '"':
+				return "quot"; //$NON-NLS-1$
+			case '\'':
+				return "apos"; //$NON-NLS-1$
+			case '&':
+				return "amp"; //$NON-NLS-1$
+			case '\r':
+				return "#x0D"; //$NON-NLS-1$
+			case '\n':
+				return "#x0A"; //$NON-NLS-1$
+			case '\u0009':
+				return "#x09"; //$NON-NLS-1$
+		}
+		return null;
+	}
+
+	private void writeDeclaration() throws IOException {
+		if (!fDeclaration) {
+			fWriter.write(XML_VERSION);
+			fWriter.write(LINE_DELIMITER);
+			fDeclaration= true;
+		}
+	}
+
+	private void writeEscaped(final String string) throws IOException {
+		final int length= string.length();
+		int start= 0;
+		for (int index= 0; index < length; index++) {
+			final String replacement= getReplacement(string.charAt(index));
+			if (replacement != null) {
+				fWriter.write(string, start, index - start);
+				fWriter.write('&');
+				fWriter.write(replacement);
+				fWriter.write(';');
+				start= index + 1;
+			}
+		}
+		fWriter.write(string, start, length - start);
+	}
+
+	private void writeStartTag(final String name, final Map<String, String> arguments, final boolean empty) throws IOException {
+		fWriter.write('<');
+		fWriter.write(name);
+		for (final Iterator<Entry<String, String>> iterator= arguments.entrySet().iterator(); iterator.hasNext();) {
+			final Entry<String, String> entry= iterator.next();
+			fWriter.write(' ');
+			fWriter.write(entry.getKey());
+			fWriter.write("=\""); //$NON-NLS-1$
+			writeEscaped(entry.getValue());
+			fWriter.write('"');
+		}
+		fWriter.write(empty ? "/>" : ">"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
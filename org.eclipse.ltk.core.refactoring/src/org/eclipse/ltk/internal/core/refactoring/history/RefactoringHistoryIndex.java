@@ -0,0 +1,562 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.IRefactoringCoreStatusCodes;
+import org.eclipse.ltk.core.refactoring.RefactoringCore;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+
+/**
+ * Persistent, time stamp sorted index of a refactoring history tree.
+ * <p>
+ * A refactoring history tree consists of one folder per week, each with a text index file
+ * listing the time stamps and descriptions of its refactorings. This index keeps the entries
+ * of all index files in memory, sorted by time stamp, so that time range queries are answered
+ * with a binary search. It is backed by an append-only log in the plug-in's state location,
+ * so that index files are only read again if their size or modification time has changed.
+ * Each log record holds the complete entries of one folder and replaces the previous record
+ * of that folder. The log is compacted as soon as it is considerably larger than its live
+ * records.
+ * </p>
+ * <p>
+ * The descriptor bodies are not part of the index. They are only read when a proxy is
+ * resolved.
+ * </p>
+ *
+ * @since 3.8
+ */
+final class RefactoringHistoryIndex {
+
+	/** Entries of the index file of one history folder */
+	private static final class Folder {
+
+		/** The modification time of the index file */
+		final long fModified;
+
+		/** The length of the index file */
+		final long fLength;
+
+		/** The time stamps of the refactorings */
+		final long[] fStamps;
+
+		/** The descriptions of the refactorings */
+		final String[] fDescriptions;
+
+		Folder(long modified, long length, long[] stamps, String[] descriptions) {
+			fModified= modified;
+			fLength= length;
+			fStamps= stamps;
+			fDescriptions= descriptions;
+		}
+	}
+
+	/** The name of the folder in the state location that holds the index logs */
+	private static final String NAME_INDEX_FOLDER= ".indexes"; //$NON-NLS-1$
+
+	/** The magic number at the start of an index log */
+	private static final int MAGIC= 0x52484958;
+
+	/** The version of the index log format */
+	private static final int VERSION= 1;
+
+	/** The entry count of a record that removes a folder */
+	private static final int REMOVED= -1;
+
+	/** The minimum log size in bytes before the log is compacted */
+	private static final long MIN_COMPACTION_SIZE= 64 * 1024;
+
+	/** The maximum number of indexes kept in memory */
+	private static final int MAX_INDEXES= 16;
+
+	/** The indexes by the root of their history tree */
+	private static final Map<IFileStore, RefactoringHistoryIndex> fgIndexes= new LinkedHashMap<IFileStore, RefactoringHistoryIndex>(MAX_INDEXES, 0.75f, true) {
+
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IFileStore, RefactoringHistoryIndex> entry) {
+			return size() > MAX_INDEXES;
+		}
+	};
+
+	/**
+	 * Returns the index of the refactoring history tree with the given root.
+	 *
+	 * @param root
+	 *            the root of the history tree
+	 * @return the index
+	 */
+	static RefactoringHistoryIndex getIndex(final IFileStore root) {
+		synchronized (fgIndexes) {
+			RefactoringHistoryIndex index= fgIndexes.get(root);
+			if (index == null) {
+				index= new RefactoringHistoryIndex(root);
+				fgIndexes.put(root, index);
+			}
+			return index;
+		}
+	}
+
+	/** The root of the history tree */
+	private final IFileStore fRoot;
+
+	/** The index log, or <code>null</code> if the index is not persisted */
+	private final File fLog;
+
+	/** The folders by their path relative to the root */
+	private final Map<IPath, Folder> fFolders= new HashMap<>();
+
+	/** Has the log been read? */
+	private boolean fLoaded= false;
+
+	/** The size of the log in bytes */
+	private long fLogSize= 0;
+
+	/** Must the log be rewritten? */
+	private boolean fMustCompact= false;
+
+	/** The sorted time stamps of all entries, or <code>null</code> if not computed yet */
+	private long[] fStamps= null;
+
+	/** The descriptions of all entries in the order of {@link #fStamps} */
+	private String[] fDescriptions= null;
+
+	/**
+	 * Creates a new refactoring history index.
+	 *
+	 * @param root
+	 *            the root of the history tree
+	 */
+	private RefactoringHistoryIndex(final IFileStore root) {
+		fRoot= root;
+		final RefactoringCorePlugin plugin= RefactoringCorePlugin.getDefault();
+		if (plugin != null)
+			fLog= plugin.getStateLocation().append(NAME_INDEX_FOLDER).append(Integer.toHexString(root.toURI().toString().hashCode()) + ".index").toFile(); //$NON-NLS-1$
+		else
+			fLog= null;
+	}
+
+	/**
+	 * Returns the proxies of all refactorings in the given time range.
+	 * <p>
+	 * The index is brought up to date with the history tree first. Only index files that
+	 * have changed since they were indexed are read.
+	 * </p>
+	 *
+	 * @param project
+	 *            the name of the project, or <code>null</code> for the workspace
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @return the refactoring descriptor proxies in ascending order of their time stamps
+	 * @throws CoreException
+	 *             if an error occurs while reading the history tree
+	 */
+	synchronized RefactoringDescriptorProxy[] getProxies(final String project, final long start, final long end, final IProgressMonitor monitor) throws CoreException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 100);
+			refresh(new SubProgressMonitor(monitor, 100));
+			if (fStamps == null)
+				sort();
+			final int from= lowerBound(fStamps, start);
+			final int to= end == Long.MAX_VALUE ? fStamps.length : lowerBound(fStamps, end + 1);
+			final List<RefactoringDescriptorProxy> proxies= new ArrayList<>(Math.max(0, to - from));
+			for (int index= from; index < to; index++)
+				proxies.add(new DefaultRefactoringDescriptorProxy(fDescriptions[index], project, fStamps[index]));
+			return proxies.toArray(new RefactoringDescriptorProxy[proxies.size()]);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Marks the index file in the given history folder as changed, so that it is read again
+	 * on the next query.
+	 *
+	 * @param path
+	 *            the path of the history folder relative to the root
+	 */
+	synchronized void invalidate(final IPath path) {
+		if (fFolders.remove(path) != null)
+			fStamps= null;
+	}
+
+	/**
+	 * Brings the index up to date with the history tree and appends the changes to the log.
+	 *
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while reading the history tree
+	 */
+	private void refresh(final IProgressMonitor monitor) throws CoreException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 100);
+			if (!fLoaded) {
+				fLoaded= true;
+				readLog();
+			}
+			monitor.worked(10);
+
+			final Map<IPath, Folder> changed= new LinkedHashMap<>();
+			final Set<IPath> existing= new HashSet<>();
+			if (fRoot.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 10, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
+				scan(fRoot, Path.EMPTY, existing, changed, new SubProgressMonitor(monitor, 70));
+
+			for (final Iterator<IPath> iterator= fFolders.keySet().iterator(); iterator.hasNext();) {
+				final IPath path= iterator.next();
+				if (!existing.contains(path)) {
+					iterator.remove();
+					changed.put(path, null);
+				}
+			}
+			if (!changed.isEmpty()) {
+				for (final Iterator<Map.Entry<IPath, Folder>> iterator= changed.entrySet().iterator(); iterator.hasNext();) {
+					final Map.Entry<IPath, Folder> entry= iterator.next();
+					if (entry.getValue() != null)
+						fFolders.put(entry.getKey(), entry.getValue());
+				}
+				fStamps= null;
+				writeLog(changed);
+			}
+			monitor.worked(10);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Scans the history tree for index files that have changed since they were indexed.
+	 *
+	 * @param store
+	 *            the folder to scan
+	 * @param path
+	 *            the path of the folder relative to the root
+	 * @param existing
+	 *            the set of paths of all folders with an index file to fill in
+	 * @param changed
+	 *            the map of changed folders to fill in
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while reading the history tree
+	 */
+	private void scan(final IFileStore store, final IPath path, final Set<IPath> existing, final Map<IPath, Folder> changed, final IProgressMonitor monitor) throws CoreException {
+		try {
+			final IFileInfo[] infos= store.childInfos(EFS.NONE, null);
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, infos.length);
+			for (int index= 0; index < infos.length; index++) {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+				final IFileInfo info= infos[index];
+				if (info.isDirectory()) {
+					scan(store.getChild(info.getName()), path.append(info.getName()), existing, changed, new SubProgressMonitor(monitor, 1));
+				} else {
+					if (info.exists() && info.getName().equalsIgnoreCase(RefactoringHistoryService.NAME_INDEX_FILE)) {
+						existing.add(path);
+						final Folder folder= fFolders.get(path);
+						if (folder == null || folder.fModified != info.getLastModified() || folder.fLength != info.getLength())
+							changed.put(path, readFolder(store.getChild(info.getName()), info));
+					}
+					monitor.worked(1);
+				}
+			}
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Reads the entries of the given index file.
+	 *
+	 * @param file
+	 *            the index file
+	 * @param info
+	 *            the file info of the index file
+	 * @return the folder entries
+	 * @throws CoreException
+	 *             if an error occurs while reading the index file
+	 */
+	private static Folder readFolder(final IFileStore file, final IFileInfo info) throws CoreException {
+		try (InputStream stream= file.openInputStream(EFS.NONE, null)) {
+			final RefactoringDescriptorProxy[] proxies= RefactoringHistoryManager.readRefactoringDescriptorProxies(stream, null, 0, Long.MAX_VALUE);
+			RefactoringHistoryManager.sortRefactoringDescriptorsAscending(proxies);
+			final long[] stamps= new long[proxies.length];
+			final String[] descriptions= new String[proxies.length];
+			for (int index= 0; index < proxies.length; index++) {
+				stamps[index]= proxies[index].getTimeStamp();
+				descriptions[index]= proxies[index].getDescription();
+			}
+			return new Folder(info.getLastModified(), info.getLength(), stamps, descriptions);
+		} catch (IOException exception) {
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCore.ID_PLUGIN, IRefactoringCoreStatusCodes.REFACTORING_HISTORY_IO_ERROR, exception.getLocalizedMessage(), exception));
+		}
+	}
+
+	/**
+	 * Merges the entries of all folders into the sorted arrays.
+	 */
+	private void sort() {
+		int size= 0;
+		for (final Iterator<Folder> iterator= fFolders.values().iterator(); iterator.hasNext();)
+			size+= iterator.next().fStamps.length;
+
+		final Folder[] folders= fFolders.values().toArray(new Folder[fFolders.size()]);
+		// history folders cover disjoint weeks, so sorting them by their first entry
+		// usually leaves nothing else to sort
+		Arrays.sort(folders, new Comparator<Folder>() {
+
+			@Override
+			public int compare(Folder first, Folder second) {
+				return Long.compare(firstStamp(first), firstStamp(second));
+			}
+		});
+
+		final long[] stamps= new long[size];
+		final String[] descriptions= new String[size];
+		boolean sorted= true;
+		int offset= 0;
+		for (int index= 0; index < folders.length; index++) {
+			final Folder folder= folders[index];
+			final int length= folder.fStamps.length;
+			if (length > 0 && offset > 0 && folder.fStamps[0] < stamps[offset - 1])
+				sorted= false;
+			System.arraycopy(folder.fStamps, 0, stamps, offset, length);
+			System.arraycopy(folder.fDescriptions, 0, descriptions, offset, length);
+			offset+= length;
+		}
+
+		if (!sorted) {
+			final Integer[] order= new Integer[size];
+			for (int index= 0; index < size; index++)
+				order[index]= Integer.valueOf(index);
+			final long[] unsorted= stamps.clone();
+			final String[] unsortedDescriptions= descriptions.clone();
+			Arrays.sort(order, new Comparator<Integer>() {
+
+				@Override
+				public int compare(Integer first, Integer second) {
+					return Long.compare(unsorted[first.intValue()], unsorted[second.intValue()]);
+				}
+			});
+			for (int index= 0; index < size; index++) {
+				stamps[index]= unsorted[order[index].intValue()];
+				descriptions[index]= unsortedDescriptions[order[index].intValue()];
+			}
+		}
+		fStamps= stamps;
+		fDescriptions= descriptions;
+	}
+
+	private static long firstStamp(final Folder folder) {
+		return folder.fStamps.length > 0 ? folder.fStamps[0] : Long.MIN_VALUE;
+	}
+
+	/**
+	 * Returns the index of the first element that is not less than the given key.
+	 *
+	 * @param stamps
+	 *            the sorted time stamps
+	 * @param key
+	 *            the time stamp to search
+	 * @return the insertion point of the key
+	 */
+	private static int lowerBound(final long[] stamps, final long key) {
+		int low= 0;
+		int high= stamps.length;
+		while (low < high) {
+			final int middle= (low + high) >>> 1;
+			if (stamps[middle] < key)
+				low= middle + 1;
+			else
+				high= middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Reads the log into the folder map. A log that is corrupt or belongs to another
+	 * history tree is ignored and rewritten on the next change.
+	 */
+	private void readLog() {
+		if (fLog == null || !fLog.isFile())
+			return;
+
+		try (DataInputStream input= new DataInputStream(new BufferedInputStream(new FileInputStream(fLog)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION || !fRoot.toURI().toString().equals(input.readUTF())) {
+				fMustCompact= true;
+				return;
+			}
+			while (true) {
+				final IPath path;
+				try {
+					path= Path.fromPortableString(input.readUTF());
+				} catch (EOFException exception) {
+					break; // regular end of the log
+				}
+				final long modified= input.readLong();
+				final long length= input.readLong();
+				final int count= input.readInt();
+				if (count == REMOVED) {
+					fFolders.remove(path);
+					continue;
+				}
+				final long[] stamps= new long[count];
+				final String[] descriptions= new String[count];
+				for (int index= 0; index < count; index++) {
+					stamps[index]= input.readLong();
+					descriptions[index]= input.readUTF();
+				}
+				fFolders.put(path, new Folder(modified, length, stamps, descriptions));
+			}
+			fLogSize= fLog.length();
+		} catch (IOException exception) {
+			// a truncated record from an interrupted append, drop it with the next compaction
+			fMustCompact= true;
+		} catch (RuntimeException exception) {
+			fFolders.clear();
+			fMustCompact= true;
+		}
+	}
+
+	/**
+	 * Appends the changed folders to the log, or rewrites the log if it has grown
+	 * considerably larger than its live records.
+	 *
+	 * @param changed
+	 *            the changed folders, with <code>null</code> values for removed folders
+	 */
+	private void writeLog(final Map<IPath, Folder> changed) {
+		if (fLog == null)
+			return;
+
+		try {
+			if (!fMustCompact && fLogSize > 0) {
+				try (DataOutputStream output= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fLog, true)))) {
+					writeRecords(output, changed);
+					fLogSize+= output.size();
+				}
+			}
+			if (fMustCompact || fLogSize == 0 || fLogSize > Math.max(MIN_COMPACTION_SIZE, 2 * getLiveSize()))
+				compact();
+		} catch (IOException exception) {
+			RefactoringCorePlugin.log(exception);
+		}
+	}
+
+	/**
+	 * Rewrites the log with the live records only.
+	 *
+	 * @throws IOException
+	 *             if an input/output error occurs
+	 */
+	private void compact() throws IOException {
+		final File directory= fLog.getParentFile();
+		directory.mkdirs();
+		final File temp= File.createTempFile(fLog.getName(), ".tmp", directory); //$NON-NLS-1$
+		try {
+			try (DataOutputStream output= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeUTF(fRoot.toURI().toString());
+				writeRecords(output, fFolders);
+				fLogSize= output.size();
+			}
+			try {
+				Files.move(temp.toPath(), fLog.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException exception) {
+				Files.move(temp.toPath(), fLog.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			fMustCompact= false;
+		} finally {
+			temp.delete();
+		}
+	}
+
+	private static void writeRecords(final DataOutputStream output, final Map<IPath, Folder> folders) throws IOException {
+		for (final Iterator<Map.Entry<IPath, Folder>> iterator= folders.entrySet().iterator(); iterator.hasNext();) {
+			final Map.Entry<IPath, Folder> entry= iterator.next();
+			final Folder folder= entry.getValue();
+			output.writeUTF(entry.getKey().toPortableString());
+			if (folder == null) {
+				output.writeLong(0);
+				output.writeLong(0);
+				output.writeInt(REMOVED);
+			} else {
+				output.writeLong(folder.fModified);
+				output.writeLong(folder.fLength);
+				output.writeInt(folder.fStamps.length);
+				for (int index= 0; index < folder.fStamps.length; index++) {
+					output.writeLong(folder.fStamps[index]);
+					output.writeUTF(folder.fDescriptions[index]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns an estimate of the size of the live records in the log.
+	 *
+	 * @return the estimated size in bytes
+	 */
+	private long getLiveSize() {
+		long size= 0;
+		for (final Iterator<Folder> iterator= fFolders.values().iterator(); iterator.hasNext();) {
+			final Folder folder= iterator.next();
+			size+= 32;
+			for (int index= 0; index < folder.fDescriptions.length; index++)
+				size+= 10 + folder.fDescriptions[index].length();
+		}
+		return size;
+	}
+}
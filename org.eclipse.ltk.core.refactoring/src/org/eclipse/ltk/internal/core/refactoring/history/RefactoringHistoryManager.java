@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,14 +17,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.io.Writer;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -35,21 +32,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TimeZone;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
 import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
-
-import org.w3c.dom.Attr;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.w3c.dom.Text;
 
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileInfo;
@@ -75,12 +58,13 @@ import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
 import org.eclipse.ltk.core.refactoring.RefactoringSessionDescriptor;
 import org.eclipse.ltk.core.refactoring.history.RefactoringHistory;
 import org.eclipse.ltk.internal.core.refactoring.BasicElementLabels;
+import org.eclipse.ltk.internal.core.refactoring.IRefactoringSessionRequestor;
 import org.eclipse.ltk.internal.core.refactoring.IRefactoringSerializationConstants;
 import org.eclipse.ltk.internal.core.refactoring.Messages;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringSessionReader;
-import org.eclipse.ltk.internal.core.refactoring.RefactoringSessionTransformer;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringSessionWriter;
 
 /**
  * Manager for persistable refactoring histories.
@@ -310,9 +294,19 @@ public final class RefactoringHistoryManager {
 	private static void readRefactoringDescriptors(final InputStream stream, final Collection<RefactoringDescriptor> collection, final IProgressMonitor monitor) throws CoreException {
 		try {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 1);
-			final RefactoringDescriptor[] results= new RefactoringSessionReader(true, null).readSession(new InputSource(new BufferedInputStream(stream))).getRefactorings();
-			for (int index= 0; index < results.length; index++)
-				collection.add(results[index]);
+			new RefactoringSessionReader(true, null).readSession(new InputSource(new BufferedInputStream(stream)), new IRefactoringSessionRequestor() {
+
+				@Override
+				public boolean accept(final RefactoringDescriptor descriptor) {
+					collection.add(descriptor);
+					return true;
+				}
+
+				@Override
+				public boolean select(final String id, final String project, final long stamp, final int flags) {
+					return true;
+				}
+			});
 		} finally {
 			monitor.done();
 		}
@@ -451,42 +445,6 @@ public final class RefactoringHistoryManager {
 		return new Path(buffer.toString());
 	}
 
-	/**
-	 * Transforms the specified refactoring descriptor into a DOM node.
-	 *
-	 * @param descriptor
-	 *            the descriptor to transform
-	 * @param projects
-	 *            <code>true</code> to include project information,
-	 *            <code>false</code> otherwise
-	 * @return the DOM node representing the refactoring descriptor
-	 * @throws CoreException
-	 *             if an error occurs while transforming the descriptor
-	 */
-	private static Document transformDescriptor(final RefactoringDescriptor descriptor, final boolean projects) throws CoreException {
-		final RefactoringSessionTransformer transformer= new RefactoringSessionTransformer(projects);
-		try {
-			transformer.beginSession(null, IRefactoringSerializationConstants.CURRENT_VERSION);
-			try {
-				final String id= descriptor.getID();
-				transformer.beginRefactoring(id, descriptor.getTimeStamp(), descriptor.getProject(), descriptor.getDescription(), descriptor.getComment(), descriptor.getFlags());
-				final Map<String, String> arguments= getArgumentMap(descriptor);
-				if (arguments != null) {
-					checkArgumentMap(arguments);
-					for (final Iterator<Entry<String, String>> iterator= arguments.entrySet().iterator(); iterator.hasNext();) {
-						final Entry<String, String> entry= iterator.next();
-						transformer.createArgument(entry.getKey(), entry.getValue());
-					}
-				}
-			} finally {
-				transformer.endRefactoring();
-			}
-		} finally {
-			transformer.endSession();
-		}
-		return transformer.getResult();
-	}
-
 	/**
 	 * Un-escapes the specified string from the history index.
 	 *
@@ -575,132 +533,62 @@ public final class RefactoringHistoryManager {
 	}
 
 	/**
-	 * A simple XML writer.  Using this instead of the javax.xml.transform classes allows
-	 * compilation against JCL Foundation (bug 80053).
+	 * Writes the specified refactoring descriptor to a refactoring session
+	 * writer.
+	 *
+	 * @param writer
+	 *            the refactoring session writer
+	 * @param descriptor
+	 *            the refactoring descriptor to write
+	 * @param stamps
+	 *            <code>true</code> to write time stamps as well,
+	 *            <code>false</code> otherwise
+	 * @throws CoreException
+	 *             if an error occurs while writing the refactoring descriptor
 	 */
-	private static final class DOMWriter extends PrintWriter {
-
-		/* constants */
-		private static final String XML_VERSION= "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"; //$NON-NLS-1$
-
-		/**
-		 * Creates a new DOM writer on the given output writer.
-		 *
-		 * @param output the output writer
-		 */
-		public DOMWriter(Writer output) {
-			super(output);
-		}
-
-		public void printDocument(Document doc) {
-			println(XML_VERSION);
-			printElement(doc.getDocumentElement());
-		}
-
-		/**
-		 * Prints the given element.
-		 *
-		 * @param element the element to print
-		 */
-		public void printElement(Element element) {
-			// Ensure extra whitespace is not emitted next to a Text node,
-			// as that will result in a situation where the restored text data is not the
-			// same as the saved text data.
-			boolean hasChildren= element.hasChildNodes();
-			startTag(element, hasChildren);
-			if (hasChildren) {
-				boolean prevWasText= false;
-				NodeList children= element.getChildNodes();
-				for (int i= 0; i < children.getLength(); i++) {
-					Node node= children.item(i);
-					if (node instanceof Element) {
-						if (!prevWasText) {
-							println();
-						}
-						printElement((Element) children.item(i));
-						prevWasText= false;
-					} else if (node instanceof Text) {
-						print(getEscaped(node.getNodeValue()));
-						prevWasText= true;
-					}
-				}
-				if (!prevWasText) {
-					println();
-				}
-				endTag(element);
+	public static void writeRefactoringDescriptor(final RefactoringSessionWriter writer, final RefactoringDescriptor descriptor, final boolean stamps) throws CoreException {
+		final Map<String, String> arguments= getArgumentMap(descriptor);
+		if (arguments != null)
+			checkArgumentMap(arguments);
+		final long stamp= stamps ? descriptor.getTimeStamp() : -1;
+		writer.beginRefactoring(descriptor.getID(), stamp, descriptor.getProject(), descriptor.getDescription(), descriptor.getComment(), descriptor.getFlags());
+		if (arguments != null) {
+			for (final Iterator<Entry<String, String>> iterator= arguments.entrySet().iterator(); iterator.hasNext();) {
+				final Entry<String, String> entry= iterator.next();
+				writer.createArgument(entry.getKey(), entry.getValue());
 			}
 		}
-
-		private void startTag(Element element, boolean hasChildren) {
-			StringBuffer sb= new StringBuffer();
-			sb.append("<"); //$NON-NLS-1$
-			sb.append(element.getTagName());
-			NamedNodeMap attributes= element.getAttributes();
-			for (int i= 0; i < attributes.getLength(); i++) {
-				Attr attribute= (Attr) attributes.item(i);
-				sb.append(" "); //$NON-NLS-1$
-				sb.append(attribute.getName());
-				sb.append("=\""); //$NON-NLS-1$
-				sb.append(getEscaped(String.valueOf(attribute.getValue())));
-				sb.append("\""); //$NON-NLS-1$
-			}
-			sb.append(hasChildren ? ">" : "/>"); //$NON-NLS-1$ //$NON-NLS-2$
-			print(sb.toString());
-		}
-
-		private void endTag(Element element) {
-			StringBuffer sb= new StringBuffer();
-			sb.append("</"); //$NON-NLS-1$
-			sb.append(element.getNodeName());
-			sb.append(">"); //$NON-NLS-1$
-			print(sb.toString());
+		writer.endRefactoring();
 	}
 
-		private static void appendEscapedChar(StringBuffer buffer, char c) {
-			String replacement= getReplacement(c);
-			if (replacement != null) {
-				buffer.append('&');
-				buffer.append(replacement);
-				buffer.append(';');
-			} else {
-				buffer.append(c);
-			}
-		}
-
-		private static String getEscaped(String s) {
-			StringBuffer result= new StringBuffer(s.length() + 10);
-			for (int i= 0; i < s.length(); ++i) {
-				appendEscapedChar(result, s.charAt(i));
-			}
-			return result.toString();
-		}
-
-		private static String getReplacement(char c) {
-			// Encode special XML characters into the equivalent character references.
-			// The first five are defined by default for all XML documents.
-			// The next three (#xD, #xA, #x9) are encoded to avoid them
-			// being converted to spaces on deserialization
-			// (fixes bug 93720)
-			switch (c) {
-				case '<':
-					return "lt"; //$NON-NLS-1$
-				case '>':
-					return "gt"; //$NON-NLS-1$
-				case '"':
-					return "quot"; //$NON-NLS-1$
-				case '\'':
-					return "apos"; //$NON-NLS-1$
-				case '&':
-					return "amp"; //$NON-NLS-1$
-				case '\r':
-					return "#x0D"; //$NON-NLS-1$
-				case '\n':
-					return "#x0A"; //$NON-NLS-1$
-				case '\u0009':
-					return "#x09"; //$NON-NLS-1$
-			}
-			return null;
-		}
+	/**
+	 * Writes a refactoring descriptor which has been read from the history
+	 * with the attributes it has been read with. Unlike
+	 * {@link #writeRefactoringDescriptor(RefactoringSessionWriter, RefactoringDescriptor, boolean)},
+	 * the arguments are neither retrieved through the refactoring contribution
+	 * nor checked, so that existing history entries are carried over unchanged.
+	 *
+	 * @param writer
+	 *            the refactoring session writer
+	 * @param descriptor
+	 *            the refactoring descriptor read from the history
+	 * @throws CoreException
+	 *             if an error occurs while writing the refactoring descriptor
+	 */
+	private static void writeDefaultRefactoringDescriptor(final RefactoringSessionWriter writer, final DefaultRefactoringDescriptor descriptor) throws CoreException {
+		final Map<String, String> attributes= new HashMap<>(descriptor.getArguments());
+		attributes.put(IRefactoringSerializationConstants.ATTRIBUTE_ID, descriptor.getID());
+		if (descriptor.getTimeStamp() >= 0)
+			attributes.put(IRefactoringSerializationConstants.ATTRIBUTE_STAMP, Long.toString(descriptor.getTimeStamp()));
+		if (descriptor.getFlags() != RefactoringDescriptor.NONE)
+			attributes.put(IRefactoringSerializationConstants.ATTRIBUTE_FLAGS, String.valueOf(descriptor.getFlags()));
+		attributes.put(IRefactoringSerializationConstants.ATTRIBUTE_DESCRIPTION, descriptor.getDescription());
+		final String comment= descriptor.getComment();
+		if (comment != null && !"".equals(comment)) //$NON-NLS-1$
+			attributes.put(IRefactoringSerializationConstants.ATTRIBUTE_COMMENT, comment);
+		if (descriptor.getProject() != null)
+			attributes.put(IRefactoringSerializationConstants.ATTRIBUTE_PROJECT, descriptor.getProject());
+		writer.writeRefactoring(attributes);
 	}
 
 	/**
@@ -718,49 +606,24 @@ public final class RefactoringHistoryManager {
 	 *             descriptor
 	 */
 	public static void writeRefactoringSession(final OutputStream stream, final RefactoringSessionDescriptor descriptor, final boolean stamps) throws CoreException {
-		final RefactoringSessionTransformer transformer= new RefactoringSessionTransformer(true);
+		final RefactoringSessionWriter writer= new RefactoringSessionWriter(stream, true);
 		final RefactoringDescriptor[] descriptors= descriptor.getRefactorings();
-		try {
-			transformer.beginSession(descriptor.getComment(), descriptor.getVersion());
-			for (int index= 0; index < descriptors.length; index++) {
-				final RefactoringDescriptor current= descriptors[index];
-				if (current != null) {
-					try {
-						long stamp= stamps ? current.getTimeStamp() : -1;
-						transformer.beginRefactoring(current.getID(), stamp, current.getProject(), current.getDescription(), current.getComment(), current.getFlags());
-						final Map<String, String> arguments= getArgumentMap(current);
-						if (arguments != null) {
-							checkArgumentMap(arguments);
-							for (final Iterator<Entry<String, String>> iterator= arguments.entrySet().iterator(); iterator.hasNext();) {
-								final Entry<String, String> entry= iterator.next();
-								transformer.createArgument(entry.getKey(), entry.getValue());
-							}
-						}
-					} finally {
-						transformer.endRefactoring();
-					}
-				}
-			}
-		} finally {
-			transformer.endSession();
+		writer.beginSession(descriptor.getComment(), descriptor.getVersion());
+		for (int index= 0; index < descriptors.length; index++) {
+			if (descriptors[index] != null)
+				writeRefactoringDescriptor(writer, descriptors[index], stamps);
 		}
-		final Document result= transformer.getResult();
-		writeNode(stream, result);
-			}
-
-	private static void writeNode(final OutputStream stream, Document document) {
-		OutputStreamWriter outputStreamWriter= new OutputStreamWriter(stream, Charset.forName("UTF-8")); //$NON-NLS-1$
-		@SuppressWarnings("resource")
-		DOMWriter writer= new DOMWriter(outputStreamWriter);
-		writer.printDocument(document);
-		writer.flush();
+		writer.endSession();
 	}
 
 	/** The cached session descriptor, or <code>null</code> */
 	private RefactoringSessionDescriptor fCachedDescriptor= null;
 
-	/** The cached document, or <code>null</code> */
-	private Document fCachedDocument= null;
+	/**
+	 * The cached default refactoring descriptors of the history entry denoted
+	 * by the cached path, or <code>null</code>
+	 */
+	private List<RefactoringDescriptor> fCachedDescriptors= null;
 
 	/** The cached path, or <code>null</code> */
 	private IPath fCachedPath= null;
@@ -771,6 +634,9 @@ public final class RefactoringHistoryManager {
 	/** The history file store */
 	private final IFileStore fHistoryStore;
 
+	/** The index of the history file store */
+	private final RefactoringHistoryIndex fHistoryIndex;
+
 	/**
 	 * The non-empty name of the managed project, or <code>null</code> for the
 	 * workspace
@@ -790,6 +656,7 @@ public final class RefactoringHistoryManager {
 		Assert.isNotNull(store);
 		Assert.isTrue(name == null || !"".equals(name)); //$NON-NLS-1$
 		fHistoryStore= store;
+		fHistoryIndex= RefactoringHistoryIndex.getIndex(store);
 		fProjectName= name;
 	}
 
@@ -818,11 +685,14 @@ public final class RefactoringHistoryManager {
 				final IFileStore history= folder.getChild(RefactoringHistoryService.NAME_HISTORY_FILE);
 				final IFileStore index= folder.getChild(RefactoringHistoryService.NAME_INDEX_FILE);
 				final RefactoringDescriptorProxy[] proxies= new RefactoringDescriptorProxy[] { new DefaultRefactoringDescriptorProxy(descriptor.getDescription(), descriptor.getProject(), descriptor.getTimeStamp())};
+				final Map<String, String> arguments= getArgumentMap(descriptor);
+				if (arguments != null)
+					checkArgumentMap(arguments);
 				if (history.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists()) {
 					InputStream input= null;
 					try {
 						input= new BufferedInputStream(history.openInputStream(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)));
-						final Document document= getCachedDocument(path, input);
+						final List<RefactoringDescriptor> descriptors= getCachedDescriptors(path, input);
 						try {
 							input.close();
 							input= null;
@@ -830,41 +700,25 @@ public final class RefactoringHistoryManager {
 							// Do nothing
 						}
 						monitor.worked(1);
-						final Document result= transformDescriptor(descriptor, false);
-						if (result != null) {
-							boolean found= false;
-							final NodeList list= result.getElementsByTagName(IRefactoringSerializationConstants.ELEMENT_REFACTORING);
-							final Element root= document.getDocumentElement();
-							if (sort) {
-								final String string= Long.toString(stamp);
-								for (int offset= 0; offset < list.getLength(); offset++) {
-									final Element element= (Element) list.item(offset);
-									final String attribute= element.getAttribute(IRefactoringSerializationConstants.ATTRIBUTE_STAMP);
-									if (attribute != null) {
-										if (string.compareTo(attribute) > 0) {
-											root.insertBefore(document.importNode(element, true), element);
-											found= true;
-											break;
-										}
-									}
+						int position= descriptors.size();
+						if (sort) {
+							for (int offset= 0; offset < descriptors.size(); offset++) {
+								if (descriptors.get(offset).getTimeStamp() > stamp) {
+									position= offset;
+									break;
 								}
 							}
-							if (!found)
-								root.appendChild(document.importNode(list.item(0), true));
-							writeHistoryEntry(history, document, new SubProgressMonitor(monitor, 10, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
-							if (sort) {
-								final Set<RefactoringDescriptorProxy> set= new HashSet<>(64);
-								readRefactoringDescriptorProxies(index, null, set, 0, Long.MAX_VALUE, new SubProgressMonitor(monitor, 2), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
-								writeIndexEntry(index, set.toArray(new RefactoringDescriptorProxy[set.size()]), EFS.NONE, new SubProgressMonitor(monitor, 3, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
-							} else
-								writeIndexEntry(index, proxies, EFS.APPEND, new SubProgressMonitor(monitor, 5, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
 						}
-					} catch (ParserConfigurationException exception) {
-						throw createCoreException(exception);
+						descriptors.add(position, descriptor);
+						writeHistoryEntry(history, descriptors, new SubProgressMonitor(monitor, 10, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+						if (sort) {
+							final Set<RefactoringDescriptorProxy> set= new HashSet<>(64);
+							readRefactoringDescriptorProxies(index, null, set, 0, Long.MAX_VALUE, new SubProgressMonitor(monitor, 2), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+							writeIndexEntry(index, set.toArray(new RefactoringDescriptorProxy[set.size()]), EFS.NONE, new SubProgressMonitor(monitor, 3, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+						} else
+							writeIndexEntry(index, proxies, EFS.APPEND, new SubProgressMonitor(monitor, 5, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
 					} catch (IOException exception) {
 						throw createCoreException(exception);
-					} catch (SAXException exception) {
-						throw createCoreException(exception);
 					} finally {
 						if (input != null) {
 							try {
@@ -876,13 +730,13 @@ public final class RefactoringHistoryManager {
 					}
 				} else {
 					try {
-						final Document result= transformDescriptor(descriptor, false);
-						writeHistoryEntry(history, result, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
-							writeIndexEntry(index, proxies, EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+						writeHistoryEntry(history, Collections.singletonList(descriptor), new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+						writeIndexEntry(index, proxies, EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
 					} catch (IOException exception) {
 						throw createCoreException(exception);
 					}
 				}
+				fHistoryIndex.invalidate(path);
 			}
 		} finally {
 			monitor.done();
@@ -890,29 +744,31 @@ public final class RefactoringHistoryManager {
 	}
 
 	/**
-	 * Returns the cached refactoring history document.
+	 * Returns the cached default refactoring descriptors of a history entry.
+	 * <p>
+	 * The returned list may be modified by the caller, but must then be
+	 * written back with
+	 * {@link #writeHistoryEntry(IFileStore, List, IProgressMonitor, String)},
+	 * which clears the cache.
+	 * </p>
 	 *
 	 * @param path
-	 *            the path of the document
+	 *            the path of the history entry
 	 * @param input
-	 *            the input stream where to read the document
-	 * @return the cached refactoring history document
-	 * @throws SAXException
-	 *             if an error occurs while parsing the history entry
-	 * @throws IOException
-	 *             if an input/output error occurs
-	 * @throws ParserConfigurationException
-	 *             if an error occurs in the parser configuration
+	 *            the input stream where to read the history entry
+	 * @return the cached refactoring descriptors, in the order of the history
+	 *         entry
+	 * @throws CoreException
+	 *             if an error occurs while reading the history entry
 	 */
-	private Document getCachedDocument(final IPath path, final InputStream input) throws SAXException, IOException, ParserConfigurationException {
-		if (path.equals(fCachedPath) && fCachedDocument != null)
-			return fCachedDocument;
-		DocumentBuilder parser= DocumentBuilderFactory.newInstance().newDocumentBuilder();
-		parser.setErrorHandler(new DefaultHandler());
-		final Document document= parser.parse(new InputSource(input));
-		fCachedDocument= document;
+	private List<RefactoringDescriptor> getCachedDescriptors(final IPath path, final InputStream input) throws CoreException {
+		if (path.equals(fCachedPath) && fCachedDescriptors != null)
+			return fCachedDescriptors;
+		final List<RefactoringDescriptor> descriptors= new ArrayList<>();
+		readRefactoringDescriptors(input, descriptors, new NullProgressMonitor());
+		fCachedDescriptors= descriptors;
 		fCachedPath= path;
-		return document;
+		return descriptors;
 	}
 
 	/**
@@ -963,11 +819,9 @@ public final class RefactoringHistoryManager {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 200);
 			final Set<RefactoringDescriptorProxy> set= new HashSet<>();
 			try {
-				if (fHistoryStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+				set.addAll(Arrays.asList(fHistoryIndex.getProxies(fProjectName, start, end, new SubProgressMonitor(monitor, 100))));
 				final IFileStore store= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation()).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER).getChild(RefactoringHistoryService.NAME_WORKSPACE_PROJECT);
-				if (store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(store, null, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+				set.addAll(Arrays.asList(RefactoringHistoryIndex.getIndex(store).getProxies(null, start, end, new SubProgressMonitor(monitor, 100))));
 			} catch (CoreException exception) {
 				RefactoringCorePlugin.log(exception);
 			}
@@ -1011,16 +865,10 @@ public final class RefactoringHistoryManager {
 					final IFileStore history= folder.getChild(RefactoringHistoryService.NAME_HISTORY_FILE);
 					if (history.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists()) {
 						InputStream input= null;
-						Document document= null;
+						List<RefactoringDescriptor> descriptors= null;
 						try {
 							input= new BufferedInputStream(history.openInputStream(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)));
-							document= getCachedDocument(path, input);
-						} catch (ParserConfigurationException exception) {
-							throw createCoreException(exception);
-						} catch (IOException exception) {
-							throw createCoreException(exception);
-						} catch (SAXException exception) {
-							throw createCoreException(exception);
+							descriptors= getCachedDescriptors(path, input);
 						} finally {
 							if (input != null) {
 								try {
@@ -1030,36 +878,20 @@ public final class RefactoringHistoryManager {
 								}
 							}
 						}
-						final Set<Node> removedNodes= new HashSet<>(proxies.length);
-						final NodeList list= document.getElementsByTagName(IRefactoringSerializationConstants.ELEMENT_REFACTORING);
-						final int length= list.getLength();
-						for (int offset= 0; offset < length; offset++) {
-							final Node node= list.item(offset);
-							final NamedNodeMap attributes= node.getAttributes();
-							if (attributes != null) {
-								final Node item= attributes.getNamedItem(IRefactoringSerializationConstants.ATTRIBUTE_STAMP);
-								if (item != null) {
-									final String value= item.getNodeValue();
-									if (value != null) {
-										for (int current= 0; current < proxies.length; current++) {
-											final RefactoringDescriptorProxy proxy= proxies[current];
-											final long stamp= proxy.getTimeStamp();
-											if (value.equals(String.valueOf(stamp))) {
-												resultingProxies.remove(new DefaultRefactoringDescriptorProxy(proxy.getDescription(), proxy.getProject(), stamp));
-												removedNodes.add(node);
-											}
-										}
-									}
+						for (final Iterator<RefactoringDescriptor> iterator= descriptors.iterator(); iterator.hasNext();) {
+							final long stamp= iterator.next().getTimeStamp();
+							for (int current= 0; current < proxies.length; current++) {
+								final RefactoringDescriptorProxy proxy= proxies[current];
+								if (proxy.getTimeStamp() == stamp) {
+									resultingProxies.remove(new DefaultRefactoringDescriptorProxy(proxy.getDescription(), proxy.getProject(), stamp));
+									iterator.remove();
+									break;
 								}
 							}
 						}
-						for (final Iterator<Node> iterator= removedNodes.iterator(); iterator.hasNext();) {
-							final Node node= iterator.next();
-							node.getParentNode().removeChild(node);
-						}
 						try {
 							writeIndexEntry(index, resultingProxies.toArray(new RefactoringDescriptorProxy[resultingProxies.size()]), EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), task);
-							writeHistoryEntry(history, document, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), task);
+							writeHistoryEntry(history, descriptors, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), task);
 						} catch (IOException exception) {
 							throw createCoreException(exception);
 						}
@@ -1067,6 +899,7 @@ public final class RefactoringHistoryManager {
 				}
 			}
 		} finally {
+			fHistoryIndex.invalidate(path);
 			monitor.done();
 		}
 	}
@@ -1186,29 +1019,21 @@ public final class RefactoringHistoryManager {
 					InputStream input= null;
 					try {
 						input= new BufferedInputStream(history.openInputStream(EFS.NONE, new SubProgressMonitor(monitor, 40, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)));
-						final Document document= getCachedDocument(path, input);
+						final List<RefactoringDescriptor> descriptors= getCachedDescriptors(path, input);
 						try {
 							input.close();
 							input= null;
 						} catch (IOException exception) {
 							// Do nothing
 						}
-						final String time= String.valueOf(stamp);
-						final NodeList list= document.getElementsByTagName(IRefactoringSerializationConstants.ELEMENT_REFACTORING);
-						for (int index= 0; index < list.getLength(); index++) {
-							final Element element= (Element) list.item(index);
-							if (time.equals(element.getAttribute(IRefactoringSerializationConstants.ATTRIBUTE_STAMP))) {
-								element.setAttribute(IRefactoringSerializationConstants.ATTRIBUTE_COMMENT, comment);
+						for (final Iterator<RefactoringDescriptor> iterator= descriptors.iterator(); iterator.hasNext();) {
+							final RefactoringDescriptor descriptor= iterator.next();
+							if (descriptor.getTimeStamp() == stamp) {
+								descriptor.setComment(comment);
 								break;
 							}
 						}
-						writeHistoryEntry(history, document, new SubProgressMonitor(monitor, 40, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
-					} catch (ParserConfigurationException exception) {
-						throw createCoreException(exception);
-					} catch (IOException exception) {
-						throw createCoreException(exception);
-					} catch (SAXException exception) {
-						throw createCoreException(exception);
+						writeHistoryEntry(history, descriptors, new SubProgressMonitor(monitor, 40, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
 					} finally {
 						if (input != null) {
 							try {
@@ -1226,12 +1051,13 @@ public final class RefactoringHistoryManager {
 	}
 
 	/**
-	 * Writes the specified document node into the refactoring history.
+	 * Writes the specified refactoring descriptors into the refactoring
+	 * history.
 	 *
 	 * @param file
 	 *            the refactoring history file
-	 * @param document
-	 *            the document representing the history entry
+	 * @param descriptors
+	 *            the refactoring descriptors of the history entry
 	 * @param monitor
 	 *            the progress monitor to use
 	 * @param task
@@ -1239,25 +1065,34 @@ public final class RefactoringHistoryManager {
 	 * @throws CoreException
 	 *             if an error occurs while adding the history entry
 	 */
-	private void writeHistoryEntry(final IFileStore file, final Document document, final IProgressMonitor monitor, final String task) throws CoreException {
+	private void writeHistoryEntry(final IFileStore file, final List<RefactoringDescriptor> descriptors, final IProgressMonitor monitor, final String task) throws CoreException {
 		OutputStream output= null;
 		try {
 			monitor.beginTask(task, 2);
-				file.getParent().mkdir(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
-				output= new BufferedOutputStream(file.openOutputStream(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)));
-			writeNode(output, document);
-				} finally {
-					fCachedDocument= null;
-					fCachedPath= null;
-					fCachedDescriptor= null;
-					fCachedStore= null;
-				if (output != null) {
-					try {
-						output.close();
-					} catch (IOException exception) {
-						// Do nothing
-					}
+			file.getParent().mkdir(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			output= new BufferedOutputStream(file.openOutputStream(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)));
+			final RefactoringSessionWriter writer= new RefactoringSessionWriter(output, false);
+			writer.beginSession(null, IRefactoringSerializationConstants.CURRENT_VERSION);
+			for (final Iterator<RefactoringDescriptor> iterator= descriptors.iterator(); iterator.hasNext();) {
+				final RefactoringDescriptor descriptor= iterator.next();
+				if (descriptor instanceof DefaultRefactoringDescriptor)
+					writeDefaultRefactoringDescriptor(writer, (DefaultRefactoringDescriptor) descriptor);
+				else
+					writeRefactoringDescriptor(writer, descriptor, true);
+			}
+			writer.endSession();
+		} finally {
+			fCachedDescriptors= null;
+			fCachedPath= null;
+			fCachedDescriptor= null;
+			fCachedStore= null;
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException exception) {
+					// Do nothing
 				}
+			}
 			monitor.done();
 		}
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,7 +15,6 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -76,10 +75,12 @@ import org.eclipse.ltk.core.refactoring.history.RefactoringExecutionEvent;
 import org.eclipse.ltk.core.refactoring.history.RefactoringHistory;
 import org.eclipse.ltk.core.refactoring.history.RefactoringHistoryEvent;
 import org.eclipse.ltk.internal.core.refactoring.IRefactoringSerializationConstants;
+import org.eclipse.ltk.internal.core.refactoring.IRefactoringSessionRequestor;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringPreferenceConstants;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringSessionReader;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringSessionWriter;
 import org.eclipse.ltk.internal.core.refactoring.UndoableOperation2ChangeAdapter;
 
 /**
@@ -738,18 +739,19 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 		Assert.isNotNull(stream);
 		Assert.isTrue(flags >= RefactoringDescriptor.NONE);
 		final List<RefactoringDescriptor> list= new ArrayList<>();
-		final RefactoringSessionDescriptor descriptor= new RefactoringSessionReader(false, null).readSession(new InputSource(stream));
-		if (descriptor != null) {
-			final RefactoringDescriptor[] descriptors= descriptor.getRefactorings();
-			if (flags > RefactoringDescriptor.NONE) {
-				for (int index= 0; index < descriptors.length; index++) {
-					final int current= descriptors[index].getFlags();
-					if ((current | flags) == current)
-						list.add(descriptors[index]);
-				}
-			} else
-				list.addAll(Arrays.asList(descriptors));
-		}
+		new RefactoringSessionReader(false, null).readSession(new InputSource(stream), new IRefactoringSessionRequestor() {
+
+			@Override
+			public boolean accept(final RefactoringDescriptor descriptor) {
+				list.add(descriptor);
+				return true;
+			}
+
+			@Override
+			public boolean select(final String id, final String project, final long stamp, final int current) {
+				return (current | flags) == current;
+			}
+		});
 		final RefactoringDescriptorProxy[] proxies= new RefactoringDescriptorProxy[list.size()];
 		for (int index= 0; index < list.size(); index++)
 			proxies[index]= new RefactoringDescriptorProxyAdapter(list.get(index));
@@ -817,18 +819,17 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 		try {
 			monitor.beginTask("", 100 * proxies.length); //$NON-NLS-1$
 			connect();
-			final List<RefactoringDescriptor> list= new ArrayList<>(proxies.length);
+			final RefactoringSessionWriter writer= new RefactoringSessionWriter(stream, true);
+			writer.beginSession(null, IRefactoringSerializationConstants.CURRENT_VERSION);
 			for (int index= 0; index < proxies.length; index++) {
 				final RefactoringDescriptor descriptor= proxies[index].requestDescriptor(new SubProgressMonitor(monitor, 100));
 				if (descriptor != null) {
 					final int current= descriptor.getFlags();
 					if ((current | flags) == current)
-						list.add(descriptor);
+						RefactoringHistoryManager.writeRefactoringDescriptor(writer, descriptor, time);
 				}
 			}
-			final RefactoringDescriptor[] descriptors= new RefactoringDescriptor[list.size()];
-			list.toArray(descriptors);
-			RefactoringHistoryManager.writeRefactoringSession(stream, new RefactoringSessionDescriptor(descriptors, IRefactoringSerializationConstants.CURRENT_VERSION, null), time);
+			writer.endSession();
 		} finally {
 			disconnect();
 		}